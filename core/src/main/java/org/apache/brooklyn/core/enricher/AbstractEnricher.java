@@ -21,6 +21,7 @@ package org.apache.brooklyn.core.enricher;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.mgmt.rebind.RebindSupport;
@@ -35,8 +36,15 @@ import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.rebind.BasicEnricherRebindSupport;
 import org.apache.brooklyn.core.objs.AbstractEntityAdjunct;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.core.task.BasicTask;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.collect.Maps;
 
@@ -48,8 +56,18 @@ public abstract class AbstractEnricher extends AbstractEntityAdjunct implements
     public static final ConfigKey<Boolean> SUPPRESS_DUPLICATES = ConfigKeys.newBooleanConfigKey("enricher.suppressDuplicates",
         "Whether duplicate values published by this enricher should be suppressed");
 
+    @Beta
+    public static final ConfigKey<Duration> COALESCE_WINDOW = ConfigKeys.newDurationConfigKey("enricher.coalesceWindow",
+        "If set, for enrichers which support it, a burst of changes to the inputs within this period is collapsed into a single "
+        + "recomputation and publication at the end of the period (so outputs are at most this stale); "
+        + "by default the output is recomputed on every change");
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractEnricher.class);
+
     private final EnricherDynamicType enricherType;
     protected Boolean suppressDuplicates;
+    protected Duration coalesceWindow;
+    private final AtomicBoolean coalescedJobQueued = new AtomicBoolean(false);
 
     public AbstractEnricher() {
         this(Maps.newLinkedHashMap());
@@ -87,6 +105,44 @@ public abstract class AbstractEnricher extends AbstractEntityAdjunct implements
         Boolean suppressDuplicates = getConfig(SUPPRESS_DUPLICATES);
         if (suppressDuplicates!=null) 
             this.suppressDuplicates = suppressDuplicates;
+        Duration coalesceWindow = getConfig(COALESCE_WINDOW);
+        if (coalesceWindow!=null)
+            this.coalesceWindow = coalesceWindow;
+    }
+
+    /**
+     * Runs the given recomputation now, or if a {@link #COALESCE_WINDOW} is set then at the end of the window
+     * (starting from the first change since the last run); further calls in the meantime are ignored,
+     * so the job should compute from the latest state rather than from anything specific to the call.
+     */
+    @Beta
+    protected void runCoalesced(final Runnable job) {
+        if (coalesceWindow==null || coalesceWindow.toMilliseconds()<=0) {
+            job.run();
+            return;
+        }
+        if (!coalescedJobQueued.compareAndSet(false, true)) {
+            // already queued, and will see this change
+            return;
+        }
+        Runnable coalescedJob = new Runnable() {
+            @Override public void run() {
+                // cleared first so that changes while running get a subsequent run
+                coalescedJobQueued.set(false);
+                if (!isRunning()) return;
+                try {
+                    job.run();
+                } catch (Exception e) {
+                    if (isRunning()) {
+                        LOG.warn("Error in enricher "+AbstractEnricher.this+": "+e, e);
+                    } else {
+                        if (LOG.isDebugEnabled()) LOG.debug("Error in enricher "+AbstractEnricher.this+" (but no longer running): "+e, e);
+                    }
+                }
+            }
+        };
+        ScheduledTask task = new ScheduledTask(MutableMap.of("delay", coalesceWindow), new BasicTask<Void>(coalescedJob));
+        ((EntityInternal)entity).getExecutionContext().submit(task);
     }
     
     @Override
@@ -253,7 +253,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
      * via getAttribute/setAttribute; it will automatically emit an attribute-change event.
      */
     // TODO Assigning temp value because not everything uses EntitySpec; see setManagementContext()
-    private AttributeMap attributesInternal = new AttributeMap(this, Maps.<Collection<String>, Object>newLinkedHashMap());
+    private AttributeMap attributesInternal = new AttributeMap(this);
 
     /**
      * For temporary data, e.g. timestamps etc for calculating real attribute values, such as when
@@ -30,10 +30,12 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
 import org.apache.brooklyn.util.collections.CollectionFunctionals;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.guava.SerializablePredicate;
 import org.apache.brooklyn.util.javalang.Reflections;
 import org.apache.brooklyn.util.text.StringPredicates;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
@@ -137,7 +139,7 @@ public class EntityPredicates {
     // ---------------------------
 
     public static Predicate<Entity> applicationIdEqualTo(final String val) {
-        return applicationIdSatisfies(Predicates.equalTo(val));
+        return new ApplicationIdEqualTo(val);
     }
 
     public static Predicate<Entity> applicationIdSatisfies(final Predicate<? super String> condition) {
@@ -159,6 +161,31 @@ public class EntityPredicates {
         }
     }
 
+    /** As {@link ApplicationIdSatisfies}, but remembering the id, so it can be found by {@link #requiredApplicationId(Predicate)}. */
+    protected static class ApplicationIdEqualTo extends ApplicationIdSatisfies {
+        protected final String val;
+        protected ApplicationIdEqualTo(String val) {
+            super(Predicates.equalTo(val));
+            this.val = val;
+        }
+        @Override
+        public String toString() {
+            return "applicationIdEqualTo("+val+")";
+        }
+    }
+
+    /**
+     * The application id which the given predicate requires, if it is an {@link #applicationIdEqualTo(String)}
+     * predicate; so the entities of that application can be looked up, rather than testing every entity.
+     */
+    @Beta
+    public static Maybe<String> requiredApplicationId(Predicate<?> predicate) {
+        if (predicate instanceof ApplicationIdEqualTo) {
+            return Maybe.fromNullable(((ApplicationIdEqualTo)predicate).val);
+        }
+        return Maybe.absent();
+    }
+
     /** @deprecated since 0.7.0 kept only to allow conversion of anonymous inner classes */
     @SuppressWarnings("unused") @Deprecated 
     private static Predicate<Entity> applicationIdEqualToOld(final String val) {
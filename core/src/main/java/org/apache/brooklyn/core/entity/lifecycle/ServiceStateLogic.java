@@ -66,6 +66,7 @@ import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
@@ -471,32 +472,37 @@ public class ServiceStateLogic {
                 return;
             }
 
-            // override superclass to publish multiple sensors
-            if (getConfig(DERIVE_SERVICE_PROBLEMS)) {
-                updateMapSensor(SERVICE_PROBLEMS, computeServiceProblems());
-            }
+            runCoalesced(new Runnable() {
+                @Override public void run() {
+                    // override superclass to publish multiple sensors
+                    if (getConfig(DERIVE_SERVICE_PROBLEMS)) {
+                        updateMapSensor(SERVICE_PROBLEMS, computeServiceProblems());
+                    }
 
-            if (getConfig(DERIVE_SERVICE_NOT_UP)) {
-                updateMapSensor(SERVICE_NOT_UP_INDICATORS, computeServiceNotUp());
-            }
+                    if (getConfig(DERIVE_SERVICE_NOT_UP)) {
+                        updateMapSensor(SERVICE_NOT_UP_INDICATORS, computeServiceNotUp());
+                    }
+                }
+            });
         }
 
+        // counts come from the aggregator's index of producers by value, so only the producers
+        // which are not up (or not healthy) are iterated over, not every child and member
         protected Object computeServiceNotUp() {
-            Map<Entity, Boolean> values = getValues(SERVICE_UP);
             List<Entity> violators = MutableList.of();
             boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
             Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            int entries=0;
-            int numUp=0;
-            for (Map.Entry<Entity, Boolean> state: values.entrySet()) {
-                if (ignoreNull && state.getValue()==null)
+            int numProducers = countProducers(SERVICE_UP);
+            int entries = numProducers - (ignoreNull ? countEntitiesWithValue(SERVICE_UP, null) : 0);
+            int numUp = countEntitiesWithValue(SERVICE_UP, Boolean.TRUE);
+            for (Boolean up : getDistinctValues(SERVICE_UP)) {
+                if (Boolean.TRUE.equals(up) || (ignoreNull && up==null))
                     continue;
-                entries++;
-                Lifecycle entityState = state.getKey().getAttribute(SERVICE_STATE_ACTUAL);
-                
-                if (Boolean.TRUE.equals(state.getValue())) numUp++;
-                else if (!ignoreStates.contains(entityState)) {
-                    violators.add(state.getKey());
+                for (Entity notUp : getEntitiesWithValue(SERVICE_UP, up)) {
+                    Lifecycle entityState = notUp.getAttribute(SERVICE_STATE_ACTUAL);
+                    if (!ignoreStates.contains(entityState)) {
+                        violators.add(notUp);
+                    }
                 }
             }
 
@@ -506,7 +512,7 @@ public class ServiceStateLogic {
                     // quorate
                     return null;
 
-                if (values.isEmpty()) return "No entities present";
+                if (numProducers==0) return "No entities present";
                 if (entries==0) return "No entities publishing service up";
                 if (violators.isEmpty()) return "Not enough entities";
             } else {
@@ -520,14 +526,12 @@ public class ServiceStateLogic {
         }
 
         protected Object computeServiceProblems() {
-            Map<Entity, Lifecycle> values = getValues(SERVICE_STATE_ACTUAL);
-            int numRunning=0;
+            int numRunning = countEntitiesWithValue(SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
             List<Entity> onesNotHealthy=MutableList.of();
             Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            for (Map.Entry<Entity,Lifecycle> state: values.entrySet()) {
-                if (state.getValue()==Lifecycle.RUNNING) numRunning++;
-                else if (!ignoreStates.contains(state.getValue())) 
-                    onesNotHealthy.add(state.getKey());
+            for (Lifecycle state : getDistinctValues(SERVICE_STATE_ACTUAL)) {
+                if (state!=Lifecycle.RUNNING && !ignoreStates.contains(state))
+                    onesNotHealthy.addAll(getEntitiesWithValue(SERVICE_STATE_ACTUAL, state));
             }
 
             QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
@@ -604,6 +608,12 @@ public class ServiceStateLogic {
             configure(ComputeServiceIndicatorsFromChildrenAndMembers.RUNNING_QUORUM_CHECK, check);
             return self();
         }
+        /** see {@link AbstractEnricher#COALESCE_WINDOW} */
+        @Beta
+        public ComputeServiceIndicatorsFromChildrenAndMembersSpec coalesceWindow(Duration window) {
+            configure(AbstractEnricher.COALESCE_WINDOW, window);
+            return self();
+        }
     }
 
     /** provides the default {@link ComputeServiceIndicatorsFromChildrenAndMembers} enricher, 
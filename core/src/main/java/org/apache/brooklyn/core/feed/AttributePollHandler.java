@@ -44,7 +44,7 @@ import com.google.common.base.Objects;
  * 
  * @author aled
  */
-public class AttributePollHandler<V> implements PollHandler<V> {
+public class AttributePollHandler<V> implements ChangeTrackingPollHandler<V> {
 
     public static final Logger log = LoggerFactory.getLogger(AttributePollHandler.class);
 
@@ -66,6 +66,7 @@ public class AttributePollHandler<V> implements PollHandler<V> {
     private volatile Long currentProblemStartTime = null;
     private volatile boolean currentProblemLoggedAsWarning = false;
     private volatile boolean lastWasProblem = false;
+    private volatile boolean lastResultChanged = true;
 
     
     public AttributePollHandler(FeedConfig<V,?,?> config, EntityLocal entity, AbstractFeed feed) {
@@ -95,6 +96,7 @@ public class AttributePollHandler<V> implements PollHandler<V> {
             currentProblemLoggedAsWarning = false;
         }
         lastSuccessTime = System.currentTimeMillis();
+        lastResultChanged = false;
         if (log.isTraceEnabled()) log.trace("poll for {} got: {}", new Object[] {getBriefDescription(), val});
         
         try {
@@ -116,6 +118,7 @@ public class AttributePollHandler<V> implements PollHandler<V> {
 
     @Override
     public void onFailure(V val) {
+        lastResultChanged = false;
         if (!config.hasFailureHandler()) {
             onException(new Exception("checkSuccess of "+this+" for "+getBriefDescription()+" was false but poller has no failure handler"));
         } else {
@@ -136,6 +139,7 @@ public class AttributePollHandler<V> implements PollHandler<V> {
 
     @Override
     public void onException(Exception exception) {
+        lastResultChanged = false;
         if (!feed.isConnected()) {
             if (log.isTraceEnabled()) log.trace("Read of {} in {} gave exception (while not connected or not yet connected): {}", new Object[] {this, getBriefDescription(), exception});
         } else {
@@ -218,12 +222,16 @@ public class AttributePollHandler<V> implements PollHandler<V> {
         if (v == FeedConfig.UNCHANGED) {
             // nothing
         } else if (v == FeedConfig.REMOVE) {
+            if (entity.getAttribute(sensor) != null) lastResultChanged = true;
             ((EntityInternal)entity).removeAttribute(sensor);
         } else if (sensor == FeedConfig.NO_SENSOR) {
-            // nothing
+            // the handler may have set other sensors, so assume it changed something
+            lastResultChanged = true;
         } else {
             Object coercedV = TypeCoercions.coerce(v, sensor.getType());
-            if (suppressDuplicates && Objects.equal(coercedV, entity.getAttribute(sensor))) {
+            boolean changed = !Objects.equal(coercedV, entity.getAttribute(sensor));
+            if (changed) lastResultChanged = true;
+            if (suppressDuplicates && !changed) {
                 // no change; nothing
             } else {
                 entity.sensors().set(sensor, coercedV);
@@ -231,6 +239,11 @@ public class AttributePollHandler<V> implements PollHandler<V> {
         }
     }
 
+    @Override
+    public boolean isLastResultChanged() {
+        return lastResultChanged;
+    }
+
     @Override
     public String toString() {
         return super.toString()+"["+getDescription()+"]";
@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.feed;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A poll handler which can report whether the most recent result it handled changed anything
+ * (e.g. the value of a sensor), so the {@link Poller} can poll less often while nothing is changing.
+ * Handlers which do not implement this are treated as if every successful result were a change.
+ */
+@Beta
+public interface ChangeTrackingPollHandler<V> extends PollHandler<V> {
+
+    /** Whether handling the most recent result changed anything. */
+    public boolean isLastResultChanged();
+
+}
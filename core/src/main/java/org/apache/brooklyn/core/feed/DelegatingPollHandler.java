@@ -27,7 +27,7 @@ import com.google.common.collect.ImmutableList;
  * 
  * @author aled
  */
-public class DelegatingPollHandler<V> implements PollHandler<V> {
+public class DelegatingPollHandler<V> implements ChangeTrackingPollHandler<V> {
 
     private final List<AttributePollHandler<? super V>> delegates;
 
@@ -66,6 +66,15 @@ public class DelegatingPollHandler<V> implements PollHandler<V> {
         }
     }
     
+    @Override
+    public boolean isLastResultChanged() {
+        for (AttributePollHandler<? super V> delegate : delegates) {
+            if (delegate.isLastResultChanged())
+                return true;
+        }
+        return false;
+    }
+    
     @Override
     public String toString() {
         return super.toString()+"["+getDescription()+"]";
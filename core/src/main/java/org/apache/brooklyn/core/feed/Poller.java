@@ -22,23 +22,38 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.entity.EntityLocal;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.concurrent.TokenBucket;
 import org.apache.brooklyn.util.core.task.DynamicSequentialTask;
 import org.apache.brooklyn.util.core.task.ScheduledTask;
 import org.apache.brooklyn.util.core.task.TaskTags;
 import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 
 /** 
@@ -51,6 +66,26 @@ import com.google.common.base.Objects;
 public class Poller<V> {
     public static final Logger log = LoggerFactory.getLogger(Poller.class);
 
+    @Beta
+    public static final ConfigKey<Double> START_JITTER = ConfigKeys.newDoubleConfigKey("brooklyn.feed.poll.startJitter",
+            "Maximum random delay before the first poll of each job, as a fraction of its period "
+            + "(so that feeds started together, e.g. on rebind, do not all poll at the same time)", 0d);
+
+    @Beta
+    public static final ConfigKey<Double> PERIOD_JITTER = ConfigKeys.newDoubleConfigKey("brooklyn.feed.poll.periodJitter",
+            "Maximum random variation of the time between polls, as a fraction of the period", 0d);
+
+    @Beta
+    public static final ConfigKey<Double> MAX_BACKOFF = ConfigKeys.newDoubleConfigKey("brooklyn.feed.poll.maxBackoff",
+            "Maximum multiple of its period to which the time between polls is increased (doubling each time) "
+            + "while the results are unchanged or failing; it returns to the period as soon as a result changes. "
+            + "1 (the default) to always poll at the period", 1d);
+
+    @Beta
+    public static final ConfigKey<Double> MAX_POLLS_PER_SECOND = ConfigKeys.newDoubleConfigKey("brooklyn.feed.poll.maxPollsPerSecond",
+            "Maximum rate of polls by all feeds in the management node; polls over the limit are deferred, in turn, until a permit is free. "
+            + "0 (the default) for no limit", 0d);
+
     private final EntityLocal entity;
     private final boolean onlyIfServiceUp;
     private final Set<Callable<?>> oneOffJobs = new LinkedHashSet<Callable<?>>();
@@ -62,35 +97,186 @@ public class Poller<V> {
     private static class PollJob<V> {
         final PollHandler<? super V> handler;
         final Duration pollPeriod;
-        final Runnable wrappedJob;
+        Runnable wrappedJob;
         private boolean loggedPreviousException = false;
         
-        PollJob(final Callable<V> job, final PollHandler<? super V> handler, Duration period) {
+        // for adaptive scheduling, set when the poller starts (if enabled)
+        private volatile PollScheduling scheduling;
+        private volatile ScheduledTask scheduledTask;
+        private volatile double backoff = 1;
+        // whether the next poll has already been given a permit, when it was deferred
+        private volatile boolean permitReserved = false;
+        
+        private PollJob(PollHandler<? super V> handler, Duration period) {
             this.handler = handler;
             this.pollPeriod = period;
-            
-            wrappedJob = new Runnable() {
+        }
+        
+        static <V> PollJob<V> newInstance(final Callable<V> job, final PollHandler<? super V> handler, Duration period) {
+            final PollJob<V> result = new PollJob<V>(handler, period);
+            result.wrappedJob = new Runnable() {
                 public void run() {
                     try {
                         V val = job.call();
-                        loggedPreviousException = false;
-                        if (handler.checkSuccess(val)) {
-                            handler.onSuccess(val);
-                        } else {
-                            handler.onFailure(val);
-                        }
+                        result.onResult(val);
                     } catch (Exception e) {
-                        if (loggedPreviousException) {
-                            if (log.isTraceEnabled()) log.trace("PollJob for {}, repeated consecutive failures, handling {} using {}", new Object[] {job, e, handler});
-                        } else {
-                            if (log.isDebugEnabled()) log.debug("PollJob for {} handling {} using {}", new Object[] {job, e, handler});
-                            loggedPreviousException = true;
-                        }
-                        handler.onException(e);
+                        result.onException(job, e);
                     }
                 }
             };
+            return result;
+        }
+        
+        /**
+         * for a job which starts the poll and returns a future, rather than blocking until the poll completes;
+         * the handler is called using the given executor when the future completes
+         */
+        static <V> PollJob<V> newAsyncInstance(final Callable<? extends ListenableFuture<V>> job, final PollHandler<? super V> handler, Duration period,
+                final Executor handlerExecutor) {
+            final PollJob<V> result = new PollJob<V>(handler, period);
+            final AtomicBoolean inProgress = new AtomicBoolean(false);
+            
+            result.wrappedJob = new Runnable() {
+                public void run() {
+                    if (!inProgress.compareAndSet(false, true)) {
+                        if (log.isTraceEnabled()) log.trace("PollJob for {} skipped, as previous poll still in progress", job);
+                        return;
+                    }
+                    ListenableFuture<V> future;
+                    try {
+                        future = job.call();
+                    } catch (Exception e) {
+                        inProgress.set(false);
+                        result.onException(job, e);
+                        return;
+                    }
+                    // not in the thread which completes the future (e.g. an I/O reactor thread), which handlers could block
+                    Futures.addCallback(future, new FutureCallback<V>() {
+                        @Override public void onSuccess(V val) {
+                            try {
+                                result.onResult(val);
+                            } catch (Exception e) {
+                                result.onException(job, e);
+                            } finally {
+                                inProgress.set(false);
+                            }
+                        }
+                        @Override public void onFailure(Throwable t) {
+                            try {
+                                result.onException(job, (t instanceof Exception) ? (Exception)t : new ExecutionException(t));
+                            } finally {
+                                inProgress.set(false);
+                            }
+                        }
+                    }, new Executor() {
+                        @Override public void execute(Runnable command) {
+                            try {
+                                handlerExecutor.execute(command);
+                            } catch (Exception e) {
+                                // e.g. the entity is no longer managed; the poller will be stopped
+                                Exceptions.propagateIfFatal(e);
+                                if (log.isDebugEnabled()) log.debug("PollJob for {} unable to handle result (skipping): {}", job, e);
+                                inProgress.set(false);
+                            }
+                        }
+                    });
+                }
+            };
+            return result;
+        }
+        
+        private void onResult(V val) {
+            loggedPreviousException = false;
+            boolean success = handler.checkSuccess(val);
+            if (success) {
+                handler.onSuccess(val);
+            } else {
+                handler.onFailure(val);
+            }
+            boolean changed = !(handler instanceof ChangeTrackingPollHandler) || ((ChangeTrackingPollHandler<?>)handler).isLastResultChanged();
+            adapt(success && changed);
+        }
+        
+        private void onException(Object job, Exception e) {
+            if (loggedPreviousException) {
+                if (log.isTraceEnabled()) log.trace("PollJob for {}, repeated consecutive failures, handling {} using {}", new Object[] {job, e, handler});
+            } else {
+                if (log.isDebugEnabled()) log.debug("PollJob for {} handling {} using {}", new Object[] {job, e, handler});
+                loggedPreviousException = true;
+            }
+            handler.onException(e);
+            adapt(false);
         }
+        
+        /** polls less often (up to the maximum back-off) while results are unchanged or failing, and at the period as soon as one changes */
+        private void adapt(boolean changed) {
+            PollScheduling s = scheduling;
+            if (s == null) return;
+            backoff = changed ? 1 : Math.min(backoff * 2, s.maxBackoff);
+            reschedule(s.nextPeriod(pollPeriod, backoff));
+        }
+        
+        /**
+         * whether the poll can run now, given the limit on polls per second; if not, a permit is reserved
+         * and the poll is deferred until it is due, so deferred polls wait in turn (for a time proportional to
+         * the number already waiting) rather than repeatedly competing for the next permit
+         */
+        private boolean acquirePermit() {
+            PollScheduling s = scheduling;
+            if (s == null || s.rateLimiter == null) return true;
+            long wait = permitReserved ? 0 : s.rateLimiter.reserve();
+            if (wait == 0) {
+                permitReserved = false;
+                reschedule(s.nextPeriod(pollPeriod, backoff));
+                return true;
+            } else {
+                permitReserved = true;
+                reschedule(Duration.nanos(wait));
+                return false;
+            }
+        }
+        
+        private void reschedule(Duration period) {
+            // the scheduled task reads the period when it resubmits, after each poll
+            ScheduledTask task = scheduledTask;
+            if (task != null) task.period(period);
+        }
+    }
+    
+    /** Settings (from the management context) for spreading polls over time, and for adapting their period */
+    private static class PollScheduling {
+        final double startJitter;
+        final double periodJitter;
+        final double maxBackoff;
+        final TokenBucket rateLimiter;
+        
+        PollScheduling(ManagementContext mgmt) {
+            StringConfigMap config = mgmt.getConfig();
+            startJitter = Math.max(0, elvis(config.getConfig(START_JITTER), 0d));
+            periodJitter = Math.min(1, Math.max(0, elvis(config.getConfig(PERIOD_JITTER), 0d)));
+            maxBackoff = Math.max(1, elvis(config.getConfig(MAX_BACKOFF), 1d));
+            rateLimiter = ((ManagementContextInternal)mgmt).getPollRateLimiter();
+        }
+        
+        private static double elvis(Double val, double defaultVal) {
+            return (val != null) ? val : defaultVal;
+        }
+        
+        boolean isAdaptive() {
+            return periodJitter > 0 || maxBackoff > 1 || rateLimiter != null;
+        }
+        
+        Duration initialDelay(Duration period) {
+            if (startJitter == 0) return Duration.ZERO;
+            return period.multiply(startJitter * ThreadLocalRandom.current().nextDouble());
+        }
+        
+        Duration nextPeriod(Duration period, double backoff) {
+            if (backoff == 1 && periodJitter == 0) return period;
+            double jitter = periodJitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+            return period.multiply(backoff * (1 + jitter));
+        }
+
     }
     
     /** @deprecated since 0.7.0, pass in whether should run onlyIfServiceUp */
@@ -118,10 +304,35 @@ public class Poller<V> {
         if (started) {
             throw new IllegalStateException("Cannot schedule additional tasks after poller has started");
         }
-        PollJob<V> foo = new PollJob<V>(job, handler, period);
+        PollJob<V> foo = PollJob.newInstance(job, handler, period);
         pollJobs.add(foo);
     }
 
+    /**
+     * As {@link #scheduleAtFixedRate(Callable, PollHandler, Duration)}, but for a job which starts a poll and returns
+     * without waiting for it to complete (e.g. using non-blocking I/O), so does not hold a thread while the poll is in progress.
+     * The handler is called when the returned future completes, in a task in the entity's execution context
+     * (rather than in the thread which completes the future, such as an I/O thread shared by many feeds).
+     * A poll is skipped if the previous one has not yet completed.
+     */
+    @Beta
+    public void scheduleAsyncAtFixedRate(Callable<? extends ListenableFuture<V>> job, PollHandler<? super V> handler, Duration period) {
+        if (started) {
+            throw new IllegalStateException("Cannot schedule additional tasks after poller has started");
+        }
+        pollJobs.add(PollJob.newAsyncInstance(job, handler, period, newHandlerExecutor(handler.getDescription())));
+    }
+
+    private Executor newHandlerExecutor(final String description) {
+        return new Executor() {
+            @Override public void execute(Runnable command) {
+                Task<?> task = Tasks.builder().dynamic(false).body(command).displayName("Poll result").description("Handling result of "+description).build();
+                BrooklynTaskTags.setTransient(task);
+                ((EntityInternal)entity).getExecutionContext().submit(task);
+            }
+        };
+    }
+
     @SuppressWarnings({ "unchecked" })
     public void start() {
         // TODO Previous incarnation of this logged this logged polledSensors.keySet(), but we don't know that anymore
@@ -134,6 +345,7 @@ public class Poller<V> {
         }
         
         started = true;
+        PollScheduling scheduling = new PollScheduling(((EntityInternal)entity).getManagementContext());
         
         for (final Callable<?> oneOffJob : oneOffJobs) {
             Task<?> task = Tasks.builder().dynamic(false).body((Callable<Object>) oneOffJob).displayName("Poll").description("One-time poll job "+oneOffJob).build();
@@ -150,6 +362,10 @@ public class Poller<V> {
                                 if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
                                         return null;
                                 }
+                                if (!pollJob.acquirePermit()) {
+                                    if (log.isTraceEnabled()) log.trace("Deferring poll {} for {}, as over the limit of polls per second", scheduleName, entity);
+                                    return null;
+                                }
                                 pollJob.wrappedJob.run();
                                 return null; 
                             } } );
@@ -159,8 +375,13 @@ public class Poller<V> {
                 };
                 Map<String, ?> taskFlags = MutableMap.of("displayName", "scheduled:" + scheduleName);
                 ScheduledTask task = new ScheduledTask(taskFlags, pollingTaskFactory)
+                        .delay(scheduling.initialDelay(pollJob.pollPeriod))
                         .period(pollJob.pollPeriod)
                         .cancelOnException(false);
+                pollJob.scheduling = scheduling.isAdaptive() ? scheduling : null;
+                pollJob.backoff = 1;
+                pollJob.permitReserved = false;
+                pollJob.scheduledTask = task;
                 tasks.add(Entities.submit(entity, task));
             } else {
                 if (log.isDebugEnabled()) log.debug("Activating poll (but leaving off, as period {}) for {} (using {})", new Object[] {pollJob.pollPeriod, entity, this});
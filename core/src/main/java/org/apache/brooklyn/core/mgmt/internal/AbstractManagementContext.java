@@ -58,6 +58,7 @@ import org.apache.brooklyn.core.entity.AbstractEntity;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.drivers.BasicEntityDriverManager;
 import org.apache.brooklyn.core.entity.drivers.downloads.BasicDownloadsManager;
+import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.core.internal.BrooklynProperties;
 import org.apache.brooklyn.core.internal.storage.BrooklynStorage;
 import org.apache.brooklyn.core.internal.storage.DataGrid;
@@ -73,6 +74,7 @@ import org.apache.brooklyn.core.mgmt.rebind.RebindManagerImpl;
 import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.concurrent.TokenBucket;
 import org.apache.brooklyn.util.core.ResourceUtils;
 import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
@@ -172,6 +174,10 @@ public abstract class AbstractManagementContext implements ManagementContextInte
 
     protected final ExternalConfigSupplierRegistry configSupplierRegistry;
 
+    protected final HttpClientRegistry httpClientRegistry;
+
+    protected final TokenBucket pollRateLimiter;
+
     private volatile boolean running = true;
     protected boolean startupComplete = false;
     protected final List<Throwable> errors = Collections.synchronizedList(MutableList.<Throwable>of());
@@ -201,6 +207,9 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         
         this.entitlementManager = Entitlements.newManager(this, brooklynProperties);
         this.configSupplierRegistry = new BasicExternalConfigSupplierRegistry(this); // TODO leaking "this" reference; yuck
+        this.httpClientRegistry = new HttpClientRegistry(this); // TODO leaking "this" reference; yuck
+        Double maxPollsPerSecond = configMap.getConfig(Poller.MAX_POLLS_PER_SECOND);
+        this.pollRateLimiter = (maxPollsPerSecond != null && maxPollsPerSecond > 0) ? new TokenBucket(maxPollsPerSecond) : null;
     }
 
     @Override
@@ -209,6 +218,7 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         running = false;
         rebindManager.stop();
         storage.terminate();
+        httpClientRegistry.close();
         // Don't unmanage everything; different entities get given their events at different times 
         // so can cause problems (e.g. a group finds out that a member is unmanaged, before the
         // group itself has been told that it is unmanaged).
@@ -514,4 +524,14 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         return configSupplierRegistry;
     }
 
+    @Override
+    public HttpClientRegistry getHttpClientRegistry() {
+        return httpClientRegistry;
+    }
+
+    @Override
+    public TokenBucket getPollRateLimiter() {
+        return pollRateLimiter;
+    }
+
 }
@@ -22,8 +22,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -34,6 +36,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
@@ -51,7 +54,7 @@ import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
-import org.apache.brooklyn.util.core.task.ExecutionListener;
+import org.apache.brooklyn.util.core.task.TaskDeletionListener;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.javalang.MemoryUsageTracker;
@@ -80,6 +83,11 @@ import com.google.common.collect.Iterables;
  * and keeping at most 100000 tasks in the system,
  * max 1000 tasks per entity, 50 per effector within that entity, and 50 per other non-effector tag
  * within that entity (or global if not attached to an entity).
+ * <p>
+ * If {@link #INCREMENTAL} is set, completed tasks are recorded as they finish, in completion order,
+ * both globally and for each tag. The per-tag limits are then applied as each task completes,
+ * and the periodic check only looks at the oldest completed tasks for the age and global limits,
+ * so the cost is proportional to the number of tasks deleted rather than to the number of tasks in memory.
  * 
  * @author aled
  */
@@ -132,6 +140,13 @@ public class BrooklynGarbageCollector {
             "brooklyn.gc.maxTaskAge", 
             "the duration after which a completed task will be automatically deleted", 
             Duration.days(30));
+
+    @Beta
+    public static final ConfigKey<Boolean> INCREMENTAL = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.gc.incremental",
+            "whether to track completed tasks per tag as they finish, applying the limits by evicting the oldest, "
+            + "rather than periodically scanning and sorting all tasks in memory",
+            false);
     
     protected final static Comparator<Task<?>> TASKS_OLDEST_FIRST_COMPARATOR = new Comparator<Task<?>>() {
         @Override public int compare(Task<?> t1, Task<?> t2) {
@@ -150,7 +165,16 @@ public class BrooklynGarbageCollector {
     
     private Duration gcPeriod;
     private final boolean doSystemGc;
+    private final boolean incremental;
     private volatile boolean running = true;
+
+    /** completed top-level tasks, oldest completion first, when {@link #incremental}; guarded by itself */
+    private final Set<Task<?>> completedTasks = new LinkedHashSet<Task<?>>();
+    /** completed top-level tasks for each tag not ignored for gc, oldest completion first; guarded by {@link #completedTasks} */
+    private final Map<Object,Set<Task<?>>> completedTasksByTag = new HashMap<Object,Set<Task<?>>>();
+    private final AtomicLong numTasksEvictedForTagCapacity = new AtomicLong();
+    private final AtomicLong numTasksEvictedForAge = new AtomicLong();
+    private final AtomicLong numTasksEvictedForGlobalCapacity = new AtomicLong();
     
     public BrooklynGarbageCollector(BrooklynProperties brooklynProperties, BasicExecutionManager executionManager, BrooklynStorage storage) {
         this.executionManager = executionManager;
@@ -158,15 +182,19 @@ public class BrooklynGarbageCollector {
         this.brooklynProperties = brooklynProperties;
 
         doSystemGc = brooklynProperties.getConfig(DO_SYSTEM_GC);
+        incremental = brooklynProperties.getConfig(INCREMENTAL);
         
         executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
                 @Override public Thread newThread(Runnable r) {
                     return new Thread(r, "brooklyn-gc");
                 }});
         
-        executionManager.addListener(new ExecutionListener() {
+        executionManager.addListener(new TaskDeletionListener() {
                 @Override public void onTaskDone(Task<?> task) {
                     BrooklynGarbageCollector.this.onTaskDone(task);
+                }
+                @Override public void onTaskDeleted(Task<?> task) {
+                    BrooklynGarbageCollector.this.onTaskDeleted(task);
                 }});
     
         scheduleCollector(true);
@@ -230,7 +258,37 @@ public class BrooklynGarbageCollector {
             executionManager.getNumActiveTasks()+" active, "+
             executionManager.getNumIncompleteTasks()+" unfinished; "+
             executionManager.getNumInMemoryTasks()+" remembered, "+
-            executionManager.getTotalTasksSubmitted()+" total submitted)";
+            executionManager.getTotalTasksSubmitted()+" total submitted)" +
+            (incremental ? "; gc: "+getNumTasksRetained()+" completed retained, "+
+                getNumTasksEvictedForTagCapacity()+"/"+getNumTasksEvictedForAge()+"/"+getNumTasksEvictedForGlobalCapacity()+
+                " evicted (tag/age/global)" : "");
+    }
+
+    /** whether completed tasks are tracked as they finish; see {@link #INCREMENTAL} */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /** number of completed top-level tasks currently tracked for deletion (always 0 unless {@link #isIncremental()}) */
+    public int getNumTasksRetained() {
+        synchronized (completedTasks) {
+            return completedTasks.size();
+        }
+    }
+
+    /** total tasks deleted because a tag (or entity) had too many tasks, when {@link #isIncremental()} */
+    public long getNumTasksEvictedForTagCapacity() {
+        return numTasksEvictedForTagCapacity.get();
+    }
+
+    /** total tasks deleted because they completed longer ago than {@link #MAX_TASK_AGE}, when {@link #isIncremental()} */
+    public long getNumTasksEvictedForAge() {
+        return numTasksEvictedForAge.get();
+    }
+
+    /** total tasks deleted because there were more than {@link #MAX_TASKS_GLOBAL} in memory, when {@link #isIncremental()} */
+    public long getNumTasksEvictedForGlobalCapacity() {
+        return numTasksEvictedForGlobalCapacity.get();
     }
     
     public void shutdownNow() {
@@ -262,6 +320,85 @@ public class BrooklynGarbageCollector {
     public void onTaskDone(Task<?> task) {
         if (shouldDeleteTaskImmediately(task)) {
             executionManager.deleteTask(task);
+        } else if (incremental && running) {
+            recordCompletedTask(task);
+        }
+    }
+
+    /**
+     * Records a completed task (unless it is a sub-task, which is deleted along with its parent),
+     * and deletes the oldest completed tasks from any tags which are now over capacity.
+     * As in {@link #expireOverCapacityTagsInCategory(Map, Map, TagCategory, boolean)},
+     * a task is only deleted if the other tags in its category are also full;
+     * otherwise it is just no longer counted against the full tag.
+     */
+    protected void recordCompletedTask(Task<?> task) {
+        if (BrooklynTaskTags.isSubTask(task)) return;
+        
+        int maxTasksPerEntity = brooklynProperties.getConfig(MAX_TASKS_PER_ENTITY);
+        int maxTasksPerTag = brooklynProperties.getConfig(MAX_TASKS_PER_TAG);
+        Set<Task<?>> tasksToDelete = MutableSet.of();
+        
+        synchronized (completedTasks) {
+            // deletions are reported after removal, so if it is still present we will be told if it is deleted
+            if (executionManager.getTask(task.getId())==null) return;
+            if (!completedTasks.add(task)) return;
+            
+            for (Object tag : task.getTags()) {
+                if (isTagIgnoredForGc(tag)) continue;
+                Set<Task<?>> tasksWithTag = completedTasksByTag.get(tag);
+                if (tasksWithTag==null) {
+                    tasksWithTag = new LinkedHashSet<Task<?>>();
+                    completedTasksByTag.put(tag, tasksWithTag);
+                }
+                tasksWithTag.add(task);
+                
+                int max = (tag instanceof WrappedEntity) ? maxTasksPerEntity : maxTasksPerTag;
+                while (tasksWithTag.size() > max) {
+                    Iterator<Task<?>> ti = tasksWithTag.iterator();
+                    Task<?> oldest = ti.next();
+                    ti.remove();
+                    if (isFullInOtherTagsOfCategory(oldest, tag, maxTasksPerEntity, maxTasksPerTag)) {
+                        tasksToDelete.add(oldest);
+                    }
+                }
+            }
+        }
+        
+        // delete outside the lock; onTaskDeleted removes them from the other tags
+        for (Task<?> t : tasksToDelete) {
+            executionManager.deleteTask(t);
+        }
+        if (!tasksToDelete.isEmpty()) {
+            numTasksEvictedForTagCapacity.addAndGet(tasksToDelete.size());
+            if (LOG.isTraceEnabled())
+                LOG.trace("brooklyn-gc deleted "+tasksToDelete+" on completion of "+task+", as over capacity for tags");
+        }
+    }
+
+    /** whether every other tag of the task in the same category as the given tag is at capacity; caller must hold the lock */
+    private boolean isFullInOtherTagsOfCategory(Task<?> task, Object tag, int maxTasksPerEntity, int maxTasksPerTag) {
+        TagCategory category = (tag instanceof WrappedEntity) ? TagCategory.ENTITY : TagCategory.NON_ENTITY_NORMAL;
+        for (Object otherTag : task.getTags()) {
+            if (!category.acceptsTag(otherTag) || otherTag.equals(tag)) continue;
+            Set<Task<?>> tasksWithTag = completedTasksByTag.get(otherTag);
+            if (tasksWithTag==null || !tasksWithTag.contains(task)) continue;
+            int max = (otherTag instanceof WrappedEntity) ? maxTasksPerEntity : maxTasksPerTag;
+            if (tasksWithTag.size() < max) return false;
+        }
+        return true;
+    }
+
+    protected void onTaskDeleted(Task<?> task) {
+        if (!incremental) return;
+        synchronized (completedTasks) {
+            if (!completedTasks.remove(task)) return;
+            for (Object tag : task.getTags()) {
+                Set<Task<?>> tasksWithTag = completedTasksByTag.get(tag);
+                if (tasksWithTag!=null && tasksWithTag.remove(task) && tasksWithTag.isEmpty()) {
+                    completedTasksByTag.remove(tag);
+                }
+            }
         }
     }
     
@@ -331,6 +468,15 @@ public class BrooklynGarbageCollector {
         }
     
         expireUnmanagedEntityTasks();
+        if (incremental) {
+            // per-tag limits have been applied as tasks completed
+            int deletedCount = expireAgedTasksIncrementally();
+            expireTransientTasks();
+            int deletedGlobally = expireIfOverCapacityGloballyIncrementally();
+            deletedCount += deletedGlobally;
+            if (deletedGlobally>0) deletedCount += expireSubTasksWhoseSubmitterIsExpired();
+            return deletedCount;
+        }
         expireAgedTasks();
         expireTransientTasks();
         
@@ -436,6 +582,47 @@ public class BrooklynGarbageCollector {
         }
     }
     
+    /** deletes the tasks which completed longer ago than {@link #MAX_TASK_AGE}, looking only at the oldest */
+    protected int expireAgedTasksIncrementally() {
+        Duration maxTaskAge = brooklynProperties.getConfig(MAX_TASK_AGE);
+        List<Task<?>> tasksToDelete = MutableList.of();
+        synchronized (completedTasks) {
+            Iterator<Task<?>> ti = completedTasks.iterator();
+            while (ti.hasNext()) {
+                Task<?> task = ti.next();
+                // completion order, so (near enough) end time order
+                if (!maxTaskAge.isShorterThan(Duration.sinceUtc(task.getEndTimeUtc()))) break;
+                tasksToDelete.add(task);
+            }
+        }
+        for (Task<?> task : tasksToDelete) {
+            executionManager.deleteTask(task);
+        }
+        numTasksEvictedForAge.addAndGet(tasksToDelete.size());
+        return tasksToDelete.size();
+    }
+
+    /** deletes the oldest completed tasks while there are more than {@link #MAX_TASKS_GLOBAL} tasks in memory */
+    protected int expireIfOverCapacityGloballyIncrementally() {
+        long numToDelete = executionManager.getNumInMemoryTasks() - brooklynProperties.getConfig(MAX_TASKS_GLOBAL);
+        if (numToDelete <= 0) return 0;
+        
+        List<Task<?>> tasksToDelete = MutableList.of();
+        synchronized (completedTasks) {
+            Iterator<Task<?>> ti = completedTasks.iterator();
+            while (tasksToDelete.size() < numToDelete && ti.hasNext()) {
+                tasksToDelete.add(ti.next());
+            }
+        }
+        for (Task<?> task : tasksToDelete) {
+            executionManager.deleteTask(task);
+        }
+        numTasksEvictedForGlobalCapacity.addAndGet(tasksToDelete.size());
+        if (LOG.isDebugEnabled())
+            LOG.debug("brooklyn-gc deleted "+tasksToDelete.size()+" tasks as was over global limit, now have "+executionManager.getNumInMemoryTasks());
+        return tasksToDelete.size();
+    }
+    
     protected void expireTransientTasks() {
         Set<Task<?>> transientTasks = executionManager.getTasksWithTag(BrooklynTaskTags.TRANSIENT_TASK_TAG);
         for (Task<?> t: transientTasks) {
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.core.entity.EntityPredicates;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * An index of managed entities (i.e. their proxies) by the things about them which do not change
+ * while they are managed: their application, and their types (the classes and interfaces they implement).
+ * <p>
+ * Filters of a recognised shape -- {@link EntityPredicates#applicationIdEqualTo(String)},
+ * {@link Predicates#instanceOf(Class)}, or {@link Predicates#and(Iterable)} including either of those --
+ * are compiled to a key in the index; then only the entities with that key need to be tested against
+ * the filter, and only the listeners registered with that key need to be told when such an entity
+ * is managed or unmanaged. Other filters have to be tested against every entity, as before.
+ */
+@Beta
+public class EntityIndex {
+
+    /** Guava's predicates do not expose what they test, so that is read reflectively (if possible). */
+    private static final Class<?> INSTANCE_OF_PREDICATE_CLASS = Predicates.instanceOf(Object.class).getClass();
+    private static final Class<?> AND_PREDICATE_CLASS = Predicates.and(ImmutableList.<Predicate<Object>>of()).getClass();
+
+    /** All the classes and interfaces of each (proxy) class; weak keys so the classes can be unloaded. */
+    private static final LoadingCache<Class<?>, Set<Class<?>>> TYPES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<Class<?>, Set<Class<?>>>() {
+                @Override public Set<Class<?>> load(Class<?> clazz) {
+                    return ImmutableSet.<Class<?>>copyOf(TypeToken.of(clazz).getTypes().rawTypes());
+                }});
+
+    private final Map<Entity, Set<Object>> keysByEntity = Maps.newConcurrentMap();
+    private final ConcurrentMap<Object, Set<Entity>> entitiesByKey = Maps.newConcurrentMap();
+    private final ConcurrentMap<Object, Set<CollectionChangeListener<Entity>>> listenersByKey = Maps.newConcurrentMap();
+
+    /** Adds the entity to the index (if not already present), telling the listeners for any of its keys. */
+    public synchronized void add(Entity entity) {
+        if (keysByEntity.containsKey(entity)) return;
+        Set<Object> keys = keysOf(entity);
+        keysByEntity.put(entity, keys);
+        for (Object key : keys) {
+            Set<Entity> entities = entitiesByKey.get(key);
+            if (entities == null) {
+                entities = Sets.newConcurrentHashSet();
+                entitiesByKey.put(key, entities);
+            }
+            entities.add(entity);
+        }
+        for (CollectionChangeListener<Entity> listener : getListeners(keys)) {
+            listener.onItemAdded(entity);
+        }
+    }
+
+    /** Removes the entity from the index (if present), telling the listeners for any of its keys. */
+    public synchronized void remove(Entity entity) {
+        Set<Object> keys = keysByEntity.remove(entity);
+        if (keys == null) return;
+        for (Object key : keys) {
+            Set<Entity> entities = entitiesByKey.get(key);
+            if (entities != null) {
+                entities.remove(entity);
+                if (entities.isEmpty()) entitiesByKey.remove(key);
+            }
+        }
+        for (CollectionChangeListener<Entity> listener : getListeners(keys)) {
+            listener.onItemRemoved(entity);
+        }
+    }
+
+    public boolean contains(Entity entity) {
+        return keysByEntity.containsKey(entity);
+    }
+
+    /**
+     * Returns the indexed entities which match the filter, if the filter is of a recognised shape;
+     * otherwise absent (and the caller must test every entity).
+     */
+    public Maybe<List<Entity>> findMatches(Predicate<? super Entity> filter) {
+        Maybe<Object> key = keyOf(filter);
+        if (key.isAbsent()) return Maybe.absent();
+        Set<Entity> candidates = entitiesByKey.get(key.get());
+        if (candidates == null) return Maybe.<List<Entity>>of(ImmutableList.<Entity>of());
+        return Maybe.<List<Entity>>of(ImmutableList.copyOf(Iterables.filter(candidates, filter)));
+    }
+
+    /**
+     * Registers a listener to be told of entities added to or removed from the index which might match
+     * the filter (it may be told of others), if the filter is of a recognised shape; returns false otherwise
+     * (and the listener must instead be told of every entity).
+     */
+    public boolean addListener(Predicate<? super Entity> filter, CollectionChangeListener<Entity> listener) {
+        Maybe<Object> key = keyOf(filter);
+        if (key.isAbsent()) return false;
+        synchronized (this) {
+            Set<CollectionChangeListener<Entity>> listeners = listenersByKey.get(key.get());
+            if (listeners == null) {
+                listeners = Sets.newConcurrentHashSet();
+                listenersByKey.put(key.get(), listeners);
+            }
+            listeners.add(listener);
+        }
+        return true;
+    }
+
+    /** Removes the listener, whatever filter it was registered with; returns whether it was registered. */
+    public synchronized boolean removeListener(CollectionChangeListener<Entity> listener) {
+        boolean result = false;
+        for (Map.Entry<Object, Set<CollectionChangeListener<Entity>>> entry : listenersByKey.entrySet()) {
+            if (entry.getValue().remove(listener)) {
+                result = true;
+                if (entry.getValue().isEmpty()) listenersByKey.remove(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private Set<CollectionChangeListener<Entity>> getListeners(Collection<Object> keys) {
+        Set<CollectionChangeListener<Entity>> result = Sets.newLinkedHashSet();
+        for (Object key : keys) {
+            Set<CollectionChangeListener<Entity>> listeners = listenersByKey.get(key);
+            if (listeners != null) result.addAll(listeners);
+        }
+        return result;
+    }
+
+    private static Set<Object> keysOf(Entity entity) {
+        ImmutableSet.Builder<Object> result = ImmutableSet.builder();
+        result.addAll(TYPES.getUnchecked(entity.getClass()));
+        if (entity.getApplicationId() != null) {
+            result.add(new ApplicationKey(entity.getApplicationId()));
+        }
+        return result.build();
+    }
+
+    /** The key of the entities which could match the filter, if it is of a recognised shape. */
+    static Maybe<Object> keyOf(Predicate<?> filter) {
+        Maybe<String> applicationId = EntityPredicates.requiredApplicationId(filter);
+        if (applicationId.isPresent()) {
+            return Maybe.<Object>of(new ApplicationKey(applicationId.get()));
+        }
+        if (INSTANCE_OF_PREDICATE_CLASS.isInstance(filter)) {
+            Maybe<Object> type = readField(filter, "clazz");
+            // check it really was an instanceOf predicate for that type
+            if (type.isPresent() && type.get() instanceof Class && filter.equals(Predicates.instanceOf((Class<?>)type.get()))) {
+                return type;
+            }
+        }
+        if (AND_PREDICATE_CLASS.isInstance(filter)) {
+            Maybe<Object> components = readField(filter, "components");
+            if (components.isPresent() && components.get() instanceof Iterable) {
+                // prefer the application, as likely to match fewer entities than a type
+                Maybe<Object> result = Maybe.absent();
+                for (Object component : (Iterable<?>) components.get()) {
+                    if (!(component instanceof Predicate)) continue;
+                    Maybe<Object> key = keyOf((Predicate<?>) component);
+                    if (key.isPresent() && (result.isAbsent() || key.get() instanceof ApplicationKey)) {
+                        result = key;
+                    }
+                }
+                return result;
+            }
+        }
+        return Maybe.absent();
+    }
+
+    private static Maybe<Object> readField(Object obj, String name) {
+        try {
+            Field field = obj.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            return Maybe.of(field.get(obj));
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            return Maybe.absent();
+        }
+    }
+
+    private static class ApplicationKey {
+        private final String applicationId;
+
+        ApplicationKey(String applicationId) {
+            this.applicationId = applicationId;
+        }
+        @Override
+        public boolean equals(Object obj) {
+            return (obj instanceof ApplicationKey) && applicationId.equals(((ApplicationKey)obj).applicationId);
+        }
+        @Override
+        public int hashCode() {
+            return applicationId.hashCode();
+        }
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("applicationId", applicationId).toString();
+        }
+    }
+}
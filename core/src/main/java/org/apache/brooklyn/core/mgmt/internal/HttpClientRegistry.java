@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.http.HttpTool;
+import org.apache.brooklyn.util.http.HttpTool.HttpClientBuilder;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContexts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Shares {@link HttpClient}s, and their pools of keep-alive connections, across everything in a management context
+ * which polls over HTTP (such as all {@link org.apache.brooklyn.feed.http.HttpFeed}s),
+ * rather than each poller opening a new connection (and doing a new TLS handshake) every time.
+ * <p>
+ * There is one connection pool per trust setting, limited by {@link #MAX_CONNECTIONS_PER_ROUTE} for each host
+ * and (optionally) {@link #MAX_CONNECTIONS_TOTAL} overall; there is no overall limit by default, so that polls of
+ * different hosts never wait for each other. Connections which have expired, or been idle for longer than
+ * {@link #IDLE_CONNECTION_TIMEOUT}, are closed periodically, rather than only when next leased. Clients using a pool are shared between callers with the same
+ * credentials (for the same host), redirect behaviour and timeouts; at most {@link #MAX_CLIENTS} are kept,
+ * the least recently used being dropped (which needs no clean-up, as their connections belong to the pool).
+ * Requests wait at most their connection timeout (or {@link #CONNECTION_REQUEST_TIMEOUT}, if none is given)
+ * for a connection from the pool.
+ * <p>
+ * There is also a non-blocking client per trust setting (see {@link #getAsyncClient(boolean)}), which runs
+ * any number of concurrent requests on {@link #ASYNC_IO_THREADS} threads; credentials and timeouts for it
+ * are given with each request.
+ */
+@Beta
+public class HttpClientRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpClientRegistry.class);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS_PER_ROUTE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.pool.maxPerRoute",
+            "Maximum number of pooled HTTP connections to each host (for each trust setting)",
+            20);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS_TOTAL = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.pool.maxTotal",
+            "Maximum number of pooled HTTP connections in total (for each trust setting); "
+                    + "zero or negative (the default) for no limit other than "+MAX_CONNECTIONS_PER_ROUTE.getName()+" for each host",
+            0);
+
+    public static final ConfigKey<Integer> ASYNC_IO_THREADS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.async.ioThreads",
+            "Number of I/O dispatch threads for non-blocking HTTP requests (for each trust setting)",
+            2);
+
+    public static final ConfigKey<Integer> ASYNC_MAX_CONNECTIONS_TOTAL = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.async.maxTotal",
+            "Maximum number of connections for non-blocking HTTP requests in total (for each trust setting); "
+                    + "the per-host limit is "+MAX_CONNECTIONS_PER_ROUTE.getName(),
+            10000);
+
+    public static final ConfigKey<Integer> MAX_CLIENTS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.pool.maxClients",
+            "Maximum number of clients (one for each combination of credentials, redirect behaviour and timeouts) "
+                    + "to keep for re-use; all share the connection pools",
+            1000);
+
+    public static final ConfigKey<Duration> CONNECTION_REQUEST_TIMEOUT = ConfigKeys.newConfigKey(Duration.class,
+            "brooklyn.http.pool.connectionRequestTimeout",
+            "Longest time to wait for a connection from a pool, for requests without a connection timeout",
+            Duration.THIRTY_SECONDS);
+
+    public static final ConfigKey<Duration> IDLE_CONNECTION_TIMEOUT = ConfigKeys.newConfigKey(Duration.class,
+            "brooklyn.http.pool.idleConnectionTimeout",
+            "Time after which pooled HTTP connections which have not been used are closed; "
+                    + "expired and idle connections are checked for this often",
+            Duration.ONE_MINUTE);
+
+    private final ManagementContext mgmt;
+    /** keyed by whether all server certificates are trusted */
+    private final Map<Boolean, PoolingClientConnectionManager> connectionManagers = Maps.newLinkedHashMap();
+    /** least recently used first; see {@link #MAX_CLIENTS} */
+    private final Map<ClientKey, HttpClient> clients = new LinkedHashMap<ClientKey, HttpClient>(16, 0.75f, true) {
+        private static final long serialVersionUID = 2164404376343419227L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ClientKey, HttpClient> eldest) {
+            // the client's connections are in the shared pool, so there is nothing to close
+            return size() > mgmt.getConfig().getConfig(MAX_CLIENTS);
+        }
+    };
+    /** keyed by whether all server certificates are trusted */
+    private final Map<Boolean, CloseableHttpAsyncClient> asyncClients = Maps.newLinkedHashMap();
+    private final Map<Boolean, PoolingNHttpClientConnectionManager> asyncConnectionManagers = Maps.newLinkedHashMap();
+    private ScheduledTask housekeeping;
+    private boolean closed = false;
+
+    public HttpClientRegistry(ManagementContext mgmt) {
+        this.mgmt = mgmt;
+    }
+
+    /**
+     * Returns a client using the shared connection pool, creating it if necessary.
+     *
+     * @param uri used (along with the credentials) to scope the credentials to its host and port; may be null if there are no credentials
+     * @param trustAll whether to trust all server certificates for https
+     * @param connectionTimeout may be null for the default; also the longest to wait for a connection from the pool
+     * @param socketTimeout may be null for the default
+     */
+    public synchronized HttpClient getClient(URI uri, Optional<Credentials> credentials, boolean trustAll, boolean laxRedirect,
+            Duration connectionTimeout, Duration socketTimeout) {
+        if (closed) throw new IllegalStateException("HTTP client registry closed");
+        ClientKey key = new ClientKey(credentials.isPresent() ? uri : null, credentials.orNull(), trustAll, laxRedirect, connectionTimeout, socketTimeout);
+        HttpClient result = clients.get(key);
+        if (result == null) {
+            HttpClientBuilder builder = HttpTool.httpClientBuilder()
+                    .clientConnectionManager(getConnectionManager(trustAll))
+                    .laxRedirect(laxRedirect);
+            if (uri != null) builder.uri(uri);
+            if (uri != null) builder.credential(credentials);
+            if (connectionTimeout != null) builder.connectionTimeout(connectionTimeout);
+            if (socketTimeout != null) builder.socketTimeout(socketTimeout);
+            result = builder.build();
+            HttpClientParams.setConnectionManagerTimeout(result.getParams(), getConnectionRequestTimeout(connectionTimeout).toMilliseconds());
+            clients.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a started non-blocking client, with lax redirects, creating it if necessary.
+     * Callers should pass an {@link HttpClientContext} with any credentials, and set any timeouts on the request
+     * (including the connection request timeout, for waiting for a connection from the pool), as the client is shared.
+     */
+    public synchronized HttpAsyncClient getAsyncClient(boolean trustAll) {
+        if (closed) throw new IllegalStateException("HTTP client registry closed");
+        CloseableHttpAsyncClient result = asyncClients.get(trustAll);
+        if (result == null) {
+            try {
+                SchemeIOSessionStrategy httpsStrategy;
+                if (trustAll) {
+                    SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(null, new HttpTool.TrustAllStrategy()).build();
+                    httpsStrategy = new SSLIOSessionStrategy(sslContext, NoopHostnameVerifier.INSTANCE);
+                } else {
+                    httpsStrategy = SSLIOSessionStrategy.getDefaultStrategy();
+                }
+                Registry<SchemeIOSessionStrategy> strategies = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                        .register("http", NoopIOSessionStrategy.INSTANCE)
+                        .register("https", httpsStrategy)
+                        .build();
+                IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                        .setIoThreadCount(mgmt.getConfig().getConfig(ASYNC_IO_THREADS))
+                        .build();
+                PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                        new DefaultConnectingIOReactor(ioReactorConfig), strategies);
+                connectionManager.setDefaultMaxPerRoute(mgmt.getConfig().getConfig(MAX_CONNECTIONS_PER_ROUTE));
+                connectionManager.setMaxTotal(mgmt.getConfig().getConfig(ASYNC_MAX_CONNECTIONS_TOTAL));
+                result = HttpAsyncClients.custom()
+                        .setConnectionManager(connectionManager)
+                        .setRedirectStrategy(new LaxRedirectStrategy())
+                        .build();
+                result.start();
+                asyncConnectionManagers.put(trustAll, connectionManager);
+                asyncClients.put(trustAll, result);
+                startHousekeeping();
+            } catch (Exception e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        return result;
+    }
+
+    /** @return how long a request with the given connection timeout (which may be null) should wait for a connection from a pool */
+    public Duration getConnectionRequestTimeout(Duration connectionTimeout) {
+        return (connectionTimeout != null) ? connectionTimeout : mgmt.getConfig().getConfig(CONNECTION_REQUEST_TIMEOUT);
+    }
+
+    /** @return the number of connections leased, available, etc, summed across all the pools (blocking and non-blocking) */
+    public synchronized PoolStats getTotalStats() {
+        int leased = 0;
+        int pending = 0;
+        int available = 0;
+        int max = 0;
+        List<PoolStats> allStats = Lists.newArrayList();
+        for (PoolingClientConnectionManager connectionManager : connectionManagers.values()) {
+            allStats.add(connectionManager.getTotalStats());
+        }
+        for (PoolingNHttpClientConnectionManager connectionManager : asyncConnectionManagers.values()) {
+            allStats.add(connectionManager.getTotalStats());
+        }
+        for (PoolStats stats : allStats) {
+            leased += stats.getLeased();
+            pending += stats.getPending();
+            available += stats.getAvailable();
+            // pools without an overall limit have the largest int as their max
+            max = (int) Math.min(Integer.MAX_VALUE, (long) max + stats.getMax());
+        }
+        return new PoolStats(leased, pending, available, max);
+    }
+
+    /** Closes the pooled connections which have expired, or not been used for {@link #IDLE_CONNECTION_TIMEOUT}. */
+    public synchronized void closeExpiredAndIdleConnections() {
+        long idleMillis = mgmt.getConfig().getConfig(IDLE_CONNECTION_TIMEOUT).toMilliseconds();
+        for (PoolingClientConnectionManager connectionManager : connectionManagers.values()) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleMillis, TimeUnit.MILLISECONDS);
+        }
+        for (PoolingNHttpClientConnectionManager connectionManager : asyncConnectionManagers.values()) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Closes all pooled connections; subsequent requests for a client will fail. */
+    public synchronized void close() {
+        closed = true;
+        if (housekeeping != null) {
+            housekeeping.cancel(true);
+            housekeeping = null;
+        }
+        for (PoolingClientConnectionManager connectionManager : connectionManagers.values()) {
+            try {
+                connectionManager.shutdown();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Error shutting down HTTP connection pool (continuing)", e);
+            }
+        }
+        for (CloseableHttpAsyncClient asyncClient : asyncClients.values()) {
+            try {
+                asyncClient.close();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Error shutting down non-blocking HTTP client (continuing)", e);
+            }
+        }
+        connectionManagers.clear();
+        clients.clear();
+        asyncClients.clear();
+        asyncConnectionManagers.clear();
+    }
+
+    private PoolingClientConnectionManager getConnectionManager(boolean trustAll) {
+        PoolingClientConnectionManager result = connectionManagers.get(trustAll);
+        if (result == null) {
+            SchemeRegistry schemes = SchemeRegistryFactory.createDefault();
+            if (trustAll) {
+                try {
+                    SSLSocketFactory socketFactory = new SSLSocketFactory(new HttpTool.TrustAllStrategy(), SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+                    schemes.register(new Scheme("https", 443, socketFactory));
+                } catch (Exception e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+            result = new PoolingClientConnectionManager(schemes);
+            int maxTotal = mgmt.getConfig().getConfig(MAX_CONNECTIONS_TOTAL);
+            result.setDefaultMaxPerRoute(mgmt.getConfig().getConfig(MAX_CONNECTIONS_PER_ROUTE));
+            result.setMaxTotal(maxTotal > 0 ? maxTotal : Integer.MAX_VALUE);
+            connectionManagers.put(trustAll, result);
+            startHousekeeping();
+        }
+        return result;
+    }
+
+    /** starts closing expired and idle connections periodically, when the first pool is created */
+    @SuppressWarnings("unchecked")
+    private void startHousekeeping() {
+        if (housekeeping != null) return;
+        Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
+            @Override public Task<Void> call() {
+                return Tasks.<Void>builder().dynamic(false).displayName("http-connection-housekeeping").body(new Callable<Void>() {
+                    public Void call() {
+                        closeExpiredAndIdleConnections();
+                        return null;
+                    }}).build();
+            }
+        };
+        housekeeping = (ScheduledTask) mgmt.getExecutionManager().submit(new ScheduledTask(MutableMap.of("displayName", "scheduled[http-connection-housekeeping]",
+                "tags", MutableSet.of(BrooklynTaskTags.TRANSIENT_TASK_TAG), "cancelOnException", false), taskFactory)
+                .period(mgmt.getConfig().getConfig(IDLE_CONNECTION_TIMEOUT)));
+    }
+
+    private static class ClientKey {
+        final URI uri;
+        final Credentials credentials;
+        final boolean trustAll;
+        final boolean laxRedirect;
+        final Duration connectionTimeout;
+        final Duration socketTimeout;
+
+        ClientKey(URI uri, Credentials credentials, boolean trustAll, boolean laxRedirect, Duration connectionTimeout, Duration socketTimeout) {
+            // credentials are scoped to the host and port
+            this.uri = (uri == null) ? null : URI.create(uri.getScheme()+"://"+uri.getHost()+":"+uri.getPort());
+            this.credentials = credentials;
+            this.trustAll = trustAll;
+            this.laxRedirect = laxRedirect;
+            this.connectionTimeout = connectionTimeout;
+            this.socketTimeout = socketTimeout;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(uri, credentials, trustAll, laxRedirect, connectionTimeout, socketTimeout);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ClientKey)) return false;
+            ClientKey o = (ClientKey) other;
+            return Objects.equal(uri, o.uri) && Objects.equal(credentials, o.credentials)
+                    && trustAll == o.trustAll && laxRedirect == o.laxRedirect
+                    && Objects.equal(connectionTimeout, o.connectionTimeout) && Objects.equal(socketTimeout, o.socketTimeout);
+        }
+    }
+}
@@ -60,6 +60,7 @@ import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.SetFromLiveMap;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.time.CountdownTimer;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
@@ -107,6 +108,9 @@ public class LocalEntityManager implements EntityManagerInternal {
     /** Proxies of the managed entities that are applications */
     protected final Set<Application> applications = Sets.newConcurrentHashSet();
 
+    /** Proxies of the managed entities, by type and application */
+    protected final EntityIndex entityIndex = new EntityIndex();
+
     private final BrooklynStorage storage;
     private final Map<String,String> entityTypes;
     private final Set<String> applicationIds;
@@ -193,18 +197,20 @@ public class LocalEntityManager implements EntityManagerInternal {
     @Override
     public Collection<Entity> getEntitiesInApplication(Application application) {
         Predicate<Entity> predicate = EntityPredicates.applicationIdEqualTo(application.getId());
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return findEntities(predicate);
     }
 
     @Override
     public Collection<Entity> findEntities(Predicate<? super Entity> filter) {
+        Maybe<List<Entity>> indexed = entityIndex.findMatches(filter);
+        if (indexed.isPresent()) return indexed.get();
         return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), filter));
     }
     
     @Override
     public Collection<Entity> findEntitiesInApplication(Application application, Predicate<? super Entity> filter) {
         Predicate<Entity> predicate = Predicates.and(EntityPredicates.applicationIdEqualTo(application.getId()), filter);
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return findEntities(predicate);
     }
 
     @Override
@@ -669,8 +675,10 @@ public class LocalEntityManager implements EntityManagerInternal {
             applications.add((Application)proxyE);
             applicationIds.add(e.getId());
         }
-        if (!entities.contains(proxyE)) 
+        if (!entities.contains(proxyE)) {
             entities.add(proxyE);
+            entityIndex.add(proxyE);
+        }
         
         if (old!=null && old!=e) {
             // passing the transition info will ensure the right shutdown steps invoked for old instance
@@ -725,6 +733,7 @@ public class LocalEntityManager implements EntityManagerInternal {
             }
 
             entities.remove(proxyE);
+            entityIndex.remove(proxyE);
             entityProxiesById.remove(e.getId());
             entityModesById.remove(e.getId());
             Object old = entitiesById.remove(e.getId());
@@ -750,9 +759,22 @@ public class LocalEntityManager implements EntityManagerInternal {
         entities.addPropertyChangeListener(new GroovyObservablesPropertyChangeToCollectionChangeAdapter(wrappedListener));
     }
 
+    /**
+     * As {@link #addEntitySetListener(CollectionChangeListener)}, but only telling the listener of entities
+     * which might match the filter, where it can use the {@link EntityIndex}.
+     */
+    void addEntitySetListener(Predicate<? super Entity> filter, CollectionChangeListener<Entity> listener) {
+        AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
+        if (!entityIndex.addListener(filter, wrappedListener)) {
+            entities.addPropertyChangeListener(new GroovyObservablesPropertyChangeToCollectionChangeAdapter(wrappedListener));
+        }
+    }
+
     void removeEntitySetListener(CollectionChangeListener<Entity> listener) {
         AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
-        entities.removePropertyChangeListener(new GroovyObservablesPropertyChangeToCollectionChangeAdapter(wrappedListener));
+        if (!entityIndex.removeListener(wrappedListener)) {
+            entities.removePropertyChangeListener(new GroovyObservablesPropertyChangeToCollectionChangeAdapter(wrappedListener));
+        }
     }
     
     private boolean shouldSkipUnmanagement(Entity e) {
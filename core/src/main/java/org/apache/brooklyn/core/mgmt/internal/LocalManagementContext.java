@@ -66,6 +66,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 
@@ -228,6 +229,11 @@ public class LocalManagementContext extends AbstractManagementContext {
         getEntityManager().addEntitySetListener(listener);
     }
 
+    @Override
+    public void addEntitySetListener(Predicate<? super Entity> filter, CollectionChangeListener<Entity> listener) {
+        getEntityManager().addEntitySetListener(filter, listener);
+    }
+
     @Override
     public void removeEntitySetListener(CollectionChangeListener<Entity> listener) {
         getEntityManager().removeEntitySetListener(listener);
@@ -298,7 +304,7 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
 
         if (subscriptions == null) {
-            subscriptions = new LocalSubscriptionManager(getExecutionManager());
+            subscriptions = new LocalSubscriptionManager(getExecutionManager(), configMap);
         }
         return subscriptions;
     }
@@ -308,7 +314,7 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
 
         if (execution == null) {
-            execution = new BasicExecutionManager(getManagementNodeId());
+            execution = new BasicExecutionManager(getManagementNodeId(), configMap);
             gc = new BrooklynGarbageCollector(configMap, execution, getStorage());
         }
         return execution;
@@ -323,6 +329,7 @@ public class LocalManagementContext extends AbstractManagementContext {
             osgiManager = null;
         }
         if (usageManager != null) usageManager.terminate();
+        if (subscriptions instanceof LocalSubscriptionManager) ((LocalSubscriptionManager)subscriptions).terminate();
         if (execution != null) execution.shutdownNow();
         if (gc != null) gc.shutdownNow();
     }
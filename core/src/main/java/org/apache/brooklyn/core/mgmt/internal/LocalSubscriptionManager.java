@@ -19,18 +19,21 @@
 package org.apache.brooklyn.core.mgmt.internal;
 
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.elvis;
-import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.join;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.mapOf;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -41,7 +44,11 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.SubscriberEventQueue.PendingDelivery;
 import org.apache.brooklyn.core.sensor.BasicSensorEvent;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
@@ -51,33 +58,90 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A {@link SubscriptionManager} that stores subscription details locally.
+ * <p>
+ * By default each event is delivered to each subscriber by submitting a task to the {@link ExecutionManager},
+ * with a {@link SingleThreadedScheduler} per subscriber to preserve ordering.
+ * If {@link #BATCHED_DELIVERY} is enabled, events are instead appended to a lock-free queue per subscriber
+ * which is drained in batches by a single worker at a time; no task is created per event, 
+ * and listeners are not invoked within a task context. The workers share a pool of at most
+ * {@link #MAX_DELIVERY_THREADS} threads.
  */
 public class LocalSubscriptionManager extends AbstractSubscriptionManager {
     
     private static final Logger LOG = LoggerFactory.getLogger(LocalSubscriptionManager.class);
 
+    public static final ConfigKey<Boolean> BATCHED_DELIVERY = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.subscriptions.batchedDelivery", 
+            "whether to deliver events through a queue per subscriber drained in batches, "
+            + "rather than submitting a task per event per subscription", 
+            false);
+
+    public static final ConfigKey<Integer> MAX_DELIVERY_BATCH_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.subscriptions.maxDeliveryBatchSize", 
+            "the maximum number of events delivered to a subscriber in one pass, when batched delivery is enabled, "
+            + "before the worker is yielded to other subscribers", 
+            1000);
+
+    public static final ConfigKey<Integer> MAX_DELIVERY_THREADS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.subscriptions.maxDeliveryThreads", 
+            "the maximum number of threads delivering events, when batched delivery is enabled; "
+            + "each subscriber uses at most one at a time, and others wait for a free thread, "
+            + "so listeners which block for a long time delay delivery to other subscribers", 
+            64);
+
     protected final ExecutionManager em;
     
     private final String tostring = "SubscriptionContext("+Identifiers.getBase64IdFromValue(System.identityHashCode(this), 5)+")";
 
     private final AtomicLong totalEventsPublishedCount = new AtomicLong();
     private final AtomicLong totalEventsDeliveredCount = new AtomicLong();
+    private final AtomicLong numEventsQueuedCount = new AtomicLong();
+    private final AtomicLong lastDeliveryLagNanos = new AtomicLong();
+    
+    /** null unless {@link #BATCHED_DELIVERY} is enabled */
+    private final ExecutorService deliveryExecutor;
+    private final int maxDeliveryBatchSize;
+    /** queues by subscriber tag (see {@link #deliveryQueueKey(Subscription)}); kept while they have subscriptions or pending events */
+    private final ConcurrentMap<Object, SubscriberEventQueue> deliveryQueuesByTag = new ConcurrentHashMap<Object, SubscriberEventQueue>();
     
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<String, Subscription> allSubscriptions = new ConcurrentHashMap<String, Subscription>();
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsBySubscriber = new ConcurrentHashMap<Object, Set<Subscription>>();
     @SuppressWarnings("rawtypes")
-    protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
+    protected final SubscriptionIndex subscriptionIndex = new SubscriptionIndex();
     
     public LocalSubscriptionManager(ExecutionManager m) {
+        this(m, null);
+    }
+
+    public LocalSubscriptionManager(ExecutionManager m, BrooklynProperties brooklynProperties) {
         this.em = m;
+        if (brooklynProperties!=null && Boolean.TRUE.equals(brooklynProperties.getConfig(BATCHED_DELIVERY))) {
+            // threads are only held by subscribers which have events pending; 
+            // a subscriber's queue never waits for another's, so queueing for a thread cannot deadlock
+            int maxThreads = brooklynProperties.getConfig(MAX_DELIVERY_THREADS);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 10L, TimeUnit.SECONDS, 
+                    new LinkedBlockingQueue<Runnable>(), 
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("brooklyn-subscription-delivery-%d")
+                            .setDaemon(true)
+                            .build());
+            executor.allowCoreThreadTimeOut(true);
+            deliveryExecutor = executor;
+            maxDeliveryBatchSize = brooklynProperties.getConfig(MAX_DELIVERY_BATCH_SIZE);
+        } else {
+            deliveryExecutor = null;
+            maxDeliveryBatchSize = 0;
+        }
+    }
+    
+    public boolean isBatchedDelivery() {
+        return deliveryExecutor!=null;
     }
         
     public long getNumSubscriptions() {
@@ -92,8 +156,23 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return totalEventsDeliveredCount.get();
     }
     
+    /** number of events queued for subscribers but not yet handed to their listeners (always 0 unless batched delivery is enabled) */
+    public long getNumEventsQueued() {
+        return numEventsQueuedCount.get();
+    }
+    
+    /** time between publication and delivery of the most recently delivered event (always 0 unless batched delivery is enabled) */
+    public long getLastDeliveryLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastDeliveryLagNanos.get());
+    }
+    
+    /** stops delivery of queued events, if batched delivery is enabled */
+    public void terminate() {
+        if (deliveryExecutor!=null) deliveryExecutor.shutdownNow();
+    }
+    
     @SuppressWarnings("unchecked")
-    protected synchronized <T> SubscriptionHandle subscribe(Map<String, Object> flags, final Subscription<T> s) {
+    protected <T> SubscriptionHandle subscribe(Map<String, Object> flags, final Subscription<T> s) {
         Entity producer = s.producer;
         Sensor<T> sensor= s.sensor;
         s.subscriber = getSubscriber(flags, s);
@@ -112,14 +191,26 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         s.flags = flags;
         
         if (LOG.isDebugEnabled()) LOG.debug("Creating subscription {} for {} on {} {} in {}", new Object[] {s.id, s.subscriber, producer, sensor, this});
-        allSubscriptions.put(s.id, s);
-        addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
-        if (s.subscriber!=null) {
-            addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
-        }
-        if (!s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
-            ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
+        // set up delivery before adding to the index, as publishing threads may see the subscription immediately
+        if (deliveryExecutor!=null) {
+            // synchronized with retirement of queues in unsubscribe; publish does not need the lock
+            synchronized (deliveryQueuesByTag) {
+                s.deliveryQueue = getOrCreateDeliveryQueue(deliveryQueueKey(s));
+                s.deliveryQueue.subscriptionCount++;
+                if (s.subscriber!=null) {
+                    SubscriptionIndex.addToCopyOnWriteSet(subscriptionsBySubscriber, s.subscriber, s);
+                }
+            }
+        } else {
+            if (s.subscriber!=null) {
+                SubscriptionIndex.addToCopyOnWriteSet(subscriptionsBySubscriber, s.subscriber, s);
+            }
+            if (!s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
+                ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
+            }
         }
+        allSubscriptions.put(s.id, s);
+        subscriptionIndex.add(s);
 
         if (notifyOfInitialValue) {
             if (producer == null) {
@@ -130,45 +221,55 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                 LOG.warn("Cannot notifyOfInitialValue for subscription with non-attribute sensor: "+s);
             } else {
                 if (LOG.isTraceEnabled()) LOG.trace("sending initial value of {} -> {} to {}", new Object[] {s.producer, s.sensor, s});
-                Map<String, Object> tagsMap = MutableMap.of("tag", s.subscriberExecutionManagerTag);
-                em.submit(tagsMap, new Runnable() {
-                    @Override
-                    public String toString() {
-                        return "LSM.publishInitialValue("+s.producer+", "+s.sensor+")";
-                    }
-                    public void run() {
-                        Object val = s.producer.getAttribute((AttributeSensor<?>) s.sensor);
-                        @SuppressWarnings("rawtypes") // TODO s.listener.onEvent gives compilation error if try to use <T>
-                        SensorEvent event = new BasicSensorEvent(s.sensor, s.producer, val);
-                        if (s.eventFilter!=null && !s.eventFilter.apply(event))
-                            return;
-                        try {
-                            s.listener.onEvent(event);
-                        } catch (Throwable t) {
-                            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
-                                LOG.debug("Error processing initial-value subscription to "+LocalSubscriptionManager.this+", after entity unmanaged: "+t, t);
-                            } else {
-                                LOG.warn("Error processing initial-value subscription to "+LocalSubscriptionManager.this+": "+t, t);
-                            }
+                if (s.deliveryQueue!=null) {
+                    // queued behind any events already published, to preserve ordering for this subscriber
+                    s.deliveryQueue.add(s, null);
+                } else {
+                    Map<String, Object> tagsMap = MutableMap.of("tag", s.subscriberExecutionManagerTag);
+                    em.submit(tagsMap, new Runnable() {
+                        @Override
+                        public String toString() {
+                            return "LSM.publishInitialValue("+s.producer+", "+s.sensor+")";
                         }
-                    }});
+                        public void run() {
+                            deliverInitialValue(s);
+                        }});
+                }
             }
         }
         
         return s;
     }
 
+    /** 
+     * the tag identifying the subscriber's queue; as the tag may be supplied as null (meaning no ordering
+     * with the execution manager), falls back to the subscriber or the producer
+     */
+    private static Object deliveryQueueKey(Subscription<?> s) {
+        if (s.subscriberExecutionManagerTag!=null) return s.subscriberExecutionManagerTag;
+        if (s.subscriber!=null) return s.subscriber;
+        if (s.producer!=null) return s.producer;
+        return s.id;
+    }
+
+    /** must be called holding the lock on {@link #deliveryQueuesByTag} */
+    private SubscriberEventQueue getOrCreateDeliveryQueue(Object tag) {
+        SubscriberEventQueue result = deliveryQueuesByTag.get(tag);
+        if (result==null) {
+            result = new SubscriberEventQueue(this, tag, deliveryExecutor, maxDeliveryBatchSize);
+            deliveryQueuesByTag.put(tag, result);
+        }
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     public Set<SubscriptionHandle> getSubscriptionsForSubscriber(Object subscriber) {
         return (Set<SubscriptionHandle>) ((Set<?>) elvis(subscriptionsBySubscriber.get(subscriber), Collections.emptySet()));
     }
 
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
         Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
+        subscriptionIndex.addMatching(source, sensor, subscriptions);
         return subscriptions;
     }
 
@@ -178,19 +279,31 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
      * @see #subscribe(Map, Entity, Sensor, SensorEventListener)
      */
     @SuppressWarnings("rawtypes")
-    public synchronized boolean unsubscribe(SubscriptionHandle sh) {
+    public boolean unsubscribe(SubscriptionHandle sh) {
         if (!(sh instanceof Subscription)) throw new IllegalArgumentException("Only subscription handles of type Subscription supported: sh="+sh+"; type="+(sh != null ? sh.getClass().getCanonicalName() : null));
         Subscription s = (Subscription) sh;
         boolean result = allSubscriptions.remove(s.id) != null;
-        boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        boolean b2 = subscriptionIndex.remove(s);
         assert result==b2;
-        if (s.subscriber!=null) {
-            boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
-            assert b3 == b2;
+        if (s.deliveryQueue!=null) {
+            synchronized (deliveryQueuesByTag) {
+                if (s.subscriber!=null) {
+                    boolean b3 = SubscriptionIndex.removeFromCopyOnWriteSet(subscriptionsBySubscriber, s.subscriber, s);
+                    assert b3 == b2;
+                }
+                if (result) {
+                    s.deliveryQueue.subscriptionCount--;
+                    retireDeliveryQueueIfUnused(s.deliveryQueue);
+                }
+            }
+        } else {
+            if (s.subscriber!=null) {
+                boolean b3 = SubscriptionIndex.removeFromCopyOnWriteSet(subscriptionsBySubscriber, s.subscriber, s);
+                assert b3 == b2;
+            }
+            // FIXME ALEX - this seems wrong
+            ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
         }
-
-        // FIXME ALEX - this seems wrong
-        ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
         return result;
     }
 
@@ -211,12 +324,19 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
         
-        Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
-        if (groovyTruth(subs)) {
+        // lock-free read of the index; each bucket is an immutable snapshot
+        List<Subscription> subs = new ArrayList<Subscription>(4);
+        subscriptionIndex.addMatching(event.getSource(), event.getSensor(), subs);
+        if (!subs.isEmpty()) {
             if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
             for (Subscription s : subs) {
                 if (s.eventFilter!=null && !s.eventFilter.apply(event))
                     continue;
+                if (s.deliveryQueue!=null) {
+                    // counted as delivered when handed to the listener, in deliverBatch
+                    s.deliveryQueue.add(s, event);
+                    continue;
+                }
                 final Subscription sAtClosureCreation = s;
                 
 //                Set<Object> tags = MutableSet.of();
@@ -234,97 +354,90 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                         return "LSM.publish("+event+")";
                     }
                     public void run() {
-                        try {
-                            sAtClosureCreation.listener.onEvent(event);
-                        } catch (Throwable t) {
-                            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
-                                LOG.debug("Error processing subscriptions to "+this+", after entity unmanaged: "+t, t);
-                            } else {
-                                LOG.warn("Error processing subscriptions to "+this+": "+t, t);
-                            }
-                        }
+                        deliverEvent(sAtClosureCreation, event);
                     }});
                 totalEventsDeliveredCount.incrementAndGet();
             }
         }
     }
+
+    void onEventQueued() {
+        numEventsQueuedCount.incrementAndGet();
+    }
+
+    /** invoked by a {@link SubscriberEventQueue} when a queued event will not be delivered, as the queue has been retired */
+    void onEventDropped() {
+        numEventsQueuedCount.decrementAndGet();
+    }
     
-    @Override
-    public String toString() {
-        return tostring;
+    /** invoked by a {@link SubscriberEventQueue} worker when it has delivered all pending events */
+    void onDeliveryQueueIdle(SubscriberEventQueue queue) {
+        if (queue.subscriptionCount > 0) return;
+        synchronized (deliveryQueuesByTag) {
+            retireDeliveryQueueIfUnused(queue);
+        }
     }
     
-    /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Adds the given value to a collection in the map under the key.
-     * 
-     * A collection (as {@link LinkedHashMap}) will be created if necessary,
-     * synchronized on map for map access/change and set for addition there
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link HashMultimap}, and {@link Multimaps#synchronizedSetMultimap(com.google.common.collect.SetMultimap)}
+    /** 
+     * forgets the queue once it has no subscriptions and no pending events; until then, new subscriptions
+     * with the same tag use it, so there is never more than one worker delivering to a subscriber.
+     * The queue is marked as retired, so that a publisher which still holds it (having looked up a subscription
+     * just before it was unsubscribed) cannot start a worker alongside that of a new queue for the tag.
+     * Must be called holding the lock on {@link #deliveryQueuesByTag}.
      */
-    @Deprecated
-    private static <K,V> Set<V> addToMapOfSets(Map<K,Set<V>> map, K key, V valueInCollection) {
-        Set<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
-            if (coll==null) {
-                coll = new LinkedHashSet<V>();
-                map.put(key, coll);
-            }
-            if (coll.isEmpty()) {
-                synchronized (coll) {
-                    coll.add(valueInCollection);
-                }
-                //if collection was empty then add to the collection while holding the map lock, to prevent removal
-                return coll;
-            }
+    private void retireDeliveryQueueIfUnused(SubscriberEventQueue queue) {
+        if (queue.subscriptionCount <= 0 && queue.retireIfIdle()) {
+            deliveryQueuesByTag.remove(queue.getTag(), queue);
         }
-        synchronized (coll) {
-            if (!coll.isEmpty()) {
-                coll.add(valueInCollection);
-                return coll;
+    }
+    
+    /** invoked by a {@link SubscriberEventQueue} worker, with events in publication order */
+    void deliverBatch(List<PendingDelivery> batch) {
+        for (PendingDelivery d : batch) {
+            numEventsQueuedCount.decrementAndGet();
+            lastDeliveryLagNanos.set(System.nanoTime() - d.queuedTimeNanos);
+            if (d.isInitialValue()) {
+                deliverInitialValue(d.subscription);
+            } else {
+                deliverEvent(d.subscription, d.event);
+                totalEventsDeliveredCount.incrementAndGet();
             }
         }
-        //if was empty, recurse, because someone else might be removing the collection
-        return addToMapOfSets(map, key, valueInCollection);
     }
-
-    /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Removes the given value from a collection in the map under the key.
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link ArrayListMultimap} or {@link HashMultimap}, and {@link Multimaps#synchronizedListMultimap(com.google.common.collect.ListMultimap)} etc
-     */
-    @Deprecated
-    private static <K,V> boolean removeFromMapOfCollections(Map<K,? extends Collection<V>> map, K key, V valueInCollection) {
-        Collection<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
-            if (coll==null) return false;
-        }
-        boolean result;
-        synchronized (coll) {
-            result = coll.remove(valueInCollection);
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void deliverEvent(Subscription s, SensorEvent event) {
+        try {
+            s.listener.onEvent(event);
+        } catch (Throwable t) {
+            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
+                LOG.debug("Error processing subscriptions to "+this+", after entity unmanaged: "+t, t);
+            } else {
+                LOG.warn("Error processing subscriptions to "+this+": "+t, t);
+            }
         }
-        if (coll.isEmpty()) {
-            synchronized (map) {
-                synchronized (coll) {
-                    if (coll.isEmpty()) {
-                        //only remove from the map if no one is adding to the collection or to the map, and the collection is still in the map
-                        if (map.get(key)==coll) {
-                            map.remove(key);
-                        }
-                    }
-                }
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void deliverInitialValue(Subscription s) {
+        Object val = s.producer.getAttribute((AttributeSensor<?>) s.sensor);
+        // TODO s.listener.onEvent gives compilation error if try to use <T>
+        SensorEvent event = new BasicSensorEvent(s.sensor, s.producer, val);
+        if (s.eventFilter!=null && !s.eventFilter.apply(event))
+            return;
+        try {
+            s.listener.onEvent(event);
+        } catch (Throwable t) {
+            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
+                LOG.debug("Error processing initial-value subscription to "+this+", after entity unmanaged: "+t, t);
+            } else {
+                LOG.warn("Error processing initial-value subscription to "+this+": "+t, t);
             }
         }
-        return result;
+    }
+    
+    @Override
+    public String toString() {
+        return tostring;
     }
 }
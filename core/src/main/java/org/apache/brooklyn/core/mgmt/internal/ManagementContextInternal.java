@@ -30,6 +30,7 @@ import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.catalog.internal.CatalogInitialization;
+import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.core.internal.BrooklynProperties;
 import org.apache.brooklyn.core.internal.storage.BrooklynStorage;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
@@ -38,10 +39,12 @@ import org.apache.brooklyn.core.mgmt.usage.UsageManager;
 import org.apache.brooklyn.core.objs.proxy.InternalEntityFactory;
 import org.apache.brooklyn.core.objs.proxy.InternalLocationFactory;
 import org.apache.brooklyn.core.objs.proxy.InternalPolicyFactory;
+import org.apache.brooklyn.util.concurrent.TokenBucket;
 import org.apache.brooklyn.util.core.task.TaskTags;
 import org.apache.brooklyn.util.guava.Maybe;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
 
 public interface ManagementContextInternal extends ManagementContext {
 
@@ -63,6 +66,14 @@ public interface ManagementContextInternal extends ManagementContext {
 
     void addEntitySetListener(CollectionChangeListener<Entity> listener);
 
+    /**
+     * As {@link #addEntitySetListener(CollectionChangeListener)}, but the listener need only be told of
+     * entities which might match the given filter (it may also be told of others).
+     * If the filter changes, the listener should be removed and added again.
+     */
+    @Beta
+    void addEntitySetListener(Predicate<? super Entity> filter, CollectionChangeListener<Entity> listener);
+
     void removeEntitySetListener(CollectionChangeListener<Entity> listener);
 
     void terminate();
@@ -122,4 +133,15 @@ public interface ManagementContextInternal extends ManagementContext {
     @Beta
     ExternalConfigSupplierRegistry getExternalConfigProviderRegistry();
 
+    /** Pooled HTTP clients, shared by everything in this management context which polls over HTTP */
+    @Beta
+    HttpClientRegistry getHttpClientRegistry();
+
+    /**
+     * Limits the rate of polls by all feeds in this management context (see {@link Poller#MAX_POLLS_PER_SECOND}),
+     * or null if there is no limit
+     */
+    @Beta
+    TokenBucket getPollRateLimiter();
+
 }
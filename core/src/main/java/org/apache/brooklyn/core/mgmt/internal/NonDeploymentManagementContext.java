@@ -68,12 +68,14 @@ import org.apache.brooklyn.core.mgmt.usage.UsageManager;
 import org.apache.brooklyn.core.objs.proxy.InternalEntityFactory;
 import org.apache.brooklyn.core.objs.proxy.InternalLocationFactory;
 import org.apache.brooklyn.core.objs.proxy.InternalPolicyFactory;
+import org.apache.brooklyn.util.concurrent.TokenBucket;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
 
 public class NonDeploymentManagementContext implements ManagementContextInternal {
 
@@ -376,6 +378,12 @@ public class NonDeploymentManagementContext implements ManagementContextInternal
         initialManagementContext.addEntitySetListener(listener);
     }
 
+    @Override
+    public void addEntitySetListener(Predicate<? super Entity> filter, CollectionChangeListener<Entity> listener) {
+        checkInitialManagementContextReal();
+        initialManagementContext.addEntitySetListener(filter, listener);
+    }
+
     @Override
     public void removeEntitySetListener(CollectionChangeListener<Entity> listener) {
         checkInitialManagementContextReal();
@@ -488,6 +496,18 @@ public class NonDeploymentManagementContext implements ManagementContextInternal
         return initialManagementContext.getExternalConfigProviderRegistry();
     }
 
+    @Override
+    public HttpClientRegistry getHttpClientRegistry() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getHttpClientRegistry();
+    }
+
+    @Override
+    public TokenBucket getPollRateLimiter() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getPollRateLimiter();
+    }
+
     /**
      * For when the initial management context is not "real"; the changeListener is a no-op, but everything else forbidden.
      * 
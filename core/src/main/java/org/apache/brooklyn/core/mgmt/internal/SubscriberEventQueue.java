@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of pending event deliveries for a single subscriber (identified by its execution-manager tag),
+ * used by {@link LocalSubscriptionManager} when batched delivery is enabled.
+ * <p>
+ * Publishers append without taking any lock. At most one worker drains the queue at a time,
+ * handing over up to {@code maxBatchSize} events per pass, so events are delivered to the subscriber
+ * in the order they were published, and no {@link org.apache.brooklyn.api.mgmt.Task} is created per event.
+ * <p>
+ * Once the manager has {@link #retireIfIdle() retired} the queue (when it has no subscriptions left), no worker
+ * ever drains it again, so a publisher still holding it cannot start a worker alongside that of a newer queue for
+ * the same subscriber; events added to it are dropped, as they are for subscriptions which have been unsubscribed.
+ */
+class SubscriberEventQueue implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubscriberEventQueue.class);
+
+    static class PendingDelivery {
+        @SuppressWarnings("rawtypes")
+        final Subscription subscription;
+        /** the event to deliver, or null if this is the initial value notification */
+        @SuppressWarnings("rawtypes")
+        final SensorEvent event;
+        final long queuedTimeNanos;
+
+        PendingDelivery(Subscription<?> subscription, SensorEvent<?> event, long queuedTimeNanos) {
+            this.subscription = subscription;
+            this.event = event;
+            this.queuedTimeNanos = queuedTimeNanos;
+        }
+
+        boolean isInitialValue() {
+            return event==null;
+        }
+    }
+
+    private final LocalSubscriptionManager manager;
+    private final Object tag;
+    private final Executor executor;
+    private final int maxBatchSize;
+
+    private final Queue<PendingDelivery> queue = new ConcurrentLinkedQueue<PendingDelivery>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    /** set (holding the manager's lock on its queues) when the manager forgets this queue; never cleared */
+    private volatile boolean retired = false;
+
+    /** number of subscriptions using this queue; guarded by the manager's lock on its queues */
+    volatile int subscriptionCount = 0;
+
+    SubscriberEventQueue(LocalSubscriptionManager manager, Object tag, Executor executor, int maxBatchSize) {
+        this.manager = manager;
+        this.tag = tag;
+        this.executor = executor;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * queues the event for delivery to the given subscription; a null event requests the initial value.
+     * @return false if the queue has been retired, so the event will not be delivered
+     */
+    boolean add(Subscription<?> subscription, SensorEvent<?> event) {
+        if (retired) return false;
+        PendingDelivery delivery = new PendingDelivery(subscription, event, System.nanoTime());
+        queue.add(delivery);
+        manager.onEventQueued();
+        if (retired) {
+            // retired concurrently; unless the retiring thread has already dropped it, drop it here
+            if (queue.remove(delivery)) manager.onEventDropped();
+            return false;
+        }
+        scheduleIfNecessary();
+        return true;
+    }
+
+    /**
+     * Marks the queue as retired, if no worker is draining it, so that none ever will;
+     * drops any events added since it became idle. Must be called holding the manager's lock on its queues,
+     * and only when the queue has no subscriptions.
+     * @return whether the queue was retired
+     */
+    boolean retireIfIdle() {
+        if (retired) return true;
+        if (!queue.isEmpty() || !draining.compareAndSet(false, true)) return false;
+        // never released, so no worker can start
+        retired = true;
+        while (queue.poll() != null) {
+            manager.onEventDropped();
+        }
+        return true;
+    }
+
+    boolean isRetired() {
+        return retired;
+    }
+
+    private void scheduleIfNecessary() {
+        if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // manager has been terminated; remaining events will not be delivered
+                draining.set(false);
+                if (LOG.isDebugEnabled()) LOG.debug("Not delivering "+queue.size()+" event(s) for "+tag+", delivery rejected: "+e);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            List<PendingDelivery> batch = new ArrayList<PendingDelivery>(Math.min(maxBatchSize, 16));
+            PendingDelivery next;
+            while (batch.size() < maxBatchSize && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+            if (!batch.isEmpty()) {
+                manager.deliverBatch(batch);
+            }
+        } finally {
+            // another publisher may have added after our last poll but failed to schedule because we were draining
+            draining.set(false);
+            scheduleIfNecessary();
+            if (isIdle()) manager.onDeliveryQueueIdle(this);
+        }
+    }
+
+    Object getTag() {
+        return tag;
+    }
+
+    /** whether there are no events pending and no worker draining */
+    boolean isIdle() {
+        return queue.isEmpty() && !draining.get();
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriberEventQueue["+tag+"]";
+    }
+}
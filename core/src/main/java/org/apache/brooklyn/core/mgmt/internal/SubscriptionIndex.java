@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.core.mgmt.internal.AbstractSubscriptionManager.EntitySensorToken;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Index of subscriptions by producer and sensor, for use by {@link LocalSubscriptionManager}.
+ * <p>
+ * Subscriptions are held in immutable sets which are replaced (by compare-and-set) on each change,
+ * so lookups when publishing take no locks and see a consistent snapshot of each bucket.
+ * Subscriptions with a wildcard producer and/or sensor are kept in separate buckets
+ * so that a lookup only consults the four buckets which can match.
+ */
+@SuppressWarnings("rawtypes")
+class SubscriptionIndex {
+
+    private final ConcurrentMap<EntitySensorToken, Set<Subscription>> byProducerAndSensor = new ConcurrentHashMap<EntitySensorToken, Set<Subscription>>();
+    /** subscriptions with a wildcard producer, keyed by sensor name */
+    private final ConcurrentMap<String, Set<Subscription>> bySensorForAnyProducer = new ConcurrentHashMap<String, Set<Subscription>>();
+    /** subscriptions with a wildcard sensor, keyed by producer */
+    private final ConcurrentMap<Entity, Set<Subscription>> byProducerForAnySensor = new ConcurrentHashMap<Entity, Set<Subscription>>();
+    /** subscriptions with both producer and sensor wildcards */
+    private final AtomicReference<Set<Subscription>> forAnyProducerAndSensor = new AtomicReference<Set<Subscription>>(ImmutableSet.<Subscription>of());
+
+    public void add(Subscription<?> s) {
+        if (s.producer!=null && s.sensor!=null) {
+            addToCopyOnWriteSet(byProducerAndSensor, new EntitySensorToken(s.producer, s.sensor), s);
+        } else if (s.sensor!=null) {
+            addToCopyOnWriteSet(bySensorForAnyProducer, s.sensor.getName(), s);
+        } else if (s.producer!=null) {
+            addToCopyOnWriteSet(byProducerForAnySensor, s.producer, s);
+        } else {
+            while (true) {
+                Set<Subscription> old = forAnyProducerAndSensor.get();
+                if (forAnyProducerAndSensor.compareAndSet(old, ImmutableSet.<Subscription>builder().addAll(old).add(s).build())) return;
+            }
+        }
+    }
+
+    public boolean remove(Subscription<?> s) {
+        if (s.producer!=null && s.sensor!=null) {
+            return removeFromCopyOnWriteSet(byProducerAndSensor, new EntitySensorToken(s.producer, s.sensor), s);
+        } else if (s.sensor!=null) {
+            return removeFromCopyOnWriteSet(bySensorForAnyProducer, s.sensor.getName(), s);
+        } else if (s.producer!=null) {
+            return removeFromCopyOnWriteSet(byProducerForAnySensor, s.producer, s);
+        } else {
+            while (true) {
+                Set<Subscription> old = forAnyProducerAndSensor.get();
+                if (!old.contains(s)) return false;
+                if (forAnyProducerAndSensor.compareAndSet(old, without(old, s))) return true;
+            }
+        }
+    }
+
+    /**
+     * Adds to the target all subscriptions which match the given producer and sensor,
+     * including wildcard subscriptions.
+     */
+    public void addMatching(Entity producer, Sensor<?> sensor, Collection<? super Subscription> target) {
+        if (producer!=null && sensor!=null) {
+            addIfNotNull(target, byProducerAndSensor.get(new EntitySensorToken(producer, sensor)));
+        }
+        if (sensor!=null) {
+            addIfNotNull(target, bySensorForAnyProducer.get(sensor.getName()));
+        }
+        if (producer!=null) {
+            addIfNotNull(target, byProducerForAnySensor.get(producer));
+        }
+        target.addAll(forAnyProducerAndSensor.get());
+    }
+
+    private static void addIfNotNull(Collection<? super Subscription> target, Set<Subscription> subs) {
+        if (subs!=null) target.addAll(subs);
+    }
+
+    /**
+     * Adds the value to the immutable set held in the map under the given key, replacing that set atomically.
+     */
+    static <K,V> void addToCopyOnWriteSet(ConcurrentMap<K,Set<V>> map, K key, V value) {
+        while (true) {
+            Set<V> old = map.get(key);
+            if (old==null) {
+                if (map.putIfAbsent(key, ImmutableSet.of(value))==null) return;
+            } else {
+                if (map.replace(key, old, ImmutableSet.<V>builder().addAll(old).add(value).build())) return;
+            }
+        }
+    }
+
+    /**
+     * Removes the value from the immutable set held in the map under the given key, replacing that set atomically
+     * (and removing the key if the set becomes empty).
+     */
+    static <K,V> boolean removeFromCopyOnWriteSet(ConcurrentMap<K,Set<V>> map, K key, V value) {
+        while (true) {
+            Set<V> old = map.get(key);
+            if (old==null || !old.contains(value)) return false;
+            Set<V> replacement = without(old, value);
+            if (replacement.isEmpty() ? map.remove(key, old) : map.replace(key, old, replacement)) return true;
+        }
+    }
+
+    private static <V> Set<V> without(Set<V> set, V value) {
+        ImmutableSet.Builder<V> result = ImmutableSet.builder();
+        for (V v : set) {
+            if (!v.equals(value)) result.add(v);
+        }
+        return result.build();
+    }
+}
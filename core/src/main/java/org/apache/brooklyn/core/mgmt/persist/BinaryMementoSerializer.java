@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.w3c.dom.Document;
+
+import com.google.common.annotations.Beta;
+import com.google.common.io.BaseEncoding;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.io.xml.DomWriter;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+
+/**
+ * Writes mementos in a compact binary form, rather than as XML.
+ * <p>
+ * The object graph is exactly that of {@link XmlMementoSerializer} (same aliases and converters),
+ * but is written with XStream's binary stream format, in which each element and attribute name
+ * is written once and then referred to by a numeric id, then deflated and base64-encoded
+ * (so it can be stored wherever a string can), with a {@link #PREFIX} identifying the format.
+ * <p>
+ * {@link XmlMementoSerializer} (and so this) reads both formats, so a store can be switched between formats
+ * and will contain a mix until all objects are rewritten; see {@link #asXml(String)} and {@link #asBinary(String)}
+ * for converting existing contents without deserializing them.
+ */
+@Beta
+public class BinaryMementoSerializer<T> extends XmlMementoSerializer<T> {
+
+    /** identifies the contents as being in this format (and its version) */
+    public static final String PREFIX = "brooklyn-binary-memento:1:";
+
+    public BinaryMementoSerializer(ClassLoader classLoader) {
+        super(classLoader);
+    }
+
+    public BinaryMementoSerializer(ClassLoader classLoader, Map<String, String> deserializingClassRenames) {
+        super(classLoader, deserializingClassRenames);
+    }
+
+    @Override
+    public String toString(T memento) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HierarchicalStreamWriter writer = newWriter(bytes);
+        xstream.marshal(memento, writer);
+        writer.close();
+        return encode(bytes);
+    }
+
+    public static boolean isBinary(String contents) {
+        return contents != null && contents.startsWith(PREFIX);
+    }
+
+    /** a reader for contents in this format; caller should ensure {@link #isBinary(String)} */
+    public static HierarchicalStreamReader newReader(String contents) {
+        byte[] bytes = BaseEncoding.base64().decode(contents.substring(PREFIX.length()).trim());
+        return new BinaryStreamReader(new InflaterInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static HierarchicalStreamWriter newWriter(ByteArrayOutputStream bytes) {
+        return new BinaryStreamWriter(new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED)));
+    }
+
+    private static String encode(ByteArrayOutputStream bytes) {
+        return PREFIX + BaseEncoding.base64().encode(bytes.toByteArray());
+    }
+
+    /** returns the XML equivalent of the given contents, if they are binary, otherwise the contents unchanged */
+    public static String asXml(String contents) {
+        if (!isBinary(contents)) return contents;
+        StringWriter result = new StringWriter();
+        new HierarchicalStreamCopier().copy(newReader(contents), new PrettyPrintWriter(result));
+        return result.toString() + "\n";
+    }
+
+    /** returns the binary equivalent of the given contents, if they are XML, otherwise the contents unchanged */
+    public static String asBinary(String contents) {
+        if (contents == null || isBinary(contents)) return contents;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HierarchicalStreamWriter writer = newWriter(bytes);
+        new HierarchicalStreamCopier().copy(new DomDriver().createReader(new StringReader(contents)), writer);
+        writer.close();
+        return encode(bytes);
+    }
+
+    /** returns a DOM of the given contents (which must be binary), e.g. for xpath queries, without going through XML text */
+    public static Document toDocument(String contents) {
+        try {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            new HierarchicalStreamCopier().copy(newReader(contents), new DomWriter(doc));
+            return doc;
+        } catch (ParserConfigurationException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
@@ -21,15 +21,20 @@ package org.apache.brooklyn.core.mgmt.persist;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -42,9 +47,11 @@ import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoManifest;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.CatalogItemMemento;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.EntityMemento;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.Memento;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.StringConfigMap;
@@ -53,9 +60,12 @@ import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.mgmt.classloading.ClassLoaderFromBrooklynClassLoadingContext;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectAccessor;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectAccessorWithLock;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.SupportsWriteBatches;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.WriteBatch;
 import org.apache.brooklyn.core.mgmt.rebind.PeriodicDeltaChangeListener;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BrooklynMementoImpl;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BrooklynMementoManifestImpl;
+import org.apache.brooklyn.core.mgmt.rebind.dto.EntityMementoDelta;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.xstream.XmlUtil;
 import org.apache.brooklyn.util.exceptions.CompoundRuntimeException;
@@ -65,12 +75,19 @@ import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Primitives;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -97,6 +114,42 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    /** @see BinaryMementoSerializer */
+    @Beta
+    public enum MementoFormat { XML, BINARY }
+    
+    @Beta
+    public static final ConfigKey<MementoFormat> PERSISTER_MEMENTO_FORMAT = ConfigKeys.newConfigKey(
+            MementoFormat.class,
+            "persister.mementoFormat",
+            "Format in which mementos are written: XML, or BINARY (smaller and quicker, but not human-readable); "
+            + "mementos in either format can always be read, so this can be changed for an existing store", 
+            MementoFormat.XML);
+
+    @Beta
+    public static final ConfigKey<Boolean> PERSISTER_DELTA_RECORDS = ConfigKeys.newBooleanConfigKey(
+            "persister.deltaRecords",
+            "Whether a change to just the attribute and config values of an entity is persisted by appending a record "
+            + "of the changed values to the entity's delta file, rather than by rewriting its memento in full; "
+            + "any other change to the entity rewrites its memento, discarding its delta records. "
+            + "This reduces the amount written, not the work of generating and serializing mementos: "
+            + "every changed entity's memento is still generated, and each of its values "
+            + "(other than strings, primitives and enums) serialized, to find what has changed", 
+            false);
+
+    @Beta
+    public static final ConfigKey<Integer> PERSISTER_DELTA_RECORDS_COMPACT_AFTER = ConfigKeys.newIntegerConfigKey(
+            "persister.deltaRecords.compactAfter",
+            "Number of delta records appended for an entity before its memento is next rewritten in full "
+            + "(if persister.deltaRecords is enabled)", 
+            50);
+
+    /** Sub-path of the delta records of entities, written if {@link #PERSISTER_DELTA_RECORDS} is enabled. */
+    @Beta
+    public static final String ENTITY_DELTAS_SUBPATH = "deltas";
+
+    private static final String DELTA_RECORD_PREFIX = "brooklyn-entity-delta:";
+
     private final PersistenceObjectStore objectStore;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
 
@@ -110,6 +163,67 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     private List<Delta> queuedDeltas = new CopyOnWriteArrayList<BrooklynMementoPersister.Delta>();
     
+    /**
+     * The id, type, parent and catalog item id of each memento, as parsed by {@link #loadMementoRawData(RebindExceptionHandler)},
+     * so that {@link #loadMementoManifest(BrooklynMementoRawData, RebindExceptionHandler)} need not parse the XML again.
+     * Keyed (weakly) by the raw data returned, so they are discarded with it if the manifest is never loaded,
+     * and removed once the manifest is loaded; then by type and id, only used if the contents are the identical string.
+     */
+    private final Map<BrooklynMementoRawData, Map<String, MementoHeader>> headersByLoad =
+            Collections.synchronizedMap(new WeakHashMap<BrooklynMementoRawData, Map<String, MementoHeader>>());
+    
+    private static class MementoHeader {
+        final String contents;
+        final String id;
+        final String type;
+        final String parent;
+        final String catalogItemId;
+        
+        MementoHeader(BrooklynObjectType objectType, String contents, Document doc) {
+            String prefix = "/"+objectType.toCamelCase()+"/";
+            this.contents = contents;
+            this.id = (String) XmlUtil.xpath(doc, prefix+"id");
+            this.type = (String) XmlUtil.xpath(doc, prefix+"type");
+            this.parent = Strings.emptyToNull((String) XmlUtil.xpath(doc, prefix+"parent"));
+            this.catalogItemId = Strings.emptyToNull((String) XmlUtil.xpath(doc, prefix+"catalogItemId"));
+        }
+        
+        static String key(BrooklynObjectType type, String id) {
+            return type+":"+id;
+        }
+    }
+    
+    private final boolean deltaRecordsEnabled;
+    private final int deltaRecordsCompactAfter;
+
+    /**
+     * What was last written for each entity, if {@link #PERSISTER_DELTA_RECORDS} is enabled,
+     * so that a change to just its attribute and config values can be appended as an {@link EntityMementoDelta}.
+     * An entity not in this map is next written in full.
+     */
+    private final ConcurrentMap<String, EntityWriteState> entityWriteStates = new ConcurrentHashMap<String, EntityWriteState>();
+
+    private final AtomicLong numEntityFullWrites = new AtomicLong();
+    private final AtomicLong numEntityDeltaRecords = new AtomicLong();
+
+    private static class EntityWriteState {
+        /** hash of the memento last written in full; delta records are only applied to the memento with this hash */
+        final String baseHash;
+        /** hash of the memento without its attribute and config values */
+        final String structureHash;
+        final Map<String, Object> attributeFingerprints;
+        final Map<String, Object> configFingerprints;
+        final int numDeltaRecords;
+
+        EntityWriteState(String baseHash, String structureHash, Map<String, Object> attributeFingerprints, Map<String, Object> configFingerprints, int numDeltaRecords) {
+            this.baseHash = baseHash;
+            this.structureHash = structureHash;
+            this.attributeFingerprints = attributeFingerprints;
+            this.configFingerprints = configFingerprints;
+            this.numDeltaRecords = numDeltaRecords;
+        }
+    }
+    
     /**
      * Lock used on writes (checkpoint + delta) so that {@link #waitForWritesCompleted(Duration)} can block
      * for any concurrent call to complete.
@@ -121,10 +235,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         this.brooklynProperties = brooklynProperties;
         
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
 
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
+        this.deltaRecordsEnabled = Boolean.TRUE.equals(brooklynProperties.getConfig(PERSISTER_DELTA_RECORDS));
+        this.deltaRecordsCompactAfter = brooklynProperties.getConfig(PERSISTER_DELTA_RECORDS_COMPACT_AFTER);
 
         objectStore.createSubPath("entities");
         objectStore.createSubPath("locations");
@@ -132,6 +248,9 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         objectStore.createSubPath("enrichers");
         objectStore.createSubPath("feeds");
         objectStore.createSubPath("catalog");
+        if (deltaRecordsEnabled) {
+            objectStore.createSubPath(ENTITY_DELTAS_SUBPATH);
+        }
 
         // FIXME does it belong here or to ManagementPlaneSyncRecordPersisterToObjectStore ?
         objectStore.createSubPath("plane");
@@ -143,6 +262,18 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             }}));
     }
 
+    protected MementoSerializer<Object> newRawSerializer(ClassLoader classLoader) {
+        if (getMementoFormat() == MementoFormat.BINARY) {
+            return new BinaryMementoSerializer<Object>(classLoader);
+        }
+        return new XmlMementoSerializer<Object>(classLoader);
+    }
+    
+    public MementoFormat getMementoFormat() {
+        MementoFormat result = brooklynProperties.getConfig(PERSISTER_MEMENTO_FORMAT);
+        return (result == null) ? MementoFormat.XML : result;
+    }
+    
     public MementoSerializer<Object> getMementoSerializer() {
         return getSerializerWithStandardClassLoader();
     }
@@ -159,7 +290,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     protected MementoSerializer<Object> getSerializerWithCustomClassLoader(LookupContext lookupContext, ClassLoader classLoader) {
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         MementoSerializer<Object> result = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
         result.setLookupContext(lookupContext);
         return result;
@@ -228,12 +359,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     }
 
     protected StoreObjectAccessorWithLock getWriter(String path) {
-        String id = path.substring(path.lastIndexOf('/')+1);
+        // keyed by path rather than id, as an entity also has its delta records
         synchronized (writers) {
-            StoreObjectAccessorWithLock writer = writers.get(id);
+            StoreObjectAccessorWithLock writer = writers.get(path);
             if (writer == null) {
                 writer = new StoreObjectAccessorLocking( objectStore.newAccessor(path) );
-                writers.put(id, writer);
+                writers.put(path, writer);
             }
             return writer;
         }
@@ -280,6 +411,9 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         BrooklynMementoRawData subPathData = listMementoSubPathsAsData(exceptionHandler);
         
         final BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
+        final Map<String, MementoHeader> headers = new ConcurrentHashMap<String, MementoHeader>();
+        // read even if delta records are not now enabled, in case they were when last written
+        final Map<String, String> entityDeltaSubPaths = makeIdSubPathMap(objectStore.listContentsWithSubPath(ENTITY_DELTAS_SUBPATH));
         
         Visitor loaderVisitor = new Visitor() {
             @Override
@@ -292,11 +426,25 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                     exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
                 }
                 
-                String xmlId = (String) XmlUtil.xpath(contents, "/"+type.toCamelCase()+"/id");
+                // the raw data is the entity's complete state, e.g. for backups, so includes its delta records
+                String deltaSubPath = (type == BrooklynObjectType.ENTITY && contents != null) ? entityDeltaSubPaths.get(id) : null;
+                if (deltaSubPath != null) {
+                    try {
+                        contents = foldDeltaRecords(id, contents, read(deltaSubPath));
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        exceptionHandler.onLoadMementoFailed(type, "memento "+id+" delta records error", e);
+                    }
+                }
+                
+                // parse once here, keeping what the manifest needs
+                MementoHeader header = new MementoHeader(type, contents, parse(contents));
+                String xmlId = header.id;
                 String safeXmlId = Strings.makeValidFilename(xmlId);
                 if (!Objects.equal(id, safeXmlId))
                     LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+safeXmlId+" from xml");
                 
+                headers.put(MementoHeader.key(type, xmlId), header);
                 builder.put(type, xmlId, contents);
             }
         };
@@ -306,6 +454,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         visitMemento("loading raw", subPathData, loaderVisitor, exceptionHandler);
         
         BrooklynMementoRawData result = builder.build();
+        headersByLoad.put(result, headers);
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Loaded rebind raw data; took {}; {} entities, {} locations, {} policies, {} enrichers, {} feeds, {} catalog items, from {}", new Object[]{
@@ -324,29 +473,23 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             mementoData = loadMementoRawData(exceptionHandler);
         
         final BrooklynMementoManifestImpl.Builder builder = BrooklynMementoManifestImpl.builder();
+        Map<String, MementoHeader> loadedHeaders = headersByLoad.remove(mementoData);
+        final Map<String, MementoHeader> headers = (loadedHeaders != null) ? loadedHeaders : ImmutableMap.<String, MementoHeader>of();
 
         Visitor visitor = new Visitor() {
             @Override
             public void visit(BrooklynObjectType type, String objectId, final String contents) throws Exception {
-                final String prefix = "/"+type.toCamelCase()+"/";
-
-                class XPathHelper {
-                    private String get(String innerPath) {
-                        return (String) XmlUtil.xpath(contents, prefix+innerPath);
-                    }
-                }
-                XPathHelper x = new XPathHelper();
-                
                 switch (type) {
                     case ENTITY:
-                        builder.entity(x.get("id"), x.get("type"), 
-                            Strings.emptyToNull(x.get("parent")), Strings.emptyToNull(x.get("catalogItemId")));
+                        MementoHeader entityHeader = getHeader(headers, type, objectId, contents);
+                        builder.entity(entityHeader.id, entityHeader.type, entityHeader.parent, entityHeader.catalogItemId);
                         break;
                     case LOCATION:
                     case POLICY:
                     case ENRICHER:
                     case FEED:
-                        builder.putType(type, x.get("id"), x.get("type"));
+                        MementoHeader header = getHeader(headers, type, objectId, contents);
+                        builder.putType(type, header.id, header.type);
                         break;
                     case CATALOG_ITEM:
                         try {
@@ -384,6 +527,20 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
     
+    private static MementoHeader getHeader(Map<String, MementoHeader> headers, BrooklynObjectType type, String objectId, String contents) {
+        MementoHeader result = headers.get(MementoHeader.key(type, objectId));
+        if (result!=null && result.contents==contents) return result;
+        // not loaded by us, or changed since
+        return new MementoHeader(type, contents, parse(contents));
+    }
+    
+    private static Document parse(String contents) {
+        if (BinaryMementoSerializer.isBinary(contents)) {
+            return BinaryMementoSerializer.toDocument(contents);
+        }
+        return XmlUtil.parse(contents);
+    }
+    
     @Override
     public BrooklynMemento loadMemento(BrooklynMementoRawData mementoData, final LookupContext lookupContext, final RebindExceptionHandler exceptionHandler) throws IOException {
         if (mementoData==null)
@@ -392,15 +549,25 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         final BrooklynMementoImpl.Builder builder = BrooklynMementoImpl.builder();
+        // creating a serializer is expensive, so share them between objects from the same catalog item
+        final ConcurrentMap<String, MementoSerializer<Object>> serializersByCatalogItem = new ConcurrentHashMap<String, MementoSerializer<Object>>();
         
         Visitor visitor = new Visitor() {
             @Override
             public void visit(BrooklynObjectType type, String objectId, String contents) throws Exception {
                 try {
-                    Memento memento = (Memento) getSerializerWithCustomClassLoader(lookupContext, type, objectId).fromString(contents);
+                    BrooklynObject item = lookupContext.peek(type, objectId);
+                    String catalogItemId = (item == null) ? null : item.getCatalogItemId();
+                    MementoSerializer<Object> serializer = (catalogItemId == null) ? null : serializersByCatalogItem.get(catalogItemId);
+                    if (serializer == null) {
+                        serializer = getSerializerWithCustomClassLoader(lookupContext, type, objectId);
+                        if (catalogItemId != null) serializersByCatalogItem.putIfAbsent(catalogItemId, serializer);
+                    }
+                    Memento memento = (Memento) serializer.fromString(contents);
                     if (memento == null) {
                         LOG.warn("No "+type.toCamelCase()+"-memento deserialized from " + objectId + "; ignoring and continuing");
                     } else {
+                        // any delta records are already folded into the raw data
                         builder.memento(memento);
                     }
                 } catch (Exception e) {
@@ -431,6 +598,56 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
     
+    private static String foldDeltaRecords(String id, String contents, String deltaContents) {
+        if (deltaContents == null) return contents;
+        List<String> records = parseDeltaRecords(id, deltaContents, hash(contents));
+        if (records.isEmpty()) return contents;
+        String result = EntityDeltaRecordsFolder.fold(contents, records);
+        if (LOG.isTraceEnabled()) LOG.trace("Folded {} delta records into entity {}", records.size(), id);
+        return result;
+    }
+
+    /**
+     * Returns the delta records for the memento whose contents have the given hash, in the order they were written.
+     * Records for any other contents (written before the memento was last rewritten in full) are ignored.
+     */
+    @VisibleForTesting
+    static List<String> parseDeltaRecords(String id, String deltaContents, String baseHash) {
+        List<String> result = Lists.newArrayList();
+        int pos = 0;
+        while (pos < deltaContents.length()) {
+            int eol = deltaContents.indexOf('\n', pos);
+            if (eol < 0 || !deltaContents.startsWith(DELTA_RECORD_PREFIX, pos)) {
+                throw new IllegalStateException("Invalid delta record for entity "+id+" at offset "+pos);
+            }
+            String header = deltaContents.substring(pos + DELTA_RECORD_PREFIX.length(), eol);
+            int separator = header.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalStateException("Invalid delta record header for entity "+id+" at offset "+pos+": "+header);
+            }
+            int start = eol + 1;
+            int end = start + Integer.parseInt(header.substring(separator + 1));
+            if (end > deltaContents.length()) {
+                // e.g. if brooklyn stopped while appending it; nothing can follow
+                LOG.warn("Ignoring incomplete last delta record for entity "+id);
+                break;
+            }
+            if (header.substring(0, separator).equals(baseHash)) {
+                result.add(deltaContents.substring(start, end));
+            }
+            pos = end + 1;
+        }
+        return result;
+    }
+
+    private static String formatDeltaRecord(String baseHash, String record) {
+        return DELTA_RECORD_PREFIX + baseHash + ":" + record.length() + "\n" + record + "\n";
+    }
+
+    private static String hash(String contents) {
+        return Hashing.sha1().hashString(contents, Charsets.UTF_8).toString();
+    }
+    
     protected interface Visitor {
         public void visit(BrooklynObjectType type, String id, String contents) throws Exception;
     }
@@ -491,6 +708,33 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    /**
+     * Rewrites every memento in the store in the given format, without deserializing them,
+     * e.g. to convert an existing store after changing {@link #PERSISTER_MEMENTO_FORMAT}
+     * (which is not otherwise needed, as either format is read, but means all objects are converted at once).
+     * Any entity delta records are folded into the converted mementos.
+     * Writes must be enabled.
+     */
+    @Beta
+    public void convertMementoFormat(MementoFormat format, RebindExceptionHandler loadExceptionHandler, PersistenceExceptionHandler persistExceptionHandler) {
+        BrooklynMementoRawData rawData = loadMementoRawData(loadExceptionHandler);
+        BrooklynMementoRawData.Builder converted = BrooklynMementoRawData.builder();
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            for (Map.Entry<String, String> entry : rawData.getObjectsOfType(type).entrySet()) {
+                converted.put(type, entry.getKey(), convertMementoFormat(format, entry.getValue()));
+            }
+        }
+        // the raw data includes the entities' delta records; those files are now ignored, being for the old contents,
+        // and are deleted when each entity is next written in full
+        checkpoint(converted.build(), persistExceptionHandler);
+    }
+        }
+    }
+    
+    private static String convertMementoFormat(MementoFormat format, String contents) {
+        return (format == MementoFormat.BINARY) ? BinaryMementoSerializer.asBinary(contents) : BinaryMementoSerializer.asXml(contents);
+    }
+    
     protected void checkWritesAllowed() {
         if (!writesAllowed && !writesShuttingDown) {
             throw new IllegalStateException("Writes not allowed in "+this);
@@ -514,9 +758,14 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             Stopwatch stopwatch = Stopwatch.createStarted();
             List<ListenableFuture<?>> futures = Lists.newArrayList();
             
+            WriteBatch batch = newWriteBatch();
+            
+            // existing delta records are for the mementos being replaced, so these entities must next be written in full
+            entityWriteStates.keySet().removeAll(newMemento.getEntities().keySet());
+            
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (Map.Entry<String, String> entry : newMemento.getObjectsOfType(type).entrySet()) {
-                    futures.add(asyncPersist(type.getSubPathName(), type, entry.getKey(), entry.getValue(), exceptionHandler));
+                    futures.add(asyncPersist(batch, type.getSubPathName(), type, entry.getKey(), entry.getValue(), exceptionHandler));
                 }
             }
             
@@ -528,6 +777,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
+            commit(batch);
             if (LOG.isDebugEnabled()) LOG.debug("Checkpointed entire memento in {}", Time.makeTimeStringRounded(stopwatch));
         } finally {
             lock.writeLock().unlock();
@@ -580,15 +830,24 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             
             Stopwatch stopwatch = Stopwatch.createStarted();
             List<ListenableFuture<?>> futures = Lists.newArrayList();
+            WriteBatch batch = newWriteBatch();
             
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (Memento entity : delta.getObjectsOfType(type)) {
-                    futures.add(asyncPersist(type.getSubPathName(), entity, exceptionHandler));
+                    if (deltaRecordsEnabled && type == BrooklynObjectType.ENTITY) {
+                        futures.add(asyncPersistEntity(batch, (EntityMemento) entity, exceptionHandler));
+                    } else {
+                        futures.add(asyncPersist(batch, type.getSubPathName(), entity, exceptionHandler));
+                    }
                 }
             }
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (String id : delta.getRemovedIdsOfType(type)) {
-                    futures.add(asyncDelete(type.getSubPathName(), id, exceptionHandler));
+                    futures.add(asyncDelete(batch, type.getSubPathName(), id, exceptionHandler));
+                    if (deltaRecordsEnabled && type == BrooklynObjectType.ENTITY) {
+                        entityWriteStates.remove(id);
+                        futures.add(asyncDelete(batch, ENTITY_DELTAS_SUBPATH, id, exceptionHandler));
+                    }
                 }
             }
             
@@ -600,6 +859,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
+            commit(batch);
             
             return stopwatch;
         } finally {
@@ -632,55 +892,199 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return objectAccessor.get();
     }
 
-    private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
+    /** returns a batch for the writes of a delta or checkpoint, if the object store supports (and is configured for) them */
+    @Nullable
+    private WriteBatch newWriteBatch() {
+        return (objectStore instanceof SupportsWriteBatches) ? ((SupportsWriteBatches) objectStore).newWriteBatch() : null;
+    }
+
+    private void commit(@Nullable WriteBatch batch) {
+        if (batch == null) return;
+        try {
+            batch.commit();
+        } catch (Exception e) {
+            // none of the batch was written, so nor were any delta records; write all entities in full next time
+            entityWriteStates.clear();
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private void put(@Nullable WriteBatch batch, String path, String contents) {
+        if (batch != null) {
+            batch.put(path, contents);
+        } else {
+            getWriter(path).put(contents);
+        }
+    }
+
+    private void persist(@Nullable WriteBatch batch, String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
+        try {
+            put(batch, getPath(subPath, memento.getId()), getSerializerWithStandardClassLoader().toString(memento));
+        } catch (Exception e) {
+            exceptionHandler.onPersistMementoFailed(memento, e);
+        }
+    }
+    
+    /**
+     * Writes the entity's memento in full, or (if {@link #PERSISTER_DELTA_RECORDS} is enabled) if only its 
+     * attribute and config values have changed since it was last written, appends a record of the changed values.
+     * The memento is rewritten in full (and its delta records deleted) after 
+     * {@link #PERSISTER_DELTA_RECORDS_COMPACT_AFTER} records.
+     * <p>
+     * Only I/O is saved: the memento without its values, and each mutable value, are serialized
+     * on every call, as there is no record of what has changed other than what was last written.
+     */
+    private void persistEntity(@Nullable WriteBatch batch, EntityMemento memento, PersistenceExceptionHandler exceptionHandler) {
+        String id = memento.getId();
         try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
+            MementoSerializer<Object> serializer = getSerializerWithStandardClassLoader();
+            EntityWriteState previous = entityWriteStates.get(id);
+            
+            String structureHash = hash(serializer.toString(EntityMementoDelta.withoutValues(memento)));
+            Map<String, Object> attributes = Maps.newLinkedHashMap();
+            for (Map.Entry<AttributeSensor<?>, Object> entry : memento.getAttributes().entrySet()) {
+                attributes.put(entry.getKey().getName(), entry.getValue());
+            }
+            Map<String, Object> config = Maps.newLinkedHashMap();
+            for (Map.Entry<ConfigKey<?>, Object> entry : memento.getConfig().entrySet()) {
+                config.put(entry.getKey().getName(), entry.getValue());
+            }
+            config.putAll(memento.getConfigUnmatched());
+            Map<String, Object> attributeFingerprints = fingerprints(attributes, serializer);
+            Map<String, Object> configFingerprints = fingerprints(config, serializer);
+            
+            if (previous != null && previous.structureHash.equals(structureHash) && previous.numDeltaRecords < deltaRecordsCompactAfter) {
+                EntityMementoDelta delta = new EntityMementoDelta(
+                        changedValues(attributes, attributeFingerprints, previous.attributeFingerprints),
+                        changedValues(config, configFingerprints, previous.configFingerprints));
+                if (delta.isEmpty()) {
+                    if (LOG.isTraceEnabled()) LOG.trace("No changes to persist for entity {}", id);
+                    return;
+                }
+                String record = formatDeltaRecord(previous.baseHash, serializer.toString(delta));
+                if (batch != null) {
+                    batch.append(getPath(ENTITY_DELTAS_SUBPATH, id), record);
+                } else {
+                    getWriter(getPath(ENTITY_DELTAS_SUBPATH, id)).append(record);
+                }
+                entityWriteStates.put(id, new EntityWriteState(previous.baseHash, structureHash, attributeFingerprints, configFingerprints, previous.numDeltaRecords+1));
+                numEntityDeltaRecords.incrementAndGet();
+            } else {
+                String contents = serializer.toString(memento);
+                put(batch, getPath(BrooklynObjectType.ENTITY.getSubPathName(), id), contents);
+                if (previous == null || previous.numDeltaRecords > 0) {
+                    // compacted; any delta records are for the previous memento (so would now be ignored)
+                    String deltaPath = getPath(ENTITY_DELTAS_SUBPATH, id);
+                    if (batch != null) {
+                        batch.delete(deltaPath);
+                    } else {
+                        StoreObjectAccessorWithLock deltaWriter = getWriter(deltaPath);
+                        if (deltaWriter.exists()) deltaWriter.delete();
+                        synchronized (writers) {
+                            writers.remove(deltaPath);
+                        }
+                    }
+                }
+                entityWriteStates.put(id, new EntityWriteState(hash(contents), structureHash, attributeFingerprints, configFingerprints, 0));
+                numEntityFullWrites.incrementAndGet();
+            }
         } catch (Exception e) {
+            // write it in full next time
+            entityWriteStates.remove(id);
             exceptionHandler.onPersistMementoFailed(memento, e);
         }
     }
+
+    /** 
+     * Immutable values are compared directly; other values by their serialized form,
+     * as they may have been modified in place.
+     */
+    private static Map<String, Object> fingerprints(Map<String, Object> values, MementoSerializer<Object> serializer) {
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            boolean immutable = value == null || value instanceof String || value instanceof Enum || Primitives.isWrapperType(value.getClass());
+            result.put(entry.getKey(), immutable ? value : serializer.toString(value));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> changedValues(Map<String, Object> values, Map<String, Object> fingerprints, Map<String, Object> previousFingerprints) {
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        for (Map.Entry<String, Object> entry : fingerprints.entrySet()) {
+            String name = entry.getKey();
+            if (!previousFingerprints.containsKey(name) || !Objects.equal(entry.getValue(), previousFingerprints.get(name))) {
+                result.put(name, values.get(name));
+            }
+        }
+        return result;
+    }
+
+    /** Number of times an entity's memento has been written in full, when {@link #PERSISTER_DELTA_RECORDS} is enabled. */
+    @Beta
+    public long getNumEntityFullWrites() {
+        return numEntityFullWrites.get();
+    }
+
+    /** Number of delta records written for entities, when {@link #PERSISTER_DELTA_RECORDS} is enabled. */
+    @Beta
+    public long getNumEntityDeltaRecords() {
+        return numEntityDeltaRecords.get();
+    }
     
-    private void persist(String subPath, BrooklynObjectType type, String id, String content, PersistenceExceptionHandler exceptionHandler) {
+    private void persist(@Nullable WriteBatch batch, String subPath, BrooklynObjectType type, String id, String content, PersistenceExceptionHandler exceptionHandler) {
         try {
             if (content==null) {
                 LOG.warn("Null content for "+type+" "+id);
             }
-            getWriter(getPath(subPath, id)).put(content);
+            put(batch, getPath(subPath, id), content);
         } catch (Exception e) {
             exceptionHandler.onPersistRawMementoFailed(type, id, e);
         }
     }
     
-    private void delete(String subPath, String id, PersistenceExceptionHandler exceptionHandler) {
+    private void delete(@Nullable WriteBatch batch, String subPath, String id, PersistenceExceptionHandler exceptionHandler) {
         try {
-            StoreObjectAccessorWithLock w = getWriter(getPath(subPath, id));
+            String path = getPath(subPath, id);
+            if (batch != null) {
+                batch.delete(path);
+                return;
+            }
+            StoreObjectAccessorWithLock w = getWriter(path);
             w.delete();
             synchronized (writers) {
-                writers.remove(id);
+                writers.remove(path);
             }
         } catch (Exception e) {
             exceptionHandler.onDeleteMementoFailed(id, e);
         }
     }
 
-    private ListenableFuture<?> asyncPersist(final String subPath, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
+    private ListenableFuture<?> asyncPersist(final WriteBatch batch, final String subPath, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
+        return executor.submit(new Runnable() {
+            public void run() {
+                persist(batch, subPath, memento, exceptionHandler);
+            }});
+    }
+
+    private ListenableFuture<?> asyncPersistEntity(final WriteBatch batch, final EntityMemento memento, final PersistenceExceptionHandler exceptionHandler) {
         return executor.submit(new Runnable() {
             public void run() {
-                persist(subPath, memento, exceptionHandler);
+                persistEntity(batch, memento, exceptionHandler);
             }});
     }
 
-    private ListenableFuture<?> asyncPersist(final String subPath, final BrooklynObjectType type, final String id, final String content, final PersistenceExceptionHandler exceptionHandler) {
+    private ListenableFuture<?> asyncPersist(final WriteBatch batch, final String subPath, final BrooklynObjectType type, final String id, final String content, final PersistenceExceptionHandler exceptionHandler) {
         return executor.submit(new Runnable() {
             public void run() {
-                persist(subPath, type, id, content, exceptionHandler);
+                persist(batch, subPath, type, id, content, exceptionHandler);
             }});
     }
 
-    private ListenableFuture<?> asyncDelete(final String subPath, final String id, final PersistenceExceptionHandler exceptionHandler) {
+    private ListenableFuture<?> asyncDelete(final WriteBatch batch, final String subPath, final String id, final PersistenceExceptionHandler exceptionHandler) {
         return executor.submit(new Runnable() {
             public void run() {
-                delete(subPath, id, exceptionHandler);
+                delete(batch, subPath, id, exceptionHandler);
             }});
     }
     
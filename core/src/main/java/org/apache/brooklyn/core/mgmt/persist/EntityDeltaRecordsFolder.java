@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.apache.brooklyn.core.mgmt.rebind.dto.EntityMementoDelta;
+import org.apache.brooklyn.util.core.xstream.XmlUtil;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.DomReader;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+
+/**
+ * Folds the {@link EntityMementoDelta} records of an entity into its persisted memento, without deserializing
+ * either (which would need the entity's classes and a lookup context), so that the raw memento data loaded
+ * from a store is complete, e.g. when it is copied to a backup.
+ * <p>
+ * Each changed value replaces the element for the same attribute or config key in the memento,
+ * as {@link EntityMementoDelta#applyTo(org.apache.brooklyn.core.mgmt.rebind.dto.BasicEntityMemento)} does
+ * to a deserialized memento. XStream's relative references are first replaced by copies of the elements they
+ * refer to, as they would otherwise resolve to the wrong element once values are replaced.
+ */
+class EntityDeltaRecordsFolder {
+
+    private static final List<String> SECTIONS = ImmutableList.of("attributes", "config");
+
+    /** name of the element used by {@link org.apache.brooklyn.util.core.xstream.StringKeyMapConverter} for keys which are not valid element names */
+    private static final String ENTRY_NODE_NAME = "entry";
+
+    private EntityDeltaRecordsFolder() {}
+
+    /** returns the memento with the given records applied, in the same format (XML or binary) as the memento */
+    static String fold(String contents, List<String> records) {
+        if (records.isEmpty()) return contents;
+        Document memento = toDocument(contents);
+        inlineReferences(memento);
+        Element root = memento.getDocumentElement();
+        for (String record : records) {
+            Document delta = toDocument(record);
+            inlineReferences(delta);
+            for (String section : SECTIONS) {
+                Element changed = firstChildElement(delta.getDocumentElement(), section);
+                if (changed == null) continue;
+                Element values = firstChildElement(root, section);
+                if (values == null) {
+                    root.appendChild(memento.importNode(changed, true));
+                    continue;
+                }
+                for (Element value : childElements(changed)) {
+                    Element existing = findEntry(values, keyOf(value));
+                    Node replacement = memento.importNode(value, true);
+                    if (existing != null) {
+                        values.replaceChild(replacement, existing);
+                    } else {
+                        values.appendChild(replacement);
+                    }
+                }
+            }
+        }
+        String xml = toXml(memento);
+        return BinaryMementoSerializer.isBinary(contents) ? BinaryMementoSerializer.asBinary(xml) : xml;
+    }
+
+    private static Document toDocument(String contents) {
+        return BinaryMementoSerializer.isBinary(contents) ? BinaryMementoSerializer.toDocument(contents) : XmlUtil.parse(contents);
+    }
+
+    private static String toXml(Document doc) {
+        removeWhitespace(doc.getDocumentElement());
+        StringWriter result = new StringWriter();
+        new HierarchicalStreamCopier().copy(new DomReader(doc), new PrettyPrintWriter(result));
+        return result.toString() + "\n";
+    }
+
+    /**
+     * Replaces each element with a {@code reference} attribute (an xpath relative to that element) by a copy of
+     * the element it refers to, in document order so that the copies contain no references themselves.
+     */
+    private static void inlineReferences(Document doc) {
+        NodeList all = doc.getElementsByTagName("*");
+        List<Element> references = Lists.newArrayList();
+        for (int i = 0; i < all.getLength(); i++) {
+            Element element = (Element) all.item(i);
+            if (element.hasAttribute("reference")) references.add(element);
+        }
+        if (references.isEmpty()) return;
+
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        for (Element reference : references) {
+            String path = reference.getAttribute("reference");
+            Node target;
+            try {
+                target = (Node) xpath.evaluate(path, reference, XPathConstants.NODE);
+            } catch (XPathExpressionException e) {
+                throw Exceptions.propagate(e);
+            }
+            if (!(target instanceof Element)) {
+                throw new IllegalStateException("Cannot resolve reference "+path+" from element "+reference.getNodeName());
+            }
+            Element copy = (Element) doc.renameNode(target.cloneNode(true), null, reference.getNodeName());
+            // the type is as declared at the reference, as for the original
+            copy.removeAttribute("class");
+            copy.removeAttribute("resolves-to");
+            NamedNodeMap attributes = reference.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Attr attribute = (Attr) attributes.item(i);
+                if (!attribute.getName().equals("reference")) copy.setAttribute(attribute.getName(), attribute.getValue());
+            }
+            reference.getParentNode().replaceChild(copy, reference);
+        }
+    }
+
+    private static String keyOf(Element entry) {
+        return (ENTRY_NODE_NAME.equals(entry.getNodeName()) && entry.hasAttribute("key")) ? entry.getAttribute("key") : entry.getNodeName();
+    }
+
+    private static Element findEntry(Element map, String key) {
+        for (Element entry : childElements(map)) {
+            if (keyOf(entry).equals(key)) return entry;
+        }
+        return null;
+    }
+
+    private static Element firstChildElement(Element parent, String name) {
+        for (Element child : childElements(parent)) {
+            if (child.getNodeName().equals(name)) return child;
+        }
+        return null;
+    }
+
+    private static List<Element> childElements(Element parent) {
+        List<Element> result = Lists.newArrayList();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) result.add((Element) child);
+        }
+        return result;
+    }
+
+    /** removes the whitespace between elements, as otherwise it is copied as the elements' values */
+    private static void removeWhitespace(Element element) {
+        List<Element> children = childElements(element);
+        if (children.isEmpty()) return;
+        for (Node child = element.getFirstChild(); child != null; ) {
+            Node next = child.getNextSibling();
+            if (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().trim().isEmpty()) {
+                element.removeChild(child);
+            }
+            child = next;
+        }
+        for (Element child : children) {
+            removeWhitespace(child);
+        }
+    }
+}
@@ -31,7 +31,11 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -39,39 +43,67 @@ import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.FatalConfigurationRuntimeException;
 import org.apache.brooklyn.util.io.FileUtil;
 import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.os.Os.DeletionResult;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * @author Andrea Turli
  */
-public class FileBasedObjectStore implements PersistenceObjectStore {
+public class FileBasedObjectStore implements PersistenceObjectStore, PersistenceObjectStore.SupportsWriteBatches {
 
     private static final Logger log = LoggerFactory.getLogger(FileBasedObjectStore.class);
 
+    /**
+     * Whether to commit each {@link WriteBatch} (i.e. each persistence delta) to a journal with a single sync to disk,
+     * rather than writing each object's file as it changes; the files are brought up to date by periodic compaction.
+     * Other Brooklyn nodes sharing the directory (e.g. hot standbys) see committed changes as soon as they list
+     * its contents, as they re-read any journal segments changed since and overlay the writes not yet compacted;
+     * other tools reading the files directly see them only once compacted, i.e. up to
+     * {@link #GROUP_COMMIT_COMPACTION_PERIOD} later.
+     */
+    @Beta
+    public static final ConfigKey<Boolean> GROUP_COMMIT = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.persistence.file.groupCommit",
+            "Whether to group the writes of each persistence delta into a single synced journal write, "
+                    + "periodically compacted into the individual files",
+            false);
+
+    @Beta
+    public static final ConfigKey<Duration> GROUP_COMMIT_COMPACTION_PERIOD = ConfigKeys.newDurationConfigKey(
+            "brooklyn.persistence.file.groupCommit.compactionPeriod",
+            "How often to write committed changes from the journal to the individual files, when group commit is enabled",
+            Duration.FIVE_SECONDS);
+
     private static final int SHUTDOWN_TIMEOUT_MS = 10*1000;
 
     private static boolean WARNED_ON_NON_ATOMIC_FILE_UPDATES = false; 
     
     private final File basedir;
-    private final ListeningExecutorService executor;
+    private final FileBasedObjectStoreJournal journal;
+    private ScheduledExecutorService compactor;
     private ManagementContext mgmt;
     private boolean prepared = false;
+    private boolean groupCommit = false;
     private boolean deferredBackupNeeded = false;
+    private volatile boolean deferredJournalReplayNeeded = false;
     private AtomicBoolean doneFirstContentiousWrite = new AtomicBoolean(false);
 
     /**
@@ -79,7 +111,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
      */
     public FileBasedObjectStore(File basedir) {
         this.basedir = checkPersistenceDirPlausible(basedir);
-        this.executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        this.journal = new FileBasedObjectStoreJournal(this);
         log.debug("File-based objectStore will use directory {}", basedir);
         // don't check accessible yet, we do that when we prepare
     }
@@ -109,6 +141,10 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
                     deferredBackupNeeded = false;
                 }
+                if (deferredJournalReplayNeeded) {
+                    journal.replay();
+                    deferredJournalReplayNeeded = false;
+                }
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
@@ -138,9 +174,31 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
     public StoreObjectAccessor newAccessor(String path) {
         if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
         
+        return new FileBasedStoreObjectAccessor(new File(Os.mergePaths(getBaseDir().getAbsolutePath(), path)), getTmpExtension(), journal, path);
+    }
+
+    /** accessor which reads and writes the file directly, ignoring the journal; for use by the journal */
+    StoreObjectAccessor newDirectAccessor(String path) {
+        return new FileBasedStoreObjectAccessor(new File(Os.mergePaths(getBaseDir().getAbsolutePath(), path)), getTmpExtension());
+    }
+
+    private String getTmpExtension() {
         String tmpExt = ".tmp";
         if (mgmt!=null && mgmt.getManagementNodeId()!=null) tmpExt = "."+mgmt.getManagementNodeId()+tmpExt;
-        return new FileBasedStoreObjectAccessor(new File(Os.mergePaths(getBaseDir().getAbsolutePath(), path)), tmpExt);
+        return tmpExt;
+    }
+
+    /** returns a batch committed to the journal, if {@link #GROUP_COMMIT} is enabled, otherwise null */
+    @Override
+    public WriteBatch newWriteBatch() {
+        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        return groupCommit ? journal.newBatch() : null;
+    }
+
+    /** writes all changes committed to the journal to the individual files */
+    @VisibleForTesting
+    public void compact() {
+        journal.compact();
     }
 
     @Override
@@ -148,6 +206,10 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
         if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
         
         Preconditions.checkNotNull(parentSubPath);
+        if (deferredJournalReplayNeeded) {
+            // pick up changes committed (but perhaps not yet compacted) by the master
+            journal.loadReadOnly();
+        }
         File subPathDir = new File(basedir, parentSubPath);
 
         FileFilter fileFilter = new FileFilter() {
@@ -157,8 +219,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
             }
         };
         File[] subPathDirFiles = subPathDir.listFiles(fileFilter);
-        if (subPathDirFiles==null) return ImmutableList.<String>of();
-        return FluentIterable.from(Arrays.asList(subPathDirFiles))
+        List<String> result = (subPathDirFiles==null) ? ImmutableList.<String>of() : FluentIterable.from(Arrays.asList(subPathDirFiles))
                 .transform(new Function<File, String>() {
                     @Nullable
                     @Override
@@ -166,15 +227,33 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
                         return format("%s/%s", parentSubPath, input.getName());
                     }
                 }).toList();
+
+        Map<String, FileBasedObjectStoreJournal.PendingWrite> pending = journal.getPending();
+        if (pending.isEmpty()) return result;
+        Set<String> merged = MutableSet.copyOf(result);
+        String prefix = parentSubPath+"/";
+        for (Map.Entry<String, FileBasedObjectStoreJournal.PendingWrite> entry : pending.entrySet()) {
+            String path = entry.getKey();
+            if (!path.startsWith(prefix) || path.indexOf('/', prefix.length()) >= 0) continue;
+            if (entry.getValue().isDeleted()) {
+                merged.remove(path);
+            } else {
+                merged.add(path);
+            }
+        }
+        return ImmutableList.copyOf(merged);
     }
 
     @Override
     public void close() {
-        executor.shutdown();
-        try {
-            executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            throw Exceptions.propagate(e);
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+            journal.compact();
         }
     }
 
@@ -286,7 +365,37 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
             throw Exceptions.propagate(e);
         }
         
-        prepared = true;        
+        prepared = true;
+
+        if (haMode==null || haMode==HighAvailabilityMode.DISABLED || haMode==HighAvailabilityMode.MASTER) {
+            journal.replay();
+        } else {
+            // as for backups, another node may be master; only replay when we are about to write
+            journal.loadReadOnly();
+            deferredJournalReplayNeeded = true;
+        }
+
+        groupCommit = Boolean.TRUE.equals(mgmt.getConfig().getConfig(GROUP_COMMIT));
+        if (groupCommit && compactor == null) {
+            Duration period = mgmt.getConfig().getConfig(GROUP_COMMIT_COMPACTION_PERIOD);
+            compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread result = new Thread(r, "brooklyn-persistence-compactor-"+basedir.getName());
+                    result.setDaemon(true);
+                    return result;
+                }});
+            compactor.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    try {
+                        journal.compact();
+                    } catch (Throwable t) {
+                        // committed changes remain in the journal, so will be retried (or replayed on restart)
+                        log.warn("Problem compacting persistence journal of "+FileBasedObjectStore.this+" (will retry): "+t, t);
+                    }
+                }},
+                period.toMilliseconds(), period.toMilliseconds(), TimeUnit.MILLISECONDS);
+            log.debug("Group commit enabled for {}, compacting every {}", this, period);
+        }
     }
 
     protected File checkPersistenceDirPlausible(File dir) {
@@ -393,6 +502,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public void deleteCompletely() {
+        journal.clear();
         deleteCompletely(getBaseDir());
     }
     
@@ -0,0 +1,528 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectAccessor;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.WriteBatch;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.io.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Journal of the writes to a {@link FileBasedObjectStore} in group-commit mode.
+ * <p>
+ * Each {@link WriteBatch} is appended to the current segment file (in the {@link #JOURNAL_SUBPATH} directory)
+ * with a single sync to disk. The committed writes are held in memory, and read from there by the store's accessors,
+ * until {@link #compact()} writes the latest contents of each object to its usual file (so several writes of an
+ * object are coalesced into one) and deletes the segments which are no longer needed.
+ * <p>
+ * When a node becomes master, {@link #replay()} applies any complete batches left in the journal to the files
+ * (e.g. by a previous master which stopped before compacting); until then {@link #loadReadOnly()} makes them
+ * visible to readers.
+ * <p>
+ * A segment is a sequence of records, each a header line of type, content length and path,
+ * followed by the contents and a newline. Type is P (put), A (append, to the contents put earlier in the
+ * same segment), D (delete), X (the object's file has since been written directly, so earlier records are
+ * superseded) or C (marks the end of a batch, without a path).
+ * <p>
+ * An append is journalled as just the appended text when the object's contents are already in the current
+ * segment, and otherwise as a put of the resulting contents; so each segment can be parsed on its own, and
+ * repeated appends to an object cost one put per segment rather than one per append.
+ */
+class FileBasedObjectStoreJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileBasedObjectStoreJournal.class);
+
+    static final String JOURNAL_SUBPATH = "journal";
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    static class PendingWrite {
+        final Date timestamp = new Date();
+        /** the segment holding the records for these contents, so later appends can be journalled relative to it */
+        final File segment;
+        private final boolean deleted;
+        /** null until computed, for an append */
+        private String contents;
+        private PendingWrite appendedTo;
+        private String appended;
+
+        /** contents null if deleted */
+        PendingWrite(String contents, File segment) {
+            this.contents = contents;
+            this.deleted = (contents == null);
+            this.segment = segment;
+        }
+        PendingWrite(PendingWrite appendedTo, String appended, File segment) {
+            this.appendedTo = appendedTo;
+            this.appended = appended;
+            this.deleted = false;
+            this.segment = segment;
+        }
+
+        boolean isDeleted() {
+            return deleted;
+        }
+
+        /** null if deleted; for a chain of appends, the text is concatenated (once) when first needed */
+        synchronized String getContents() {
+            if (deleted || contents != null) return contents;
+            List<String> parts = MutableList.of();
+            PendingWrite write = this;
+            String base = null;
+            while (write != null) {
+                synchronized (write) {
+                    if (write.contents != null) {
+                        base = write.contents;
+                        break;
+                    }
+                    parts.add(write.appended);
+                    write = write.appendedTo;
+                }
+            }
+            StringBuilder result = new StringBuilder();
+            if (base != null) result.append(base);
+            for (int i = parts.size()-1; i >= 0; i--) {
+                result.append(parts.get(i));
+            }
+            contents = result.toString();
+            appendedTo = null;
+            appended = null;
+            return contents;
+        }
+    }
+
+    private final FileBasedObjectStore store;
+    private final File journalDir;
+
+    /** writes committed to the journal but not yet to their files; only modified when synchronized on this */
+    private final ConcurrentMap<String, PendingWrite> pending = new ConcurrentHashMap<String, PendingWrite>();
+
+    /** segments written by this journal (so can be deleted when compacted), the last being current; guarded by this */
+    private final List<File> segments = MutableList.of();
+    private long nextSegmentNumber;
+    private final Object compactionMutex = new Object();
+    private volatile boolean compacting = false;
+
+    /** segments parsed by {@link #loadReadOnly()}, reused while unchanged; guarded by this */
+    private final Map<File, ParsedSegment> parsedSegments = MutableMap.of();
+
+    private static class ParsedSegment {
+        final long length;
+        final long lastModified;
+        /** the writes of the segment's complete batches */
+        final Map<String, PendingWrite> writes = MutableMap.of();
+        /** the paths whose earlier records (in earlier segments) are superseded */
+        final Set<String> superseded = MutableSet.of();
+        ParsedSegment(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    FileBasedObjectStoreJournal(FileBasedObjectStore store) {
+        this.store = store;
+        this.journalDir = new File(store.getBaseDir(), JOURNAL_SUBPATH);
+    }
+
+    PendingWrite getPending(String path) {
+        return pending.isEmpty() ? null : pending.get(path);
+    }
+
+    /** The committed writes not yet compacted, by path. */
+    Map<String, PendingWrite> getPending() {
+        return Collections.unmodifiableMap(pending);
+    }
+
+    WriteBatch newBatch() {
+        return new Batch();
+    }
+
+    private static class Op {
+        final char type;
+        final String path;
+        final String contents;
+        Op(char type, String path, String contents) {
+            this.type = type;
+            this.path = path;
+            this.contents = contents;
+        }
+    }
+
+    private class Batch implements WriteBatch {
+        private final List<Op> ops = Collections.synchronizedList(MutableList.<Op>of());
+        private boolean committed = false;
+
+        @Override
+        public void put(String path, String contents) {
+            ops.add(new Op('P', path, (contents == null) ? "" : contents));
+        }
+
+        @Override
+        public void append(String path, String contents) {
+            ops.add(new Op('A', path, (contents == null) ? "" : contents));
+        }
+
+        @Override
+        public void delete(String path) {
+            ops.add(new Op('D', path, null));
+        }
+
+        @Override
+        public void commit() {
+            List<Op> toCommit;
+            synchronized (ops) {
+                if (committed) throw new IllegalStateException("Batch already committed");
+                committed = true;
+                toCommit = MutableList.copyOf(ops);
+            }
+            FileBasedObjectStoreJournal.this.commit(toCommit);
+        }
+    }
+
+    private synchronized void commit(List<Op> ops) {
+        if (ops.isEmpty()) return;
+
+        File segment = currentSegment();
+        Map<String, PendingWrite> writes = MutableMap.of();
+        // paths journalled as appends to contents already in the segment, with the text appended by this batch
+        Map<String, StringBuilder> appends = MutableMap.of();
+        for (Op op : ops) {
+            if (op.type == 'A') {
+                boolean inBatch = writes.containsKey(op.path);
+                PendingWrite previous = inBatch ? writes.get(op.path) : pending.get(op.path);
+                if (previous != null && !previous.isDeleted() && (inBatch || segment.equals(previous.segment))) {
+                    writes.put(op.path, new PendingWrite(previous, op.contents, segment));
+                    if (!inBatch) {
+                        appends.put(op.path, new StringBuilder(op.contents));
+                    } else if (appends.containsKey(op.path)) {
+                        appends.get(op.path).append(op.contents);
+                    } // else journalled as a put of the whole contents, with the earlier write in this batch
+                } else {
+                    // the segment must have the whole contents, for appends to be replayed correctly
+                    String previousContents = (previous != null) ? previous.getContents() : store.newDirectAccessor(op.path).get();
+                    writes.put(op.path, new PendingWrite((previousContents == null) ? op.contents : previousContents + op.contents, segment));
+                    appends.remove(op.path);
+                }
+            } else {
+                writes.put(op.path, new PendingWrite(op.contents, segment));
+                appends.remove(op.path);
+            }
+        }
+
+        StringBuilder records = new StringBuilder();
+        for (Map.Entry<String, PendingWrite> entry : writes.entrySet()) {
+            StringBuilder appended = appends.get(entry.getKey());
+            if (appended != null) {
+                appendRecord(records, 'A', entry.getKey(), appended.toString());
+            } else {
+                String contents = entry.getValue().getContents();
+                appendRecord(records, (contents == null) ? 'D' : 'P', entry.getKey(), contents);
+            }
+        }
+        records.append("C ").append(writes.size()).append("\n");
+        write(records.toString());
+
+        pending.putAll(writes);
+    }
+
+    /**
+     * Must be called before the file for the given path is written other than through the journal,
+     * so that any pending write is not subsequently applied over it (including on replay).
+     */
+    void beforeDirectWrite(String path) {
+        if (!pending.containsKey(path) && !compacting) return;
+        synchronized (this) {
+            PendingWrite write = pending.get(path);
+            if (write == null && !compacting) return;
+            // e.g. for an append, the file must first have the pending contents
+            if (write != null) applyToFile(path, write);
+            // when compacting, the path's earlier records may still be in a segment which is not yet deleted
+            StringBuilder records = new StringBuilder();
+            appendRecord(records, 'X', path, null);
+            records.append("C 1\n");
+            write(records.toString());
+            if (write != null) pending.remove(path);
+        }
+    }
+
+    /**
+     * Writes the pending writes to their files, and deletes the segments written before this was called.
+     * Writes committed while compacting are left for the next compaction.
+     */
+    void compact() {
+        synchronized (compactionMutex) {
+            Map<String, PendingWrite> snapshot;
+            List<File> compactedSegments;
+            synchronized (this) {
+                if (segments.isEmpty()) return;
+                snapshot = MutableMap.copyOf(pending);
+                compactedSegments = MutableList.copyOf(segments);
+                segments.clear();
+                compacting = true;
+            }
+            try {
+                for (Map.Entry<String, PendingWrite> entry : snapshot.entrySet()) {
+                    synchronized (this) {
+                        // skip if superseded by a later batch (in a later segment) or by a direct write
+                        if (pending.get(entry.getKey()) == entry.getValue()) {
+                            applyToFile(entry.getKey(), entry.getValue());
+                            pending.remove(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                for (File segment : compactedSegments) {
+                    if (!segment.delete()) {
+                        LOG.warn("Unable to delete compacted journal segment "+segment+"; will be replayed on restart");
+                    }
+                }
+            } finally {
+                compacting = false;
+            }
+            if (LOG.isTraceEnabled()) LOG.trace("Compacted {} objects from {} journal segments of {}", new Object[] {snapshot.size(), compactedSegments.size(), store});
+        }
+    }
+
+    /** discards all pending writes, e.g. when the store is being deleted */
+    synchronized void clear() {
+        pending.clear();
+        segments.clear();
+        parsedSegments.clear();
+    }
+
+    /**
+     * Applies the complete batches in any existing segments to the files, in order, then deletes the segments.
+     * For use before the store is written, e.g. after a restart.
+     */
+    synchronized void replay() {
+        List<File> existingSegments = listSegments();
+        Map<String, PendingWrite> writes = parseSegments(existingSegments);
+        for (File segment : existingSegments) {
+            nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber(segment)+1);
+        }
+        for (Map.Entry<String, PendingWrite> entry : writes.entrySet()) {
+            applyToFile(entry.getKey(), entry.getValue());
+        }
+        for (File segment : existingSegments) {
+            if (!segment.delete()) {
+                LOG.warn("Unable to delete replayed journal segment "+segment);
+            }
+        }
+        pending.clear();
+        parsedSegments.clear();
+        if (!existingSegments.isEmpty()) {
+            LOG.info("Replayed journal of "+store+": "+writes.size()+" objects from "+existingSegments.size()+" segments");
+        }
+    }
+
+    /**
+     * Makes the complete batches in any existing segments visible to readers, without changing the files,
+     * for use when another node may be writing (or may later need to replay) the journal.
+     * Only segments which have changed since the last call are re-read.
+     */
+    synchronized void loadReadOnly() {
+        Map<String, PendingWrite> writes = parseSegments(listSegments());
+        pending.keySet().retainAll(writes.keySet());
+        pending.putAll(writes);
+    }
+
+    private List<File> listSegments() {
+        File[] existing = journalDir.listFiles();
+        List<File> result = MutableList.of();
+        if (existing == null) return result;
+        for (File file : existing) {
+            if (file.getName().startsWith(SEGMENT_PREFIX)) result.add(file);
+        }
+        Collections.sort(result, new Comparator<File>() {
+            @Override public int compare(File f1, File f2) {
+                return Long.valueOf(segmentNumber(f1)).compareTo(segmentNumber(f2));
+            }
+        });
+        return result;
+    }
+
+    /** caller must synchronize on this */
+    private Map<String, PendingWrite> parseSegments(List<File> segments) {
+        Map<String, PendingWrite> writes = MutableMap.of();
+        parsedSegments.keySet().retainAll(segments);
+        for (File segment : segments) {
+            ParsedSegment parsed = parseSegment(segment);
+            if (parsed == null) continue;
+            writes.keySet().removeAll(parsed.superseded);
+            writes.putAll(parsed.writes);
+        }
+        return writes;
+    }
+
+    /** the segment's complete batches, re-read only if it has changed; null if it no longer exists */
+    private ParsedSegment parseSegment(File segment) {
+        long length = segment.length();
+        long lastModified = segment.lastModified();
+        ParsedSegment cached = parsedSegments.get(segment);
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) return cached;
+
+        String contents;
+        try {
+            contents = Files.toString(segment, Charsets.UTF_8);
+        } catch (IOException e) {
+            if (!segment.exists()) {
+                // deleted concurrently by the node compacting it, after writing its contents to the files
+                parsedSegments.remove(segment);
+                return null;
+            }
+            throw Exceptions.propagate("Problem reading journal segment "+segment, e);
+        }
+        ParsedSegment result = new ParsedSegment(length, lastModified);
+        parseSegment(contents, segment, result);
+        parsedSegments.put(segment, result);
+        return result;
+    }
+
+    /** Adds the writes in complete batches of the segment to the result, where X records remove the path. */
+    private static void parseSegment(String contents, File segment, ParsedSegment result) {
+        Map<String, PendingWrite> writes = result.writes;
+        Map<String, PendingWrite> batch = MutableMap.of();
+        List<String> superseded = MutableList.of();
+        int pos = 0;
+        while (pos < contents.length()) {
+            int eol = contents.indexOf('\n', pos);
+            if (eol < 0) break;
+            String header = contents.substring(pos, eol);
+            if (header.startsWith("C ")) {
+                writes.keySet().removeAll(superseded);
+                result.superseded.addAll(superseded);
+                writes.keySet().removeAll(batch.keySet());
+                writes.putAll(batch);
+                batch.clear();
+                superseded.clear();
+                pos = eol+1;
+                continue;
+            }
+            String[] parts = header.split(" ", 3);
+            if (parts.length < 3) {
+                LOG.warn("Invalid record in journal segment "+segment+" at offset "+pos+"; ignoring rest of segment");
+                break;
+            }
+            int start = eol+1;
+            int end = start + Integer.parseInt(parts[1]);
+            if (end >= contents.length()) {
+                // incomplete, e.g. stopped while writing; the batch is ignored
+                break;
+            }
+            String path = parts[2];
+            switch (parts[0].charAt(0)) {
+            case 'P': batch.put(path, new PendingWrite(contents.substring(start, end), segment)); break;
+            case 'A':
+                PendingWrite previous = batch.containsKey(path) ? batch.get(path) : writes.get(path);
+                if (previous == null || previous.isDeleted()) {
+                    LOG.warn("Append without earlier contents in journal segment "+segment+" at offset "+pos+"; ignoring: "+header);
+                } else {
+                    batch.put(path, new PendingWrite(previous, contents.substring(start, end), segment));
+                }
+                break;
+            case 'D': batch.put(path, new PendingWrite(null, segment)); break;
+            case 'X': superseded.add(path); break;
+            default:
+                LOG.warn("Unknown record type in journal segment "+segment+" at offset "+pos+": "+header);
+            }
+            pos = end+1;
+        }
+        if (!batch.isEmpty() || !superseded.isEmpty()) {
+            LOG.warn("Ignoring incomplete last batch in journal segment "+segment);
+        }
+    }
+
+    private static void appendRecord(StringBuilder records, char type, String path, String contents) {
+        if (contents == null) contents = "";
+        records.append(type).append(' ').append(contents.length()).append(' ').append(path).append('\n')
+            .append(contents).append('\n');
+    }
+
+    private static long segmentNumber(File segment) {
+        try {
+            return Long.parseLong(segment.getName().substring(SEGMENT_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void applyToFile(String path, PendingWrite write) {
+        StoreObjectAccessor accessor = store.newDirectAccessor(path);
+        if (write.isDeleted()) {
+            accessor.delete();
+        } else {
+            accessor.put(write.getContents());
+        }
+    }
+
+    /** the segment to which records are written, creating one if needed; caller must synchronize on this */
+    private File currentSegment() {
+        if (segments.isEmpty()) {
+            if (!journalDir.exists()) store.createSubPath(JOURNAL_SUBPATH);
+            segments.add(new File(journalDir, SEGMENT_PREFIX+(nextSegmentNumber++)));
+        }
+        return segments.get(segments.size()-1);
+    }
+
+    /** appends to the current segment, and syncs it to disk; caller must synchronize on this */
+    private void write(String records) {
+        File segment = currentSegment();
+        FileOutputStream out = null;
+        try {
+            boolean created = !segment.exists();
+            out = new FileOutputStream(segment, true);
+            if (created) FileUtil.setFilePermissionsTo600(segment);
+            out.write(records.getBytes(Charsets.UTF_8));
+            out.getChannel().force(true);
+        } catch (IOException e) {
+            throw Exceptions.propagate("Problem writing to journal segment "+segment, e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    LOG.debug("Problem closing journal segment "+segment+" (continuing): "+e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Journal["+journalDir+"; "+pending.size()+" pending]";
+    }
+}
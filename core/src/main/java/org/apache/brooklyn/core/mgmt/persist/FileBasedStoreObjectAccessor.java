@@ -22,6 +22,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStoreJournal.PendingWrite;
+
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.io.FileUtil;
 import org.apache.brooklyn.util.text.Strings;
@@ -42,16 +46,35 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
     private static final Logger LOG = LoggerFactory.getLogger(FileBasedStoreObjectAccessor.class);
 
     public FileBasedStoreObjectAccessor(File file, String tmpExtension) {
+        this(file, tmpExtension, null, null);
+    }
+
+    /** for a store in group-commit mode, where committed writes may be in the journal and not yet in the file */
+    FileBasedStoreObjectAccessor(File file, String tmpExtension, @Nullable FileBasedObjectStoreJournal journal, @Nullable String path) {
         this.file = file;
         this.tmpFile = new File(file.getParentFile(), file.getName()+(Strings.isBlank(tmpExtension) ? ".tmp" : tmpExtension));
+        this.journal = journal;
+        this.path = path;
     }
 
     private final File file;
     private final File tmpFile;
-    
+    private final FileBasedObjectStoreJournal journal;
+    private final String path;
+
+    private PendingWrite getPending() {
+        return (journal == null) ? null : journal.getPending(path);
+    }
+
+    private void beforeWrite() {
+        if (journal != null) journal.beforeDirectWrite(path);
+    }
+
     @Override
     public String get() {
         try {
+            PendingWrite pending = getPending();
+            if (pending != null) return pending.getContents();
             if (!exists()) return null;
             return Files.asCharSource(file, Charsets.UTF_8).read();
         } catch (IOException e) {
@@ -62,6 +85,8 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
     @Override
     public byte[] getBytes() {
         try {
+            PendingWrite pending = getPending();
+            if (pending != null) return pending.isDeleted() ? null : pending.getContents().getBytes(Charsets.UTF_8);
             if (!exists()) return null;
             return Files.asByteSource(file).read();
         } catch (IOException e) {
@@ -71,11 +96,14 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
 
     @Override
     public boolean exists() {
+        PendingWrite pending = getPending();
+        if (pending != null) return !pending.isDeleted();
         return file.exists();
     }
 
     @Override
     public void put(String val) {
+        beforeWrite();
         try {
             if (val==null) val = "";
             FileUtil.setFilePermissionsTo600(tmpFile);
@@ -91,6 +119,7 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
     // TODO Should this write to the temporary file? Otherwise we'll risk getting a partial view of the write.
     @Override
     public void append(String val) {
+        beforeWrite();
         try {
             if (val==null) val = "";
             FileUtil.setFilePermissionsTo600(file);
@@ -103,6 +132,7 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
 
     @Override
     public void delete() {
+        beforeWrite();
         if (!file.delete()) {
             if (!file.exists()) {
                 LOG.debug("Unable to delete " + file.getAbsolutePath() + ". Probably did not exist.");
@@ -118,6 +148,8 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
 
     @Override
     public Date getLastModifiedDate() {
+        PendingWrite pending = getPending();
+        if (pending != null) return pending.isDeleted() ? null : pending.timestamp;
         long result = file.lastModified();
         if (result==0) return null;
         return new Date(result);
@@ -32,6 +32,7 @@ public class PersistenceActivityMetrics {
     long count=0, failureCount=0;
     Long lastSuccessTime, lastDuration, lastFailureTime;
     List<Map<String,Object>> errorMessages = MutableList.of();
+    Map<String,Map<String,Object>> phases = MutableMap.of();
 
     public void noteSuccess(Duration duration) {
         count++;
@@ -46,6 +47,15 @@ public class PersistenceActivityMetrics {
         lastDuration = duration!=null ? duration.toMilliseconds() : -1;
     }
 
+    /** records the duration of a named phase of the activity (e.g. of rebind), and how many items it handled */
+    public synchronized void notePhase(String phase, Duration duration, int itemCount) {
+        long millis = duration.toMilliseconds();
+        phases.put(phase, MutableMap.<String,Object>of(
+            "lastDuration", millis,
+            "lastItemCount", itemCount,
+            "lastItemsPerSecond", millis>0 ? itemCount*1000.0/millis : null));
+    }
+
     public void noteError(String error) {
         noteErrorObject(error);
     }
@@ -72,6 +82,7 @@ public class PersistenceActivityMetrics {
         result.put("lastFailureTimeUtc", lastFailureTime);
         result.put("lastFailureTimeMillisSince", since(lastFailureTime));
         result.put("errorMessages", MutableList.copyOf(errorMessages));
+        result.put("phases", MutableMap.copyOf(phases));
         return result;
     }
 
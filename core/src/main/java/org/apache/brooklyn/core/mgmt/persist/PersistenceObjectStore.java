@@ -23,6 +23,8 @@ import java.util.List;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReadWriteLock;
 
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
 import org.apache.brooklyn.util.time.Duration;
@@ -62,6 +64,26 @@ public interface PersistenceObjectStore {
         ReadWriteLock getLockObject();
     }
 
+    /**
+     * A group of writes which are made durable together, on {@link #commit()}.
+     * Writes are not visible to accessors until committed.
+     */
+    @Beta
+    public interface WriteBatch {
+        void put(String path, String contentsToReplaceOrCreate);
+        void append(String path, String contentsToAppendOrCreate);
+        void delete(String path);
+        /** makes all the writes in this batch visible and durable; may only be called once */
+        void commit();
+    }
+
+    /** Implemented by object stores which can group writes into a {@link WriteBatch}. */
+    @Beta
+    public interface SupportsWriteBatches {
+        /** returns a new batch, or null if batching is not enabled for this store (in which case write through the accessors) */
+        @Nullable WriteBatch newWriteBatch();
+    }
+
     /** human-readable name of this object store */
     public String getSummaryName();
     
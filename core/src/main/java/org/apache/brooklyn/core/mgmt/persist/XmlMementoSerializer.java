@@ -55,6 +55,7 @@ import org.apache.brooklyn.core.mgmt.classloading.JavaBrooklynClassLoadingContex
 import org.apache.brooklyn.core.mgmt.rebind.dto.BasicCatalogItemMemento;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BasicEnricherMemento;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BasicEntityMemento;
+import org.apache.brooklyn.core.mgmt.rebind.dto.EntityMementoDelta;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BasicFeedMemento;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BasicLocationMemento;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BasicPolicyMemento;
@@ -102,6 +103,7 @@ public class XmlMementoSerializer<T> extends XmlSerializer<T> implements Memento
         xstream.alias("brooklyn", MutableBrooklynMemento.class);
         
         xstream.alias("entity", BasicEntityMemento.class);
+        xstream.alias("entityDelta", EntityMementoDelta.class);
         xstream.alias("location", BasicLocationMemento.class);
         xstream.alias("policy", BasicPolicyMemento.class);
         xstream.alias("feed", BasicFeedMemento.class);
@@ -156,6 +158,20 @@ public class XmlMementoSerializer<T> extends XmlSerializer<T> implements Memento
         }
     }
 
+    @Override
+    public T fromString(String string) {
+        // a store may hold a mix of formats, e.g. when switching to or from the binary format
+        if (BinaryMementoSerializer.isBinary(string)) {
+            return fromBinaryString(string);
+        }
+        return super.fromString(string);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected T fromBinaryString(String string) {
+        return (T) xstream.unmarshal(BinaryMementoSerializer.newReader(string));
+    }
+
     @Override
     public void setLookupContext(LookupContext lookupContext) {
         this.lookupContext = checkNotNull(lookupContext, "lookupContext");
@@ -79,6 +79,7 @@ import org.apache.brooklyn.core.mgmt.internal.EntityManagerInternal;
 import org.apache.brooklyn.core.mgmt.internal.LocationManagerInternal;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.internal.ManagementTransitionMode;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
 import org.apache.brooklyn.core.mgmt.persist.DeserializingClassRenamesProvider;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceActivityMetrics;
 import org.apache.brooklyn.core.mgmt.rebind.RebindManagerImpl.RebindTracker;
@@ -104,7 +105,9 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -178,6 +181,20 @@ public abstract class RebindIteration {
     /** phase is used to ensure our steps are run as we've expected, and documented (in javadoc at top).
      * it's worth the extra effort due to the complication and the subtleties. */
     protected int phase = 0;
+    /** times the current phase, for {@link #rebindMetrics} */
+    protected Stopwatch phaseTimer;
+    /** names of the phases (indexed by phase number) as reported in {@link #rebindMetrics} */
+    protected static final String[] PHASE_NAMES = { null, "loadManifests", "rebuildCatalog", "instantiateLocationsAndEntities", 
+        "instantiateMementos", "instantiateAdjuncts", "reconstruct", "associateAdjuncts", "manage" };
+    private static final Set<BrooklynObjectType> ALL_TYPES = ImmutableSet.copyOf(BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER);
+    private static final Set<BrooklynObjectType> ADJUNCT_TYPES = ImmutableSet.of(BrooklynObjectType.POLICY, BrooklynObjectType.ENRICHER, BrooklynObjectType.FEED);
+    private static final Set<BrooklynObjectType> NON_CATALOG_TYPES = Sets.difference(ALL_TYPES, ImmutableSet.of(BrooklynObjectType.CATALOG_ITEM)).immutableCopy();
+    /** the types of the items handled by each phase, for its throughput; parallel to {@link #PHASE_NAMES} */
+    protected static final List<Set<BrooklynObjectType>> PHASE_ITEM_TYPES = ImmutableList.<Set<BrooklynObjectType>>of(
+        ImmutableSet.<BrooklynObjectType>of(), ALL_TYPES, ImmutableSet.of(BrooklynObjectType.CATALOG_ITEM), 
+        ImmutableSet.of(BrooklynObjectType.LOCATION, BrooklynObjectType.ENTITY),
+        NON_CATALOG_TYPES, ADJUNCT_TYPES, NON_CATALOG_TYPES, ImmutableSet.of(BrooklynObjectType.ENTITY), 
+        ImmutableSet.of(BrooklynObjectType.LOCATION, BrooklynObjectType.ENTITY));
 
     // set in first phase
     
@@ -263,6 +280,7 @@ public abstract class RebindIteration {
             exceptionHandler.onStart(rebindContext);
 
             doRun();
+            notePhaseCompleted();
             
             exceptionHandler.onDone();
             
@@ -283,9 +301,30 @@ public abstract class RebindIteration {
     }
     
     protected void checkEnteringPhase(int targetPhase) {
+        notePhaseCompleted();
         phase++;
         checkContinuingPhase(targetPhase);
     }
+    /** records how long the current phase took, and its throughput, then starts timing the next */
+    protected void notePhaseCompleted() {
+        if (phase>0 && phaseTimer!=null) {
+            String name = (phase < PHASE_NAMES.length) ? PHASE_NAMES[phase] : "phase"+phase;
+            rebindMetrics.notePhase(name, Duration.of(phaseTimer), getNumMementoItems(phase));
+        }
+        phaseTimer = Stopwatch.createStarted();
+    }
+    
+    /** the number of items handled by the given phase, i.e. of the {@link #PHASE_ITEM_TYPES} for that phase (or all items, for later phases) */
+    protected int getNumMementoItems(int phase) {
+        if (mementoRawData==null) return 0;
+        Set<BrooklynObjectType> types = (phase < PHASE_ITEM_TYPES.size()) ? PHASE_ITEM_TYPES.get(phase) : ALL_TYPES;
+        int result = 0;
+        for (BrooklynObjectType type: types) {
+            result += mementoRawData.getObjectsOfType(type).size();
+        }
+        return result;
+    }
+    
     protected void checkContinuingPhase(int targetPhase) {
         if (targetPhase!=phase)
             throw new IllegalStateException("Phase mismatch: should be phase "+targetPhase+" but is currently "+phase);
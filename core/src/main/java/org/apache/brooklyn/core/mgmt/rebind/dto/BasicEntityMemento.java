@@ -257,6 +257,27 @@ public class BasicEntityMemento extends AbstractTreeNodeMemento implements Entit
         }
     }
     
+    /**
+     * Replaces the given attribute and config values (keyed by name, as persisted).
+     * Only for use when loading, before the memento is used.
+     *
+     * @see EntityMementoDelta#applyTo(BasicEntityMemento)
+     */
+    void applyDelta(Map<String, Object> changedAttributes, Map<String, Object> changedConfig) {
+        if (changedAttributes!=null && !changedAttributes.isEmpty()) {
+            attributes = (attributes==null) ? Maps.<String, Object>newLinkedHashMap() : Maps.newLinkedHashMap(attributes);
+            attributes.putAll(changedAttributes);
+        }
+        if (changedConfig!=null && !changedConfig.isEmpty()) {
+            config = (config==null) ? Maps.<String, Object>newLinkedHashMap() : Maps.newLinkedHashMap(config);
+            config.putAll(changedConfig);
+        }
+        // recomputed from the persisted form when next required
+        configByKey = null;
+        configUnmatched = null;
+        attributesByKey = null;
+    }
+
     @Override
     public boolean isTopLevelApp() {
         return isTopLevelApp!=null ? isTopLevelApp : getParent()==null;
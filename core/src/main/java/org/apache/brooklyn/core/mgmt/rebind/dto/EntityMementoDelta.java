@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind.dto;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.brooklyn.api.mgmt.rebind.mementos.EntityMemento;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
+/**
+ * The attribute and config values of an entity which have changed since its memento was last written in full,
+ * as recorded by {@link BrooklynMementoPersisterToObjectStore} when
+ * {@link BrooklynMementoPersisterToObjectStore#PERSISTER_DELTA_RECORDS} is enabled.
+ * <p>
+ * Values are keyed by attribute sensor or config key name, in the same form as in {@link BasicEntityMemento}.
+ */
+@Beta
+public class EntityMementoDelta implements Serializable {
+
+    private static final long serialVersionUID = -4265874513210987642L;
+
+    private Map<String, Object> attributes;
+    private Map<String, Object> config;
+
+    @SuppressWarnings("unused") // For deserialisation
+    private EntityMementoDelta() {}
+
+    public EntityMementoDelta(Map<String, ?> attributes, Map<String, ?> config) {
+        this.attributes = (attributes==null || attributes.isEmpty()) ? null : Maps.<String, Object>newLinkedHashMap(attributes);
+        this.config = (config==null || config.isEmpty()) ? null : Maps.<String, Object>newLinkedHashMap(config);
+    }
+
+    public Map<String, Object> getAttributes() {
+        return (attributes==null) ? Collections.<String, Object>emptyMap() : Collections.unmodifiableMap(attributes);
+    }
+
+    public Map<String, Object> getConfig() {
+        return (config==null) ? Collections.<String, Object>emptyMap() : Collections.unmodifiableMap(config);
+    }
+
+    public boolean isEmpty() {
+        return getAttributes().isEmpty() && getConfig().isEmpty();
+    }
+
+    /** Sets the changed values on the given memento, which must have just been loaded (and not yet used). */
+    public void applyTo(BasicEntityMemento memento) {
+        memento.applyDelta(attributes, config);
+    }
+
+    /**
+     * Returns a copy of the given memento in which every attribute and config value is null,
+     * i.e. all of its state other than those values (including which attributes and config are set).
+     * If this is unchanged, an entity's changes can be persisted as an {@link EntityMementoDelta}.
+     */
+    public static EntityMemento withoutValues(EntityMemento memento) {
+        BasicEntityMemento.Builder builder = BasicEntityMemento.builder().from(memento);
+        for (Map.Entry<?, Object> entry : builder.config.entrySet()) {
+            entry.setValue(null);
+        }
+        for (Map.Entry<?, Object> entry : builder.configUnmatched.entrySet()) {
+            entry.setValue(null);
+        }
+        for (Map.Entry<?, Object> entry : builder.attributes.entrySet()) {
+            entry.setValue(null);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).omitNullValues()
+                .add("attributes", (attributes==null) ? null : attributes.keySet())
+                .add("config", (config==null) ? null : config.keySet())
+                .toString();
+    }
+}
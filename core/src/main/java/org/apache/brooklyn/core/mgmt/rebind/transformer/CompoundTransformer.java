@@ -26,6 +26,7 @@ import java.util.Map;
 import org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.core.mgmt.persist.BinaryMementoSerializer;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
 import org.apache.brooklyn.core.mgmt.rebind.transformer.impl.XsltTransformer;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -231,6 +232,7 @@ public class CompoundTransformer {
         // TODO @neykov asks whether transformers should be run in registration order,
         // rather than in type order.  TBD.  (would be an easy change.)
         // (they're all strings so it shouldn't matter!)
+        // (transformers work on XML, so any binary mementos are converted first)
         
         for (BrooklynObjectType type : BrooklynObjectType.values()) {
             Collection<RawDataTransformer> transformers = rawDataTransformers.get(type);
@@ -238,32 +240,32 @@ public class CompoundTransformer {
                 switch (type) {
                     case ENTITY:
                         for (Map.Entry<String, String> entry : entities.entrySet()) {
-                            entry.setValue(transformer.transform(entry.getValue()));
+                            entry.setValue(transformer.transform(BinaryMementoSerializer.asXml(entry.getValue())));
                         }
                         break;
                     case LOCATION:
                         for (Map.Entry<String, String> entry : locations.entrySet()) {
-                            entry.setValue(transformer.transform(entry.getValue()));
+                            entry.setValue(transformer.transform(BinaryMementoSerializer.asXml(entry.getValue())));
                         }
                         break;
                     case POLICY:
                         for (Map.Entry<String, String> entry : policies.entrySet()) {
-                            entry.setValue(transformer.transform(entry.getValue()));
+                            entry.setValue(transformer.transform(BinaryMementoSerializer.asXml(entry.getValue())));
                         }
                         break;
                     case ENRICHER:
                         for (Map.Entry<String, String> entry : enrichers.entrySet()) {
-                            entry.setValue(transformer.transform(entry.getValue()));
+                            entry.setValue(transformer.transform(BinaryMementoSerializer.asXml(entry.getValue())));
                         }
                         break;
                     case FEED:
                         for (Map.Entry<String, String> entry : feeds.entrySet()) {
-                            entry.setValue(transformer.transform(entry.getValue()));
+                            entry.setValue(transformer.transform(BinaryMementoSerializer.asXml(entry.getValue())));
                         }
                         break;
                     case CATALOG_ITEM:
                         for (Map.Entry<String, String> entry : catalogItems.entrySet()) {
-                            entry.setValue(transformer.transform(entry.getValue()));
+                            entry.setValue(transformer.transform(BinaryMementoSerializer.asXml(entry.getValue())));
                         }
                         break;
                     case UNKNOWN:
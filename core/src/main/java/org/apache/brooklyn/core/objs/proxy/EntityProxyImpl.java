@@ -35,6 +35,7 @@ import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.core.effector.EffectorWithBody;
 import org.apache.brooklyn.core.entity.AbstractEntity;
+import org.apache.brooklyn.core.entity.EntityDynamicType;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.internal.EntityTransientCopyInternal;
 import org.apache.brooklyn.core.entity.internal.EntityTransientCopyInternal.SpecialEntityTransientCopyInternal;
@@ -50,6 +51,9 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Sets;
 
 /**
@@ -107,6 +111,40 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
         }
     }
     
+    /** How calls to a method are handled; decided once for each method, see {@link #DISPATCH_KINDS}. */
+    private static enum DispatchKind {
+        /** methods of Object, and entity methods permitted on read-only entities: always invoked directly */
+        PLAIN,
+        /** other methods of Entity, EntityLocal and EntityInternal: invoked directly, unless read-only */
+        ENTITY_NON_EFFECTOR,
+        /** other methods: invoked as an effector if the entity has one of that name (unless read-only) */
+        POSSIBLE_EFFECTOR;
+        
+        static DispatchKind of(Method m) {
+            MethodSignature sig = new MethodSignature(m);
+            if (OBJECT_METHODS.contains(sig) || ENTITY_PERMITTED_READ_ONLY_METHODS.contains(sig)) {
+                return PLAIN;
+            } else if (ENTITY_NON_EFFECTOR_METHODS.contains(sig)) {
+                return ENTITY_NON_EFFECTOR;
+            } else {
+                return POSSIBLE_EFFECTOR;
+            }
+        }
+    }
+    
+    /**
+     * The {@link DispatchKind} of each method called through a proxy, so that it is not worked out
+     * (allocating a signature and checking it against the sets above) on every call.
+     * Each proxy class passes the same {@link Method} instances on each call, so these are weak
+     * (identity) keys, which do not keep the proxied interfaces' classes from being unloaded.
+     */
+    private static final LoadingCache<Method, DispatchKind> DISPATCH_KINDS = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<Method, DispatchKind>() {
+                @Override public DispatchKind load(Method m) {
+                    return DispatchKind.of(m);
+                }});
+    
     public EntityProxyImpl(Entity entity) {
         this.delegate = checkNotNull(entity, "entity");
     }
@@ -179,12 +217,10 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
             throw new IllegalArgumentException("Static methods not supported via proxy on entity "+delegate);
         }
         
-        MethodSignature sig = new MethodSignature(m);
+        DispatchKind kind = DISPATCH_KINDS.getUnchecked(m);
 
         Object result;
-        if (OBJECT_METHODS.contains(sig)) {
-            result = m.invoke(delegate, args);
-        } else if (ENTITY_PERMITTED_READ_ONLY_METHODS.contains(sig)) {
+        if (kind == DispatchKind.PLAIN) {
             result = m.invoke(delegate, args);
         } else {
             if (!isMaster()) {
@@ -194,13 +230,13 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
                     // but including in it may allow us to tighten the methods in EntityTransientCopyInternal) 
                     result = m.invoke(delegate, args);
                 } else {
-                    throw new UnsupportedOperationException("Call to '"+sig+"' not permitted on read-only entity "+delegate);
+                    throw new UnsupportedOperationException("Call to '"+new MethodSignature(m)+"' not permitted on read-only entity "+delegate);
                 }
-            } else if (ENTITY_NON_EFFECTOR_METHODS.contains(sig)) {
+            } else if (kind == DispatchKind.ENTITY_NON_EFFECTOR) {
                 result = m.invoke(delegate, args);
             } else {
                 Object[] nonNullArgs = (args == null) ? new Object[0] : args;
-                Effector<?> eff = findEffector(m, nonNullArgs);
+                Effector<?> eff = findEffector(m);
                 if (eff != null) {
                     @SuppressWarnings("rawtypes")
                     Map parameters = EffectorUtils.prepareArgsForEffectorAsMapFromArray(eff, nonNullArgs);
@@ -218,8 +254,13 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
         return (result == delegate && delegate instanceof AbstractEntity) ? ((AbstractEntity)result).getProxy() : result;
     }
     
-    private Effector<?> findEffector(Method m, Object[] args) {
+    private Effector<?> findEffector(Method m) {
         String name = m.getName();
+        if (delegate instanceof EntityInternal) {
+            // look up by name, rather than taking (and scanning) a snapshot of the entity's type
+            EntityDynamicType type = ((EntityInternal)delegate).getMutableEntityType();
+            if (type != null) return type.getEffector(name);
+        }
         Set<Effector<?>> effectors = delegate.getEntityType().getEffectors();
         for (Effector<?> contender : effectors) {
             if (name.equals(contender.getName())) {
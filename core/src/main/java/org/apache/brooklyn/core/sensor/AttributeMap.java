@@ -20,8 +20,15 @@ package org.apache.brooklyn.core.sensor;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -36,11 +43,22 @@ import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
 /**
  * A {@link Map} of {@link Entity} attribute values.
+ * <p>
+ * When the storage is a {@link ConcurrentMap} (as it is by default), no locks are held while values are computed:
+ * {@link #modify(AttributeSensor, Function)} retries its modifier until it can atomically replace
+ * the value it was given. Values are only emitted while holding a lock for the sensor (one for each sensor
+ * of the entity, so unrelated sensors do not wait for each other), so that subscribers see them in the order
+ * they were stored; publishing only queues the event for delivery, so the lock is not held while listeners run.
+ * Values of sensors are stored against a canonical (interned) path for each
+ * sensor name, which caches its hash code, so lookups do not have to re-hash or compare the name parts.
  */
 public final class AttributeMap {
 
@@ -52,8 +70,30 @@ public final class AttributeMap {
     
     private final AbstractEntity entity;
 
-    // Assumed to be something like a ConcurrentMap passed in.
+    /**
+     * The canonical path for each sensor name. Weak values, so that paths of sensors
+     * which are no longer stored by any entity can be garbage collected.
+     */
+    private static final Cache<String, SensorPath> SENSOR_PATHS = CacheBuilder.newBuilder()
+            .weakValues()
+            .build();
+
+    // Assumed to be something like a ConcurrentMap passed in; if not, modify synchronizes on it.
     private final Map<Collection<String>, Object> values;
+    private final ConcurrentMap<Collection<String>, Object> concurrentValues;
+
+    /** Locks held while storing and emitting a value, so that values are emitted in order; see {@link #emitLockFor(Collection)}. */
+    private final ConcurrentMap<Collection<String>, Object> emitLocks = new ConcurrentHashMap<Collection<String>, Object>(16, 0.75f, 1);
+
+    /**
+     * Creates a new AttributeMap, stored in a {@link ConcurrentHashMap}.
+     *
+     * @param entity the EntityLocal this AttributeMap belongs to.
+     * @throws IllegalArgumentException if entity is null
+     */
+    public AttributeMap(AbstractEntity entity) {
+        this(entity, new ConcurrentHashMap<Collection<String>, Object>());
+    }
 
     /**
      * Creates a new AttributeMap.
@@ -64,6 +104,7 @@ public final class AttributeMap {
     public AttributeMap(AbstractEntity entity, Map<Collection<String>, Object> storage) {
         this.entity = checkNotNull(entity, "entity must be specified");
         this.values = checkNotNull(storage, "storage map must not be null");
+        this.concurrentValues = (storage instanceof ConcurrentMap) ? (ConcurrentMap<Collection<String>, Object>) storage : null;
     }
 
     public Map<Collection<String>, Object> asRawMap() {
@@ -111,9 +152,13 @@ public final class AttributeMap {
     }
 
     public <T> T update(AttributeSensor<T> attribute, T newValue) {
-        T oldValue = updateWithoutPublishing(attribute, newValue);
-        entity.emitInternal(attribute, newValue);
-        return oldValue;
+        // as in modify, without concurrent storage the map itself is the lock
+        Object lock = (concurrentValues == null) ? values : emitLockFor(pathOf(attribute));
+        synchronized (lock) {
+            T oldValue = updateWithoutPublishing(attribute, newValue);
+            entity.emitInternal(attribute, newValue);
+            return oldValue;
+        }
     }
     
     public <T> T updateWithoutPublishing(AttributeSensor<T> attribute, T newValue) {
@@ -126,26 +171,65 @@ public final class AttributeMap {
             }
         }
 
-        T oldValue = (T) update(attribute.getNameParts(), newValue);
+        T oldValue = (T) update(pathOf(attribute), newValue);
         
         return (isNull(oldValue)) ? null : oldValue;
     }
 
     /**
-     * Where atomicity is desired, the methods in this class synchronize on the {@link #values} map.
+     * Atomically modifies the value, emitting the new value (if any).
+     * <p>
+     * With a {@link ConcurrentMap} for storage, the modifier is applied to the current value and
+     * the result stored only if the value has not changed in the meantime; otherwise the modifier
+     * is applied again to the newer value, so it may be called more than once and should not have
+     * side effects. With other storage, this synchronizes on the {@link #values} map.
+     * <p>
+     * If the new value has already been replaced by the time it is to be emitted, it is not emitted:
+     * the call which replaced it emits its own value afterwards, so subscribers never see an older value
+     * after a newer one.
      */
     public <T> T modify(AttributeSensor<T> attribute, Function<? super T, Maybe<T>> modifier) {
-        synchronized (values) {
-            T oldValue = getValue(attribute);
+        if (concurrentValues == null) {
+            synchronized (values) {
+                T oldValue = getValue(attribute);
+                Maybe<? extends T> newValue = modifier.apply(oldValue);
+
+                if (newValue.isPresent()) {
+                    if (log.isTraceEnabled()) log.trace("modified attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
+                    return update(attribute, newValue.get());
+                } else {
+                    if (log.isTraceEnabled()) log.trace("modified attribute {} unchanged; not emitting on {}", new Object[] {attribute.getName(), newValue, this});
+                    return oldValue;
+                }
+            }
+        }
+        
+        Collection<String> path = pathOf(attribute);
+        while (true) {
+            Object rawOldValue = concurrentValues.get(path);
+            T oldValue = coerce(rawOldValue, attribute);
             Maybe<? extends T> newValue = modifier.apply(oldValue);
 
-            if (newValue.isPresent()) {
-                if (log.isTraceEnabled()) log.trace("modified attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
-                return update(attribute, newValue.get());
-            } else {
+            if (!newValue.isPresent()) {
                 if (log.isTraceEnabled()) log.trace("modified attribute {} unchanged; not emitting on {}", new Object[] {attribute.getName(), newValue, this});
                 return oldValue;
             }
+            Object rawNewValue = (newValue.get() == null) ? typedNull() : newValue.get();
+            boolean replaced = (rawOldValue == null)
+                    ? concurrentValues.putIfAbsent(path, rawNewValue) == null
+                    : concurrentValues.replace(path, rawOldValue, rawNewValue);
+            if (replaced) {
+                if (log.isTraceEnabled()) log.trace("modified attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
+                synchronized (emitLockFor(path)) {
+                    if (concurrentValues.get(path) == rawNewValue) {
+                        entity.emitInternal(attribute, newValue.get());
+                    } else {
+                        if (log.isTraceEnabled()) log.trace("modified attribute {} superseded before emitting {} on {}", new Object[] {attribute.getName(), newValue, entity});
+                    }
+                }
+                return oldValue;
+            }
+            // modified concurrently; try again with the new value
         }
     }
 
@@ -153,7 +237,7 @@ public final class AttributeMap {
         BrooklynLogging.log(log, BrooklynLogging.levelDebugOrTraceIfReadOnly(entity),
             "removing attribute {} on {}", attribute.getName(), entity);
 
-        remove(attribute.getNameParts());
+        remove(pathOf(attribute));
     }
 
     // TODO path must be ordered(and legal to contain duplicates like "a.b.a"; list would be better
@@ -183,9 +267,43 @@ public final class AttributeMap {
         return (isNull(result)) ? null : result;
     }
 
-    @SuppressWarnings("unchecked")
     public <T> T getValue(AttributeSensor<T> sensor) {
-        return (T) TypeCoercions.coerce(getValue(sensor.getNameParts()), sensor.getType());
+        return coerce(values.get(pathOf(sensor)), sensor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T coerce(Object rawValue, AttributeSensor<T> sensor) {
+        return (T) TypeCoercions.coerce(isNull(rawValue) ? null : rawValue, sensor.getType());
+    }
+
+    /** The canonical path for the sensor's name. */
+    private static Collection<String> pathOf(final AttributeSensor<?> sensor) {
+        String name = sensor.getName();
+        SensorPath result = SENSOR_PATHS.getIfPresent(name);
+        if (result != null) return result;
+        try {
+            return SENSOR_PATHS.get(name, new Callable<SensorPath>() {
+                @Override public SensorPath call() {
+                    return new SensorPath(sensor.getNameParts());
+                }});
+        } catch (Exception e) {
+            // cannot happen (creating the path does not throw), but fall back to an uninterned path
+            return sensor.getNameParts();
+        }
+    }
+
+    /**
+     * The lock for storing and emitting values of the sensor with the given path. Never removed (even when the
+     * value is), so that concurrent callers always agree on the lock.
+     */
+    private Object emitLockFor(Collection<String> path) {
+        Object result = emitLocks.get(path);
+        if (result == null) {
+            Object newLock = new Object();
+            result = emitLocks.putIfAbsent(path, newLock);
+            if (result == null) result = newLock;
+        }
+        return result;
     }
 
     @SuppressWarnings("unchecked")
@@ -196,4 +314,38 @@ public final class AttributeMap {
     private boolean isNull(Object t) {
         return t == Marker.NULL;
     }
+
+    /**
+     * An immutable list of the parts of a sensor name, which caches its hash code; equal to any
+     * other list of the same parts, so values can still be found by (and stored against) other paths.
+     */
+    private static final class SensorPath extends AbstractList<String> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = -2586421357209361416L;
+        
+        private final List<String> parts;
+        private final int hash;
+        
+        SensorPath(List<String> parts) {
+            this.parts = ImmutableList.copyOf(parts);
+            this.hash = this.parts.hashCode();
+        }
+        @Override
+        public String get(int index) {
+            return parts.get(index);
+        }
+        @Override
+        public int size() {
+            return parts.size();
+        }
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (o instanceof SensorPath && ((SensorPath)o).hash != hash) return false;
+            return super.equals(o);
+        }
+    }
 }
@@ -44,6 +44,18 @@ public interface BrooklynMetrics extends Entity {
     public static final AttributeSensor<Long> NUM_ACTIVE_TASKS = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.numActiveTasks", "Number of currently active tasks being executed");
 
+    public static final AttributeSensor<Integer> THREAD_POOL_SIZE = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.threadPoolSize", "Number of threads in the pool executing top-level tasks (-1 if not known)");
+    
+    public static final AttributeSensor<Integer> THREAD_POOL_ACTIVE_THREADS = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.threadPoolActiveThreads", "Number of threads in the pool currently executing a task (-1 if not known)");
+    
+    public static final AttributeSensor<Integer> THREAD_POOL_QUEUE_SIZE = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.threadPoolQueueSize", "Number of tasks waiting for a thread (only if the thread pool is bounded; -1 if not known)");
+
+    public static final AttributeSensor<Long> SCHEDULED_TASK_LAG = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.scheduledTaskLag", "Time (in milliseconds) between when the most recently started scheduled task was due and when it started");
+
     public static final AttributeSensor<Long> TOTAL_EVENTS_PUBLISHED = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.totalEventsPublished", "Total number of events published");
     
@@ -52,4 +64,19 @@ public interface BrooklynMetrics extends Entity {
     
     public static final AttributeSensor<Long> NUM_SUBSCRIPTIONS = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.numSubscriptions", "Current number of event subscriptions");
+
+    public static final AttributeSensor<Long> NUM_EVENTS_QUEUED = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.numEventsQueued", "Number of events queued for delivery to subscribers (if batched delivery is enabled)");
+    
+    public static final AttributeSensor<Long> EVENT_DELIVERY_LAG = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.eventDeliveryLag", "Time (in milliseconds) between publishing and delivering the most recently delivered event (if batched delivery is enabled)");
+
+    public static final AttributeSensor<Integer> HTTP_POOL_LEASED_CONNECTIONS = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.httpPoolLeasedConnections", "Number of pooled HTTP connections currently in use");
+
+    public static final AttributeSensor<Integer> HTTP_POOL_AVAILABLE_CONNECTIONS = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.httpPoolAvailableConnections", "Number of idle keep-alive HTTP connections in the pool");
+
+    public static final AttributeSensor<Integer> HTTP_POOL_PENDING_REQUESTS = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.httpPoolPendingRequests", "Number of HTTP requests waiting for a pooled connection");
 }
@@ -28,6 +28,7 @@ import org.apache.brooklyn.core.entity.AbstractEntity;
 import org.apache.brooklyn.core.mgmt.internal.LocalSubscriptionManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.http.pool.PoolStats;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
@@ -71,16 +72,26 @@ public class BrooklynMetricsImpl extends AbstractEntity implements BrooklynMetri
         
         if (managementContext != null) {
             sensors().set(TOTAL_EFFECTORS_INVOKED, ((ManagementContextInternal)managementContext).getTotalEffectorInvocations());
+            PoolStats httpPoolStats = ((ManagementContextInternal)managementContext).getHttpClientRegistry().getTotalStats();
+            sensors().set(HTTP_POOL_LEASED_CONNECTIONS, httpPoolStats.getLeased());
+            sensors().set(HTTP_POOL_AVAILABLE_CONNECTIONS, httpPoolStats.getAvailable());
+            sensors().set(HTTP_POOL_PENDING_REQUESTS, httpPoolStats.getPending());
         }
         if (execManager != null) {
             sensors().set(TOTAL_TASKS_SUBMITTED, execManager.getTotalTasksSubmitted());
             sensors().set(NUM_INCOMPLETE_TASKS, execManager.getNumIncompleteTasks());
             sensors().set(NUM_ACTIVE_TASKS, execManager.getNumActiveTasks());
+            sensors().set(THREAD_POOL_SIZE, execManager.getThreadPoolSize());
+            sensors().set(THREAD_POOL_ACTIVE_THREADS, execManager.getThreadPoolActiveCount());
+            sensors().set(THREAD_POOL_QUEUE_SIZE, execManager.getThreadPoolQueueSize());
+            sensors().set(SCHEDULED_TASK_LAG, execManager.getLastScheduledTaskLagMillis());
         }
         if (subsManager != null) {
             sensors().set(TOTAL_EVENTS_PUBLISHED, subsManager.getTotalEventsPublished());
             sensors().set(TOTAL_EVENTS_DELIVERED, subsManager.getTotalEventsDelivered());
             sensors().set(NUM_SUBSCRIPTIONS, subsManager.getNumSubscriptions());
+            sensors().set(NUM_EVENTS_QUEUED, subsManager.getNumEventsQueued());
+            sensors().set(EVENT_DELIVERY_LAG, subsManager.getLastDeliveryLagMillis());
         }
     }
 }
@@ -222,15 +222,20 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
 
     /**
-     * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed).
+     * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed);
+     * the aggregate is recomputed and published (subject to any {@link #COALESCE_WINDOW}).
      */
     protected void onUpdated() {
-        try {
-            emit(targetSensor, compute());
-        } catch (Throwable t) {
-            LOG.warn("Error calculating and setting aggregate for enricher "+this, t);
-            throw Exceptions.propagate(t);
-        }
+        runCoalesced(new Runnable() {
+            @Override public void run() {
+                try {
+                    emit(targetSensor, compute());
+                } catch (Throwable t) {
+                    LOG.warn("Error calculating and setting aggregate for enricher "+AbstractAggregator.this, t);
+                    throw Exceptions.propagate(t);
+                }
+            }
+        });
     }
 
     protected abstract Object compute();
@@ -22,8 +22,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -45,8 +46,14 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
     private static final Logger LOG = LoggerFactory.getLogger(AbstractMultipleSensorAggregator.class);
 
     
-    /** access via {@link #getValues(Sensor)} */
+    /** access via {@link #getValues(Sensor)}; values are coerced to the sensor's type when they are stored, not on each access */
     private final Map<String, Map<Entity,Object>> values = Collections.synchronizedMap(new LinkedHashMap<String, Map<Entity,Object>>());
+    
+    /**
+     * The producers with each value of each sensor, maintained with {@link #values} (and guarded by it), so that
+     * counts of values can be computed without iterating over every producer; see {@link #getEntitiesWithValue(Sensor, Object)}.
+     */
+    private final Map<String, Map<Object,Set<Entity>>> entitiesByValue = new LinkedHashMap<String, Map<Object,Set<Entity>>>();
 
     public AbstractMultipleSensorAggregator() {}
 
@@ -106,7 +113,7 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                     } else {
                         initialVal = null;
                     }
-                    vs.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                    put(sensor.getName(), vs, producer, coerce(initialVal != null ? initialVal : defaultMemberValue, sensor));
                     // NB: see notes on possible race, in Aggregator#onProducerAdded
                 }
                 
@@ -119,8 +126,8 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
         synchronized (values) {
             for (Sensor<?> sensor: getSourceSensors()) {
                 Map<Entity,Object> vs = values.get(sensor.getName());
-                if (vs!=null)
-                    vs.remove(producer);
+                if (vs!=null && vs.containsKey(producer))
+                    unindex(sensor.getName(), producer, vs.remove(producer));
             }
         }
         onUpdated();
@@ -134,35 +141,93 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
             if (vs==null) {
                 LOG.debug(this+" received event when no entry for sensor ("+event+"); likely just added or removed, and will initialize subsequently if needed");
             } else {
-                vs.put(e, event.getValue());
+                put(event.getSensor().getName(), vs, e, coerce(event.getValue(), event.getSensor()));
             }
         }
         onUpdated();
     }
 
+    /** returns an unmodifiable copy of the values of the given sensor, already coerced to its type */
     public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
-        Map<Entity, T> valuesCopy = copyValues(sensor);
-        return coerceValues(valuesCopy, sensor.getType());
+        synchronized (values) {
+            @SuppressWarnings("unchecked")
+            Map<Entity, T> sv = (Map<Entity, T>) values.get(sensor.getName());
+            //use MutableMap because of potentially null values
+            return MutableMap.copyOf(sv).asUnmodifiable();
+        }
     }
 
-    private <T> Map<Entity, T> coerceValues(Map<Entity, T> values, Class<? super T> type) {
-        Map<Entity, T> typedValues = MutableMap.of();
-        for (Entry<Entity, T> entry : values.entrySet()) {
-            @SuppressWarnings("unchecked")
-            T typedValue = (T) TypeCoercions.coerce(entry.getValue(), type);
-            typedValues.put(entry.getKey(), typedValue);
+    /**
+     * Returns the producers whose value of the given sensor (as coerced to its type) is that given, in the order
+     * they got that value. This takes time proportional to the number of those producers, not all producers,
+     * e.g. for computing a count of values or finding those which are unhealthy.
+     */
+    protected <T> Set<Entity> getEntitiesWithValue(Sensor<T> sensor, T value) {
+        synchronized (values) {
+            Map<Object,Set<Entity>> index = entitiesByValue.get(sensor.getName());
+            Set<Entity> result = (index == null) ? null : index.get(value);
+            return (result == null) ? Collections.<Entity>emptySet() : Collections.unmodifiableSet(new LinkedHashSet<Entity>(result));
         }
-        return typedValues;
     }
 
-    private <T> Map<Entity, T> copyValues(Sensor<T> sensor) {
+    /** Returns the number of producers whose value of the given sensor is that given, in constant time. */
+    protected <T> int countEntitiesWithValue(Sensor<T> sensor, T value) {
         synchronized (values) {
-            @SuppressWarnings("unchecked")
-            Map<Entity, T> sv = (Map<Entity, T>) values.get(sensor.getName());
-            //use MutableMap because of potentially null values
-            return MutableMap.copyOf(sv).asUnmodifiable();
+            Map<Object,Set<Entity>> index = entitiesByValue.get(sensor.getName());
+            Set<Entity> result = (index == null) ? null : index.get(value);
+            return (result == null) ? 0 : result.size();
         }
     }
+
+    /** Returns the distinct values of the given sensor (as coerced to its type) across all producers, including null if any have none. */
+    @SuppressWarnings("unchecked")
+    protected <T> Set<T> getDistinctValues(Sensor<T> sensor) {
+        synchronized (values) {
+            Map<Object,Set<Entity>> index = entitiesByValue.get(sensor.getName());
+            return (index == null) ? Collections.<T>emptySet() : Collections.unmodifiableSet(new LinkedHashSet<T>((Set<T>) index.keySet()));
+        }
+    }
+
+    /** Returns the number of producers of the given sensor, in constant time. */
+    protected int countProducers(Sensor<?> sensor) {
+        synchronized (values) {
+            Map<Entity,Object> vs = values.get(sensor.getName());
+            return (vs == null) ? 0 : vs.size();
+        }
+    }
+
+    // caller must hold the lock on values
+    private void put(String sensorName, Map<Entity,Object> vs, Entity producer, Object value) {
+        if (vs.containsKey(producer)) {
+            unindex(sensorName, producer, vs.get(producer));
+        }
+        vs.put(producer, value);
+        Map<Object,Set<Entity>> index = entitiesByValue.get(sensorName);
+        if (index == null) {
+            index = new LinkedHashMap<Object,Set<Entity>>();
+            entitiesByValue.put(sensorName, index);
+        }
+        Set<Entity> entities = index.get(value);
+        if (entities == null) {
+            entities = new LinkedHashSet<Entity>();
+            index.put(value, entities);
+        }
+        entities.add(producer);
+    }
+
+    // caller must hold the lock on values
+    private void unindex(String sensorName, Entity producer, Object oldValue) {
+        Map<Object,Set<Entity>> index = entitiesByValue.get(sensorName);
+        Set<Entity> entities = (index == null) ? null : index.get(oldValue);
+        if (entities != null) {
+            entities.remove(producer);
+            if (entities.isEmpty()) index.remove(oldValue);
+        }
+    }
+
+    private Object coerce(Object value, Sensor<?> sensor) {
+        return TypeCoercions.coerce(value, sensor.getType());
+    }
     
     @Override
     protected abstract Object compute();
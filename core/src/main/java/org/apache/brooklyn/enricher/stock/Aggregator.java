@@ -60,7 +60,8 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     @SetFromFlag("transformation")
     public static final ConfigKey<Object> TRANSFORMATION_UNTYPED = ConfigKeys.newConfigKey(Object.class, "enricher.transformation.untyped",
         "Specifies a transformation, as a function from a collection to the value, or as a string matching a pre-defined named transformation, "
-        + "such as 'average' (for numbers), 'sum' (for numbers), or 'list' (the default, putting any collection of items into a list)");
+        + "such as 'average' (for numbers), 'sum' (for numbers), 'min' or 'max' (for numbers), 'count' (of non-null values), "
+        + "or 'list' (the default, putting any collection of items into a list)");
     public static final ConfigKey<Function<? super Collection<?>, ?>> TRANSFORMATION = ConfigKeys.newConfigKey(new TypeToken<Function<? super Collection<?>, ?>>() {}, "enricher.transformation");
     
     public static final ConfigKey<Boolean> EXCLUDE_BLANK = ConfigKeys.newBooleanConfigKey("enricher.aggregator.excludeBlank", "Whether explicit nulls or blank strings should be excluded (default false); this only applies if no value filter set", false);
@@ -78,10 +79,20 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     /**
      * Users of values should either on it synchronize when iterating over its entries or use
      * copyOfValues to obtain an immutable copy of the map.
+     * <p>
+     * Subclasses changing it directly should use {@link #putValue(Entity, Object)} and {@link #removeValue(Entity)},
+     * so that any {@link #accumulator} is kept up to date.
      */
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
 
+    /**
+     * Maintains the result incrementally as values change, if the {@link #transformation} is an {@link Enrichers.IncrementalFunction}
+     * (as are the sum, average, min, max, count and isQuorate transformations), so that each change costs O(1) or O(log n)
+     * rather than re-applying the transformation to all the values; otherwise null. Guarded by synchronizing on {@link #values}.
+     */
+    protected Enrichers.Accumulator<T, ? extends U> accumulator;
+
     public Aggregator() {}
 
     @SuppressWarnings("unchecked")
@@ -105,6 +116,17 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         } else if (t1!=null && !Objects.equals(t2, this.transformation)) {
             throw new IllegalStateException("Cannot supply both "+TRANSFORMATION_UNTYPED+" and "+TRANSFORMATION+" unless they are equal.");
         }
+        
+        synchronized (values) {
+            if (this.transformation instanceof Enrichers.IncrementalFunction) {
+                this.accumulator = ((Enrichers.IncrementalFunction<T, ? extends U>) this.transformation).newAccumulator();
+                for (T value : values.values()) {
+                    if (valueFilter.apply(value)) accumulator.add(value);
+                }
+            } else {
+                this.accumulator = null;
+            }
+        }
     }
         
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -113,6 +135,9 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         if ("sum".equalsIgnoreCase(t1)) return new Enrichers.ComputingSum(null, null, targetSensor.getTypeToken());
         if ("isQuorate".equalsIgnoreCase(t1)) return new Enrichers.ComputingIsQuorate(targetSensor.getTypeToken(),
                 QuorumChecks.of(config().get(QUORUM_CHECK_TYPE)), config().get(QUORUM_TOTAL_SIZE));
+        if ("min".equalsIgnoreCase(t1)) return new Enrichers.ComputingMin(null, null, targetSensor.getTypeToken());
+        if ("max".equalsIgnoreCase(t1)) return new Enrichers.ComputingMax(null, null, targetSensor.getTypeToken());
+        if ("count".equalsIgnoreCase(t1)) return new Enrichers.ComputingCount(false);
         if ("list".equalsIgnoreCase(t1)) return new ComputingList();
         return null;
     }
@@ -164,7 +189,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
-                values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                putValue(producer, initialVal != null ? initialVal : defaultMemberValue);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -185,7 +210,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        removeValue(producer);
         onUpdated();
     }
 
@@ -194,7 +219,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                putValue(e, event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -203,17 +228,43 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     }
 
     protected void onUpdated() {
-        try {
-            emit(targetSensor, compute());
-        } catch (Throwable t) {
-            LOG.warn("Error calculating and setting aggregate for enricher "+this, t);
-            throw Exceptions.propagate(t);
-        }
+        runCoalesced(new Runnable() {
+            @Override public void run() {
+                try {
+                    emit(targetSensor, compute());
+                } catch (Throwable t) {
+                    LOG.warn("Error calculating and setting aggregate for enricher "+Aggregator.this, t);
+                    throw Exceptions.propagate(t);
+                }
+            }
+        });
     }
     
+    /** sets the value for the given producer, updating the {@link #accumulator} if there is one */
+    protected void putValue(Entity producer, T value) {
+        synchronized (values) {
+            boolean hadValue = values.containsKey(producer);
+            T oldValue = values.put(producer, value);
+            if (accumulator!=null) {
+                if (hadValue && valueFilter.apply(oldValue)) accumulator.remove(oldValue);
+                if (valueFilter.apply(value)) accumulator.add(value);
+            }
+        }
+    }
+
+    /** removes the value for the given producer, updating the {@link #accumulator} if there is one */
+    protected void removeValue(Entity producer) {
+        synchronized (values) {
+            if (!values.containsKey(producer)) return;
+            T oldValue = values.remove(producer);
+            if (accumulator!=null && valueFilter.apply(oldValue)) accumulator.remove(oldValue);
+        }
+    }
+
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (accumulator!=null) return accumulator.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             if (transformation==null) return vs;
@@ -117,15 +117,20 @@ public class Combiner<T,U> extends AbstractEnricher implements SensorEventListen
     }
 
     /**
-     * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed).
+     * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed);
+     * the combination is recomputed and published (subject to any {@link #COALESCE_WINDOW}).
      */
     protected void onUpdated() {
-        try {
-            emit(targetSensor, compute());
-        } catch (Throwable t) {
-            LOG.warn("Error calculating and setting combination for enricher "+this, t);
-            throw Exceptions.propagate(t);
-        }
+        runCoalesced(new Runnable() {
+            @Override public void run() {
+                try {
+                    emit(targetSensor, compute());
+                } catch (Throwable t) {
+                    LOG.warn("Error calculating and setting combination for enricher "+Combiner.this, t);
+                    throw Exceptions.propagate(t);
+                }
+            }
+        });
     }
     
     protected Object compute() {
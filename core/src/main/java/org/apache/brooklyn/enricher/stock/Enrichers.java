@@ -42,6 +42,7 @@ import org.apache.brooklyn.util.collections.QuorumCheck;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.text.StringPredicates;
 import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -55,6 +56,8 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.TreeMultiset;
 import com.google.common.reflect.TypeToken;
 
 public class Enrichers {
@@ -75,6 +78,7 @@ public class Enrichers {
     public abstract static class AbstractEnricherBuilder<B extends AbstractEnricherBuilder<B>> extends Builder<B> {
         final Class<? extends Enricher> enricherType;
         Boolean suppressDuplicates;
+        Duration coalesceWindow;
         String uniqueTag;
         Set<Object> tags = MutableSet.of();
         
@@ -94,6 +98,12 @@ public class Enrichers {
             this.suppressDuplicates = suppressDuplicates;
             return self();
         }
+        /** see {@link AbstractEnricher#COALESCE_WINDOW}; supported by aggregators, combiners and joiners */
+        @Beta
+        public B coalesceWindow(Duration coalesceWindow) {
+            this.coalesceWindow = coalesceWindow;
+            return self();
+        }
 
         protected abstract String getDefaultUniqueTag();
         
@@ -109,6 +119,8 @@ public class Enrichers {
             if (!tags.isEmpty()) spec.tags(tags);
             if (suppressDuplicates!=null)
                 spec.configure(AbstractEnricher.SUPPRESS_DUPLICATES, suppressDuplicates);
+            if (coalesceWindow!=null)
+                spec.configure(AbstractEnricher.COALESCE_WINDOW, coalesceWindow);
             
             return spec;
         }
@@ -271,6 +283,39 @@ public class Enrichers {
             };
             return self();
         }
+        /** computes the smallest value (as a number) */
+        public B computingMin() {
+            this.computingSupplier = new Supplier<Function<? super Collection<S>, ? extends T>>() {
+                @Override
+                @SuppressWarnings({ "unchecked", "rawtypes" })
+                public Function<? super Collection<S>, ? extends T> get() {
+                    return (Function)new ComputingMin((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                }
+            };
+            return self();
+        }
+        /** computes the largest value (as a number) */
+        public B computingMax() {
+            this.computingSupplier = new Supplier<Function<? super Collection<S>, ? extends T>>() {
+                @Override
+                @SuppressWarnings({ "unchecked", "rawtypes" })
+                public Function<? super Collection<S>, ? extends T> get() {
+                    return (Function)new ComputingMax((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                }
+            };
+            return self();
+        }
+        /** computes the number of non-null values (or of all values, if {@link #defaultValueForUnreportedSensors(Object)} is set) */
+        public B computingCount() {
+            this.computingSupplier = new Supplier<Function<? super Collection<S>, ? extends T>>() {
+                @Override
+                @SuppressWarnings({ "unchecked", "rawtypes" })
+                public Function<? super Collection<S>, ? extends T> get() {
+                    return (Function)new ComputingCount(defaultValueForUnreportedSensors!=null);
+                }
+            };
+            return self();
+        }
         public B defaultValueForUnreportedSensors(S val) {
             this.defaultValueForUnreportedSensors = val;
             return self();
@@ -808,8 +853,30 @@ public class Enrichers {
         }
     }
 
+    /**
+     * A function over a collection of values which can also be computed incrementally,
+     * by an {@link Accumulator} told of each value as it is added or removed,
+     * so that the result can be updated on each change in constant (or logarithmic) time
+     * rather than by re-applying the function to all the values.
+     * <p>
+     * {@link Aggregator} uses the accumulator when its transformation implements this interface.
+     */
+    @Beta
+    public interface IncrementalFunction<T,U> extends Function<Collection<T>, U> {
+        Accumulator<T,U> newAccumulator();
+    }
+
+    /** Maintains the result of an {@link IncrementalFunction}; not thread-safe. */
     @Beta
-    private abstract static class ComputingNumber<T extends Number> implements Function<Collection<T>, T> {
+    public interface Accumulator<T,U> {
+        void add(T value);
+        /** removes a value previously {@link #add(Object) added} */
+        void remove(T value);
+        U get();
+    }
+
+    @Beta
+    private abstract static class ComputingNumber<T extends Number> implements IncrementalFunction<T, T> {
         protected final Number defaultValueForUnreportedSensors;
         protected final Number valueToReportIfNoSensors;
         protected final TypeToken<T> typeToken;
@@ -829,6 +896,51 @@ public class Enrichers {
         @Override public abstract T apply(Collection<T> input);
     }
 
+    /**
+     * tracks the sum and count of values, treating nulls as the default value, or ignoring them if there is no default (as {@link Enrichers#sum(Iterable, Number, Number, TypeToken)});
+     * NaN and infinite values are counted rather than added to the sum, as they could not be subtracted from it when removed
+     */
+    private abstract static class SummingAccumulator<T extends Number> implements Accumulator<T, T> {
+        protected final Number valueIfNull;
+        protected double sum = 0d;
+        protected int count = 0;
+        protected int nanCount = 0;
+        protected int positiveInfinityCount = 0;
+        protected int negativeInfinityCount = 0;
+        SummingAccumulator(Number valueIfNull) {
+            this.valueIfNull = valueIfNull;
+        }
+        @Override public void add(T value) {
+            Number v = (value != null) ? value : valueIfNull;
+            if (v != null) {
+                addToSum(v.doubleValue(), 1);
+                count++;
+            }
+        }
+        @Override public void remove(T value) {
+            Number v = (value != null) ? value : valueIfNull;
+            if (v != null) {
+                addToSum(v.doubleValue(), -1);
+                count--;
+                // don't let rounding errors accumulate
+                if (count == 0) sum = 0d;
+            }
+        }
+        private void addToSum(double v, int sign) {
+            if (Double.isNaN(v)) nanCount += sign;
+            else if (v == Double.POSITIVE_INFINITY) positiveInfinityCount += sign;
+            else if (v == Double.NEGATIVE_INFINITY) negativeInfinityCount += sign;
+            else sum += sign * v;
+        }
+        /** the sum of the values, as if they had all been added: NaN if any is NaN, or if there are infinities of both signs */
+        protected double getSum() {
+            if (nanCount > 0 || (positiveInfinityCount > 0 && negativeInfinityCount > 0)) return Double.NaN;
+            if (positiveInfinityCount > 0) return Double.POSITIVE_INFINITY;
+            if (negativeInfinityCount > 0) return Double.NEGATIVE_INFINITY;
+            return sum;
+        }
+    }
+
     @Beta
     public static class ComputingSum<T extends Number> extends ComputingNumber<T> {
         public ComputingSum(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
@@ -838,6 +950,14 @@ public class Enrichers {
         @Override public T apply(Collection<T> input) {
             return (T) sum((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, typeToken);
         }
+        @Override public Accumulator<T, T> newAccumulator() {
+            return new SummingAccumulator<T>(defaultValueForUnreportedSensors) {
+                @Override public T get() {
+                    if (count == 0) return cast(valueToReportIfNoSensors, typeToken);
+                    return cast(getSum(), typeToken);
+                }
+            };
+        }
     }
 
     @Beta
@@ -849,6 +969,110 @@ public class Enrichers {
         @Override public T apply(Collection<T> input) {
             return (T) average((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, typeToken);
         }
+        @Override public Accumulator<T, T> newAccumulator() {
+            return new SummingAccumulator<T>(defaultValueForUnreportedSensors) {
+                @Override public T get() {
+                    if (count == 0) return cast(valueToReportIfNoSensors == null ? null : valueToReportIfNoSensors.doubleValue(), typeToken);
+                    return cast(getSum() / count, typeToken);
+                }
+            };
+        }
+    }
+
+    /** orders numbers by value, whatever their type */
+    private static final Ordering<Number> NUMERIC_ORDER = new Ordering<Number>() {
+        @Override public int compare(Number left, Number right) {
+            return Double.compare(left.doubleValue(), right.doubleValue());
+        }
+    };
+
+    /** keeps the values sorted (counting duplicates), for the smallest or largest */
+    private abstract static class ExtremeAccumulator<T extends Number> implements Accumulator<T, T> {
+        protected final Number valueIfNull;
+        protected final TreeMultiset<Number> values = TreeMultiset.create(NUMERIC_ORDER);
+        ExtremeAccumulator(Number valueIfNull) {
+            this.valueIfNull = valueIfNull;
+        }
+        @Override public void add(T value) {
+            Number v = (value != null) ? value : valueIfNull;
+            if (v != null) values.add(v);
+        }
+        @Override public void remove(T value) {
+            Number v = (value != null) ? value : valueIfNull;
+            if (v != null) values.remove(v);
+        }
+    }
+
+    /** the smallest value, treating nulls as for {@link ComputingSum} */
+    @Beta
+    public static class ComputingMin<T extends Number> extends ComputingNumber<T> {
+        public ComputingMin(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+            super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
+        }
+        @Override public T apply(Collection<T> input) {
+            return applyIncrementally(this, input);
+        }
+        @Override public Accumulator<T, T> newAccumulator() {
+            return new ExtremeAccumulator<T>(defaultValueForUnreportedSensors) {
+                @Override public T get() {
+                    return cast(values.isEmpty() ? valueToReportIfNoSensors : values.firstEntry().getElement(), typeToken);
+                }
+            };
+        }
+    }
+
+    /** the largest value, treating nulls as for {@link ComputingSum} */
+    @Beta
+    public static class ComputingMax<T extends Number> extends ComputingNumber<T> {
+        public ComputingMax(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+            super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
+        }
+        @Override public T apply(Collection<T> input) {
+            return applyIncrementally(this, input);
+        }
+        @Override public Accumulator<T, T> newAccumulator() {
+            return new ExtremeAccumulator<T>(defaultValueForUnreportedSensors) {
+                @Override public T get() {
+                    return cast(values.isEmpty() ? valueToReportIfNoSensors : values.lastEntry().getElement(), typeToken);
+                }
+            };
+        }
+    }
+
+    /** the number of values, optionally including nulls */
+    @Beta
+    public static class ComputingCount implements IncrementalFunction<Object, Integer> {
+        protected final boolean includeNullValues;
+        public ComputingCount(boolean includeNullValues) {
+            this.includeNullValues = includeNullValues;
+        }
+        @Override public Integer apply(Collection<Object> input) {
+            return count(input, includeNullValues);
+        }
+        @Override public Accumulator<Object, Integer> newAccumulator() {
+            return new Accumulator<Object, Integer>() {
+                private int count = 0;
+                @Override public void add(Object value) {
+                    if (value != null || includeNullValues) count++;
+                }
+                @Override public void remove(Object value) {
+                    if (value != null || includeNullValues) count--;
+                }
+                @Override public Integer get() {
+                    return count;
+                }
+            };
+        }
+    }
+
+    /** applies the given function by passing all the input to a new accumulator */
+    @Beta
+    public static <T,U> U applyIncrementally(IncrementalFunction<T,U> function, Collection<? extends T> input) {
+        Accumulator<T, U> accumulator = function.newAccumulator();
+        if (input != null) {
+            for (T value : input) accumulator.add(value);
+        }
+        return accumulator.get();
     }
 
     protected static <T extends Number> T average(Collection<T> vals, Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> type) {
@@ -893,7 +1117,7 @@ public class Enrichers {
     }
     
     @Beta
-    public static class ComputingIsQuorate<T> implements Function<Collection<Boolean>, Boolean> {
+    public static class ComputingIsQuorate<T> implements IncrementalFunction<Boolean, Boolean> {
         protected final TypeToken<T> typeToken;
         protected final QuorumCheck quorumCheck;
         protected final int totalSize;
@@ -922,6 +1146,22 @@ public class Enrichers {
 
             return Boolean.valueOf(quorumCheck.isQuorate(numTrue, totalSize));
         }
+
+        @Override
+        public Accumulator<Boolean, Boolean> newAccumulator() {
+            return new Accumulator<Boolean, Boolean>() {
+                private int numTrue = 0;
+                @Override public void add(Boolean value) {
+                    if (Boolean.TRUE.equals(value)) numTrue++;
+                }
+                @Override public void remove(Boolean value) {
+                    if (Boolean.TRUE.equals(value)) numTrue--;
+                }
+                @Override public Boolean get() {
+                    return Boolean.valueOf(quorumCheck.isQuorate(numTrue, totalSize));
+                }
+            };
+        }
     }
 
     private static <T> Map<T,T> newIdentityMap(Set<T> keys) {
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.enricher.stock;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntityLocal;
@@ -60,6 +61,8 @@ public class Joiner<T> extends AbstractEnricher implements SensorEventListener<T
     protected Entity producer;
     protected AttributeSensor<T> sourceSensor;
     protected Sensor<String> targetSensor;
+    /** the most recent event, joined when publishing is coalesced (see {@link #COALESCE_WINDOW}) */
+    protected final AtomicReference<SensorEvent<T>> latestEvent = new AtomicReference<SensorEvent<T>>();
 
     public Joiner() {
     }
@@ -84,7 +87,12 @@ public class Joiner<T> extends AbstractEnricher implements SensorEventListener<T
 
     @Override
     public void onEvent(SensorEvent<T> event) {
-        emit(targetSensor, compute(event));
+        latestEvent.set(event);
+        runCoalesced(new Runnable() {
+            @Override public void run() {
+                emit(targetSensor, compute(latestEvent.get()));
+            }
+        });
     }
 
     protected Object compute(SensorEvent<T> event) {
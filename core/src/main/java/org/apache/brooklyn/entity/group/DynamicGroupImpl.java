@@ -40,7 +40,6 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 
 public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup {
@@ -68,6 +67,14 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     public void setEntityFilter(Predicate<? super Entity> filter) {
         // TODO Sould this be "evenIfOwned"?
         setConfigEvenIfOwned(ENTITY_FILTER, filter);
+        MyEntitySetChangeListener listener = setChangeListener;
+        if (listener != null) {
+            // the listener is only told of entities which might match the filter it was added with;
+            // any changes while re-adding it are picked up by the rescan
+            ManagementContextInternal mgmt = (ManagementContextInternal) getManagementContext();
+            mgmt.removeEntitySetListener(listener);
+            mgmt.addEntitySetListener(entityFilter(), listener);
+        }
         rescanEntities();
     }
 
@@ -163,7 +170,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             return;
         }
         setChangeListener = new MyEntitySetChangeListener();
-        ((ManagementContextInternal) getManagementContext()).addEntitySetListener(setChangeListener);
+        ((ManagementContextInternal) getManagementContext()).addEntitySetListener(entityFilter(), setChangeListener);
         Task<Object> rescan = Tasks.builder().displayName("rescan entities").body(
             new Runnable() {
                 @Override
@@ -210,7 +217,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             Collection<Entity> currentMembers = getMembers();
             Collection<Entity> toRemove = Sets.newLinkedHashSet(currentMembers);
 
-            for (Entity it : Iterables.filter(getManagementContext().getEntityManager().getEntities(), entityFilter())) {
+            for (Entity it : getManagementContext().getEntityManager().findEntities(entityFilter())) {
                 toRemove.remove(it);
                 if (!currentMembers.contains(it)) {
                     if (log.isDebugEnabled()) log.debug("{} rescan detected new item {}", this, it);
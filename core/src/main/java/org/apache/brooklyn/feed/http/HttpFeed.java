@@ -32,20 +32,32 @@ import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.feed.AbstractFeed;
 import org.apache.brooklyn.core.feed.AttributePollHandler;
 import org.apache.brooklyn.core.feed.DelegatingPollHandler;
 import org.apache.brooklyn.core.feed.Poller;
+import org.apache.brooklyn.core.mgmt.internal.HttpClientRegistry;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.http.HttpTool;
 import org.apache.brooklyn.util.http.HttpToolResponse;
-import org.apache.brooklyn.util.http.HttpTool.HttpClientBuilder;
 import org.apache.brooklyn.util.time.Duration;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
@@ -57,6 +69,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
 /**
  * Provides a feed of attribute values, by polling over http.
@@ -111,6 +125,10 @@ public class HttpFeed extends AbstractFeed {
             new TypeToken<SetMultimap<HttpPollIdentifier, HttpPollConfig<?>>>() {},
             "polls");
 
+    @Beta
+    public static final ConfigKey<Boolean> ASYNC = ConfigKeys.newBooleanConfigKey("feed.http.async",
+            "Whether to poll using non-blocking I/O, rather than holding a thread for the duration of each request", false);
+
     public static Builder builder() {
         return new Builder();
     }
@@ -118,6 +136,7 @@ public class HttpFeed extends AbstractFeed {
     public static class Builder {
         private EntityLocal entity;
         private boolean onlyIfServiceUp = false;
+        private boolean async = false;
         private Supplier<URI> baseUriProvider;
         private Duration period = Duration.millis(500);
         private List<HttpPollConfig<?>> polls = Lists.newArrayList();
@@ -138,6 +157,18 @@ public class HttpFeed extends AbstractFeed {
             this.onlyIfServiceUp = onlyIfServiceUp; 
             return this; 
         }
+        /**
+         * Polls using non-blocking I/O on a few threads shared by all such feeds,
+         * rather than using a thread from the execution manager for the duration of each request.
+         * Responses are handled in tasks in the entity's execution context, as for blocking polls.
+         */
+        @Beta
+        public Builder async() { return async(true); }
+        @Beta
+        public Builder async(boolean async) {
+            this.async = async;
+            return this;
+        }
         public Builder baseUri(Supplier<URI> val) {
             if (baseUri!=null && val!=null)
                 throw new IllegalStateException("Builder cannot take both a URI and a URI Provider");
@@ -274,6 +305,7 @@ public class HttpFeed extends AbstractFeed {
     
     protected HttpFeed(Builder builder) {
         setConfig(ONLY_IF_SERVICE_UP, builder.onlyIfServiceUp);
+        setConfig(ASYNC, builder.async);
         Map<String,String> baseHeaders = ImmutableMap.copyOf(checkNotNull(builder.headers, "headers"));
         
         SetMultimap<HttpPollIdentifier, HttpPollConfig<?>> polls = HashMultimap.<HttpPollIdentifier,HttpPollConfig<?>>create();
@@ -311,16 +343,9 @@ public class HttpFeed extends AbstractFeed {
     @Override
     protected void preStart() {
         SetMultimap<HttpPollIdentifier, HttpPollConfig<?>> polls = getConfig(POLLS);
+        boolean async = Boolean.TRUE.equals(getConfig(ASYNC));
         
         for (final HttpPollIdentifier pollInfo : polls.keySet()) {
-            // Though HttpClients are thread safe and can take advantage of connection pooling
-            // and authentication caching, the httpcomponents documentation says:
-            //    "While HttpClient instances are thread safe and can be shared between multiple
-            //     threads of execution, it is highly recommended that each thread maintains its
-            //     own dedicated instance of HttpContext.
-            //  http://hc.apache.org/httpcomponents-client-ga/tutorial/html/connmgmt.html
-            final HttpClient httpClient = createHttpClient(pollInfo);
-
             Set<HttpPollConfig<?>> configs = polls.get(pollInfo);
             long minPeriod = Integer.MAX_VALUE;
             Set<AttributePollHandler<? super HttpToolResponse>> handlers = Sets.newLinkedHashSet();
@@ -330,49 +355,116 @@ public class HttpFeed extends AbstractFeed {
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
 
-            Callable<HttpToolResponse> pollJob;
-            
-            if (pollInfo.method.equals("get")) {
-                pollJob = new Callable<HttpToolResponse>() {
-                    public HttpToolResponse call() throws Exception {
-                        if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpGet(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
-                    }};
-            } else if (pollInfo.method.equals("post")) {
-                pollJob = new Callable<HttpToolResponse>() {
-                    public HttpToolResponse call() throws Exception {
-                        if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpPost(httpClient, pollInfo.uriProvider.get(), pollInfo.headers, pollInfo.body);
-                    }};
-            } else if (pollInfo.method.equals("head")) {
-                pollJob = new Callable<HttpToolResponse>() {
-                    public HttpToolResponse call() throws Exception {
-                        if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpHead(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
-                    }};
+            if (async) {
+                Callable<ListenableFuture<HttpToolResponse>> pollJob = newAsyncPollJob(pollInfo);
+                getPoller().scheduleAsyncAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), Duration.millis(minPeriod));
             } else {
-                throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
+                Callable<HttpToolResponse> pollJob = newPollJob(pollInfo);
+                getPoller().scheduleAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), minPeriod);
             }
-            
-            getPoller().scheduleAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), minPeriod);
         }
     }
 
+    private Callable<HttpToolResponse> newPollJob(final HttpPollIdentifier pollInfo) {
+        // HttpClients are thread safe, so are shared (along with their pools of keep-alive connections)
+        // by all feeds in the management context; each request gets its own HttpContext, as the
+        // httpcomponents documentation recommends:
+        //  http://hc.apache.org/httpcomponents-client-ga/tutorial/html/connmgmt.html
+        final HttpClient httpClient = createHttpClient(pollInfo);
+
+        if (pollInfo.method.equals("get")) {
+            return new Callable<HttpToolResponse>() {
+                public HttpToolResponse call() throws Exception {
+                    if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
+                    return HttpTool.httpGet(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
+                }};
+        } else if (pollInfo.method.equals("post")) {
+            return new Callable<HttpToolResponse>() {
+                public HttpToolResponse call() throws Exception {
+                    if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
+                    return HttpTool.httpPost(httpClient, pollInfo.uriProvider.get(), pollInfo.headers, pollInfo.body);
+                }};
+        } else if (pollInfo.method.equals("head")) {
+            return new Callable<HttpToolResponse>() {
+                public HttpToolResponse call() throws Exception {
+                    if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
+                    return HttpTool.httpHead(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
+                }};
+        } else {
+            throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
+        }
+    }
+
+    private Callable<ListenableFuture<HttpToolResponse>> newAsyncPollJob(final HttpPollIdentifier pollInfo) {
+        if (!(pollInfo.method.equals("get") || pollInfo.method.equals("post") || pollInfo.method.equals("head"))) {
+            throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
+        }
+        final HttpAsyncClient httpClient = getHttpClientRegistry().getAsyncClient(true);
+        
+        RequestConfig.Builder requestConfig = RequestConfig.custom();
+        if (pollInfo.connectionTimeout != null) requestConfig.setConnectTimeout((int) pollInfo.connectionTimeout.toMilliseconds());
+        // the number of pooled connections to each host is limited, so do not wait indefinitely for one
+        requestConfig.setConnectionRequestTimeout((int) getHttpClientRegistry().getConnectionRequestTimeout(pollInfo.connectionTimeout).toMilliseconds());
+        if (pollInfo.socketTimeout != null) requestConfig.setSocketTimeout((int) pollInfo.socketTimeout.toMilliseconds());
+        final RequestConfig config = requestConfig.build();
+        
+        return new Callable<ListenableFuture<HttpToolResponse>>() {
+            public ListenableFuture<HttpToolResponse> call() throws Exception {
+                if (log.isTraceEnabled()) log.trace("http polling (non-blocking) for {} sensors at {}", entity, pollInfo);
+                URI uri = pollInfo.uriProvider.get();
+                HttpRequestBase request;
+                if (pollInfo.method.equals("get")) {
+                    request = new HttpTool.HttpGetBuilder(uri).headers(pollInfo.headers).build();
+                } else if (pollInfo.method.equals("post")) {
+                    request = new HttpTool.HttpPostBuilder(uri).headers(pollInfo.headers).body(pollInfo.body).build();
+                } else {
+                    request = new HttpTool.HttpHeadBuilder(uri).headers(pollInfo.headers).build();
+                }
+                request.setConfig(config);
+                
+                HttpClientContext context = HttpClientContext.create();
+                if (pollInfo.credentials.isPresent()) {
+                    CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+                    credentialsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()), pollInfo.credentials.get());
+                    context.setCredentialsProvider(credentialsProvider);
+                }
+                
+                final SettableFuture<HttpToolResponse> result = SettableFuture.create();
+                final long startTime = System.currentTimeMillis();
+                httpClient.execute(request, context, new FutureCallback<HttpResponse>() {
+                    @Override public void completed(HttpResponse response) {
+                        try {
+                            // the response content is already buffered, so this does not block
+                            result.set(new HttpToolResponse(response, startTime));
+                        } catch (Exception e) {
+                            result.setException(e);
+                        }
+                    }
+                    @Override public void failed(Exception e) {
+                        result.setException(e);
+                    }
+                    @Override public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+                return result;
+            }
+            @Override
+            public String toString() {
+                return "http "+pollInfo.method+" "+pollInfo.uriProvider.get();
+            }
+        };
+    }
+
+    private HttpClientRegistry getHttpClientRegistry() {
+        return ((ManagementContextInternal)((EntityInternal)entity).getManagementContext()).getHttpClientRegistry();
+    }
+
     // TODO Should we really trustAll for https? Make configurable?
     private HttpClient createHttpClient(HttpPollIdentifier pollIdentifier) {
         URI uri = pollIdentifier.uriProvider.get();
-        HttpClientBuilder builder = HttpTool.httpClientBuilder()
-                .trustAll()
-                .laxRedirect(true);
-        if (uri != null) builder.uri(uri);
-        if (uri != null) builder.credential(pollIdentifier.credentials);
-        if (pollIdentifier.connectionTimeout != null) {
-            builder.connectionTimeout(pollIdentifier.connectionTimeout);
-        }
-        if (pollIdentifier.socketTimeout != null) {
-            builder.socketTimeout(pollIdentifier.socketTimeout);
-        }
-        return builder.build();
+        return getHttpClientRegistry().getClient(uri, pollIdentifier.credentials, true, true,
+                pollIdentifier.connectionTimeout, pollIdentifier.socketTimeout);
     }
 
     @SuppressWarnings("unchecked")
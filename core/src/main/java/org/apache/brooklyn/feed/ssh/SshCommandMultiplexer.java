@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.feed.ssh;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.Lists;
+
+/**
+ * Combines several commands into a single script, so that they can be run in one ssh session,
+ * and splits the output of that script back into the stdout, stderr and exit status of each command.
+ * <p>
+ * Each command is run in its own sub-shell (so its environment, working directory and any {@code exit}
+ * do not affect the others), and is followed by a line written to both stdout and stderr containing a
+ * marker which is random for each script (so will not be confused with the commands' own output).
+ * <p>
+ * The script turns off {@code set -e} (which the default script header enables), so that a command
+ * exiting with a non-zero status does not stop the commands after it.
+ */
+@Beta
+public class SshCommandMultiplexer {
+
+    private final String marker = "BROOKLYN-SSH-FEED-"+Identifiers.makeRandomId(8);
+    private final List<String> commands = Lists.newArrayList();
+
+    /** Adds a command, with the given environment variables set for it; returns the index of its result. */
+    public int add(String command, Map<String, String> env) {
+        StringBuilder result = new StringBuilder("(\n");
+        if (env != null) {
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                result.append("export ").append(entry.getKey()).append("=")
+                        .append(BashStringEscapes.wrapBash(entry.getValue())).append("\n");
+            }
+        }
+        result.append(command).append("\n)");
+        commands.add(result.toString());
+        return commands.size() - 1;
+    }
+
+    public int size() {
+        return commands.size();
+    }
+
+    public String getScript() {
+        StringBuilder result = new StringBuilder("set +e\n");
+        for (int i = 0; i < commands.size(); i++) {
+            result.append(commands.get(i));
+            // status captured on the same line as the sub-shell, so nothing can run in between
+            result.append("; BROOKLYN_EXIT_STATUS=$?\n");
+            // the newline before the marker is removed when splitting, so the command's output is unchanged
+            result.append("printf '\\n%s %s %s\\n' ").append(marker).append(" ").append(i).append(" $BROOKLYN_EXIT_STATUS\n");
+            result.append("printf '\\n%s %s\\n' ").append(marker).append(" ").append(i).append(" >&2\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Splits the result of running {@link #getScript()}.
+     *
+     * @return the result of each command, in the order they were added; shorter than {@link #size()}
+     *         if the script did not complete (e.g. if the session was terminated)
+     */
+    public List<SshPollValue> split(SshPollValue combined) {
+        String stdout = combined.getStdout();
+        String stderr = combined.getStderr();
+        List<SshPollValue> result = Lists.newArrayList();
+        int outPos = 0;
+        int errPos = 0;
+        for (int i = 0; i < commands.size(); i++) {
+            String outMarker = "\n"+marker+" "+i+" ";
+            int outEnd = stdout.indexOf(outMarker, outPos);
+            if (outEnd < 0) break;
+            int statusEnd = stdout.indexOf('\n', outEnd + outMarker.length());
+            if (statusEnd < 0) break;
+            int exitStatus;
+            try {
+                exitStatus = Integer.parseInt(stdout.substring(outEnd + outMarker.length(), statusEnd).trim());
+            } catch (NumberFormatException e) {
+                break;
+            }
+
+            String errMarker = "\n"+marker+" "+i+"\n";
+            int errEnd = stderr.indexOf(errMarker, errPos);
+            String err;
+            if (errEnd < 0) {
+                err = stderr.substring(errPos);
+                errPos = stderr.length();
+            } else {
+                err = stderr.substring(errPos, errEnd);
+                errPos = errEnd + errMarker.length();
+            }
+
+            result.add(new SshPollValue(combined.getMachine(), exitStatus, stdout.substring(outPos, outEnd), err));
+            outPos = statusEnd + 1;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ssh command multiplexer ("+commands.size()+" commands)";
+    }
+}
@@ -34,7 +34,9 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.feed.AbstractFeed;
 import org.apache.brooklyn.core.feed.AttributePollHandler;
+import org.apache.brooklyn.core.feed.ChangeTrackingPollHandler;
 import org.apache.brooklyn.core.feed.DelegatingPollHandler;
+import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.core.location.Machines;
@@ -45,12 +47,15 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
@@ -100,6 +105,11 @@ public class SshFeed extends AbstractFeed {
     
     public static final ConfigKey<Boolean> EXEC_AS_COMMAND = ConfigKeys.newBooleanConfigKey("execAsCommand");
     
+    @Beta
+    public static final ConfigKey<Boolean> MULTIPLEX = ConfigKeys.newBooleanConfigKey("multiplex",
+            "Whether commands polled with the same period should be run together in a single ssh session each time, "
+            + "rather than with a session per command", false);
+    
     @SuppressWarnings("serial")
     public static final ConfigKey<SetMultimap<SshPollIdentifier, SshPollConfig<?>>> POLLS = ConfigKeys.newConfigKey(
             new TypeToken<SetMultimap<SshPollIdentifier, SshPollConfig<?>>>() {},
@@ -116,6 +126,7 @@ public class SshFeed extends AbstractFeed {
         private Duration period = Duration.of(500, TimeUnit.MILLISECONDS);
         private List<SshPollConfig<?>> polls = Lists.newArrayList();
         private boolean execAsCommand = false;
+        private boolean multiplex = false;
         private String uniqueTag;
         private volatile boolean built;
         
@@ -157,6 +168,16 @@ public class SshFeed extends AbstractFeed {
             execAsCommand = false;
             return this;
         }
+        /**
+         * Whether to run the commands which are polled with the same period in a single ssh session
+         * (each in its own sub-shell); defaults to false, as then a command which hangs or is slow delays
+         * the results of all the others, so this should be enabled only for quick commands.
+         */
+        @Beta
+        public Builder multiplex(boolean multiplex) {
+            this.multiplex = multiplex;
+            return this;
+        }
         public Builder uniqueTag(String uniqueTag) {
             this.uniqueTag = uniqueTag;
             return this;
@@ -215,6 +236,7 @@ public class SshFeed extends AbstractFeed {
         setConfig(ONLY_IF_SERVICE_UP, builder.onlyIfServiceUp);
         setConfig(MACHINE, builder.machine != null ? builder.machine : null);
         setConfig(EXEC_AS_COMMAND, builder.execAsCommand);
+        setConfig(MULTIPLEX, builder.multiplex);
         
         SetMultimap<SshPollIdentifier, SshPollConfig<?>> polls = HashMultimap.<SshPollIdentifier,SshPollConfig<?>>create();
         for (SshPollConfig<?> config : builder.polls) {
@@ -239,6 +261,9 @@ public class SshFeed extends AbstractFeed {
     @Override
     protected void preStart() {
         SetMultimap<SshPollIdentifier, SshPollConfig<?>> polls = getConfig(POLLS);
+        boolean multiplex = Boolean.TRUE.equals(getConfig(MULTIPLEX));
+        // commands polled with the same period are due at the same time, so can share an ssh session
+        Map<Long, Map<SshPollIdentifier, PollHandler<SshPollValue>>> pollsByPeriod = Maps.newLinkedHashMap();
         
         for (final SshPollIdentifier pollInfo : polls.keySet()) {
             Set<SshPollConfig<?>> configs = polls.get(pollInfo);
@@ -250,13 +275,36 @@ public class SshFeed extends AbstractFeed {
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
             
-            getPoller().scheduleAtFixedRate(
-                    new Callable<SshPollValue>() {
-                        public SshPollValue call() throws Exception {
-                            return exec(pollInfo.command.get(), pollInfo.env.get());
-                        }}, 
-                    new DelegatingPollHandler<SshPollValue>(handlers),
-                    minPeriod);
+            if (!pollsByPeriod.containsKey(minPeriod)) {
+                pollsByPeriod.put(minPeriod, Maps.<SshPollIdentifier, PollHandler<SshPollValue>>newLinkedHashMap());
+            }
+            pollsByPeriod.get(minPeriod).put(pollInfo, new DelegatingPollHandler<SshPollValue>(handlers));
+        }
+        
+        for (Map.Entry<Long, Map<SshPollIdentifier, PollHandler<SshPollValue>>> entry : pollsByPeriod.entrySet()) {
+            long period = entry.getKey();
+            Map<SshPollIdentifier, PollHandler<SshPollValue>> handlers = entry.getValue();
+            if (multiplex && handlers.size() > 1) {
+                final List<SshPollIdentifier> pollInfos = ImmutableList.copyOf(handlers.keySet());
+                getMultiplexedPoller().scheduleAtFixedRate(
+                        new Callable<Map<SshPollIdentifier, SshPollValue>>() {
+                            public Map<SshPollIdentifier, SshPollValue> call() throws Exception {
+                                return execMultiplexed(pollInfos);
+                            }},
+                        new MultiplexedPollHandler(handlers),
+                        period);
+            } else {
+                for (Map.Entry<SshPollIdentifier, PollHandler<SshPollValue>> poll : handlers.entrySet()) {
+                    final SshPollIdentifier pollInfo = poll.getKey();
+                    getPoller().scheduleAtFixedRate(
+                            new Callable<SshPollValue>() {
+                                public SshPollValue call() throws Exception {
+                                    return exec(pollInfo.command.get(), pollInfo.env.get());
+                                }}, 
+                            poll.getValue(),
+                            period);
+                }
+            }
         }
     }
     
@@ -265,6 +313,34 @@ public class SshFeed extends AbstractFeed {
         return (Poller<SshPollValue>) super.getPoller();
     }
     
+    /** for scheduling jobs whose results are for several commands; the poller is not specific to the type of its jobs */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Poller<Map<SshPollIdentifier, SshPollValue>> getMultiplexedPoller() {
+        return (Poller) super.getPoller();
+    }
+    
+    /**
+     * Runs all the given commands in a single ssh session.
+     * Commands whose results cannot be determined (e.g. if the session was terminated) are omitted from the result.
+     */
+    private Map<SshPollIdentifier, SshPollValue> execMultiplexed(List<SshPollIdentifier> pollInfos) throws IOException {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer();
+        for (SshPollIdentifier pollInfo : pollInfos) {
+            multiplexer.add(pollInfo.command.get(), pollInfo.env.get());
+        }
+        SshPollValue combined = exec(multiplexer.getScript(), ImmutableMap.<String,String>of());
+        List<SshPollValue> values = multiplexer.split(combined);
+        if (values.size() < pollInfos.size()) {
+            if (log.isDebugEnabled()) log.debug("Ssh polling for {} returned results for only {} of {} commands; exit status {}, stderr {}", 
+                    new Object[] {entity, values.size(), pollInfos.size(), combined.getExitStatus(), combined.getStderr()});
+        }
+        Map<SshPollIdentifier, SshPollValue> result = Maps.newLinkedHashMap();
+        for (int i = 0; i < values.size(); i++) {
+            result.put(pollInfos.get(i), values.get(i));
+        }
+        return result;
+    }
+    
     private SshPollValue exec(String command, Map<String,String> env) throws IOException {
         SshMachineLocation machine = getMachine();
         Boolean execAsCommand = getConfig(EXEC_AS_COMMAND);
@@ -287,4 +363,79 @@ public class SshFeed extends AbstractFeed {
 
         return new SshPollValue(machine, exitStatus, new String(stdout.toByteArray()), new String(stderr.toByteArray()));
     }
+
+    /**
+     * Passes the result of each command in a multiplexed poll to that command's handler
+     * (so one command failing does not prevent the others' sensors being set).
+     */
+    private static class MultiplexedPollHandler implements ChangeTrackingPollHandler<Map<SshPollIdentifier, SshPollValue>> {
+        private final Map<SshPollIdentifier, PollHandler<SshPollValue>> delegates;
+        
+        MultiplexedPollHandler(Map<SshPollIdentifier, PollHandler<SshPollValue>> delegates) {
+            this.delegates = ImmutableMap.copyOf(delegates);
+        }
+        
+        @Override
+        public boolean checkSuccess(Map<SshPollIdentifier, SshPollValue> val) {
+            // success is checked for each command in turn
+            return true;
+        }
+
+        @Override
+        public void onSuccess(Map<SshPollIdentifier, SshPollValue> val) {
+            for (Map.Entry<SshPollIdentifier, PollHandler<SshPollValue>> entry : delegates.entrySet()) {
+                PollHandler<SshPollValue> delegate = entry.getValue();
+                SshPollValue value = val.get(entry.getKey());
+                try {
+                    if (value == null) {
+                        delegate.onException(new IllegalStateException("No result for command in multiplexed ssh poll"));
+                    } else if (delegate.checkSuccess(value)) {
+                        delegate.onSuccess(value);
+                    } else {
+                        delegate.onFailure(value);
+                    }
+                } catch (Exception e) {
+                    delegate.onException(e);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Map<SshPollIdentifier, SshPollValue> val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public boolean isLastResultChanged() {
+            for (PollHandler<SshPollValue> delegate : delegates.values()) {
+                if (!(delegate instanceof ChangeTrackingPollHandler) || ((ChangeTrackingPollHandler<?>)delegate).isLastResultChanged())
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<SshPollValue> delegate : delegates.values()) {
+                delegate.onException(exception);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            StringBuilder sb = new StringBuilder("multiplexed[");
+            int count = 0;
+            for (PollHandler<SshPollValue> delegate : delegates.values()) {
+                if (count>0) sb.append("; ");
+                sb.append(delegate.getDescription());
+                count++;
+            }
+            return sb.append("]").toString();
+        }
+        
+        @Override
+        public String toString() {
+            return super.toString()+"["+getDescription()+"]";
+        }
+    }
 }
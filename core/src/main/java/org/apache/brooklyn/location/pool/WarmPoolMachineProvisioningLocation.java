@@ -0,0 +1,502 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.pool;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.api.location.MachineProvisioningLocation;
+import org.apache.brooklyn.api.location.NoMachinesAvailableException;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.location.AbstractLocation;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.flags.SetFromFlag;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Wraps another {@link MachineProvisioningLocation} (e.g. jclouds, byon or localhost), keeping a pool
+ * of idle machines obtained from it ahead of time so that {@link #obtain(Map)} can return one
+ * immediately, rather than waiting for a new machine to be provisioned.
+ * <p>
+ * A background task tops up the pool to {@link #MIN_IDLE} machines (obtained with {@link #PROVISIONING_FLAGS}),
+ * and discards idle machines which fail the {@link #HEALTH_CHECK}. An idle machine is handed out only if the
+ * flags passed to {@link #obtain(Map)} are consistent with those it was obtained with: each flag (other than the
+ * {@link #IGNORED_FLAGS}, which do not affect the machine itself) must be absent, or equal to that in the
+ * {@link #PROVISIONING_FLAGS}. Otherwise, or when the pool is empty, the machine is obtained from the wrapped
+ * location with the {@link #PROVISIONING_FLAGS} overridden by the caller's flags.
+ * <p>
+ * Released machines are returned to the wrapped location, unless {@link #RECYCLE_ON_RELEASE} is set; in that
+ * case they are wiped with {@link #WIPE_COMMANDS} and put back in the pool (up to {@link #MAX_IDLE} machines).
+ */
+@Beta
+public class WarmPoolMachineProvisioningLocation<T extends MachineLocation> extends AbstractLocation
+        implements MachineProvisioningLocation<T>, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmPoolMachineProvisioningLocation.class);
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<MachineProvisioningLocation<?>> PROVISIONER = ConfigKeys.newConfigKey(
+            new TypeToken<MachineProvisioningLocation<?>>() {},
+            "pool.provisioner", "The location from which machines are obtained");
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<Map<String, Object>> PROVISIONING_FLAGS = ConfigKeys.newConfigKey(
+            new TypeToken<Map<String, Object>>() {},
+            "pool.provisioningFlags", "Flags passed to the provisioner when obtaining machines for the pool",
+            ImmutableMap.<String, Object>of());
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<Set<String>> IGNORED_FLAGS = ConfigKeys.newConfigKey(
+            new TypeToken<Set<String>>() {},
+            "pool.ignoredFlags", "Flags passed to obtain which do not affect the machine provisioned (e.g. only its name), "
+                    + "so do not prevent an idle machine from being handed out",
+            ImmutableSet.of("callerContext"));
+
+    public static final ConfigKey<Integer> MIN_IDLE = ConfigKeys.newIntegerConfigKey(
+            "pool.minIdle", "Number of idle machines to keep ready in the pool", 1);
+
+    public static final ConfigKey<Integer> MAX_IDLE = ConfigKeys.newIntegerConfigKey(
+            "pool.maxIdle", "Maximum number of idle machines to keep in the pool (e.g. when recycling released machines)", 5);
+
+    public static final ConfigKey<Duration> REFILL_PERIOD = ConfigKeys.newDurationConfigKey(
+            "pool.refillPeriod", "How often to health-check the idle machines and top up the pool", Duration.THIRTY_SECONDS);
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<Predicate<? super MachineLocation>> HEALTH_CHECK = ConfigKeys.newConfigKey(
+            new TypeToken<Predicate<? super MachineLocation>>() {},
+            "pool.healthCheck", "Check applied to idle machines, periodically and before they are handed out; "
+                    + "by default, ssh machines must be ssh'able");
+
+    public static final ConfigKey<Boolean> RECYCLE_ON_RELEASE = ConfigKeys.newBooleanConfigKey(
+            "pool.recycleOnRelease", "Whether to put released machines back in the pool, rather than releasing them to the provisioner", false);
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<List<String>> WIPE_COMMANDS = ConfigKeys.newConfigKey(
+            new TypeToken<List<String>>() {},
+            "pool.wipeCommands", "Commands run (over ssh) on a released machine before it is recycled; "
+                    + "if they fail, the machine is released to the provisioner instead");
+
+    private Object lock;
+
+    @SetFromFlag
+    protected Set<T> idle;
+
+    @SetFromFlag
+    protected Set<T> inUse;
+
+    /** Number of machines currently being obtained for the pool; guarded by lock. */
+    private transient int pending;
+
+    private transient Task<?> refillTask;
+    private final transient AtomicBoolean refilling = new AtomicBoolean();
+    private final transient AtomicBoolean refillRequested = new AtomicBoolean();
+
+    public WarmPoolMachineProvisioningLocation() {
+        this(Maps.newLinkedHashMap());
+    }
+
+    public WarmPoolMachineProvisioningLocation(Map<?,?> properties) {
+        super(properties);
+
+        if (isLegacyConstruction()) {
+            init();
+        }
+    }
+
+    @Override
+    public AbstractLocation configure(Map<?,?> properties) {
+        if (lock == null) {
+            lock = new Object();
+            idle = MutableSet.<T>of();
+            inUse = MutableSet.<T>of();
+        }
+        return super.configure(properties);
+    }
+
+    @Override
+    public String toVerboseString() {
+        return Objects.toStringHelper(this).omitNullValues()
+                .add("id", getId()).add("name", getDisplayName())
+                .add("provisioner", getConfig(PROVISIONER))
+                .add("idle", idle.size()).add("inUse", inUse.size())
+                .toString();
+    }
+
+    @Override
+    public void onManagementStarted() {
+        super.onManagementStarted();
+        startRefilling();
+    }
+
+    @Override
+    public void onManagementStopped() {
+        stopRefilling();
+        if (getManagementContext().isRunning()) {
+            releaseIdleMachines();
+        }
+        super.onManagementStopped();
+    }
+
+    @Override
+    public void close() {
+        stopRefilling();
+    }
+
+    @Override
+    public WarmPoolMachineProvisioningLocation<T> newSubLocation(Map<?,?> newFlags) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Object> getProvisioningFlags(Collection<String> tags) {
+        return getProvisioner().getProvisioningFlags(tags);
+    }
+
+    public T obtain() throws NoMachinesAvailableException {
+        return obtain(ImmutableMap.of());
+    }
+
+    @Override
+    public T obtain(Map<?,?> flags) throws NoMachinesAvailableException {
+        try {
+            while (isConsistentWithPool(flags)) {
+                T machine = takeIdleMachine();
+                if (machine == null) break;
+                if (isHealthy(machine)) {
+                    LOG.debug("{} obtained {} from pool", this, machine);
+                    return machine;
+                }
+                LOG.info("{} discarding unhealthy idle machine {}", this, machine);
+                synchronized (lock) {
+                    inUse.remove(machine);
+                }
+                releaseQuietly(machine);
+            }
+
+            LOG.info("{} has no suitable idle machines; obtaining from {}", this, getProvisioner());
+            Map<Object, Object> allFlags = MutableMap.<Object, Object>copyOf(getConfig(PROVISIONING_FLAGS));
+            if (flags != null) allFlags.putAll(flags);
+            T machine = getProvisioner().obtain(allFlags);
+            synchronized (lock) {
+                inUse.add(machine);
+            }
+            requestPersist();
+            return machine;
+        } finally {
+            requestRefill();
+        }
+    }
+
+    @Override
+    public void release(T machine) {
+        synchronized (lock) {
+            if (!inUse.remove(machine)) {
+                throw new IllegalStateException("Request to release machine "+machine+", but this machine is not currently allocated by "+this);
+            }
+        }
+        requestPersist();
+
+        if (getConfig(RECYCLE_ON_RELEASE) && hasIdleCapacity() && wipe(machine) && isHealthy(machine)) {
+            synchronized (lock) {
+                if (idle.size() < getConfig(MAX_IDLE)) {
+                    idle.add(machine);
+                    machine = null;
+                }
+            }
+            if (machine == null) {
+                requestPersist();
+                return;
+            }
+        }
+        releaseQuietly(machine);
+    }
+
+    public Set<T> getIdleMachines() {
+        synchronized (lock) {
+            return ImmutableSet.copyOf(idle);
+        }
+    }
+
+    public Set<T> getInUseMachines() {
+        synchronized (lock) {
+            return ImmutableSet.copyOf(inUse);
+        }
+    }
+
+    /** Releases all idle machines to the provisioner (e.g. when the pool is no longer needed). */
+    public void releaseIdleMachines() {
+        List<T> toRelease;
+        synchronized (lock) {
+            toRelease = ImmutableList.copyOf(idle);
+            idle.clear();
+        }
+        for (T machine : toRelease) {
+            releaseQuietly(machine);
+        }
+        requestPersist();
+    }
+
+    /**
+     * Whether the machines in the pool could have been obtained with the given flags, i.e. each flag (other than
+     * the {@link #IGNORED_FLAGS}) is null or has the same value in the {@link #PROVISIONING_FLAGS}.
+     */
+    protected boolean isConsistentWithPool(Map<?,?> flags) {
+        if (flags == null || flags.isEmpty()) return true;
+        Map<String, Object> poolFlags = getConfig(PROVISIONING_FLAGS);
+        Set<String> ignoredFlags = getConfig(IGNORED_FLAGS);
+        for (Map.Entry<?,?> entry : flags.entrySet()) {
+            String name = getFlagName(entry.getKey());
+            if (entry.getValue() == null || (ignoredFlags != null && ignoredFlags.contains(name))) continue;
+            if (!Objects.equal(entry.getValue(), poolFlags.get(name))) {
+                LOG.debug("{} not using idle machines, as flag {} is {} rather than {}", new Object[] {this, name, entry.getValue(), poolFlags.get(name)});
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getFlagName(Object key) {
+        if (key instanceof HasConfigKey) return ((HasConfigKey<?>) key).getConfigKey().getName();
+        if (key instanceof ConfigKey) return ((ConfigKey<?>) key).getName();
+        return String.valueOf(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected MachineProvisioningLocation<T> getProvisioner() {
+        return (MachineProvisioningLocation<T>) checkNotNull(getConfig(PROVISIONER), PROVISIONER.getName());
+    }
+
+    protected boolean isHealthy(T machine) {
+        Predicate<? super MachineLocation> healthCheck = getConfig(HEALTH_CHECK);
+        try {
+            if (healthCheck != null) {
+                return healthCheck.apply(machine);
+            } else if (machine instanceof SshMachineLocation) {
+                return ((SshMachineLocation) machine).isSshable();
+            } else {
+                return true;
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Health check of "+machine+" in "+this+" failed", e);
+            return false;
+        }
+    }
+
+    /** Runs the {@link #WIPE_COMMANDS}, if any, returning whether the machine can be re-used. */
+    protected boolean wipe(T machine) {
+        List<String> commands = getConfig(WIPE_COMMANDS);
+        if (commands == null || commands.isEmpty()) return true;
+        if (!(machine instanceof SshMachineLocation)) {
+            LOG.warn("Cannot wipe {} in {}, as it is not an ssh machine; releasing it instead", machine, this);
+            return false;
+        }
+        try {
+            int result = ((SshMachineLocation) machine).execCommands("wipe machine for re-use", commands);
+            if (result != 0) {
+                LOG.info("Wiping {} in {} failed (exit code {}); releasing it instead", new Object[] {machine, this, result});
+            }
+            return result == 0;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.info("Wiping "+machine+" in "+this+" failed; releasing it instead", e);
+            return false;
+        }
+    }
+
+    /** Tops up the pool to {@link #MIN_IDLE}, and discards unhealthy or surplus idle machines. */
+    protected void refill() {
+        for (T machine : getIdleMachines()) {
+            if (!isHealthy(machine)) {
+                boolean removed;
+                synchronized (lock) {
+                    removed = idle.remove(machine);
+                }
+                if (removed) {
+                    LOG.info("{} discarding unhealthy idle machine {}", this, machine);
+                    releaseQuietly(machine);
+                }
+            }
+        }
+
+        List<T> surplus = Lists.newArrayList();
+        int toObtain;
+        synchronized (lock) {
+            int maxIdle = getConfig(MAX_IDLE);
+            for (T machine : ImmutableList.copyOf(idle)) {
+                if (idle.size() <= maxIdle) break;
+                idle.remove(machine);
+                surplus.add(machine);
+            }
+            toObtain = Math.min(getConfig(MIN_IDLE), maxIdle) - idle.size() - pending;
+            if (toObtain > 0) pending += toObtain;
+        }
+        for (T machine : surplus) {
+            releaseQuietly(machine);
+        }
+        if (toObtain <= 0) return;
+
+        // obtain in parallel, so that providers which can batch machine creation get the chance
+        LOG.debug("{} obtaining {} machine(s) for the pool from {}", new Object[] {this, toObtain, getProvisioner()});
+        List<Task<?>> tasks = Lists.newArrayList();
+        for (int i = 0; i < toObtain; i++) {
+            tasks.add(getManagementContext().getExecutionManager().submit(
+                    MutableMap.of("displayName", "obtain machine for pool", "tags", ImmutableSet.of(BrooklynTaskTags.TRANSIENT_TASK_TAG)),
+                    new Runnable() {
+                        @Override public void run() {
+                            obtainForPool();
+                        }}));
+        }
+        for (Task<?> task : tasks) {
+            task.blockUntilEnded();
+        }
+        requestPersist();
+    }
+
+    private void obtainForPool() {
+        T machine = null;
+        try {
+            machine = getProvisioner().obtain(MutableMap.copyOf(getConfig(PROVISIONING_FLAGS)));
+            if (!isHealthy(machine)) {
+                LOG.warn("Machine {} obtained for pool {} failed health check; releasing it", machine, this);
+                releaseQuietly(machine);
+                machine = null;
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Failed to obtain machine for pool "+this+" from "+getProvisioner()+" (will retry): "+e);
+        } finally {
+            synchronized (lock) {
+                pending--;
+                if (machine != null && idle.size() < getConfig(MAX_IDLE)) {
+                    idle.add(machine);
+                    machine = null;
+                }
+            }
+        }
+        if (machine != null) releaseQuietly(machine);
+    }
+
+    private T takeIdleMachine() {
+        synchronized (lock) {
+            if (idle.isEmpty()) return null;
+            T machine = idle.iterator().next();
+            idle.remove(machine);
+            inUse.add(machine);
+            return machine;
+        }
+    }
+
+    private boolean hasIdleCapacity() {
+        synchronized (lock) {
+            return idle.size() < getConfig(MAX_IDLE);
+        }
+    }
+
+    private void releaseQuietly(T machine) {
+        try {
+            getProvisioner().release(machine);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Problem releasing "+machine+" from pool "+this+" to "+getProvisioner()+" (continuing)", e);
+        }
+    }
+
+    protected synchronized void startRefilling() {
+        if (refillTask != null && !refillTask.isDone()) return;
+        Callable<Task<?>> refillTaskFactory = new Callable<Task<?>>() {
+            @Override public Task<Void> call() {
+                return Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                    .displayName("warm pool refill").body(new Callable<Void>() {
+                        @Override public Void call() {
+                            runRefill();
+                            return null;
+                        }}).build();
+            }
+        };
+        refillTask = getManagementContext().getExecutionManager().submit(new ScheduledTask(
+                MutableMap.of("displayName", "scheduled[warm pool refill]"), refillTaskFactory).period(getConfig(REFILL_PERIOD)));
+    }
+
+    protected synchronized void stopRefilling() {
+        if (refillTask != null) {
+            refillTask.cancel(false);
+            refillTask = null;
+        }
+    }
+
+    /** Refills the pool in the background, e.g. after a machine has been taken from it. */
+    protected void requestRefill() {
+        if (!isManaged()) return;
+        refillRequested.set(true);
+        if (refilling.get()) return;
+        getManagementContext().getExecutionManager().submit(
+                MutableMap.of("displayName", "warm pool refill", "tags", ImmutableSet.of(BrooklynTaskTags.TRANSIENT_TASK_TAG)),
+                new Runnable() {
+                    @Override public void run() {
+                        runRefill();
+                    }});
+    }
+
+    private void runRefill() {
+        // only one refill at a time; a request made during a refill causes it to run again
+        refillRequested.set(true);
+        while (refillRequested.get() && refilling.compareAndSet(false, true)) {
+            try {
+                refillRequested.set(false);
+                if (isManaged()) refill();
+            } catch (Exception e) {
+                // don't rethrow, as that would stop the scheduled task from running again
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Problem refilling pool "+this+" (continuing)", e);
+            } finally {
+                refilling.set(false);
+            }
+        }
+    }
+}
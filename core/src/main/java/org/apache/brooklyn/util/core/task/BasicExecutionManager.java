@@ -20,10 +20,9 @@ package org.apache.brooklyn.util.core.task;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -35,7 +34,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -49,7 +51,11 @@ import org.apache.brooklyn.api.mgmt.ExecutionManager;
 import org.apache.brooklyn.api.mgmt.HasTaskChildren;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
+import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.text.Identifiers;
@@ -59,9 +65,9 @@ import org.slf4j.LoggerFactory;
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.CaseFormat;
-import com.google.common.base.Preconditions;
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ExecutionList;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -69,10 +75,52 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 /**
  * Manages the execution of atomic tasks and scheduled (recurring) tasks,
  * including setting tags and invoking callbacks.
+ * <p>
+ * The threads used to run tasks are configurable with {@link #THREAD_POOL_TYPE}:
+ * by default a new thread is used whenever no idle thread is available;
+ * see {@link ThreadPoolType} for the alternatives.
  */
 public class BasicExecutionManager implements ExecutionManager {
     private static final Logger log = LoggerFactory.getLogger(BasicExecutionManager.class);
 
+    public enum ThreadPoolType {
+        /** grows without limit, so that a task never waits for a thread (the default) */
+        UNBOUNDED,
+        /** 
+         * at most {@link BasicExecutionManager#THREAD_POOL_MAX_SIZE} threads for tasks submitted from outside a task
+         * (e.g. scheduled tasks, REST calls and sensor events published outside a task),
+         * with waiting tasks ordered so that effectors run before transient tasks;
+         * tasks submitted from within a task are never queued (so a task never blocks waiting for a queued child),
+         * but use a separate pool of at most {@link BasicExecutionManager#THREAD_POOL_MAX_SUBTASK_SIZE} threads,
+         * beyond which they run in the thread of the task submitting them;
+         * jobs of tag schedulers (e.g. subscription deliveries, and {@link SerialScheduler}s) likewise have their own pool
+         * of at most that many threads, so a task waiting for an event is not blocked by its delivery waiting for a thread,
+         * beyond which they are queued with the top-level tasks (they cannot run in the submitting thread, as a scheduler
+         * starts its next job when the previous one ends)
+         */
+        BOUNDED,
+        /** a virtual thread per task, where supported by the JVM; otherwise falls back to {@link #UNBOUNDED} */
+        VIRTUAL
+    }
+    
+    public static final ConfigKey<ThreadPoolType> THREAD_POOL_TYPE = ConfigKeys.newConfigKey(ThreadPoolType.class,
+            "brooklyn.executionManager.threadPool.type", 
+            "the type of thread pool used to execute tasks: UNBOUNDED, BOUNDED or VIRTUAL", 
+            ThreadPoolType.UNBOUNDED);
+    
+    public static final ConfigKey<Integer> THREAD_POOL_MAX_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.maxSize", 
+            "the maximum number of threads for top-level tasks, if the thread pool type is BOUNDED", 
+            256);
+
+    public static final ConfigKey<Integer> THREAD_POOL_MAX_SUBTASK_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.maxSubtaskSize", 
+            "the maximum number of threads for tasks submitted from within another task, if the thread pool type is BOUNDED; "
+            + "when all are busy, such tasks run in the submitting task's thread, so should be well above the number "
+            + "of children which must run concurrently with their parent (e.g. background polling tasks); "
+            + "also the maximum number of threads for jobs of tag schedulers (e.g. subscription deliveries)", 
+            1024);
+
     private static final boolean RENAME_THREADS = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_RENAME_THREADS);
     
     private static class PerThreadCurrentTaskHolder {
@@ -87,19 +135,26 @@ public class BasicExecutionManager implements ExecutionManager {
     
     private final ThreadFactory daemonThreadFactory;
     
+    private final ThreadPoolType threadPoolType;
+    
     private final ExecutorService runner;
+    
+    /** for tasks submitted from within another task; same as {@link #runner} unless the pool is {@link ThreadPoolType#BOUNDED},
+     * in which case it is bounded but without a queue, running jobs in the submitting thread when all its threads are busy */
+    private final ExecutorService subtaskRunner;
+    
+    /** for jobs of {@link TaskScheduler}s; same as {@link #runner} unless the pool is {@link ThreadPoolType#BOUNDED},
+     * in which case it is bounded but without a queue, queueing jobs in {@link #runner} when all its threads are busy */
+    private final ExecutorService schedulerRunner;
         
     private final ScheduledExecutorService delayedRunner;
     
     // TODO Could have a set of all knownTasks; but instead we're having a separate set per tag,
     // so the same task could be listed multiple times if it has multiple tags...
 
-    //access to this field AND to members in this field is synchronized, 
-    //to allow us to preserve order while guaranteeing thread-safe
-    //(but more testing is needed before we are completely sure it is thread-safe!)
-    //synch blocks are as finely grained as possible for efficiency;
-    //NB CopyOnWriteArraySet is a perf bottleneck, and the simple map makes it easier to remove when a tag is empty
-    private Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
+    //no global lock: see TaskTagIndex for how thread-safety is achieved
+    //(NB CopyOnWriteArraySet is a perf bottleneck, and a single synchronized map serialized all submissions)
+    private final TaskTagIndex tasksByTag = new TaskTagIndex();
     
     private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
 
@@ -114,6 +169,9 @@ public class BasicExecutionManager implements ExecutionManager {
     /** tasks started but not yet finished */
     private final AtomicInteger activeTaskCount = new AtomicInteger();
     
+    /** delay between when the most recently started {@link ScheduledTask} iteration was due and when it started */
+    private final AtomicLong lastScheduledTaskLagNanos = new AtomicLong();
+    
     private final List<ExecutionListener> listeners = new CopyOnWriteArrayList<ExecutionListener>();
     
     private final static ThreadLocal<String> threadOriginalName = new ThreadLocal<String>() {
@@ -125,19 +183,133 @@ public class BasicExecutionManager implements ExecutionManager {
     };
     
     public BasicExecutionManager(String contextid) {
+        this(contextid, null);
+    }
+    
+    /** 
+     * @param brooklynProperties used for {@link #THREAD_POOL_TYPE} and related configuration; 
+     *        may be null to use defaults
+     */
+    public BasicExecutionManager(String contextid, BrooklynProperties brooklynProperties) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
-                
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        
+        ThreadPoolType type = (brooklynProperties != null) ? brooklynProperties.getConfig(THREAD_POOL_TYPE) : null;
+        if (type == null) type = ThreadPoolType.UNBOUNDED;
+        
+        ExecutorService virtualRunner = null;
+        if (type == ThreadPoolType.VIRTUAL) {
+            virtualRunner = newVirtualThreadExecutor();
+            if (virtualRunner == null) {
+                log.warn("Virtual threads not supported by this JVM; using "+ThreadPoolType.UNBOUNDED+" thread pool for "+this);
+                type = ThreadPoolType.UNBOUNDED;
+            }
+        }
+        threadPoolType = type;
+        
+        switch (type) {
+        case VIRTUAL:
+            runner = virtualRunner;
+            subtaskRunner = runner;
+            schedulerRunner = runner;
+            break;
+        case BOUNDED:
+            int maxSize = brooklynProperties.getConfig(THREAD_POOL_MAX_SIZE);
+            runner = new PriorityThreadPoolExecutor(maxSize, 10L, TimeUnit.SECONDS, daemonThreadFactory, 
+                    new Function<Object, Integer>() {
+                        @Override public Integer apply(Object job) {
+                            return getPriority(job);
+                        }
+                    });
+            subtaskRunner = new ThreadPoolExecutor(0, brooklynProperties.getConfig(THREAD_POOL_MAX_SUBTASK_SIZE), 10L, TimeUnit.SECONDS, 
+                    new SynchronousQueue<Runnable>(), daemonThreadFactory, new RunInSubmittingThreadPolicy());
+            schedulerRunner = new ThreadPoolExecutor(0, brooklynProperties.getConfig(THREAD_POOL_MAX_SUBTASK_SIZE), 10L, TimeUnit.SECONDS, 
+                    new SynchronousQueue<Runnable>(), daemonThreadFactory, new QueueInExecutorPolicy(runner));
+            break;
+        default:
+            runner = newUnboundedThreadPool(daemonThreadFactory);
+            subtaskRunner = runner;
+            schedulerRunner = runner;
+        }
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
     }
     
+    private static ExecutorService newUnboundedThreadPool(ThreadFactory threadFactory) {
+        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                threadFactory);
+    }
+    
+    /**
+     * Runs a rejected job in the submitting thread (as {@link ThreadPoolExecutor.CallerRunsPolicy}),
+     * restoring the submitting task's bookkeeping afterwards, as that is cleared when a task ends in a thread.
+     */
+    private static class RunInSubmittingThreadPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable job, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor shut down; cannot run "+job);
+            }
+            Task<?> current = PerThreadCurrentTaskHolder.perThreadCurrentTask.get();
+            String originalName = (RENAME_THREADS && current != null) ? threadOriginalName.get() : null;
+            String name = Thread.currentThread().getName();
+            try {
+                job.run();
+            } finally {
+                if (current != null) PerThreadCurrentTaskHolder.perThreadCurrentTask.set(current);
+                if (originalName != null) threadOriginalName.set(originalName);
+                Thread.currentThread().setName(name);
+            }
+        }
+    }
+    
+    /** hands jobs which the pool cannot run now to another executor, e.g. one which queues them */
+    private static class QueueInExecutorPolicy implements RejectedExecutionHandler {
+        private final ExecutorService fallback;
+        
+        QueueInExecutorPolicy(ExecutorService fallback) {
+            this.fallback = fallback;
+        }
+        
+        @Override
+        public void rejectedExecution(Runnable job, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor shut down; cannot run "+job);
+            }
+            fallback.execute(job);
+        }
+    }
+    
+    /** returns {@code Executors.newVirtualThreadPerTaskExecutor()} if available in this JVM, otherwise null */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            log.warn("Unable to create virtual thread executor: "+e, e);
+            return null;
+        }
+    }
+    
+    /** 
+     * Priority of a job waiting for a thread when the pool is {@link ThreadPoolType#BOUNDED}: 
+     * effectors run ahead of other tasks, and transient tasks (e.g. sensor deliveries) after them.
+     */
+    protected int getPriority(Object job) {
+        if (job instanceof SubmissionCallable) {
+            Set<Object> tags = ((SubmissionCallable<?>)job).task.getTags();
+            if (tags.contains(BrooklynTaskTags.EFFECTOR_TAG)) return PriorityThreadPoolExecutor.PRIORITY_HIGH;
+            if (tags.contains(BrooklynTaskTags.TRANSIENT_TASK_TAG)) return PriorityThreadPoolExecutor.PRIORITY_LOW;
+        }
+        return PriorityThreadPoolExecutor.PRIORITY_NORMAL;
+    }
+    
     private final static class UncaughtExceptionHandlerImplementation implements Thread.UncaughtExceptionHandler {
         @Override
         public void uncaughtException(Thread t, Throwable e) {
@@ -159,6 +331,8 @@ public class BasicExecutionManager implements ExecutionManager {
     
     public void shutdownNow() {
         runner.shutdownNow();
+        if (subtaskRunner != runner) subtaskRunner.shutdownNow();
+        if (schedulerRunner != runner) schedulerRunner.shutdownNow();
         delayedRunner.shutdownNow();
     }
     
@@ -177,10 +351,7 @@ public class BasicExecutionManager implements ExecutionManager {
      * a reference to it as a tag.
      */
     public void deleteTag(Object tag) {
-        Set<Task<?>> tasks;
-        synchronized (tasksByTag) {
-            tasks = tasksByTag.remove(tag);
-        }
+        Set<Task<?>> tasks = tasksByTag.removeTag(tag);
         if (tasks != null) {
             for (Task<?> task : tasks) {
                 deleteTask(task);
@@ -203,21 +374,23 @@ public class BasicExecutionManager implements ExecutionManager {
     protected boolean deleteTaskNonRecursive(Task<?> task) {
         Set<?> tags = checkNotNull(task, "task").getTags();
         for (Object tag : tags) {
-            synchronized (tasksByTag) {
-                Set<Task<?>> tasks = tasksWithTagLiveOrNull(tag);
-                if (tasks != null) {
-                    tasks.remove(task);
-                    if (tasks.isEmpty()) {
-                        tasksByTag.remove(tag);
-                    }
-                }
-            }
+            tasksByTag.remove(tag, task);
         }
         Task<?> removed = tasksById.remove(task.getId());
         incompleteTaskIds.remove(task.getId());
         if (removed!=null && removed.isSubmitted() && !removed.isDone()) {
             log.warn("Deleting submitted task before completion: "+removed+"; this task will continue to run in the background outwith "+this+", but perhaps it should have been cancelled?");
         }
+        if (removed != null) {
+            for (ExecutionListener listener : listeners) {
+                if (!(listener instanceof TaskDeletionListener)) continue;
+                try {
+                    ((TaskDeletionListener)listener).onTaskDeleted(removed);
+                } catch (Exception e) {
+                    log.warn("Error running execution listener "+listener+" of task "+removed+" deleted", e);
+                }
+            }
+        }
         return removed != null;
     }
 
@@ -240,29 +413,40 @@ public class BasicExecutionManager implements ExecutionManager {
         return activeTaskCount.get();
     }
 
+    /** time (in milliseconds) between when the most recently run {@link ScheduledTask} iteration was due and when it started,
+     * including any time waiting for a thread or for a {@link TaskScheduler} */
+    public long getLastScheduledTaskLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastScheduledTaskLagNanos.get());
+    }
+
     /** count of tasks kept in memory, often including ended tasks */
     public long getNumInMemoryTasks() {
         return tasksById.size();
     }
-
-    private Set<Task<?>> tasksWithTagCreating(Object tag) {
-        Preconditions.checkNotNull(tag);
-        synchronized (tasksByTag) {
-            Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-            if (result==null) {
-                result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
-                tasksByTag.put(tag, result);
-            }
-            return result;
-        }
+    
+    public ThreadPoolType getThreadPoolType() {
+        return threadPoolType;
+    }
+    
+    /** number of threads in the pool for top-level tasks, or -1 if not known (e.g. with virtual threads) */
+    public int getThreadPoolSize() {
+        return (runner instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor)runner).getPoolSize() : -1;
+    }
+    
+    /** number of threads in the pool for top-level tasks which are running a task, or -1 if not known */
+    public int getThreadPoolActiveCount() {
+        return (runner instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor)runner).getActiveCount() : -1;
+    }
+    
+    /** number of tasks waiting for a thread, or -1 if not known; only ever positive if the pool is {@link ThreadPoolType#BOUNDED} */
+    public int getThreadPoolQueueSize() {
+        return (runner instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor)runner).getQueue().size() : -1;
     }
 
-    /** exposes live view, for internal use only */
+    /** exposes live (unmodifiable) view, for internal use only */
     @Beta
     public Set<Task<?>> tasksWithTagLiveOrNull(Object tag) {
-        synchronized (tasksByTag) {
-            return tasksByTag.get(tag);
-        }
+        return tasksByTag.getOrNull(tag);
     }
 
     @Override
@@ -279,59 +463,31 @@ public class BasicExecutionManager implements ExecutionManager {
         }
     }
     
+    /** returns an immutable copy; see {@link #tasksWithTagLiveOrNull(Object)} for a live view */
     @Override
     public Set<Task<?>> getTasksWithTag(Object tag) {
-        Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-        if (result==null) return Collections.emptySet();
-        synchronized (result) {
-            return (Set<Task<?>>)Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
-        }
+        return ImmutableSet.copyOf(tasksByTag.get(tag));
     }
     
+    /** returns an immutable copy */
     @Override
     public Set<Task<?>> getTasksWithAnyTag(Iterable<?> tags) {
-        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(ti.next());
-            if (tasksForTag!=null) {
-                synchronized (tasksForTag) {
-                    result.addAll(tasksForTag);
-                }
-            }
-        }
-        return Collections.unmodifiableSet(result);
+        return ImmutableSet.copyOf(tasksByTag.getWithAny(tags));
     }
 
-    /** only works with at least one tag; returns empty if no tags */
+    /** only works with at least one tag; returns empty if no tags; returns an immutable copy */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
-        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
-            }
-        }
-        return Collections.unmodifiableSet(result);
+        return ImmutableSet.copyOf(tasksByTag.getWithAll(tags));
     }
 
     /** live view of all tasks, for internal use only */
     @Beta
     public Collection<Task<?>> allTasksLive() { return tasksById.values(); }
     
+    /** returns an immutable copy */
     public Set<Object> getTaskTags() { 
-        synchronized (tasksByTag) {
-            return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
-        }
+        return ImmutableSet.copyOf(tasksByTag.getTags());
     }
 
     public Task<?> submit(Runnable r) { return submit(new LinkedHashMap<Object,Object>(1), r); }
@@ -381,10 +537,12 @@ public class BasicExecutionManager implements ExecutionManager {
     protected class ScheduledTaskCallable implements Callable<Object> {
         public ScheduledTask task;
         public Map<?,?> flags;
+        private final long dueTimeNanos;
 
         public ScheduledTaskCallable(ScheduledTask task, Map<?, ?> flags) {
             this.task = task;
             this.flags = flags;
+            this.dueTimeNanos = System.nanoTime() + task.delay.toNanoseconds();
         }
 
         @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -398,6 +556,7 @@ public class BasicExecutionManager implements ExecutionManager {
                 final Callable<?> oldJob = taskScheduled.getJob();
                 final TaskInternal<?> taskScheduledF = taskScheduled;
                 taskScheduled.setJob(new Callable() { public Object call() {
+                    lastScheduledTaskLagNanos.set(Math.max(0, System.nanoTime() - dueTimeNanos));
                     boolean shouldResubmit = true;
                     task.recentRun = taskScheduledF;
                     try {
@@ -600,6 +759,9 @@ public class BasicExecutionManager implements ExecutionManager {
         if (schedulers!=null && !schedulers.isEmpty()) {
             if (schedulers.size()>1) log.warn("multiple schedulers detected, using only the first, for "+task+": "+schedulers);
             future = schedulers.iterator().next().submit(job);
+        } else if (Tasks.current()!=null) {
+            // a task may block on those it submits, so these must never wait for a thread (if bounded, they run in this thread)
+            future = subtaskRunner.submit(job);
         } else {
             future = runner.submit(job);
         }
@@ -610,7 +772,7 @@ public class BasicExecutionManager implements ExecutionManager {
         // except that for the task we can more easily wrap it so that it only logs debug if the executor is shutdown
         // (avoid a bunch of ugly warnings in tests which start and stop things a lot!)
         // [probably even nicer to run this in the same thread, it doesn't do much; but that is messier to implement]
-        ((TaskInternal<T>)task).addListener(new SubmissionListenerToCallOtherListeners<T>(task), runner);
+        ((TaskInternal<T>)task).addListener(new SubmissionListenerToCallOtherListeners<T>(task), subtaskRunner);
         
         ((TaskInternal<T>)task).initInternalFuture(listenableFuture);
         
@@ -635,7 +797,7 @@ public class BasicExecutionManager implements ExecutionManager {
         if (flags.get("tags")!=null) ((TaskInternal<?>)task).getMutableTags().addAll((Collection<?>)flags.remove("tags"));
 
         for (Object tag: ((TaskInternal<?>)task).getTags()) {
-            tasksWithTagCreating(tag).add(task);
+            tasksByTag.add(tag, task);
         }
     }
 
@@ -751,7 +913,7 @@ public class BasicExecutionManager implements ExecutionManager {
      */
     public void setTaskSchedulerForTag(Object tag, TaskScheduler scheduler) {
         synchronized (schedulerByTag) {
-            scheduler.injectExecutor(runner);
+            scheduler.injectExecutor(schedulerRunner);
 
             Object old = schedulerByTag.put(tag, scheduler);
             if (old!=null && old!=scheduler) {
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+
+/**
+ * A {@link ThreadPoolExecutor} with a fixed maximum number of threads, where jobs waiting for a thread
+ * are ordered by a priority (higher first) and then by submission order.
+ * <p>
+ * The priority of each job is computed at submission by the supplied function,
+ * which is passed the {@link Callable} or {@link Runnable} given to the executor.
+ * Idle threads time out, so the pool shrinks when not busy.
+ */
+@Beta
+public class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    private final Function<Object, Integer> priorityFunction;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public PriorityThreadPoolExecutor(int maxThreads, long keepAlive, TimeUnit unit, ThreadFactory threadFactory, Function<Object, Integer> priorityFunction) {
+        // core==max, as with an unbounded queue the pool never grows beyond its core size
+        super(maxThreads, maxThreads, keepAlive, unit, new PriorityBlockingQueue<Runnable>(), threadFactory);
+        allowCoreThreadTimeOut(true);
+        this.priorityFunction = priorityFunction;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!(command instanceof PrioritizedFutureTask)) {
+            command = newTaskFor(command, null);
+        }
+        super.execute(command);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new PrioritizedFutureTask<T>(callable, priorityOf(callable), sequence.getAndIncrement());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new PrioritizedFutureTask<T>(runnable, value, priorityOf(runnable), sequence.getAndIncrement());
+    }
+
+    private int priorityOf(Object job) {
+        Integer result = (priorityFunction != null) ? priorityFunction.apply(job) : null;
+        return (result != null) ? result : PRIORITY_NORMAL;
+    }
+
+    private static class PrioritizedFutureTask<T> extends FutureTask<T> implements Comparable<PrioritizedFutureTask<?>> {
+        private final int priority;
+        private final long sequence;
+
+        PrioritizedFutureTask(Callable<T> callable, int priority, long sequence) {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        PrioritizedFutureTask(Runnable runnable, T value, int priority, long sequence) {
+            super(runnable, value);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PrioritizedFutureTask<?> other) {
+            if (priority != other.priority) return (priority > other.priority) ? -1 : 1;
+            return (sequence < other.sequence) ? -1 : ((sequence == other.sequence) ? 0 : 1);
+        }
+    }
+}
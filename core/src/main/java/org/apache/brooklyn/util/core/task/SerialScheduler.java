@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.ExecutionManager;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Runs jobs for a single owner (such as a policy) one at a time, in the order they become due,
+ * optionally after a delay.
+ * <p>
+ * This uses the {@link ExecutionManager}'s shared timer and thread pool, with a {@link SingleThreadedScheduler}
+ * for a tag unique to this instance, rather than a dedicated thread; so owners which are mostly idle cost no threads.
+ * The delay between a job being due and it starting is reported by {@link BasicExecutionManager#getLastScheduledTaskLagMillis()}.
+ */
+@Beta
+public class SerialScheduler {
+
+    private final ExecutionManager executionManager;
+    private final ExecutionContext executionContext;
+    private final String tag;
+    private final Set<Task<?>> pending = Collections.newSetFromMap(new ConcurrentHashMap<Task<?>, Boolean>());
+    private volatile boolean closed = false;
+
+    /**
+     * @param executionContext the context in which to submit the jobs, e.g. that of the owner's entity
+     * @param name used in the tag for the jobs, for logging
+     */
+    public SerialScheduler(ExecutionManager executionManager, ExecutionContext executionContext, String name) {
+        this.executionManager = executionManager;
+        this.executionContext = executionContext;
+        this.tag = "serial-scheduler-"+name+"-"+Identifiers.makeRandomId(8);
+        ((BasicExecutionManager)executionManager).setTaskSchedulerForTag(tag, SingleThreadedScheduler.class);
+    }
+
+    /** runs the given job as soon as any previously submitted jobs have completed */
+    public Task<?> submit(String displayName, Runnable job) {
+        return schedule(displayName, job, Duration.ZERO);
+    }
+
+    /** runs the given job after the given delay (and after any previously due jobs have completed) */
+    public Task<?> schedule(String displayName, final Runnable job, Duration delay) {
+        if (closed) throw new IllegalStateException(this+" is closed");
+        final Task<?>[] scheduled = new Task<?>[1];
+        Runnable wrapped = new Runnable() {
+            @Override public void run() {
+                try {
+                    job.run();
+                } finally {
+                    pending.remove(scheduled[0]);
+                }
+            }
+        };
+        Task<?> task = new BasicTask<Void>(MutableMap.of("displayName", displayName, "tag", tag), wrapped);
+        if (delay.toMilliseconds() > 0) {
+            task = new ScheduledTask(MutableMap.of("displayName", displayName, "delay", delay), task);
+        }
+        scheduled[0] = task;
+        pending.add(task);
+        executionContext.submit(task);
+        return task;
+    }
+
+    /** cancels any jobs which have not yet completed (interrupting any running job), and stops accepting new jobs */
+    public void close() {
+        closed = true;
+        for (Task<?> task : pending) {
+            task.cancel(true);
+        }
+        pending.clear();
+        ((BasicExecutionManager)executionManager).clearTaskSchedulerForTag(tag);
+    }
+
+    @Override
+    public String toString() {
+        return "SerialScheduler["+tag+"]";
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.util.collections.MutableList;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.Sets;
+
+/**
+ * Index of tasks by tag, as used by {@link BasicExecutionManager}.
+ * <p>
+ * There is no global lock: the tags are held in a {@link ConcurrentHashMap}, and the tasks for each tag
+ * in a concurrent set. Each tag has its own read-write lock, used only so that a tag whose last task
+ * is removed can be dropped from the index without losing a task being added concurrently;
+ * adding and removing tasks take the read lock, so do not contend with each other.
+ * <p>
+ * Sets returned are unmodifiable, weakly-consistent live views (not copies),
+ * so can be iterated while tasks are being added and removed. They are not ordered.
+ * {@link BasicExecutionManager} returns immutable copies of them from its {@code getTasksWith...} methods.
+ */
+@Beta
+public class TaskTagIndex {
+
+    private static class TasksForTag {
+        final Set<Task<?>> tasks = Collections.newSetFromMap(new ConcurrentHashMap<Task<?>, Boolean>());
+        final Set<Task<?>> view = Collections.unmodifiableSet(tasks);
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        /** set (under the write lock) when this is no longer in the index; guarded by lock */
+        boolean retired = false;
+    }
+
+    private static final Comparator<Set<?>> SMALLEST_FIRST = new Comparator<Set<?>>() {
+        @Override public int compare(Set<?> s1, Set<?> s2) {
+            int size1 = s1.size();
+            int size2 = s2.size();
+            return (size1 < size2) ? -1 : ((size1 == size2) ? 0 : 1);
+        }
+    };
+
+    private final ConcurrentMap<Object, TasksForTag> byTag = new ConcurrentHashMap<Object, TasksForTag>();
+
+    public void add(Object tag, Task<?> task) {
+        checkNotNull(tag, "tag");
+        while (true) {
+            TasksForTag entry = byTag.get(tag);
+            if (entry == null) {
+                TasksForTag newEntry = new TasksForTag();
+                entry = byTag.putIfAbsent(tag, newEntry);
+                if (entry == null) entry = newEntry;
+            }
+            entry.lock.readLock().lock();
+            try {
+                if (!entry.retired) {
+                    entry.tasks.add(task);
+                    return;
+                }
+            } finally {
+                entry.lock.readLock().unlock();
+            }
+            // tag was emptied and dropped concurrently; try again with a new entry
+        }
+    }
+
+    public boolean remove(Object tag, Task<?> task) {
+        TasksForTag entry = byTag.get(tag);
+        if (entry == null) return false;
+        boolean result = entry.tasks.remove(task);
+        if (result && entry.tasks.isEmpty()) {
+            entry.lock.writeLock().lock();
+            try {
+                // re-check, as a task may have been added since
+                if (!entry.retired && entry.tasks.isEmpty()) {
+                    entry.retired = true;
+                    byTag.remove(tag, entry);
+                }
+            } finally {
+                entry.lock.writeLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    /** removes the tag from the index, returning the tasks which had that tag, or null if none */
+    public Set<Task<?>> removeTag(Object tag) {
+        TasksForTag entry = byTag.remove(tag);
+        if (entry == null) return null;
+        entry.lock.writeLock().lock();
+        try {
+            entry.retired = true;
+        } finally {
+            entry.lock.writeLock().unlock();
+        }
+        return entry.view;
+    }
+
+    /** live view of the tasks with the given tag, or null if there are none */
+    public Set<Task<?>> getOrNull(Object tag) {
+        TasksForTag entry = byTag.get(tag);
+        return (entry == null) ? null : entry.view;
+    }
+
+    /** live view of the tasks with the given tag, possibly empty */
+    public Set<Task<?>> get(Object tag) {
+        Set<Task<?>> result = getOrNull(tag);
+        return (result == null) ? Collections.<Task<?>>emptySet() : result;
+    }
+
+    /** live view of the tasks having any of the given tags */
+    public Set<Task<?>> getWithAny(Iterable<?> tags) {
+        Set<Task<?>> result = null;
+        for (Object tag : tags) {
+            Set<Task<?>> tasks = getOrNull(tag);
+            if (tasks == null) continue;
+            result = (result == null) ? tasks : Sets.union(result, tasks);
+        }
+        return (result == null) ? Collections.<Task<?>>emptySet() : result;
+    }
+
+    /** live view of the tasks having all the given tags; empty if no tags are given */
+    public Set<Task<?>> getWithAll(Iterable<?> tags) {
+        List<Set<Task<?>>> sets = MutableList.of();
+        for (Object tag : tags) {
+            Set<Task<?>> tasks = getOrNull(tag);
+            if (tasks == null) return Collections.emptySet();
+            sets.add(tasks);
+        }
+        if (sets.isEmpty()) return Collections.emptySet();
+        // iterate over the least-used tag, checking membership of the others
+        Collections.sort(sets, SMALLEST_FIRST);
+        Set<Task<?>> result = sets.get(0);
+        for (int i = 1; i < sets.size(); i++) {
+            result = Sets.intersection(result, sets.get(i));
+        }
+        return result;
+    }
+
+    /** live view of all tags which currently have tasks */
+    public Set<Object> getTags() {
+        return Collections.unmodifiableSet(byTag.keySet());
+    }
+}
@@ -30,20 +30,22 @@ import javax.xml.xpath.XPathFactory;
 
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 public class XmlUtil {
 
     public static Object xpath(String xml, String xpath) {
+        return xpath(parse(xml), xpath);
+    }
+
+    /** parses the given XML, e.g. for use with {@link #xpath(Node, String)} where several values are needed from one document */
+    public static Document parse(String xml) {
         // TODO Could share factory/doc in thread-local storage; see http://stackoverflow.com/questions/9828254/is-documentbuilderfactory-thread-safe-in-java-5
         try {
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(xml.getBytes()));
-            XPathFactory xPathfactory = XPathFactory.newInstance();
-            XPathExpression expr = xPathfactory.newXPath().compile(xpath);
-            
-            return expr.evaluate(doc);
+            return builder.parse(new ByteArrayInputStream(xml.getBytes()));
             
         } catch (ParserConfigurationException e) {
             throw Exceptions.propagate(e);
@@ -51,6 +53,16 @@ public class XmlUtil {
             throw Exceptions.propagate(e);
         } catch (IOException e) {
             throw Exceptions.propagate(e);
+        }
+    }
+
+    public static Object xpath(Node node, String xpath) {
+        try {
+            XPathFactory xPathfactory = XPathFactory.newInstance();
+            XPathExpression expr = xPathfactory.newXPath().compile(xpath);
+            
+            return expr.evaluate(node);
+            
         } catch (XPathExpressionException e) {
             throw Exceptions.propagate(e);
         }
@@ -163,6 +163,69 @@ public class AttributeMapTest {
     
     @Test
     public void testConcurrentModifyAttributeCalls() throws Exception {
+        assertConcurrentModifyAttributeCalls(map);
+    }
+    
+    @Test
+    public void testConcurrentModifyAttributeCallsWithConcurrentStorage() throws Exception {
+        assertConcurrentModifyAttributeCalls(new AttributeMap(entityImpl));
+    }
+    
+    @Test
+    public void testModifyAttributeEmitsNewValue() throws Exception {
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
+        map = new AttributeMap(entityImpl);
+        
+        final RecordingSensorEventListener<Object> listener = new RecordingSensorEventListener<>();
+        entityImpl.subscriptions().subscribe(entityImpl, sensor, listener);
+        
+        assertEquals(map.modify(sensor, Functions.constant(Maybe.of(1))), null);
+        assertEquals(map.modify(sensor, Functions.constant(Maybe.of(2))), Integer.valueOf(1));
+        assertEquals(map.getValue(ImmutableList.of("a")), 2);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(listener.getEventValues(), ImmutableList.of(1, 2));
+            }});
+    }
+    
+    @Test
+    public void testConcurrentModifyAttributeCallsEmitValuesInOrder() throws Exception {
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
+        map = new AttributeMap(entityImpl);
+        
+        final RecordingSensorEventListener<Object> listener = new RecordingSensorEventListener<>();
+        entityImpl.subscriptions().subscribe(entityImpl, sensor, listener);
+        
+        assertConcurrentModifyAttributeCalls(map);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(Iterables.getLast(listener.getEventValues()), NUM_TASKS);
+            }});
+        Integer previous = 0;
+        for (Object value : listener.getEventValues()) {
+            assertTrue((Integer)value > previous, "value "+value+" after "+previous+"; values="+listener.getEventValues());
+            previous = (Integer) value;
+        }
+    }
+    
+    @Test
+    public void testStoredByPathCanBeModifiedBySensor() throws Exception {
+        AttributeSensor<String> sensor = Sensors.newStringSensor("b.c", "");
+        map = new AttributeMap(entityImpl);
+        
+        map.update(ImmutableList.of("b", "c"), "1val");
+        map.modify(sensor, Functions.constant(Maybe.of("2val")));
+        
+        assertEquals(map.getValue(sensor), "2val");
+        assertEquals(map.asRawMap().size(), 1);
+        
+        map.remove(sensor);
+        assertEquals(map.getValue(ImmutableList.of("b", "c")), null);
+    }
+    
+    private void assertConcurrentModifyAttributeCalls(AttributeMap map) throws Exception {
         AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
         
         Function<Integer, Maybe<Integer>> modifier = new Function<Integer, Maybe<Integer>>() {
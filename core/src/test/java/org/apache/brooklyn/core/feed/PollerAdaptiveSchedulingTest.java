@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.feed;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.EntityAsserts;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.feed.function.FunctionFeed;
+import org.apache.brooklyn.feed.function.FunctionPollConfig;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.Test;
+
+public class PollerAdaptiveSchedulingTest extends BrooklynAppUnitTestSupport {
+
+    private static final AttributeSensor<Integer> SENSOR_INT = Sensors.newIntegerSensor("anInt", "");
+
+    private TestEntity entity;
+
+    private void setUpWithProperties(BrooklynProperties props) throws Exception {
+        mgmt = LocalManagementContextForTests.newInstance(props);
+        super.setUp();
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+    }
+
+    @Test
+    public void testBacksOffWhileUnchangedButPicksUpChanges() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(Poller.START_JITTER, 1d);
+        props.put(Poller.PERIOD_JITTER, 0.5d);
+        props.put(Poller.MAX_BACKOFF, 8d);
+        setUpWithProperties(props);
+
+        final AtomicInteger val = new AtomicInteger(1);
+        FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(10)
+                        .callable(new Callable<Integer>() {
+                            @Override public Integer call() {
+                                return val.get();
+                            }}))
+                .build();
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_INT, 1);
+
+        // long enough to back off to the maximum
+        Time.sleep(Duration.millis(500));
+        val.set(2);
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_INT, 2);
+        val.set(3);
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_INT, 3);
+    }
+
+    @Test
+    public void testLimitsPollsPerSecond() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(Poller.MAX_POLLS_PER_SECOND, 10d);
+        setUpWithProperties(props);
+
+        final AtomicInteger count = new AtomicInteger();
+        FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(1)
+                        .callable(new Callable<Integer>() {
+                            @Override public Integer call() {
+                                return count.incrementAndGet();
+                            }}))
+                .build();
+        EntityAsserts.assertAttributeEventuallyNonNull(entity, SENSOR_INT);
+
+        Time.sleep(Duration.ONE_SECOND);
+        // an initial burst of up to 10, then 10 per second (rather than one every millisecond)
+        int polls = count.get();
+        assertTrue(polls <= 30, "polls="+polls);
+    }
+}
@@ -238,6 +238,61 @@ public class EntityExecutionManagerTest {
         assertTaskCountForEntitySoon(e, 5);
     }
     
+    protected void newIncrementalGcApp(BrooklynProperties brooklynProperties) {
+        brooklynProperties.put(BrooklynGarbageCollector.INCREMENTAL, true);
+        app = ApplicationBuilder.newManagedApp(TestApplication.class, LocalManagementContextForTests.newInstance(brooklynProperties));
+        e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+    }
+
+    protected BrooklynGarbageCollector getGarbageCollector() {
+        return ((LocalManagementContext)app.getManagementContext()).getGarbageCollector();
+    }
+
+    @Test
+    public void testIncrementalGcTaskAtNormalTagLimit() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 2);
+        newIncrementalGcApp(brooklynProperties);
+        assertTrue(getGarbageCollector().isIncremental());
+
+        for (int count=0; count<5; count++)
+            runEmptyTaskWithNameAndTags(e, "task"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+
+        assertTaskCountForEntitySoon(e, 2);
+        assertTrue(getGarbageCollector().getNumTasksEvictedForTagCapacity() >= 3, "evicted="+getGarbageCollector().getNumTasksEvictedForTagCapacity());
+        assertTrue(getGarbageCollector().getNumTasksRetained() >= 2, "retained="+getGarbageCollector().getNumTasksRetained());
+    }
+
+    @Test
+    public void testIncrementalGcTaskAtEntityLimit() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BrooklynGarbageCollector.MAX_TASKS_PER_ENTITY, 2);
+        newIncrementalGcApp(brooklynProperties);
+
+        for (int count=0; count<5; count++)
+            runEmptyTaskWithNameAndTags(e, "task-e-"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+        for (int count=0; count<5; count++)
+            runEmptyTaskWithNameAndTags(app, "task-app-"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+
+        assertTaskCountForEntitySoon(app, 2);
+        assertTaskCountForEntitySoon(e, 2);
+    }
+
+    @Test
+    public void testIncrementalGcKeepsTaskWhileOtherTagHasCapacity() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 2);
+        newIncrementalGcApp(brooklynProperties);
+
+        Task<?> keeper = runEmptyTaskWithNameAndTags(e, "keeper", ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag", "rare-tag");
+        for (int count=0; count<4; count++)
+            runEmptyTaskWithNameAndTags(e, "task"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+
+        // keeper is the only task with rare-tag, so gets grace even though it is the oldest with boring-tag
+        assertTaskCountForEntitySoon(e, 3);
+        assertTrue(BrooklynTaskTags.getTasksInEntityContext(app.getManagementContext().getExecutionManager(), e).contains(keeper));
+    }
+
     @Test
     public void testGcDynamicTaskAtNormalTagLimit() throws Exception {
         app = TestApplication.Factory.newManagedInstanceForTests();
@@ -459,6 +514,23 @@ public class EntityExecutionManagerTest {
         assertTrue(timeToGc.isShorterThan(maxTaskAge.add(maxOverhead)), "timeToGc="+timeToGc+"; maxTaskAge="+maxTaskAge);
     }
     
+    @Test(groups="Integration")
+    public void testIncrementalGcTasksForAge() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BrooklynGarbageCollector.GC_PERIOD, Duration.ONE_MILLISECOND);
+        brooklynProperties.put(BrooklynGarbageCollector.MAX_TASK_AGE, Duration.millis(100));
+        newIncrementalGcApp(brooklynProperties);
+
+        final Task<?> oldTask = e.invoke(TestEntity.MY_EFFECTOR, ImmutableMap.<String,Object>of());
+        oldTask.get();
+
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), new Runnable() {
+            @Override public void run() {
+                assertEquals(app.getManagementContext().getExecutionManager().getTask(oldTask.getId()), null);
+                assertTrue(getGarbageCollector().getNumTasksEvictedForAge() > 0);
+            }});
+    }
+
     private static class BigObject implements Serializable {
         private static final long serialVersionUID = -4021304829674972215L;
         private final int sizeBytes;
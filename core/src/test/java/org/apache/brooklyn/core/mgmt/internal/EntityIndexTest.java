@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import static org.apache.brooklyn.test.Asserts.assertEqualsIgnoringOrder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.entity.EntityPredicates;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.stock.BasicEntity;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class EntityIndexTest extends BrooklynAppUnitTestSupport {
+
+    private EntityIndex index;
+    private TestEntity testEntity;
+    private BasicEntity basicEntity;
+    private TestApplication otherApp;
+    private TestEntity otherTestEntity;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        testEntity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        basicEntity = app.createAndManageChild(EntitySpec.create(BasicEntity.class));
+        otherApp = TestApplication.Factory.newManagedInstanceForTests(mgmt);
+        otherTestEntity = otherApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        
+        index = new EntityIndex();
+        for (Entity entity : ImmutableList.of(app, testEntity, basicEntity, otherApp, otherTestEntity)) {
+            index.add(entity);
+        }
+    }
+
+    @Test
+    public void testFindsByType() throws Exception {
+        assertEqualsIgnoringOrder(index.findMatches(Predicates.instanceOf(TestEntity.class)).get(), ImmutableList.of(testEntity, otherTestEntity));
+        assertEqualsIgnoringOrder(index.findMatches(Predicates.instanceOf(BasicEntity.class)).get(), ImmutableList.of(basicEntity));
+        assertEquals(index.findMatches(Predicates.instanceOf(String.class)).get(), ImmutableList.of());
+    }
+
+    @Test
+    public void testFindsByApplication() throws Exception {
+        assertEqualsIgnoringOrder(index.findMatches(EntityPredicates.applicationIdEqualTo(app.getId())).get(), ImmutableList.of(app, testEntity, basicEntity));
+    }
+
+    @Test
+    public void testFindsByConjunction() throws Exception {
+        assertEquals(index.findMatches(Predicates.and(Predicates.instanceOf(TestEntity.class), EntityPredicates.applicationIdEqualTo(otherApp.getId()))).get(), 
+                ImmutableList.of(otherTestEntity));
+        assertEquals(index.findMatches(Predicates.and(Predicates.instanceOf(TestEntity.class), EntityPredicates.displayNameEqualTo(testEntity.getDisplayName()))).get(), 
+                ImmutableList.of(testEntity));
+    }
+
+    @Test
+    public void testDoesNotFindByUnrecognisedFilter() throws Exception {
+        assertFalse(index.findMatches(EntityPredicates.displayNameEqualTo(testEntity.getDisplayName())).isPresent());
+        assertFalse(index.findMatches(Predicates.or(Predicates.instanceOf(TestEntity.class), Predicates.instanceOf(BasicEntity.class))).isPresent());
+    }
+
+    @Test
+    public void testRemovedEntityNotFound() throws Exception {
+        index.remove(testEntity);
+        assertFalse(index.contains(testEntity));
+        assertEquals(index.findMatches(Predicates.instanceOf(TestEntity.class)).get(), ImmutableList.of(otherTestEntity));
+    }
+
+    @Test
+    public void testTellsListenersOnlyOfEntitiesWithTheirKey() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        assertTrue(index.addListener(Predicates.instanceOf(TestEntity.class), listener));
+        assertFalse(index.addListener(Predicates.alwaysTrue(), new RecordingListener()));
+        
+        TestEntity newTestEntity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        BasicEntity newBasicEntity = app.createAndManageChild(EntitySpec.create(BasicEntity.class));
+        index.add(newTestEntity);
+        index.add(newBasicEntity);
+        index.remove(newBasicEntity);
+        index.remove(newTestEntity);
+        assertEquals(listener.events, ImmutableList.of("added "+newTestEntity, "removed "+newTestEntity));
+        
+        assertTrue(index.removeListener(listener));
+        index.add(newTestEntity);
+        assertEquals(listener.events.size(), 2);
+    }
+
+    private static class RecordingListener implements CollectionChangeListener<Entity> {
+        final List<String> events = Lists.newCopyOnWriteArrayList();
+        
+        @Override public void onItemAdded(Entity item) {
+            events.add("added "+item);
+        }
+        @Override public void onItemRemoved(Entity item) {
+            events.add("removed "+item);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.net.URI;
+
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.util.core.http.BetterMockWebServer;
+import org.apache.brooklyn.util.http.HttpTool;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.http.auth.Credentials;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.pool.PoolStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.mockwebserver.MockResponse;
+
+public class HttpClientRegistryTest extends BrooklynAppUnitTestSupport {
+
+    private BetterMockWebServer server;
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        if (server != null) server.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSharesClientsWithSameSettings() throws Exception {
+        HttpClientRegistry registry = mgmt.getHttpClientRegistry();
+        Optional<Credentials> noCredentials = Optional.absent();
+        Optional<Credentials> credentials = Optional.<Credentials>of(new UsernamePasswordCredentials("user", "pass"));
+
+        HttpClient client = registry.getClient(URI.create("http://host1/path"), noCredentials, true, true, null, null);
+        // without credentials, the same client can be used for any host
+        assertSame(registry.getClient(URI.create("http://host2/other"), noCredentials, true, true, null, null), client);
+        assertNotSame(registry.getClient(URI.create("http://host1/path"), noCredentials, true, true, Duration.ONE_SECOND, null), client);
+
+        HttpClient clientWithCredentials = registry.getClient(URI.create("http://host1/path"), credentials, true, true, null, null);
+        assertNotSame(clientWithCredentials, client);
+        assertSame(registry.getClient(URI.create("http://host1/other"), credentials, true, true, null, null), clientWithCredentials);
+        assertNotSame(registry.getClient(URI.create("http://host2/path"), credentials, true, true, null, null), clientWithCredentials);
+    }
+
+    @Test
+    public void testKeepsMostRecentlyUsedClients() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(HttpClientRegistry.MAX_CLIENTS, 2);
+        ManagementContextInternal mgmt2 = LocalManagementContextForTests.newInstance(props);
+        try {
+            HttpClientRegistry registry = mgmt2.getHttpClientRegistry();
+            Optional<Credentials> noCredentials = Optional.absent();
+            URI uri = URI.create("http://host1/path");
+
+            HttpClient client1 = registry.getClient(uri, noCredentials, true, true, Duration.ONE_SECOND, null);
+            HttpClient client2 = registry.getClient(uri, noCredentials, true, true, Duration.TEN_SECONDS, null);
+            assertSame(registry.getClient(uri, noCredentials, true, true, Duration.ONE_SECOND, null), client1);
+            registry.getClient(uri, noCredentials, true, true, Duration.ONE_MINUTE, null);
+
+            // the least recently used was dropped
+            assertSame(registry.getClient(uri, noCredentials, true, true, Duration.ONE_SECOND, null), client1);
+            assertNotSame(registry.getClient(uri, noCredentials, true, true, Duration.TEN_SECONDS, null), client2);
+        } finally {
+            Entities.destroyAll(mgmt2);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testWaitsForPooledConnectionForAtMostConnectionTimeout() throws Exception {
+        HttpClientRegistry registry = mgmt.getHttpClientRegistry();
+        Optional<Credentials> noCredentials = Optional.absent();
+
+        HttpClient client = registry.getClient(URI.create("http://host1/path"), noCredentials, true, true, Duration.ONE_SECOND, null);
+        assertEquals(HttpClientParams.getConnectionManagerTimeout(client.getParams()), 1000L);
+
+        HttpClient clientWithDefaults = registry.getClient(URI.create("http://host1/path"), noCredentials, true, true, null, null);
+        assertEquals(HttpClientParams.getConnectionManagerTimeout(clientWithDefaults.getParams()), 
+                HttpClientRegistry.CONNECTION_REQUEST_TIMEOUT.getDefaultValue().toMilliseconds());
+    }
+
+    @Test
+    public void testKeepsConnectionsInPool() throws Exception {
+        server = BetterMockWebServer.newInstanceLocalhost();
+        for (int i = 0; i < 2; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("hello"));
+        }
+        server.play();
+        URI uri = server.getUrl("/").toURI();
+
+        HttpClient client = mgmt.getHttpClientRegistry().getClient(uri, Optional.<Credentials>absent(), true, true, null, null);
+        assertEquals(HttpTool.httpGet(client, uri, ImmutableMap.<String,String>of()).getResponseCode(), 200);
+        assertEquals(mgmt.getHttpClientRegistry().getTotalStats().getLeased(), 0);
+        assertEquals(mgmt.getHttpClientRegistry().getTotalStats().getAvailable(), 1);
+
+        // second request re-uses the same connection
+        assertEquals(HttpTool.httpGet(client, uri, ImmutableMap.<String,String>of()).getResponseCode(), 200);
+        assertEquals(mgmt.getHttpClientRegistry().getTotalStats().getAvailable(), 1);
+        assertEquals(server.takeRequest().getSequenceNumber(), 0);
+        assertEquals(server.takeRequest().getSequenceNumber(), 1);
+    }
+
+    @Test
+    public void testClosesIdleConnections() throws Exception {
+        server = BetterMockWebServer.newInstanceLocalhost();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("hello"));
+        server.play();
+        URI uri = server.getUrl("/").toURI();
+
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(HttpClientRegistry.IDLE_CONNECTION_TIMEOUT, Duration.millis(100));
+        ManagementContextInternal mgmt2 = LocalManagementContextForTests.newInstance(props);
+        try {
+            final HttpClientRegistry registry = mgmt2.getHttpClientRegistry();
+            HttpClient client = registry.getClient(uri, Optional.<Credentials>absent(), true, true, null, null);
+            assertEquals(HttpTool.httpGet(client, uri, ImmutableMap.<String,String>of()).getResponseCode(), 200);
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    PoolStats stats = registry.getTotalStats();
+                    assertEquals(stats.getAvailable(), 0, "stats="+stats);
+                }});
+        } finally {
+            Entities.destroyAll(mgmt2);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs the {@link LocalSubscriptionManagerTest} tests with {@link LocalSubscriptionManager#BATCHED_DELIVERY} enabled.
+ */
+public class LocalSubscriptionManagerBatchedDeliveryTest extends LocalSubscriptionManagerTest {
+
+    private static final int TIMEOUT_MS = 5000;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(LocalSubscriptionManager.BATCHED_DELIVERY, true);
+        mgmt = LocalManagementContextForTests.newInstance(props);
+        super.setUp();
+    }
+
+    @Test
+    public void testBatchedDeliveryEnabled() throws Exception {
+        assertTrue(((LocalSubscriptionManager)mgmt.getSubscriptionManager()).isBatchedDelivery());
+    }
+
+    @Test
+    public void testEventsDeliveredInOrderWithoutTasks() throws Exception {
+        final int numEvents = 1000;
+        final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+        final List<Task<?>> tasksSeen = new CopyOnWriteArrayList<Task<?>>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        mgmt.getSubscriptionManager().subscribe(MutableMap.<String, Object>of("subscriber", "mySubscriber"), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                if (Tasks.current()!=null) tasksSeen.add(Tasks.current());
+                received.add(event.getValue());
+                if (received.size() >= numEvents) latch.countDown();
+            }});
+        for (int i = 0; i < numEvents; i++) {
+            entity.sensors().set(TestEntity.SEQUENCE, i);
+        }
+
+        if (!latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for events; received "+received.size());
+        }
+        for (int i = 0; i < numEvents; i++) {
+            assertEquals(received.get(i), (Integer)i);
+        }
+        assertTrue(tasksSeen.isEmpty(), "tasks="+tasksSeen);
+    }
+
+    @Test
+    public void testInitialValueDeliveredBeforeLaterEvents() throws Exception {
+        final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        mgmt.getSubscriptionManager().subscribe(MutableMap.<String, Object>of("subscriber", "mySubscriber", "notifyOfInitialValue", true),
+                entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        received.add(event.getValue());
+                        latch.countDown();
+                    }});
+        entity.sensors().set(TestEntity.SEQUENCE, 2);
+
+        if (!latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for events; received "+received);
+        }
+        // initial value is read at delivery time, so may already reflect the later value
+        assertEquals(received.size(), 2);
+        assertEquals(received.get(1), (Integer)2);
+    }
+
+    @Test
+    public void testResubscribeWhileEventsPendingUsesSameQueue() throws Exception {
+        final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final List<String> received = new CopyOnWriteArrayList<String>();
+        final CountDownLatch firstEventLatch = new CountDownLatch(1);
+        final CountDownLatch allEventsLatch = new CountDownLatch(6);
+
+        SubscriptionHandle handle = mgmt.getSubscriptionManager().subscribe(MutableMap.<String, Object>of("subscriber", "mySubscriber"), 
+                entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        try {
+                            firstEventLatch.await();
+                        } catch (InterruptedException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                        received.add("first-"+event.getValue());
+                        allEventsLatch.countDown();
+                    }});
+        for (int i = 1; i <= 3; i++) {
+            entity.sensors().set(TestEntity.SEQUENCE, i);
+        }
+        mgmt.getSubscriptionManager().unsubscribe(handle);
+        
+        mgmt.getSubscriptionManager().subscribe(MutableMap.<String, Object>of("subscriber", "mySubscriber"), 
+                entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        received.add("second-"+event.getValue());
+                        allEventsLatch.countDown();
+                    }});
+        for (int i = 4; i <= 6; i++) {
+            entity.sensors().set(TestEntity.SEQUENCE, i);
+        }
+        // a second queue for the subscriber would deliver these while the first listener is blocked
+        Time.sleep(Duration.millis(100));
+        firstEventLatch.countDown();
+
+        if (!allEventsLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for events; received "+received);
+        }
+        assertEquals(received, ImmutableList.of("first-1", "first-2", "first-3", "second-4", "second-5", "second-6"));
+    }
+
+    @Test
+    public void testNullExecutionManagerTagUsesSubscriberQueue() throws Exception {
+        final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        mgmt.getSubscriptionManager().subscribe(MutableMap.<String, Object>of("subscriber", "mySubscriber", "subscriberExecutionManagerTag", null), 
+                entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        received.add(event.getValue());
+                        latch.countDown();
+                    }});
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        entity.sensors().set(TestEntity.SEQUENCE, 2);
+
+        if (!latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for events; received "+received);
+        }
+        assertEquals(received, ImmutableList.of(1, 2));
+    }
+
+    @Test
+    public void testUnsubscribedQueueIsRetiredAndRejectsEvents() throws Exception {
+        final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+        SensorEventListener<Integer> listener = new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                received.add(event.getValue());
+            }};
+
+        Subscription<?> first = (Subscription<?>) mgmt.getSubscriptionManager().subscribe(MutableMap.<String, Object>of("subscriber", "mySubscriber"), 
+                entity, TestEntity.SEQUENCE, listener);
+        SubscriberEventQueue oldQueue = first.deliveryQueue;
+        mgmt.getSubscriptionManager().unsubscribe(first);
+        assertTrue(oldQueue.isRetired());
+
+        Subscription<?> second = (Subscription<?>) mgmt.getSubscriptionManager().subscribe(MutableMap.<String, Object>of("subscriber", "mySubscriber"), 
+                entity, TestEntity.SEQUENCE, listener);
+        assertNotSame(second.deliveryQueue, oldQueue);
+        assertFalse(second.deliveryQueue.isRetired());
+
+        // as a publisher which looked up the first subscription just before it was unsubscribed would do
+        assertFalse(oldQueue.add(first, null));
+        assertEquals(oldQueue.size(), 0);
+        assertFalse(oldQueue.isIdle(), "retired queue should never be drained");
+    }
+}
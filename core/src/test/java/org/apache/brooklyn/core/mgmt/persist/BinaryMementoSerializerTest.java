@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.xstream.XmlUtil;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Runs all the {@link XmlMementoSerializerTest} round-trips with the binary format, plus checks on reading and converting XML */
+public class BinaryMementoSerializerTest extends XmlMementoSerializerTest {
+
+    private XmlMementoSerializer<Object> xmlSerializer;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        serializer = new BinaryMementoSerializer<Object>(BinaryMementoSerializerTest.class.getClassLoader());
+        xmlSerializer = new XmlMementoSerializer<Object>(BinaryMementoSerializerTest.class.getClassLoader());
+    }
+
+    private Map<String, Object> newSampleObject() {
+        return MutableMap.<String, Object>of("a", "val", "b", 1, "c", MutableList.of("x", "y"), "d", MutableMap.of("e", true));
+    }
+
+    @Test
+    public void testWritesBinary() throws Exception {
+        String serializedForm = serializer.toString(newSampleObject());
+        assertTrue(BinaryMementoSerializer.isBinary(serializedForm), serializedForm);
+        assertFalse(BinaryMementoSerializer.isBinary(xmlSerializer.toString(newSampleObject())));
+    }
+
+    @Test
+    public void testReadsXml() throws Exception {
+        String xml = xmlSerializer.toString(newSampleObject());
+        assertEquals(serializer.fromString(xml), newSampleObject());
+    }
+
+    @Test
+    public void testXmlSerializerReadsBinary() throws Exception {
+        String binary = serializer.toString(newSampleObject());
+        assertEquals(xmlSerializer.fromString(binary), newSampleObject());
+    }
+
+    @Test
+    public void testConvertsBetweenFormats() throws Exception {
+        String xml = xmlSerializer.toString(newSampleObject());
+        String binary = BinaryMementoSerializer.asBinary(xml);
+        assertTrue(BinaryMementoSerializer.isBinary(binary), binary);
+        assertEquals(xmlSerializer.fromString(binary), newSampleObject());
+        
+        String xmlAgain = BinaryMementoSerializer.asXml(binary);
+        assertFalse(BinaryMementoSerializer.isBinary(xmlAgain), xmlAgain);
+        assertEquals(xmlSerializer.fromString(xmlAgain), newSampleObject());
+        
+        // unchanged if already in that format
+        assertEquals(BinaryMementoSerializer.asXml(xml), xml);
+        assertEquals(BinaryMementoSerializer.asBinary(binary), binary);
+    }
+
+    @Test
+    public void testBinaryToDocument() throws Exception {
+        String binary = serializer.toString(newSampleObject());
+        assertEquals(BinaryMementoSerializer.toDocument(binary).getDocumentElement().getNodeName(), 
+            XmlUtil.parse(xmlSerializer.toString(newSampleObject())).getDocumentElement().getNodeName());
+    }
+}
@@ -31,6 +31,8 @@ import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.rebind.PersistenceExceptionHandler;
 import org.apache.brooklyn.api.mgmt.rebind.RebindManager.RebindFailureMode;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMemento;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoManifest;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoManifest.EntityMementoManifest;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.policy.Policy;
@@ -144,6 +146,26 @@ public abstract class BrooklynMementoPersisterTestFixture {
         assertEquals(Iterables.getOnlyElement(reloadedMemento.getLocationIds()), location.getId());
     }
     
+    @Test
+    public void testLoadMementoManifestFromRawMemento() throws Exception {
+        if (persister instanceof BrooklynMementoPersisterToObjectStore) {
+            BrooklynMementoRawData rawMemento = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+            RecordingRebindExceptionHandler failFast = new RecordingRebindExceptionHandler(RebindFailureMode.FAIL_FAST, RebindFailureMode.FAIL_FAST);
+            BrooklynMementoManifest manifest = persister.loadMementoManifest(rawMemento, failFast);
+            
+            EntityMementoManifest entityManifest = manifest.getEntityIdToManifest().get(entity.getId());
+            assertNotNull(entityManifest);
+            assertEquals(entityManifest.getId(), entity.getId());
+            assertEquals(entityManifest.getParent(), app.getId());
+            assertNotNull(entityManifest.getType());
+            assertEquals(manifest.getEntityIdToManifest().get(app.getId()).getParent(), null);
+            assertEquals(manifest.getLocationIdToType().get(location.getId()), SshMachineLocation.class.getName());
+            assertEquals(manifest.getPolicyIdToType().get(policy.getId()), TestPolicy.class.getName());
+        } else {
+            throw new SkipException("Persister "+persister+" not a "+BrooklynMementoPersisterToObjectStore.class.getSimpleName());
+        }
+    }
+    
     @Test
     public void testLoadAndCheckpointRawMemento() throws Exception {
         if (persister instanceof BrooklynMementoPersisterToObjectStore) {
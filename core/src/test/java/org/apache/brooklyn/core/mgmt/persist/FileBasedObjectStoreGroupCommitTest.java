@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.WriteBatch;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class FileBasedObjectStoreGroupCommitTest {
+
+    private LocalManagementContextForTests mgmt;
+    private File parentdir;
+    private File basedir;
+    private FileBasedObjectStore store;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        properties.put(FileBasedObjectStore.GROUP_COMMIT, true);
+        // compacted explicitly by the tests
+        properties.put(FileBasedObjectStore.GROUP_COMMIT_COMPACTION_PERIOD, Duration.ONE_HOUR);
+        mgmt = new LocalManagementContextForTests(properties);
+        parentdir = Files.createTempDir();
+        basedir = new File(parentdir, "mystore");
+        store = newStore();
+        store.createSubPath("entities");
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (store != null) store.close();
+        if (parentdir != null) Os.deleteRecursively(parentdir);
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+
+    private FileBasedObjectStore newStore() {
+        FileBasedObjectStore result = new FileBasedObjectStore(basedir);
+        result.injectManagementContext(mgmt);
+        result.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        return result;
+    }
+
+    private File file(String path) {
+        return new File(basedir, path);
+    }
+
+    @Test
+    public void testCommittedBatchVisibleBeforeCompaction() throws Exception {
+        store.newAccessor("entities/b").put("oldb");
+
+        WriteBatch batch = store.newWriteBatch();
+        assertNotNull(batch);
+        batch.put("entities/a", "vala");
+        batch.delete("entities/b");
+        assertNull(store.newAccessor("entities/a").get());
+
+        batch.commit();
+
+        assertEquals(store.newAccessor("entities/a").get(), "vala");
+        assertTrue(store.newAccessor("entities/a").exists());
+        assertNull(store.newAccessor("entities/b").get());
+        assertFalse(store.newAccessor("entities/b").exists());
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a"));
+
+        // not yet written to the individual files
+        assertFalse(file("entities/a").exists());
+        assertTrue(file("entities/b").exists());
+    }
+
+    @Test
+    public void testCompactionWritesLatestContentsToFiles() throws Exception {
+        store.newAccessor("entities/b").put("oldb");
+
+        WriteBatch batch1 = store.newWriteBatch();
+        batch1.put("entities/a", "vala1");
+        batch1.append("entities/b", "-appended");
+        batch1.commit();
+        WriteBatch batch2 = store.newWriteBatch();
+        batch2.put("entities/a", "vala2");
+        batch2.commit();
+
+        assertEquals(store.newAccessor("entities/b").get(), "oldb-appended");
+
+        store.compact();
+
+        assertEquals(Files.toString(file("entities/a"), Charsets.UTF_8), "vala2");
+        assertEquals(Files.toString(file("entities/b"), Charsets.UTF_8), "oldb-appended");
+        assertEquals(new File(basedir, FileBasedObjectStoreJournal.JOURNAL_SUBPATH).list().length, 0);
+    }
+
+    @Test
+    public void testReplaysJournalWhenReopened() throws Exception {
+        WriteBatch batch = store.newWriteBatch();
+        batch.put("entities/a", "vala");
+        batch.commit();
+        assertFalse(file("entities/a").exists());
+
+        // simulate the process stopping without compacting (i.e. without calling close)
+        store = newStore();
+
+        assertEquals(Files.toString(file("entities/a"), Charsets.UTF_8), "vala");
+        assertEquals(store.newAccessor("entities/a").get(), "vala");
+    }
+
+    @Test
+    public void testIgnoresIncompleteBatchOnReplay() throws Exception {
+        WriteBatch batch = store.newWriteBatch();
+        batch.put("entities/a", "vala");
+        batch.commit();
+
+        // simulate stopping part way through writing a batch
+        File segment = new File(basedir, FileBasedObjectStoreJournal.JOURNAL_SUBPATH).listFiles()[0];
+        Files.append("P 4 entities/b\nva", segment, Charsets.UTF_8);
+
+        store = newStore();
+
+        assertEquals(store.newAccessor("entities/a").get(), "vala");
+        assertFalse(file("entities/b").exists());
+    }
+
+    @Test
+    public void testDirectWriteSupersedesCommittedBatch() throws Exception {
+        WriteBatch batch = store.newWriteBatch();
+        batch.put("entities/a", "vala");
+        batch.commit();
+
+        store.newAccessor("entities/a").append("-appended");
+        assertEquals(store.newAccessor("entities/a").get(), "vala-appended");
+
+        store.compact();
+        assertEquals(Files.toString(file("entities/a"), Charsets.UTF_8), "vala-appended");
+
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "vala-appended");
+    }
+
+    @Test
+    public void testStandbyReadsCommittedBatchWithoutReplaying() throws Exception {
+        WriteBatch batch = store.newWriteBatch();
+        batch.put("entities/a", "vala");
+        batch.commit();
+
+        FileBasedObjectStore standby = new FileBasedObjectStore(basedir);
+        try {
+            standby.injectManagementContext(mgmt);
+            standby.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.HOT_STANDBY);
+
+            assertEquals(standby.listContentsWithSubPath("entities"), ImmutableList.of("entities/a"));
+            assertEquals(standby.newAccessor("entities/a").get(), "vala");
+            assertFalse(file("entities/a").exists());
+
+            standby.prepareForMasterUse();
+            assertEquals(Files.toString(file("entities/a"), Charsets.UTF_8), "vala");
+        } finally {
+            standby.close();
+        }
+    }
+
+    @Test
+    public void testAppendsJournalledAsAppendedTextAndReplayed() throws Exception {
+        store.newAccessor("entities/a").put("base");
+        for (int i = 0; i < 3; i++) {
+            WriteBatch batch = store.newWriteBatch();
+            batch.append("entities/a", "-"+i);
+            batch.commit();
+        }
+        assertEquals(store.newAccessor("entities/a").get(), "base-0-1-2");
+
+        // the first append puts the whole contents in the segment; later appends record just the appended text
+        File segment = new File(basedir, FileBasedObjectStoreJournal.JOURNAL_SUBPATH).listFiles()[0];
+        String journal = Files.toString(segment, Charsets.UTF_8);
+        assertTrue(journal.contains("P 6 entities/a\nbase-0\n"), journal);
+        assertTrue(journal.contains("A 2 entities/a\n-1\n"), journal);
+        assertTrue(journal.contains("A 2 entities/a\n-2\n"), journal);
+
+        // simulate the process stopping without compacting
+        store = newStore();
+        assertEquals(Files.toString(file("entities/a"), Charsets.UTF_8), "base-0-1-2");
+    }
+
+    @Test
+    public void testAppendAfterCompactionJournalsWholeContents() throws Exception {
+        WriteBatch batch1 = store.newWriteBatch();
+        batch1.put("entities/a", "vala");
+        batch1.commit();
+        store.compact();
+
+        WriteBatch batch2 = store.newWriteBatch();
+        batch2.append("entities/a", "-appended");
+        batch2.commit();
+
+        File segment = new File(basedir, FileBasedObjectStoreJournal.JOURNAL_SUBPATH).listFiles()[0];
+        assertEquals(Files.toString(segment, Charsets.UTF_8), "P 13 entities/a\nvala-appended\nC 1\n");
+
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "vala-appended");
+    }
+
+    @Test
+    public void testStandbySeesLaterAppends() throws Exception {
+        WriteBatch batch1 = store.newWriteBatch();
+        batch1.put("entities/a", "vala");
+        batch1.commit();
+
+        FileBasedObjectStore standby = new FileBasedObjectStore(basedir);
+        try {
+            standby.injectManagementContext(mgmt);
+            standby.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.HOT_STANDBY);
+            assertEquals(standby.listContentsWithSubPath("entities"), ImmutableList.of("entities/a"));
+            assertEquals(standby.newAccessor("entities/a").get(), "vala");
+
+            WriteBatch batch2 = store.newWriteBatch();
+            batch2.append("entities/a", "-appended");
+            batch2.put("entities/b", "valb");
+            batch2.commit();
+
+            assertEquals(ImmutableSet.copyOf(standby.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/b"));
+            assertEquals(standby.newAccessor("entities/a").get(), "vala-appended");
+        } finally {
+            standby.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.entity.TestEntityNoEnrichersImpl;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Files;
+import com.google.common.reflect.TypeToken;
+
+public class RebindEntityDeltaRecordsTest extends RebindTestFixtureWithApp {
+
+    private static final int COMPACT_AFTER = 3;
+
+    @SuppressWarnings("serial")
+    private static final AttributeSensor<List<String>> LIST = Sensors.newSensor(new TypeToken<List<String>>() {}, "test.list", "Test list");
+
+    @SuppressWarnings("serial")
+    private static final AttributeSensor<List<String>> OTHER_LIST = Sensors.newSensor(new TypeToken<List<String>>() {}, "test.otherList", "Test list");
+
+    private BrooklynProperties newProperties() {
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        properties.put(BrooklynMementoPersisterToObjectStore.PERSISTER_DELTA_RECORDS, true);
+        properties.put(BrooklynMementoPersisterToObjectStore.PERSISTER_DELTA_RECORDS_COMPACT_AFTER, COMPACT_AFTER);
+        return properties;
+    }
+
+    @Override
+    protected LocalManagementContext createOrigManagementContext() {
+        return RebindTestUtils.managementContextBuilder(mementoDir, classLoader)
+                .properties(newProperties())
+                .persistPeriodMillis(getPersistPeriodMillis())
+                .forLive(useLiveManagementContext())
+                .emptyCatalog(useEmptyCatalog())
+                .buildStarted();
+    }
+
+    @Override
+    protected LocalManagementContext createNewManagementContext(File mementoDir) {
+        if (mementoDir==null) mementoDir = this.mementoDir;
+        return RebindTestUtils.managementContextBuilder(mementoDir, classLoader)
+                .properties(newProperties())
+                .forLive(useLiveManagementContext())
+                .emptyCatalog(useEmptyCatalog())
+                .buildUnstarted();
+    }
+
+    private BrooklynMementoPersisterToObjectStore persister() {
+        return (BrooklynMementoPersisterToObjectStore) origManagementContext.getRebindManager().getPersister();
+    }
+
+    private File deltaFile(TestEntity entity) {
+        return new File(new File(mementoDir, BrooklynMementoPersisterToObjectStore.ENTITY_DELTAS_SUBPATH), entity.getId());
+    }
+
+    @Test
+    public void testChangedValuesAppendedAsDeltaRecords() throws Exception {
+        // config must already be set, as setting a new config key rewrites the memento in full
+        TestEntity origE = origApp.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityNoEnrichersImpl.class)
+                .configure(TestEntity.CONF_NAME, "initialconf"));
+        origE.sensors().set(TestEntity.NAME, "a");
+        origE.sensors().set(TestEntity.SEQUENCE, 1);
+        RebindTestUtils.waitForPersisted(origApp);
+        String fullMemento = Files.toString(new File(new File(mementoDir, "entities"), origE.getId()), Charsets.UTF_8);
+        long numDeltaRecords = persister().getNumEntityDeltaRecords();
+
+        origE.sensors().set(TestEntity.NAME, "b");
+        origE.config().set(TestEntity.CONF_NAME, "myconf");
+        RebindTestUtils.waitForPersisted(origApp);
+
+        assertTrue(persister().getNumEntityDeltaRecords() > numDeltaRecords);
+        assertEquals(Files.toString(new File(new File(mementoDir, "entities"), origE.getId()), Charsets.UTF_8), fullMemento);
+        String deltaContents = Files.toString(deltaFile(origE), Charsets.UTF_8);
+        assertTrue(deltaContents.contains("myconf"), deltaContents);
+        assertFalse(deltaContents.contains(TestEntity.SEQUENCE.getName()), deltaContents);
+
+        newApp = rebind();
+        TestEntity newE = (TestEntity) Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
+        assertEquals(newE.getAttribute(TestEntity.NAME), "b");
+        assertEquals(newE.getAttribute(TestEntity.SEQUENCE), (Integer)1);
+        assertEquals(newE.getConfig(TestEntity.CONF_NAME), "myconf");
+    }
+
+    @Test
+    public void testValuesModifiedInPlaceAreDetected() throws Exception {
+        TestEntity origE = origApp.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityNoEnrichersImpl.class));
+        List<String> list = MutableList.of("a");
+        origE.sensors().set(LIST, list);
+        RebindTestUtils.waitForPersisted(origApp);
+
+        list.add("b");
+        origE.sensors().set(LIST, list);
+        RebindTestUtils.waitForPersisted(origApp);
+
+        newApp = rebind();
+        TestEntity newE = (TestEntity) Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
+        assertEquals(newE.getAttribute(LIST), MutableList.of("a", "b"));
+    }
+
+    @Test
+    public void testNewAttributeWritesInFull() throws Exception {
+        TestEntity origE = origApp.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityNoEnrichersImpl.class));
+        origE.sensors().set(TestEntity.NAME, "a");
+        RebindTestUtils.waitForPersisted(origApp);
+        origE.sensors().set(TestEntity.NAME, "b");
+        RebindTestUtils.waitForPersisted(origApp);
+        assertTrue(deltaFile(origE).exists());
+
+        origE.sensors().set(Sensors.newStringSensor("myNewSensor"), "myval");
+        RebindTestUtils.waitForPersisted(origApp);
+        assertFalse(deltaFile(origE).exists());
+
+        newApp = rebind();
+        TestEntity newE = (TestEntity) Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
+        assertEquals(newE.getAttribute(TestEntity.NAME), "b");
+        assertEquals(newE.getAttribute(Sensors.newStringSensor("myNewSensor")), "myval");
+    }
+
+    @Test
+    public void testCompactsAfterConfiguredNumberOfRecords() throws Exception {
+        TestEntity origE = origApp.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityNoEnrichersImpl.class));
+        origE.sensors().set(TestEntity.SEQUENCE, 0);
+        RebindTestUtils.waitForPersisted(origApp);
+
+        for (int i = 1; i <= COMPACT_AFTER; i++) {
+            origE.sensors().set(TestEntity.SEQUENCE, i);
+            RebindTestUtils.waitForPersisted(origApp);
+            assertTrue(deltaFile(origE).exists(), "i="+i);
+        }
+        origE.sensors().set(TestEntity.SEQUENCE, COMPACT_AFTER+1);
+        RebindTestUtils.waitForPersisted(origApp);
+        assertFalse(deltaFile(origE).exists());
+
+        newApp = rebind();
+        TestEntity newE = (TestEntity) Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
+        assertEquals(newE.getAttribute(TestEntity.SEQUENCE), (Integer)(COMPACT_AFTER+1));
+    }
+
+    @Test
+    public void testRawDataIncludesDeltaRecords() throws Exception {
+        TestEntity origE = origApp.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityNoEnrichersImpl.class)
+                .configure(TestEntity.CONF_NAME, "initialconf"));
+        origE.sensors().set(TestEntity.NAME, "initialname");
+        RebindTestUtils.waitForPersisted(origApp);
+        origE.sensors().set(TestEntity.NAME, "myname");
+        origE.config().set(TestEntity.CONF_NAME, "myconf");
+        RebindTestUtils.waitForPersisted(origApp);
+        assertTrue(deltaFile(origE).exists());
+
+        // e.g. as used for backups, and to copy state to another store
+        BrooklynMementoRawData rawData = persister().loadMementoRawData(RebindExceptionHandlerImpl.builder().build());
+        String contents = rawData.getEntities().get(origE.getId());
+        assertTrue(contents.contains("myname"), contents);
+        assertTrue(contents.contains("myconf"), contents);
+        assertFalse(contents.contains("initialname"), contents);
+        assertFalse(contents.contains("initialconf"), contents);
+    }
+
+    /** Values shared by several attributes are written once, then referred to by a path, which folding must not break. */
+    @Test
+    public void testSharedValuesAreKeptWhenDeltaRecordsAreFolded() throws Exception {
+        TestEntity origE = origApp.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityNoEnrichersImpl.class));
+        List<String> shared = MutableList.of("a");
+        origE.sensors().set(LIST, shared);
+        origE.sensors().set(OTHER_LIST, shared);
+        RebindTestUtils.waitForPersisted(origApp);
+        origE.sensors().set(LIST, MutableList.of("b"));
+        RebindTestUtils.waitForPersisted(origApp);
+        assertTrue(deltaFile(origE).exists());
+
+        newApp = rebind();
+        TestEntity newE = (TestEntity) Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
+        assertEquals(newE.getAttribute(LIST), MutableList.of("b"));
+        assertEquals(newE.getAttribute(OTHER_LIST), MutableList.of("a"));
+    }
+}
@@ -19,7 +19,9 @@
 package org.apache.brooklyn.core.mgmt.rebind;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -32,6 +34,7 @@ import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 public class RebindManagerTest extends RebindTestFixtureWithApp {
@@ -44,6 +47,22 @@ public class RebindManagerTest extends RebindTestFixtureWithApp {
         Entity newEntity = Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
         assertEquals(newEntity.getAttribute(TestEntity.NAME), "abc");
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRebindRecordsPhaseMetrics() throws Exception {
+        origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        
+        newApp = rebind();
+        Map<String, Object> rebindMetrics = (Map<String, Object>) newManagementContext.getRebindManager().getMetrics().get("rebind");
+        Map<String, Map<String, Object>> phases = (Map<String, Map<String, Object>>) rebindMetrics.get("phases");
+        assertTrue(phases.keySet().containsAll(ImmutableList.of("loadManifests", "instantiateMementos", "manage")), "phases="+phases);
+        assertTrue((Integer) phases.get("manage").get("lastItemCount") >= 2, "phases="+phases);
+        // each phase counts only the items it handles: here the two entities
+        assertEquals(phases.get("associateAdjuncts").get("lastItemCount"), 2, "phases="+phases);
+        assertTrue((Integer) phases.get("rebuildCatalog").get("lastItemCount") < (Integer) phases.get("loadManifests").get("lastItemCount"), "phases="+phases);
+    }
+
     public static class TestEntityWithTaskInRebind extends TestEntityImpl {
         @Override
         public void rebind() {
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.AbstractEntity;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.sensor.AttributeMap;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the {@link AttributeMap} with a synchronized map for storage (where modify locks the whole map)
+ * and with its default concurrent storage (where modify is lock-free), with many threads concurrently
+ * updating, getting and modifying attributes of one entity, as when it has several feeds and enrichers.
+ * No-one is subscribed to the attributes, so this mostly measures the map itself.
+ */
+public class AttributeMapPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_THREADS = 16;
+    private static final int NUM_OPS_PER_THREAD_PER_ITERATION = 1000;
+    private static final int NUM_ITERATIONS = 100;
+    private static final int NUM_SENSORS = 20;
+
+    private AbstractEntity entityImpl;
+    private List<AttributeSensor<Integer>> sensors;
+    private ExecutorService executor;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        entityImpl = (AbstractEntity) Entities.deproxy(entity);
+        sensors = Lists.newArrayList();
+        for (int i = 0; i < NUM_SENSORS; i++) {
+            sensors.add(Sensors.newIntegerSensor("attributeMapPerformanceTest.sensor"+i, ""));
+        }
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        super.tearDown();
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSynchronizedStorage() {
+        runConcurrently("AttributeMapPerformanceTest.testSynchronizedStorage", 
+                new AttributeMap(entityImpl, Collections.synchronizedMap(MutableMap.<Collection<String>,Object>of())));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testConcurrentStorage() {
+        runConcurrently("AttributeMapPerformanceTest.testConcurrentStorage", new AttributeMap(entityImpl));
+    }
+
+    /**
+     * Each thread repeatedly gets the value of each sensor, and either updates or increments it.
+     */
+    private void runConcurrently(String summary, final AttributeMap map) {
+        double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+        final Function<Integer, Maybe<Integer>> incrementer = new Function<Integer, Maybe<Integer>>() {
+            @Override public Maybe<Integer> apply(Integer input) {
+                return Maybe.of((input == null) ? 1 : input + 1);
+            }
+        };
+
+        final List<Callable<Void>> jobs = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final int threadIndex = i;
+            jobs.add(new Callable<Void>() {
+                public Void call() {
+                    for (int j = 0; j < NUM_OPS_PER_THREAD_PER_ITERATION; j++) {
+                        AttributeSensor<Integer> sensor = sensors.get((threadIndex + j) % NUM_SENSORS);
+                        map.getValue(sensor);
+                        if (j % 2 == 0) {
+                            map.update(sensor, j);
+                        } else {
+                            map.modify(sensor, incrementer);
+                        }
+                    }
+                    return null;
+                }});
+        }
+
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            executor.invokeAll(jobs);
+                        } catch (InterruptedException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }}));
+    }
+}
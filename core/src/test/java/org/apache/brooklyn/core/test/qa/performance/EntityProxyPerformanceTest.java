@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Compares reading sensors and config through an entity's proxy with calling the entity directly,
+ * as enrichers and policies do very often.
+ */
+public class EntityProxyPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_ITERATIONS = 100000;
+
+    private TestEntity entity;
+    private TestEntity entityImpl;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        entityImpl = (TestEntity) Entities.deproxy(entity);
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttributeThroughProxy() {
+        measureGetAttribute("EntityProxyPerformanceTest.testGetAttributeThroughProxy", entity);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttributeDirectly() {
+        measureGetAttribute("EntityProxyPerformanceTest.testGetAttributeDirectly", entityImpl);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetConfigThroughProxy() {
+        measureGetConfig("EntityProxyPerformanceTest.testGetConfigThroughProxy", entity);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetConfigDirectly() {
+        measureGetConfig("EntityProxyPerformanceTest.testGetConfigDirectly", entityImpl);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testNonEffectorMethodThroughProxy() {
+        // a method of TestEntity's own interface, so the proxy checks whether it is an effector
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityProxyPerformanceTest.testNonEffectorMethodThroughProxy")
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(10000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    public void run() {
+                        entity.getSequenceValue();
+                    }}));
+    }
+
+    private void measureGetAttribute(String summary, final TestEntity target) {
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(10000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    public void run() {
+                        target.getAttribute(TestEntity.SEQUENCE);
+                    }}));
+    }
+
+    private void measureGetConfig(String summary, final TestEntity target) {
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(10000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    public void run() {
+                        target.getConfig(TestEntity.CONF_NAME);
+                    }}));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.factory.ApplicationBuilder;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.location.SimulatedLocation;
+import org.apache.brooklyn.core.mgmt.internal.HttpClientRegistry;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.feed.http.HttpFeed;
+import org.apache.brooklyn.feed.http.HttpPollConfig;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.http.HttpToolResponse;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Stopwatch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs ~10k concurrent polls by non-blocking {@link HttpFeed}s against a local stub HTTP server,
+ * measuring the rate at which rounds of polls complete and logging the peak number of threads,
+ * which should stay at a handful of I/O threads (plus the execution manager's threads for the handlers)
+ * rather than growing with the number of polls in flight.
+ */
+public class HttpFeedPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_ENTITIES = 100;
+    private static final int NUM_POLLS_PER_ENTITY = 100;
+    private static final int NUM_POLLS = NUM_ENTITIES * NUM_POLLS_PER_ENTITY;
+    private static final int NUM_ITERATIONS = 10;
+    private static final Duration POLL_PERIOD = Duration.millis(100);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private List<HttpFeed> feeds;
+    private final AtomicLong completedPolls = new AtomicLong();
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        for (int i = 0; i < 5; i++) System.gc();
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        // all polls are to the one stub server
+        properties.put(HttpClientRegistry.MAX_CONNECTIONS_PER_ROUTE, 200);
+        loc = new SimulatedLocation();
+        app = ApplicationBuilder.newManagedApp(EntitySpec.create(TestApplication.class), new LocalManagementContextForTests(properties));
+        mgmt = app.getManagementContext();
+        feeds = MutableList.of();
+
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", new HttpHandler() {
+            @Override public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = "ok".getBytes();
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:"+server.getAddress().getPort()+"/";
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        for (HttpFeed feed : feeds) {
+            feed.stop();
+        }
+        super.tearDown();
+        if (server != null) server.stop(0);
+        if (serverExecutor != null) serverExecutor.shutdownNow();
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testAsyncPolls() throws Exception {
+        double minRatePerSec = 1 * PERFORMANCE_EXPECTATION; // i.e. 10k polls per sec
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        Function<HttpToolResponse, Integer> countingResponseCode = new Function<HttpToolResponse, Integer>() {
+            @Override public Integer apply(HttpToolResponse input) {
+                completedPolls.incrementAndGet();
+                return input.getResponseCode();
+            }
+        };
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            HttpFeed.Builder builder = HttpFeed.builder()
+                    .entity(entity)
+                    .baseUri(baseUrl)
+                    .async();
+            for (int j = 0; j < NUM_POLLS_PER_ENTITY; j++) {
+                AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("test.http.poll"+j);
+                builder.poll(HttpPollConfig.forSensor(sensor)
+                        .suburl("poll"+j+"?entity="+entity.getId())
+                        .period(POLL_PERIOD)
+                        .onSuccess(countingResponseCode));
+            }
+            feeds.add(builder.build());
+        }
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("HttpFeedPerformanceTest.testAsyncPolls ("+NUM_POLLS+" polls)")
+                .iterations(NUM_ITERATIONS)
+                .warmupIterations(1)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    // each iteration waits for a round of polls, i.e. as many completions as there are polls
+                    @Override public void run() {
+                        long target = completedPolls.get() + NUM_POLLS;
+                        Stopwatch stopwatch = Stopwatch.createStarted();
+                        while (completedPolls.get() < target) {
+                            if (stopwatch.elapsed(TimeUnit.MILLISECONDS) > TIMEOUT_MS * 6) {
+                                throw new IllegalStateException("Only "+completedPolls.get()+" of "+target+" polls completed");
+                            }
+                            Time.sleep(Duration.millis(10));
+                        }
+                    }}));
+
+        System.out.println("HttpFeedPerformanceTest.testAsyncPolls: threads before="+threadsBefore
+                +"; peak="+threads.getPeakThreadCount()+"; now="+threads.getThreadCount()
+                +"; http pools="+((ManagementContextInternal)mgmt).getHttpClientRegistry().getTotalStats());
+    }
+}
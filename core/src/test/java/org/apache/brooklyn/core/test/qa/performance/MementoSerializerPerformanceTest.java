@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.Memento;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.persist.BinaryMementoSerializer;
+import org.apache.brooklyn.core.mgmt.persist.MementoSerializer;
+import org.apache.brooklyn.core.mgmt.persist.XmlMementoSerializer;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Compares {@link BinaryMementoSerializer} with {@link XmlMementoSerializer}
+ * for the size, serialization rate and deserialization rate of an entity memento
+ * with a realistic number of config keys and sensors.
+ */
+public class MementoSerializerPerformanceTest extends AbstractPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoSerializerPerformanceTest.class);
+    
+    private static final int NUM_CONFIG = 50;
+    private static final int NUM_SENSORS = 200;
+    private static final int NUM_ITERATIONS = 1000;
+    
+    private Memento memento;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        EntitySpec<TestEntity> spec = EntitySpec.create(TestEntity.class);
+        for (int i = 0; i < NUM_CONFIG; i++) {
+            spec.configure(ConfigKeys.newStringConfigKey("test.config.key"+i), "config-value-"+i);
+        }
+        TestEntity entity = app.createAndManageChild(spec);
+        for (int i = 0; i < NUM_SENSORS; i++) {
+            switch (i % 4) {
+            case 0: entity.sensors().set(Sensors.newStringSensor("test.sensor.string"+i), "sensor-value-"+i); break;
+            case 1: entity.sensors().set(Sensors.newIntegerSensor("test.sensor.int"+i), i); break;
+            case 2: entity.sensors().set(Sensors.newSensor(Object.class, "test.sensor.list"+i), MutableList.of("a"+i, "b"+i, "c"+i)); break;
+            default: entity.sensors().set(Sensors.newSensor(Object.class, "test.sensor.map"+i), MutableMap.of("host", "10.0.0."+(i%256), "port", 8000+i)); break;
+            }
+        }
+        memento = ((EntityInternal)entity).getRebindSupport().getMemento();
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testXmlSerialize() {
+        runSerialize("MementoSerializerPerformanceTest.testXmlSerialize", new XmlMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testBinarySerialize() {
+        runSerialize("MementoSerializerPerformanceTest.testBinarySerialize", new BinaryMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testXmlDeserialize() {
+        runDeserialize("MementoSerializerPerformanceTest.testXmlDeserialize", new XmlMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testBinaryDeserialize() {
+        runDeserialize("MementoSerializerPerformanceTest.testBinaryDeserialize", new BinaryMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+
+    private void runSerialize(String summary, final MementoSerializer<Object> serializer) {
+        logSize(summary, serializer);
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(10 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        serializer.toString(memento);
+                    }}));
+    }
+
+    private void runDeserialize(String summary, final MementoSerializer<Object> serializer) {
+        final String serializedForm = logSize(summary, serializer);
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(10 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        serializer.fromString(serializedForm);
+                    }}));
+    }
+
+    private String logSize(String summary, MementoSerializer<Object> serializer) {
+        String result = serializer.toString(memento);
+        LOG.info(summary+": serialized memento is "+result.length()+" chars");
+        return result;
+    }
+}
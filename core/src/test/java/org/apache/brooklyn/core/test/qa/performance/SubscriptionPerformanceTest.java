@@ -19,7 +19,10 @@
 package org.apache.brooklyn.core.test.qa.performance;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -30,6 +33,8 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -43,10 +48,12 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
     TestEntity entity;
     List<TestEntity> entities;
     SubscriptionManager subscriptionManager;
+    ExecutorService executor;
     
     @BeforeMethod(alwaysRun=true)
     public void setUp() throws Exception {
         super.setUp();
+        executor = Executors.newCachedThreadPool();
         
         entities = Lists.newArrayList();
         for (int i = 0; i < 10; i++) {
@@ -58,6 +65,13 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
         subscriptionManager = app.getManagementContext().getSubscriptionManager();
     }
     
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        super.tearDown();
+    }
+    
     @Test(groups={"Integration", "Acceptance"})
     public void testManyPublishedOneSubscriber() throws Exception {
         int numSubscribers = 1;
@@ -152,4 +166,57 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
             throw exception.get();
         }
     }
+    
+    /**
+     * Publishes from many threads at once, to different entities, to measure contention 
+     * when looking up subscriptions (which previously synchronized on the subscription manager).
+     */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testManyConcurrentPublishers() throws Exception {
+        final int numPublishers = 32;
+        final int numEventsPerPublisherPerIteration = 100;
+        int numIterations = NUM_ITERATIONS / numEventsPerPublisherPerIteration;
+        double minRatePerSec = 10 * PERFORMANCE_EXPECTATION; // i.e. 10*32*100 events published per sec
+        // each event goes to the subscriber for that entity, and to the wildcard-producer subscriber
+        final int expectedCount = numIterations*numPublishers*numEventsPerPublisherPerIteration*2;
+        
+        final AtomicInteger listenerCount = new AtomicInteger();
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        SensorEventListener<Integer> listener = new SensorEventListener<Integer>() {
+            public void onEvent(SensorEvent<Integer> event) {
+                int count = listenerCount.incrementAndGet();
+                if (count >= expectedCount) completionLatch.countDown();
+            }};
+        
+        for (int i = 0; i < entities.size(); i++) {
+            subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", i), entities.get(i), TestEntity.SEQUENCE, listener);
+        }
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", "wildcard"), null, TestEntity.SEQUENCE, listener);
+        
+        final List<Callable<Void>> publishers = Lists.newArrayList();
+        for (int i = 0; i < numPublishers; i++) {
+            final TestEntity publishingEntity = entities.get(i % entities.size());
+            publishers.add(new Callable<Void>() {
+                public Void call() {
+                    for (int j = 0; j < numEventsPerPublisherPerIteration; j++) {
+                        publishingEntity.sensors().set(TestEntity.SEQUENCE, j);
+                    }
+                    return null;
+                }});
+        }
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("SubscriptionPerformanceTest.testManyConcurrentPublishers")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            executor.invokeAll(publishers);
+                        } catch (InterruptedException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }})
+                .completionLatch(completionLatch));
+    }
 }
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.core.task.BasicTask;
+import org.apache.brooklyn.util.core.task.TaskTagIndex;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Compares {@link TaskTagIndex} with the globally synchronized map of tags to tasks which
+ * {@link org.apache.brooklyn.util.core.task.BasicExecutionManager} used previously,
+ * with many threads adding, querying and removing tasks concurrently.
+ */
+public class TaskTagIndexPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_THREADS = 16;
+    private static final int NUM_OPS_PER_THREAD_PER_ITERATION = 1000;
+    private static final int NUM_ITERATIONS = 100;
+    private static final int NUM_ENTITY_TAGS = 10;
+    private static final String TRANSIENT_TAG = "TRANSIENT";
+
+    /** operations common to both implementations */
+    private interface Index {
+        void add(Object tag, Task<?> task);
+        void remove(Object tag, Task<?> task);
+        Set<Task<?>> getWithAll(Iterable<?> tags);
+    }
+
+    /** the implementation previously used by BasicExecutionManager */
+    private static class SynchronizedIndex implements Index {
+        private final Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
+
+        @Override public void add(Object tag, Task<?> task) {
+            synchronized (tasksByTag) {
+                Set<Task<?>> result = tasksByTag.get(tag);
+                if (result==null) {
+                    result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
+                    tasksByTag.put(tag, result);
+                }
+                result.add(task);
+            }
+        }
+        @Override public void remove(Object tag, Task<?> task) {
+            synchronized (tasksByTag) {
+                Set<Task<?>> tasks = tasksByTag.get(tag);
+                if (tasks != null) {
+                    tasks.remove(task);
+                    if (tasks.isEmpty()) tasksByTag.remove(tag);
+                }
+            }
+        }
+        @Override public Set<Task<?>> getWithAll(Iterable<?> tags) {
+            Set<Task<?>> result = new LinkedHashSet<Task<?>>();
+            boolean first = true;
+            for (Object tag : tags) {
+                Set<Task<?>> tasks;
+                synchronized (tasksByTag) {
+                    tasks = tasksByTag.get(tag);
+                }
+                Set<Task<?>> copy = new LinkedHashSet<Task<?>>();
+                if (tasks != null) {
+                    synchronized (tasks) {
+                        copy.addAll(tasks);
+                    }
+                }
+                if (first) {
+                    first = false;
+                    result.addAll(copy);
+                } else {
+                    result.retainAll(copy);
+                }
+            }
+            return Collections.unmodifiableSet(result);
+        }
+    }
+
+    private static class ConcurrentIndex implements Index {
+        private final TaskTagIndex delegate = new TaskTagIndex();
+
+        @Override public void add(Object tag, Task<?> task) {
+            delegate.add(tag, task);
+        }
+        @Override public void remove(Object tag, Task<?> task) {
+            delegate.remove(tag, task);
+        }
+        @Override public Set<Task<?>> getWithAll(Iterable<?> tags) {
+            // copied, as by BasicExecutionManager.getTasksWithAllTags
+            return ImmutableSet.copyOf(delegate.getWithAll(tags));
+        }
+    }
+
+    private ExecutorService executor;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        super.tearDown();
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSynchronizedIndex() {
+        runConcurrently("TaskTagIndexPerformanceTest.testSynchronizedIndex", new SynchronizedIndex());
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testTaskTagIndex() {
+        runConcurrently("TaskTagIndexPerformanceTest.testTaskTagIndex", new ConcurrentIndex());
+    }
+
+    /**
+     * Each thread repeatedly submits (adds) a task with an entity tag and the transient tag,
+     * queries the tasks for that entity, and deletes (removes) the task,
+     * mimicking task submission, REST activity queries and garbage collection.
+     */
+    private void runConcurrently(String summary, final Index index) {
+        double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+
+        // some long-lived tasks, so the sets being queried are not trivially small
+        for (int i = 0; i < 1000; i++) {
+            index.add("entity-"+(i % NUM_ENTITY_TAGS), newTask());
+        }
+
+        final List<Callable<Void>> jobs = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final String entityTag = "entity-"+(i % NUM_ENTITY_TAGS);
+            final List<?> queryTags = ImmutableList.of(TRANSIENT_TAG, entityTag);
+            jobs.add(new Callable<Void>() {
+                public Void call() {
+                    for (int j = 0; j < NUM_OPS_PER_THREAD_PER_ITERATION; j++) {
+                        Task<?> task = newTask();
+                        index.add(entityTag, task);
+                        index.add(TRANSIENT_TAG, task);
+                        index.getWithAll(queryTags).size();
+                        index.remove(entityTag, task);
+                        index.remove(TRANSIENT_TAG, task);
+                    }
+                    return null;
+                }});
+        }
+
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            executor.invokeAll(jobs);
+                        } catch (InterruptedException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }}));
+    }
+
+    private static Task<?> newTask() {
+        return new BasicTask<Void>(new Runnable() {
+            @Override public void run() {}
+        });
+    }
+}
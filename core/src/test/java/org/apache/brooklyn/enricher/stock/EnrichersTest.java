@@ -42,6 +42,7 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.text.StringFunctions;
+import org.apache.brooklyn.util.time.Duration;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -301,6 +302,127 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 5);
     }
 
+    @Test
+    public void testAggregatingSumUpdatedAsMembersChange() {
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingSum()
+                .build());
+        
+        entity.sensors().set(NUM1, 2);
+        entity2.sensors().set(NUM1, 3);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 5);
+        
+        entity.sensors().set(NUM1, 4);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 7);
+        
+        group.removeMember(entity2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 4);
+        
+        entity.sensors().set(NUM1, null);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, null);
+    }
+    
+    @Test
+    public void testAggregatingMinMaxAndCount() {
+        AttributeSensor<Integer> min = Sensors.newIntegerSensor("test.min");
+        AttributeSensor<Integer> max = Sensors.newIntegerSensor("test.max");
+        AttributeSensor<Integer> count = Sensors.newIntegerSensor("test.count");
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.enrichers().add(Enrichers.builder().aggregating(NUM1).publishing(min).fromMembers().computingMin().build());
+        group.enrichers().add(Enrichers.builder().aggregating(NUM1).publishing(max).fromMembers().computingMax().build());
+        group.enrichers().add(Enrichers.builder().aggregating(NUM1).publishing(count).fromMembers().computingCount().build());
+        EntityTestUtils.assertAttributeEqualsEventually(group, count, 0);
+        
+        entity.sensors().set(NUM1, 2);
+        entity2.sensors().set(NUM1, 3);
+        EntityTestUtils.assertAttributeEqualsEventually(group, min, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, max, 3);
+        EntityTestUtils.assertAttributeEqualsEventually(group, count, 2);
+        
+        entity2.sensors().set(NUM1, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, min, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, max, 2);
+        
+        group.removeMember(entity2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, min, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, max, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, count, 1);
+    }
+    
+    @Test
+    public void testAggregatingCoalescesBurstOfChanges() {
+        RecordingSensorEventListener<Integer> record = new RecordingSensorEventListener<>();
+        app.getManagementContext().getSubscriptionManager().subscribe(group, NUM2, record);
+        
+        group.addMember(entity);
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingSum()
+                .coalesceWindow(Duration.millis(500))
+                .build());
+        
+        for (int i = 1; i <= 50; i++) {
+            entity.sensors().set(NUM1, i);
+        }
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 50);
+        // the initial publish, plus at most a couple for the burst (depending on when the window started)
+        Assert.assertTrue(record.getEvents().size() <= 3, "events="+record.getEvents());
+    }
+    
+    @Test
+    public void testIncrementalFunctionsMatchNonIncremental() {
+        Collection<Integer> input = MutableList.of(3, null, 1, 2, null);
+        TypeToken<Integer> type = TypeToken.of(Integer.class);
+        for (Enrichers.IncrementalFunction<Integer, ?> f : ImmutableList.<Enrichers.IncrementalFunction<Integer, ?>>of(
+                new Enrichers.ComputingSum<Integer>(null, null, type),
+                new Enrichers.ComputingSum<Integer>(10, null, type),
+                new Enrichers.ComputingAverage<Integer>(null, null, type),
+                new Enrichers.ComputingAverage<Integer>(0, null, type))) {
+            Enrichers.Accumulator<Integer, ?> accumulator = f.newAccumulator();
+            accumulator.add(5);
+            for (Integer val : input) accumulator.add(val);
+            accumulator.remove(5);
+            Assert.assertEquals(accumulator.get(), f.apply(input), "function="+f);
+        }
+    }
+    
+    @Test
+    public void testSummingAccumulatorRecoversWhenNonFiniteValuesAreRemoved() {
+        TypeToken<Double> type = TypeToken.of(Double.class);
+        Enrichers.Accumulator<Double, Double> sum = new Enrichers.ComputingSum<Double>(null, null, type).newAccumulator();
+        Enrichers.Accumulator<Double, Double> average = new Enrichers.ComputingAverage<Double>(null, null, type).newAccumulator();
+        for (Enrichers.Accumulator<Double, Double> accumulator : ImmutableList.of(sum, average)) {
+            accumulator.add(1d);
+            accumulator.add(3d);
+        }
+        
+        for (Enrichers.Accumulator<Double, Double> accumulator : ImmutableList.of(sum, average)) accumulator.add(Double.NaN);
+        Assert.assertTrue(sum.get().isNaN());
+        Assert.assertTrue(average.get().isNaN());
+        for (Enrichers.Accumulator<Double, Double> accumulator : ImmutableList.of(sum, average)) accumulator.add(Double.POSITIVE_INFINITY);
+        Assert.assertTrue(sum.get().isNaN());
+        for (Enrichers.Accumulator<Double, Double> accumulator : ImmutableList.of(sum, average)) accumulator.remove(Double.NaN);
+        Assert.assertEquals(sum.get(), Double.POSITIVE_INFINITY);
+        Assert.assertEquals(average.get(), Double.POSITIVE_INFINITY);
+        for (Enrichers.Accumulator<Double, Double> accumulator : ImmutableList.of(sum, average)) accumulator.add(Double.NEGATIVE_INFINITY);
+        Assert.assertTrue(sum.get().isNaN());
+        for (Enrichers.Accumulator<Double, Double> accumulator : ImmutableList.of(sum, average)) {
+            accumulator.remove(Double.POSITIVE_INFINITY);
+            accumulator.remove(Double.NEGATIVE_INFINITY);
+        }
+        
+        Assert.assertEquals(sum.get(), 4d);
+        Assert.assertEquals(average.get(), 2d);
+    }
+    
     @Test
     public void testAggregatingExcludingBlankString() {
         group.addMember(entity);
@@ -176,4 +176,18 @@ public class YamlRollingTimeWindowMeanEnricherTest {
         assertEquals(average.confidence, 0d);
     }
 
+    @Test
+    public void testNonFiniteValuesAreSkipped() {
+        averager.onEvent(newDeltaSensorEvent(10, 1000));
+        averager.onEvent(newDeltaSensorEvent(Double.NaN, 1500));
+        averager.onEvent(newDeltaSensorEvent(Double.POSITIVE_INFINITY, 1600));
+        averager.onEvent(newDeltaSensorEvent(Double.NEGATIVE_INFINITY, 1700));
+        averager.onEvent(newDeltaSensorEvent(20, 2000));
+
+        // the 20 is taken to hold since the last usable value
+        average = averager.getAverage(2000, 0);
+        assertEquals(average.value, 20d);
+        assertEquals(average.confidence, 1d);
+    }
+
 }
@@ -45,6 +45,7 @@ import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.stock.BasicEntity;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.exceptions.Exceptions;
@@ -138,6 +139,34 @@ public class DynamicGroupTest {
         assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e3));
     }
 
+    @Test
+    public void testGroupWithIndexedFilterDetectsNewEntitiesAfterFilterChanged() throws Exception {
+        group.setEntityFilter(Predicates.and(Predicates.instanceOf(TestEntity.class), EntityPredicates.applicationIdEqualTo(app.getId())));
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1, e2));
+
+        final TestEntity e3 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1, e2, e3));
+            }});
+
+        group.setEntityFilter(Predicates.instanceOf(BasicEntity.class));
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+
+        final BasicEntity e4 = app.createAndManageChild(EntitySpec.create(BasicEntity.class));
+        app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e4));
+            }});
+
+        Entities.unmanage(e4);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+            }});
+    }
+
     @Test
     public void testGroupDetectsChangedEntities() throws Exception {
         final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
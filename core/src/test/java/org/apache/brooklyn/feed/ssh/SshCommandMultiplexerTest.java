@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.feed.ssh;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+public class SshCommandMultiplexerTest {
+
+    @Test
+    public void testScriptRunsEachCommandInSubshellWithItsEnv() {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer();
+        assertEquals(multiplexer.add("echo $A", ImmutableMap.of("A", "a b")), 0);
+        assertEquals(multiplexer.add("exit 3", ImmutableMap.<String,String>of()), 1);
+        assertEquals(multiplexer.size(), 2);
+
+        String script = multiplexer.getScript();
+        assertTrue(script.startsWith("set +e\n"), script);
+        assertTrue(script.contains("(\nexport A=\"a b\"\necho $A\n); BROOKLYN_EXIT_STATUS=$?\n"), script);
+        assertTrue(script.contains("(\nexit 3\n); BROOKLYN_EXIT_STATUS=$?\n"), script);
+    }
+
+    @Test
+    public void testSplitsOutputOfEachCommand() {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer();
+        multiplexer.add("echo hello", null);
+        multiplexer.add("printf nonewline; echo oops >&2; exit 123", null);
+        String marker = getMarker(multiplexer);
+
+        String stdout = "hello\n" + "\n"+marker+" 0 0\n" + "nonewline" + "\n"+marker+" 1 123\n";
+        String stderr = "\n"+marker+" 0\n" + "oops\n" + "\n"+marker+" 1\n";
+        List<SshPollValue> result = multiplexer.split(new SshPollValue(null, 0, stdout, stderr));
+
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getExitStatus(), 0);
+        assertEquals(result.get(0).getStdout(), "hello\n");
+        assertEquals(result.get(0).getStderr(), "");
+        assertEquals(result.get(1).getExitStatus(), 123);
+        assertEquals(result.get(1).getStdout(), "nonewline");
+        assertEquals(result.get(1).getStderr(), "oops\n");
+    }
+
+    @Test
+    public void testSplitOmitsCommandsWhichDidNotComplete() {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer();
+        multiplexer.add("echo hello", null);
+        multiplexer.add("sleep 100", null);
+        String marker = getMarker(multiplexer);
+
+        List<SshPollValue> result = multiplexer.split(new SshPollValue(null, 255, "hello\n\n"+marker+" 0 0\n", "connection closed"));
+
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getStdout(), "hello\n");
+    }
+
+    /** As run by {@code execScript}, whose default header includes {@code set -e}. */
+    @Test
+    public void testFailingCommandDoesNotStopLaterCommandsUnderBashE() throws Exception {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer();
+        multiplexer.add("echo first; exit 123", null);
+        multiplexer.add("thiscommanddoesnotexist", null);
+        multiplexer.add("echo last", null);
+
+        File scriptFile = File.createTempFile("multiplexed", ".sh");
+        File stdoutFile = File.createTempFile("multiplexed", ".out");
+        File stderrFile = File.createTempFile("multiplexed", ".err");
+        try {
+            Files.write("#!/bin/bash -e\n" + multiplexer.getScript(), scriptFile, Charsets.UTF_8);
+            Process process = new ProcessBuilder("bash", "-e", scriptFile.getAbsolutePath())
+                    .redirectOutput(stdoutFile)
+                    .redirectError(stderrFile)
+                    .start();
+            int exitStatus = process.waitFor();
+            List<SshPollValue> result = multiplexer.split(new SshPollValue(null, exitStatus,
+                    Files.toString(stdoutFile, Charsets.UTF_8), Files.toString(stderrFile, Charsets.UTF_8)));
+
+            assertEquals(result.size(), 3);
+            assertEquals(result.get(0).getExitStatus(), 123);
+            assertEquals(result.get(0).getStdout(), "first\n");
+            assertEquals(result.get(1).getExitStatus(), 127);
+            assertTrue(result.get(1).getStderr().contains("thiscommanddoesnotexist"), result.get(1).getStderr());
+            assertEquals(result.get(2).getExitStatus(), 0);
+            assertEquals(result.get(2).getStdout(), "last\n");
+        } finally {
+            scriptFile.delete();
+            stdoutFile.delete();
+            stderrFile.delete();
+        }
+    }
+
+    private String getMarker(SshCommandMultiplexer multiplexer) {
+        Matcher matcher = Pattern.compile("printf '\\\\n%s %s %s\\\\n' (\\S+) 0 ").matcher(multiplexer.getScript());
+        assertTrue(matcher.find(), multiplexer.getScript());
+        return matcher.group(1);
+    }
+}
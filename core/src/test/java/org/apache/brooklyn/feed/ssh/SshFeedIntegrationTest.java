@@ -184,6 +184,35 @@ public class SshFeedIntegrationTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEventually(entity, SENSOR_STRING, StringPredicates.containsLiteral("Exit status 123"));
     }
     
+    @Test(groups="Integration")
+    public void testMultiplexesCommandsWithSamePeriod() throws Exception {
+        final AttributeSensor<String> sensorStderr = Sensors.newStringSensor("aStderr", "");
+        
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .multiplex(true)
+                .period(Duration.millis(100))
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .env(MutableMap.of("GREETING", "hello world"))
+                        .command("cd /; printf \"$GREETING\"")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<Integer>(SENSOR_INT)
+                        .command("pwd; exit 123")
+                        .checkSuccess(Predicates.alwaysTrue())
+                        .onSuccess(SshValueFunctions.exitStatus()))
+                .poll(new SshPollConfig<String>(sensorStderr)
+                        .command("echo $GREETING >&2; thiscommanddoesnotexist")
+                        .onFailure(SshValueFunctions.stderr()))
+                .build();
+
+        EntityTestUtils.assertAttributeEqualsEventually(entity, SENSOR_STRING, "hello world");
+        EntityTestUtils.assertAttributeEqualsEventually(entity, SENSOR_INT, 123);
+        EntityTestUtils.assertAttributeEventually(entity, sensorStderr, StringPredicates.containsLiteral("thiscommanddoesnotexist"));
+        // each command has its own environment
+        Assert.assertFalse(entity.getAttribute(sensorStderr).contains("hello"), "stderr="+entity.getAttribute(sensorStderr));
+    }
+    
     @Test(groups="Integration")
     public void testAddedEarly() throws Exception {
         final TestEntity entity2 = app.addChild(EntitySpec.create(TestEntity.class)
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.pool;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.api.location.NoMachinesAvailableException;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.location.byon.FixedListMachineProvisioningLocation;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+public class WarmPoolMachineProvisioningLocationTest {
+
+    private LocalManagementContext mgmt;
+    private FixedListMachineProvisioningLocation<SshMachineLocation> provisioner;
+    private Set<MachineLocation> unhealthy;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mgmt = LocalManagementContextForTests.newInstance();
+        unhealthy = Sets.newConcurrentHashSet();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+
+    @Test
+    public void testFillsPoolInBackground() throws Exception {
+        newProvisioner(4);
+        final WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(2, 3, false);
+
+        assertIdleEventually(pool, 2);
+        assertEquals(provisioner.getInUse(), pool.getIdleMachines());
+    }
+
+    @Test
+    public void testObtainTakesIdleMachineAndRefills() throws Exception {
+        newProvisioner(4);
+        WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(2, 3, false);
+        assertIdleEventually(pool, 2);
+        Set<SshMachineLocation> idle = pool.getIdleMachines();
+
+        SshMachineLocation machine = pool.obtain();
+
+        assertTrue(idle.contains(machine));
+        assertEquals(pool.getInUseMachines(), Sets.newHashSet(machine));
+        assertIdleEventually(pool, 2);
+        assertEquals(provisioner.getInUse().size(), 3);
+    }
+
+    @Test
+    public void testReleaseReturnsMachineToProvisioner() throws Exception {
+        newProvisioner(4);
+        WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(1, 1, false);
+        assertIdleEventually(pool, 1);
+
+        SshMachineLocation machine = pool.obtain();
+        assertIdleEventually(pool, 1);
+        pool.release(machine);
+
+        assertFalse(provisioner.getInUse().contains(machine));
+        assertFalse(pool.getIdleMachines().contains(machine));
+        assertTrue(pool.getInUseMachines().isEmpty());
+    }
+
+    @Test
+    public void testRecyclesReleasedMachineUpToMaxIdle() throws Exception {
+        newProvisioner(4);
+        WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(1, 2, true);
+        assertIdleEventually(pool, 1);
+
+        SshMachineLocation machine1 = pool.obtain();
+        SshMachineLocation machine2 = pool.obtain();
+        assertIdleEventually(pool, 1);
+
+        pool.release(machine1);
+        assertTrue(pool.getIdleMachines().contains(machine1));
+        assertTrue(provisioner.getInUse().contains(machine1));
+
+        // pool is now full, so the second machine goes back to the provisioner
+        pool.release(machine2);
+        assertFalse(pool.getIdleMachines().contains(machine2));
+        assertFalse(provisioner.getInUse().contains(machine2));
+    }
+
+    @Test
+    public void testDoesNotHandOutUnhealthyMachine() throws Exception {
+        newProvisioner(4);
+        WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(1, 1, false);
+        assertIdleEventually(pool, 1);
+        SshMachineLocation idleMachine = Iterables.getOnlyElement(pool.getIdleMachines());
+        unhealthy.add(idleMachine);
+
+        SshMachineLocation machine = pool.obtain();
+
+        assertNotEquals(machine, idleMachine);
+        assertFalse(pool.getIdleMachines().contains(idleMachine));
+        assertFalse(provisioner.getInUse().contains(idleMachine));
+    }
+
+    @Test
+    public void testObtainsFromProvisionerWhenPoolEmpty() throws Exception {
+        newProvisioner(1);
+        WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(0, 1, false);
+
+        SshMachineLocation machine = pool.obtain();
+        assertEquals(provisioner.getInUse(), Sets.newHashSet(machine));
+
+        try {
+            pool.obtain();
+            Asserts.shouldHaveFailedPreviously();
+        } catch (NoMachinesAvailableException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testObtainsFromProvisionerWhenFlagsDiffer() throws Exception {
+        newProvisioner(4);
+        WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(1, 1, false,
+                ImmutableMap.<String, Object>of("inboundPorts", ImmutableList.of(22)));
+        assertIdleEventually(pool, 1);
+        SshMachineLocation idleMachine = Iterables.getOnlyElement(pool.getIdleMachines());
+
+        SshMachineLocation machine = pool.obtain(ImmutableMap.of("inboundPorts", ImmutableList.of(22, 8080)));
+        assertNotEquals(machine, idleMachine);
+        assertEquals(pool.getIdleMachines(), Sets.newHashSet(idleMachine));
+        assertEquals(pool.getInUseMachines(), Sets.newHashSet(machine));
+
+        machine = pool.obtain(ImmutableMap.of("minRam", 4096));
+        assertNotEquals(machine, idleMachine);
+        assertEquals(pool.getIdleMachines(), Sets.newHashSet(idleMachine));
+    }
+
+    @Test
+    public void testObtainTakesIdleMachineWhenFlagsConsistent() throws Exception {
+        newProvisioner(4);
+        WarmPoolMachineProvisioningLocation<SshMachineLocation> pool = newPool(1, 1, false,
+                ImmutableMap.<String, Object>of("inboundPorts", ImmutableList.of(22)));
+        assertIdleEventually(pool, 1);
+        SshMachineLocation idleMachine = Iterables.getOnlyElement(pool.getIdleMachines());
+
+        // the caller context only affects the name of a new machine
+        SshMachineLocation machine = pool.obtain(ImmutableMap.of("inboundPorts", ImmutableList.of(22), "callerContext", "my-entity"));
+        assertEquals(machine, idleMachine);
+    }
+
+    private void assertIdleEventually(final WarmPoolMachineProvisioningLocation<?> pool, final int expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(pool.getIdleMachines().size(), expected);
+            }});
+    }
+
+    @SuppressWarnings("unchecked")
+    private void newProvisioner(int numMachines) throws Exception {
+        List<SshMachineLocation> machines = MutableList.of();
+        for (int i = 1; i <= numMachines; i++) {
+            machines.add(mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                    .configure("address", InetAddress.getByName("1.2.3."+i))));
+        }
+        // choose healthy machines first, so tests of discarding unhealthy machines are deterministic
+        Function<Iterable<? extends MachineLocation>, MachineLocation> chooser = new Function<Iterable<? extends MachineLocation>, MachineLocation>() {
+            @Override public MachineLocation apply(Iterable<? extends MachineLocation> input) {
+                return Iterables.find(input, Predicates.not(Predicates.in(unhealthy)), Iterables.getFirst(input, null));
+            }
+        };
+        provisioner = mgmt.getLocationManager().createLocation(LocationSpec.create(FixedListMachineProvisioningLocation.class)
+                .configure("machines", machines)
+                .configure(FixedListMachineProvisioningLocation.MACHINE_CHOOSER, chooser));
+    }
+
+    private WarmPoolMachineProvisioningLocation<SshMachineLocation> newPool(int minIdle, int maxIdle, boolean recycle) {
+        return newPool(minIdle, maxIdle, recycle, ImmutableMap.<String, Object>of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private WarmPoolMachineProvisioningLocation<SshMachineLocation> newPool(int minIdle, int maxIdle, boolean recycle, Map<String, Object> provisioningFlags) {
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(WarmPoolMachineProvisioningLocation.class)
+                .configure(WarmPoolMachineProvisioningLocation.PROVISIONER, provisioner)
+                .configure(WarmPoolMachineProvisioningLocation.PROVISIONING_FLAGS, provisioningFlags)
+                .configure(WarmPoolMachineProvisioningLocation.MIN_IDLE, minIdle)
+                .configure(WarmPoolMachineProvisioningLocation.MAX_IDLE, maxIdle)
+                .configure(WarmPoolMachineProvisioningLocation.RECYCLE_ON_RELEASE, recycle)
+                .configure(WarmPoolMachineProvisioningLocation.HEALTH_CHECK, Predicates.not(Predicates.in(unhealthy))));
+    }
+}
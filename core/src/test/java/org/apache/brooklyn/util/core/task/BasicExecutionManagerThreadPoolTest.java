@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager.ThreadPoolType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class BasicExecutionManagerThreadPoolTest {
+
+    private static final int TIMEOUT_MS = 10*1000;
+
+    private BasicExecutionManager em;
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (em != null) em.shutdownNow();
+        em = null;
+    }
+
+    private BasicExecutionManager newExecutionManager(ThreadPoolType type, int maxSize) {
+        return newExecutionManager(type, maxSize, 1024);
+    }
+
+    private BasicExecutionManager newExecutionManager(ThreadPoolType type, int maxSize, int maxSubtaskSize) {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.THREAD_POOL_TYPE, type);
+        props.put(BasicExecutionManager.THREAD_POOL_MAX_SIZE, maxSize);
+        props.put(BasicExecutionManager.THREAD_POOL_MAX_SUBTASK_SIZE, maxSubtaskSize);
+        return new BasicExecutionManager("mycontextid", props);
+    }
+
+    @Test
+    public void testDefaultIsUnbounded() throws Exception {
+        em = new BasicExecutionManager("mycontextid");
+        assertEquals(em.getThreadPoolType(), ThreadPoolType.UNBOUNDED);
+    }
+
+    @Test
+    public void testBoundedPoolLimitsConcurrentTasks() throws Exception {
+        em = newExecutionManager(ThreadPoolType.BOUNDED, 2);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        List<Task<?>> tasks = MutableList.of();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(em.submit(new Callable<Void>() {
+                @Override public Void call() throws Exception {
+                    int now = concurrent.incrementAndGet();
+                    synchronized (maxConcurrent) {
+                        if (now > maxConcurrent.get()) maxConcurrent.set(now);
+                    }
+                    latch.await();
+                    concurrent.decrementAndGet();
+                    return null;
+                }}));
+        }
+
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(em.getThreadPoolActiveCount(), 2);
+                assertEquals(em.getThreadPoolQueueSize(), 3);
+            }});
+        latch.countDown();
+        for (Task<?> task : tasks) {
+            task.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(maxConcurrent.get(), 2);
+    }
+
+    @Test
+    public void testBoundedPoolRunsSubtasksWithoutWaitingForThread() throws Exception {
+        em = newExecutionManager(ThreadPoolType.BOUNDED, 1);
+        Task<String> parent = em.submit(new Callable<String>() {
+            @Override public String call() throws Exception {
+                Task<String> child = em.submit(new Callable<String>() {
+                    @Override public String call() {
+                        return "child";
+                    }});
+                return "parent-"+child.get();
+            }});
+
+        assertEquals(parent.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "parent-child");
+    }
+
+    @Test
+    public void testBoundedPoolRunsSubtaskInSubmittingThreadWhenSubtaskThreadsBusy() throws Exception {
+        em = newExecutionManager(ThreadPoolType.BOUNDED, 1, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<String> parent = em.submit(new Callable<String>() {
+            @Override public String call() throws Exception {
+                final Thread parentThread = Thread.currentThread();
+                Task<?> parentTask = Tasks.current();
+                Task<Void> blockedChild = em.submit(new Callable<Void>() {
+                    @Override public Void call() throws Exception {
+                        latch.await();
+                        return null;
+                    }});
+                Task<Boolean> inlineChild = em.submit(new Callable<Boolean>() {
+                    @Override public Boolean call() {
+                        return Thread.currentThread() == parentThread;
+                    }});
+                // the only subtask thread is busy, so the second child has already run, in this thread
+                assertTrue(inlineChild.isDone());
+                assertTrue(inlineChild.get());
+                assertEquals(Tasks.current(), parentTask);
+                latch.countDown();
+                blockedChild.get();
+                return "parent";
+            }});
+
+        assertEquals(parent.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "parent");
+    }
+
+    @Test
+    public void testBoundedPoolRunsEffectorsBeforeTransientTasks() throws Exception {
+        em = newExecutionManager(ThreadPoolType.BOUNDED, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<String> order = new CopyOnWriteArrayList<String>();
+        Task<?> blocker = em.submit(new Callable<Void>() {
+            @Override public Void call() throws Exception {
+                latch.await();
+                return null;
+            }});
+        Task<?> transientTask = em.submit(MutableMap.of("tag", "TRANSIENT"), new Runnable() {
+            @Override public void run() {
+                order.add("transient");
+            }});
+        Task<?> effectorTask = em.submit(MutableMap.of("tag", "EFFECTOR"), new Runnable() {
+            @Override public void run() {
+                order.add("effector");
+            }});
+
+        latch.countDown();
+        blocker.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        transientTask.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        effectorTask.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertEquals(order, MutableList.of("effector", "transient"));
+    }
+
+    @Test
+    public void testSingleThreadedSchedulerWithBoundedPool() throws Exception {
+        em = newExecutionManager(ThreadPoolType.BOUNDED, 2);
+        em.setTaskSchedulerForTag("category1", SingleThreadedScheduler.class);
+        final int NUM_TIMES = 1000;
+        final List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        for (int i = 0; i < NUM_TIMES; i++) {
+            final int counter = i;
+            em.submit(MutableMap.of("tag", "category1"), new Runnable() {
+                public void run() {
+                    result.add(counter);
+                }});
+        }
+
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(result.size(), NUM_TIMES);
+            }});
+        for (int i = 0; i < NUM_TIMES; i++) {
+            assertEquals(result.get(i), (Integer)i);
+        }
+    }
+
+    @Test
+    public void testBoundedPoolRunsSchedulerJobsWithoutWaitingForThread() throws Exception {
+        em = newExecutionManager(ThreadPoolType.BOUNDED, 1);
+        em.setTaskSchedulerForTag("category1", SingleThreadedScheduler.class);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        // occupies the only thread for top-level tasks until the scheduled job has run, as a task waiting for an event would
+        Task<Boolean> waiter = em.submit(new Callable<Boolean>() {
+            @Override public Boolean call() throws Exception {
+                return delivered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }});
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(em.getThreadPoolActiveCount(), 1);
+            }});
+        em.submit(MutableMap.of("tag", "category1"), new Runnable() {
+            public void run() {
+                delivered.countDown();
+            }});
+
+        assertTrue(waiter.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testVirtualThreadsOrFallback() throws Exception {
+        em = newExecutionManager(ThreadPoolType.VIRTUAL, 1);
+        assertTrue(em.getThreadPoolType() == ThreadPoolType.VIRTUAL || em.getThreadPoolType() == ThreadPoolType.UNBOUNDED);
+        if (em.getThreadPoolType() == ThreadPoolType.VIRTUAL) {
+            assertEquals(em.getThreadPoolQueueSize(), -1);
+        }
+        Task<String> task = em.submit(new Callable<String>() {
+            @Override public String call() {
+                return "done";
+            }});
+        assertEquals(task.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "done");
+    }
+}
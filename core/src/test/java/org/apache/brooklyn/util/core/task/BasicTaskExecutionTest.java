@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
@@ -231,6 +232,28 @@ public class BasicTaskExecutionTest {
         assertEquals(em.getTasksWithAllTags(ImmutableList.of("B")), ImmutableList.of(t));
     }
 
+    @Test
+    public void testRetrievedTasksWithTagsAreNotChangedByLaterTasks() throws Exception {
+        Task<?> t = new BasicTask<Void>(newNoop());
+        em.submit(MutableMap.of("tags", ImmutableList.of("A", "B")), t);
+        t.get();
+        Collection<Task<?>> withTag = em.getTasksWithTag("A");
+        Collection<Task<?>> withAnyTag = em.getTasksWithAnyTag(ImmutableList.of("A", "C"));
+        Collection<Task<?>> withAllTags = em.getTasksWithAllTags(ImmutableList.of("A", "B"));
+        Set<Object> tags = em.getTaskTags();
+
+        Task<?> t2 = new BasicTask<Void>(newNoop());
+        em.submit(MutableMap.of("tags", ImmutableList.of("A", "B", "C")), t2);
+        t2.get();
+        em.deleteTask(t);
+
+        assertEquals(withTag, ImmutableSet.of(t));
+        assertEquals(withAnyTag, ImmutableSet.of(t));
+        assertEquals(withAllTags, ImmutableSet.of(t));
+        assertEquals(tags, ImmutableSet.of("A", "B"));
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of("A", "B")), ImmutableSet.of(t2));
+    }
+
     // ENGR-1796: if nothing matched first tag, then returned whatever matched second tag!
     @Test
     public void testRetrievingTasksWithAllTagsWhenFirstNotMatched() throws Exception {
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SerialSchedulerTest {
+
+    private BasicExecutionManager em;
+    private SerialScheduler scheduler;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() {
+        em = new BasicExecutionManager("mycontextid");
+        scheduler = new SerialScheduler(em, new BasicExecutionContext(em), "test");
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (scheduler != null) scheduler.close();
+        if (em != null) em.shutdownNow();
+    }
+
+    @Test
+    public void testRunsOneAtATimeInOrder() throws Exception {
+        final int NUM_TIMES = 100;
+        final List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        for (int i = 0; i < NUM_TIMES; i++) {
+            final int counter = i;
+            scheduler.submit("job "+i, new Runnable() {
+                public void run() {
+                    if (concurrent.incrementAndGet() > 1) overlapped.set(true);
+                    result.add(counter);
+                    concurrent.decrementAndGet();
+                }});
+        }
+
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(result.size(), NUM_TIMES);
+            }});
+        for (int i = 0; i < NUM_TIMES; i++) {
+            assertEquals(result.get(i), (Integer)i);
+        }
+        assertFalse(overlapped.get());
+    }
+
+    @Test
+    public void testRunsAfterDelay() throws Exception {
+        final AtomicBoolean ran = new AtomicBoolean();
+        long startTime = System.currentTimeMillis();
+        scheduler.schedule("delayed", new Runnable() {
+            public void run() {
+                ran.set(true);
+            }}, Duration.millis(100));
+
+        assertFalse(ran.get());
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(ran.get());
+            }});
+        assertTrue(System.currentTimeMillis() - startTime >= 100, "ran after "+Time.makeTimeStringRounded(System.currentTimeMillis() - startTime));
+    }
+
+    @Test
+    public void testCloseCancelsPendingJobs() throws Exception {
+        final AtomicBoolean ran = new AtomicBoolean();
+        scheduler.schedule("delayed", new Runnable() {
+            public void run() {
+                ran.set(true);
+            }}, Duration.millis(100));
+        scheduler.close();
+
+        Asserts.succeedsContinually(new Runnable() {
+            @Override public void run() {
+                assertFalse(ran.get());
+            }});
+    }
+
+    @Test(expectedExceptions=IllegalStateException.class)
+    public void testRejectsJobsWhenClosed() throws Exception {
+        scheduler.close();
+        scheduler.submit("after close", new Runnable() {
+            public void run() {
+            }});
+    }
+}
@@ -156,6 +156,7 @@ import org.jclouds.softlayer.compute.options.SoftLayerTemplateOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
@@ -257,6 +258,9 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             }
             config().set(MACHINE_CREATION_SEMAPHORE, new Semaphore(maxConcurrent, true));
         }
+        if (getConfig(MACHINE_CREATION_BATCHER) == null) {
+            config().set(MACHINE_CREATION_BATCHER, new NodeCreationBatcher());
+        }
         return this;
     }
 
@@ -280,6 +284,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                 .parent(this)
                 .configure(config().getLocalBag().getAllConfig())  // FIXME Should this just be inherited?
                 .configure(MACHINE_CREATION_SEMAPHORE, getMachineCreationSemaphore())
+                .configure(MACHINE_CREATION_BATCHER, getMachineCreationBatcher())
                 .configure(newFlags));
     }
 
@@ -384,6 +389,23 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         return checkNotNull(getConfig(MACHINE_CREATION_SEMAPHORE), MACHINE_CREATION_SEMAPHORE.getName());
     }
 
+    protected NodeCreationBatcher getMachineCreationBatcher() {
+        return checkNotNull(getConfig(MACHINE_CREATION_BATCHER), MACHINE_CREATION_BATCHER.getName());
+    }
+
+    /**
+     * The context which concurrent requests must share in order to be created in the same batch,
+     * and from which the batch's group id is generated: the parent of the calling entity, if there is one
+     * (e.g. the cluster which is growing), otherwise the caller context itself.
+     */
+    protected Object getMachineCreationBatchContext(ConfigBag setup) {
+        Object context = setup.get(CALLER_CONTEXT);
+        if (context instanceof Entity && ((Entity)context).getParent() != null) {
+            return ((Entity)context).getParent();
+        }
+        return context;
+    }
+
     protected CloudMachineNamer getCloudMachineNamer(ConfigBag config) {
         String namerClass = config.get(LocationConfigKeys.CLOUD_MACHINE_NAMER_CLASS);
         if (Strings.isNonBlank(namerClass)) {
@@ -643,7 +665,12 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
         final ComputeService computeService = getConfig(COMPUTE_SERVICE_REGISTRY).findComputeService(setup, true);
         CloudMachineNamer cloudMachineNamer = getCloudMachineNamer(setup);
-        String groupId = elvis(setup.get(GROUP_ID), cloudMachineNamer.generateNewGroupId(setup));
+        Duration batchWindow = setup.get(MACHINE_CREATION_BATCH_WINDOW);
+        boolean batched = batchWindow != null && batchWindow.isPositive();
+        Object batchContext = batched ? getMachineCreationBatchContext(setup) : null;
+        String groupId = elvis(setup.get(GROUP_ID), cloudMachineNamer.generateNewGroupId(batched
+                ? ConfigBag.newInstanceCopying(setup).configure(CALLER_CONTEXT, batchContext)
+                : setup));
         NodeMetadata node = null;
         JcloudsMachineLocation machineLocation = null;
         Duration semaphoreTimestamp = null;
@@ -680,7 +707,14 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                         // TODO Was this too early to look at template.getImage? e.g. customizeTemplate could subsequently modify it.
                         LOG.warn("Ignoring invalid configuration for Windows provisioning of "+template.getImage()+": "+USE_JCLOUDS_SSH_INIT.getName()+" should be false");
                         skipJcloudsSshing = true;
+                    } else if (waitForSshable && batched && isUserCreationShareable(setup)) {
+                        userCredentials = initTemplateForCreateUser(template, setup, batchContext, batchWindow);
                     } else if (waitForSshable) {
+                        if (batched) {
+                            // machines in a batch would all get the same generated password (or key)
+                            LOG.debug("Not batching creation of VM {}, as creating its user would generate credentials", setup.getDescription());
+                            batched = false;
+                        }
                         userCredentials = initTemplateForCreateUser(template, setup);
                     }
                 }
@@ -689,7 +723,10 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                 // "Name" metadata seems to set the display name; at least in AWS
                 // TODO it would be nice if this salt comes from the location's ID (but we don't know that yet as the ssh machine location isn't created yet)
                 // TODO in softlayer we want to control the suffix of the hostname which is 3 random hex digits
-                template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(setup, groupId));
+                // When batching, all machines in the batch are created from the same template so cannot have per-machine metadata
+                if (!batched) {
+                    template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(setup, groupId));
+                }
                 
                 if (setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA)) {
                     template.getOptions().getUserMetadata().put("brooklyn-user", System.getProperty("user.name"));
@@ -699,6 +736,9 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                         Entity entity = (Entity)context;
                         template.getOptions().getUserMetadata().put("brooklyn-app-id", entity.getApplicationId());
                         template.getOptions().getUserMetadata().put("brooklyn-app-name", entity.getApplication().getDisplayName());
+                    }
+                    if (context instanceof Entity && !batched) {
+                        Entity entity = (Entity)context;
                         template.getOptions().getUserMetadata().put("brooklyn-entity-id", entity.getId());
                         template.getOptions().getUserMetadata().put("brooklyn-entity-name", entity.getDisplayName());
                         template.getOptions().getUserMetadata().put("brooklyn-server-creation-date", Time.makeDateSimpleStampString());
@@ -715,7 +755,12 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                         LOG.debug("NOTE: unused flags passed to obtain VM in "+setup.getDescription()+": "
                                 + Sanitizer.sanitize(setup.getUnusedConfig()));
                 
-                nodes = computeService.createNodesInGroup(groupId, 1, template);
+                if (batched) {
+                    nodes = ImmutableSet.of(getMachineCreationBatcher().createNode(computeService, groupId, template, batchContext,
+                            batchWindow, setup.get(MAX_MACHINE_CREATION_BATCH_SIZE)));
+                } else {
+                    nodes = computeService.createNodesInGroup(groupId, 1, template);
+                }
                 provisionTimestamp = Duration.of(provisioningStopwatch);
             } finally {
                 machineCreationSemaphore.release();
@@ -1447,7 +1492,68 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     }
 
     /** returns the jclouds Template which describes the image to be built, for the given config and compute service */
-    public Template buildTemplate(ComputeService computeService, ConfigBag config) {
+    public Template buildTemplate(final ComputeService computeService, final ConfigBag config) {
+        Template template;
+        Duration cacheTtl = config.get(TEMPLATE_CACHE_TTL);
+        if (cacheTtl != null && cacheTtl.isPositive() && config.get(TEMPLATE_BUILDER) == null && getCustomizers(config).isEmpty()) {
+            template = getTemplateCache().getTemplate(getTemplateCacheKey(config), cacheTtl, new Callable<Template>() {
+                @Override
+                public Template call() {
+                    return resolveTemplate(computeService, config);
+                }
+            });
+        } else {
+            template = resolveTemplate(computeService, config);
+        }
+        TemplateOptions options = template.getOptions();
+
+        boolean windows = isWindows(template, config);
+        if (windows) {
+            if (!(config.containsKey(JcloudsLocationConfig.USER_METADATA_STRING) || config.containsKey(JcloudsLocationConfig.USER_METADATA_MAP))) {
+                config.put(JcloudsLocationConfig.USER_METADATA_STRING, WinRmMachineLocation.getDefaultUserMetadataString());
+            }
+        }
+               
+        for (Map.Entry<ConfigKey<?>, CustomizeTemplateOptions> entry : SUPPORTED_TEMPLATE_OPTIONS_PROPERTIES.entrySet()) {
+            ConfigKey<?> key = entry.getKey();
+            CustomizeTemplateOptions code = entry.getValue();
+            if (config.containsKey(key))
+                code.apply(options, config, config.get(key));
+        }
+
+        return template;
+    }
+
+    /** The cache of resolved templates, shared by all jclouds locations in the management context. */
+    @Beta
+    public JcloudsTemplateCache getTemplateCache() {
+        return JcloudsTemplateCache.forManagementContext(getManagementContext());
+    }
+
+    /**
+     * The key under which the template resolved for the given config is cached: everything which affects 
+     * which compute service is used and what the template builder is asked for.
+     */
+    protected List<Object> getTemplateCacheKey(ConfigBag config) {
+        Map<String, Object> templateBuilderProperties = MutableMap.of();
+        for (ConfigKey<?> key : SUPPORTED_TEMPLATE_BUILDER_PROPERTIES.keySet()) {
+            if (config.containsKey(key)) templateBuilderProperties.put(key.getName(), config.get(key));
+        }
+        return Arrays.<Object>asList(
+                config.get(COMPUTE_SERVICE_REGISTRY),
+                config.get(CLOUD_PROVIDER),
+                config.get(CLOUD_ENDPOINT),
+                config.get(ACCESS_IDENTITY),
+                config.get(CLOUD_REGION_ID),
+                config.getStringKey("imageOwner"),
+                config.getStringKey("anyOwner"),
+                config.get(IMAGE_CHOOSER),
+                config.get(DEFAULT_IMAGE_ID),
+                templateBuilderProperties);
+    }
+
+    /** resolves the template (i.e. chooses the image, hardware and location) for the given config, without setting its options */
+    protected Template resolveTemplate(ComputeService computeService, ConfigBag config) {
         TemplateBuilder templateBuilder = (TemplateBuilder) config.get(TEMPLATE_BUILDER);
         if (templateBuilder==null) {
             templateBuilder = new PortableTemplateBuilder<PortableTemplateBuilder<?>>();
@@ -1530,22 +1636,6 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             throw new IllegalStateException("Unable to match required VM template constraints "+templateBuilder+" when trying to provision VM in "+this+"; "
                 + "see list of images in log. Root cause: "+e, e);
         }
-        TemplateOptions options = template.getOptions();
-
-        boolean windows = isWindows(template, config);
-        if (windows) {
-            if (!(config.containsKey(JcloudsLocationConfig.USER_METADATA_STRING) || config.containsKey(JcloudsLocationConfig.USER_METADATA_MAP))) {
-                config.put(JcloudsLocationConfig.USER_METADATA_STRING, WinRmMachineLocation.getDefaultUserMetadataString());
-            }
-        }
-               
-        for (Map.Entry<ConfigKey<?>, CustomizeTemplateOptions> entry : SUPPORTED_TEMPLATE_OPTIONS_PROPERTIES.entrySet()) {
-            ConfigKey<?> key = entry.getKey();
-            CustomizeTemplateOptions code = entry.getValue();
-            if (config.containsKey(key))
-                code.apply(options, config, config.get(key));
-        }
-
         return template;
     }
 
@@ -1559,13 +1649,19 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             m1.putStringKey("anyOwner", true);
         }
         ComputeService computeServiceLessRestrictive = getConfig(COMPUTE_SERVICE_REGISTRY).findComputeService(m1, true);
-        Set<? extends Image> imgs = computeServiceLessRestrictive.listImages();
+        Duration cacheTtl = m1.get(TEMPLATE_CACHE_TTL);
+        boolean useCache = cacheTtl != null && cacheTtl.isPositive();
+        Set<? extends Image> imgs = useCache
+                ? getTemplateCache().listImages(getTemplateCacheKey(m1), cacheTtl, computeServiceLessRestrictive)
+                : computeServiceLessRestrictive.listImages();
         LOG.info(""+imgs.size()+" available images at "+this);
         for (Image img: imgs) {
             LOG.info(" Image: "+img);
         }
 
-        Set<? extends Hardware> profiles = computeServiceLessRestrictive.listHardwareProfiles();
+        Set<? extends Hardware> profiles = useCache
+                ? getTemplateCache().listHardwareProfiles(getTemplateCacheKey(m1), cacheTtl, computeServiceLessRestrictive)
+                : computeServiceLessRestrictive.listHardwareProfiles();
         LOG.info(""+profiles.size()+" available profiles at "+this);
         for (Hardware profile: profiles) {
             LOG.info(" Profile: "+profile);
@@ -1718,6 +1814,55 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         return userCreation.createdUserCredentials;
     }
 
+    /**
+     * Whether the script to create the user can be shared by the machines in a batch, i.e. whether it sets up
+     * only the credentials supplied in the config: either a password (without resetting root's password to
+     * a generated one), or a public key with password and root logins disabled. Otherwise each machine's
+     * script would include its own generated password or key, so its template cannot be shared.
+     */
+    protected boolean isUserCreationShareable(ConfigBag config) {
+        if (Boolean.TRUE.equals(config.get(DONT_CREATE_USER))) return true;
+        OsCredential credential = LocationConfigUtils.getOsCredential(config);
+        boolean disableRootAndPasswordSsh = Boolean.TRUE.equals(config.get(DISABLE_ROOT_AND_PASSWORD_SSH));
+        if (Strings.isNonBlank(credential.getPublicKeyData()) && disableRootAndPasswordSsh) {
+            return true;
+        }
+        return Strings.isNonBlank(credential.getPassword())
+                && !(disableRootAndPasswordSsh && Boolean.TRUE.equals(config.get(GRANT_USER_SUDO)));
+    }
+
+    /**
+     * As {@link #initTemplateForCreateUser(Template, ConfigBag)}, for a machine which may be created in a batch
+     * with others for the same context: the user-creation script is shared by the requests for the same user
+     * in the batch window, as all machines in a batch use the same template. Only to be used when
+     * {@link #isUserCreationShareable(ConfigBag)}.
+     */
+    protected LoginCredentials initTemplateForCreateUser(final Template template, final ConfigBag config, Object batchContext, Duration batchWindow) {
+        OsCredential credential = LocationConfigUtils.getOsCredential(config);
+        List<Object> key = Arrays.<Object>asList("userCreation", batchContext,
+                template.getImage() == null ? null : template.getImage().getId(),
+                getUser(config), config.get(LOGIN_USER), config.get(DONT_CREATE_USER), config.get(GRANT_USER_SUDO),
+                config.get(DISABLE_ROOT_AND_PASSWORD_SSH),
+                credential.getPassword(), credential.getPublicKeyData(), credential.getPrivateKeyData());
+        UserCreation userCreation = getMachineCreationBatcher().getSharedValue(key, batchWindow, new Callable<UserCreation>() {
+            @Override
+            public UserCreation call() {
+                UserCreation result = createUserStatements(template.getImage(), config);
+                // a single statement instance, so that the templates' options are equal
+                List<Statement> statements = result.statements.isEmpty()
+                        ? ImmutableList.<Statement>of()
+                        : ImmutableList.<Statement>of(new StatementList(result.statements));
+                return new UserCreation(result.createdUserCredentials, statements);
+            }
+        });
+
+        if (userCreation.statements.size() > 0) {
+            template.getOptions().runScript(userCreation.statements.get(0));
+        }
+
+        return userCreation.createdUserCredentials;
+    }
+
     protected static class UserCreation {
         public final LoginCredentials createdUserCredentials;
         public final List<Statement> statements;
@@ -37,6 +37,7 @@ import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.compute.domain.TemplateBuilder;
 import org.jclouds.domain.LoginCredentials;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -247,6 +248,37 @@ public interface JcloudsLocationConfig extends CloudLocationConfig {
     public static final ConfigKey<Semaphore> MACHINE_CREATION_SEMAPHORE = ConfigKeys.newConfigKey(
             Semaphore.class, "machineCreationSemaphore", "Semaphore for controlling concurrent machine creation", null);
 
+    @Beta
+    public static final ConfigKey<Duration> MACHINE_CREATION_BATCH_WINDOW = ConfigKeys.newDurationConfigKey(
+            "machineCreationBatchWindow", 
+            "How long to wait for other concurrent requests for a machine with the same template, "
+                    + "so that they can be created in a single call to the cloud (e.g. when a cluster grows); "
+                    + "zero (the default) disables batching. "
+                    + "Batched machines share a group id based on the caller's parent entity, "
+                    + "and are not given per-machine 'Name' or entity user metadata; "
+                    + "machines whose user would be created with a generated password or key are not batched. "
+                    + "Each request holds a machine-creation permit while it waits, so batches are no larger than "
+                    + "maxConcurrentMachineCreations",
+            Duration.ZERO);
+
+    @Beta
+    public static final ConfigKey<Integer> MAX_MACHINE_CREATION_BATCH_SIZE = ConfigKeys.newIntegerConfigKey(
+            "maxMachineCreationBatchSize", "Maximum number of machines to create in a single batch (see machineCreationBatchWindow); "
+                    + "the effective maximum is also limited by maxConcurrentMachineCreations", 20);
+
+    @Beta
+    public static final ConfigKey<NodeCreationBatcher> MACHINE_CREATION_BATCHER = ConfigKeys.newConfigKey(
+            NodeCreationBatcher.class, "machineCreationBatcher", "Coalesces concurrent machine creations, when machineCreationBatchWindow is set", null);
+
+    @Beta
+    public static final ConfigKey<Duration> TEMPLATE_CACHE_TTL = ConfigKeys.newDurationConfigKey(
+            "templateCacheTtl", 
+            "How long a resolved template (and image and hardware listings) can be re-used for other machines with the same "
+                    + "template configuration, across all jclouds locations in the management context; "
+                    + "zero (the default) resolves the template afresh for every machine. "
+                    + "Templates are not cached when a custom templateBuilder or location customizers are used",
+            Duration.ZERO);
+
     @SuppressWarnings("serial")
     public static final ConfigKey<Function<Iterable<? extends Image>,Image>> IMAGE_CHOOSER = ConfigKeys.newConfigKey(
         new TypeToken<Function<Iterable<? extends Image>,Image>>() {},
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.internal.TemplateImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A cache, shared by all jclouds locations in a management context, of resolved {@link Template}s
+ * and of image and hardware-profile listings; resolving a template against a cloud with thousands
+ * of images can otherwise take tens of seconds for every machine.
+ * <p>
+ * Entries are keyed by the caller (see {@link JcloudsLocation#getTemplateCacheKey}),
+ * and each lookup passes the time-to-live it will accept, so locations with different
+ * {@link JcloudsLocationConfig#TEMPLATE_CACHE_TTL} can share the cache. Concurrent lookups
+ * of the same key share a single resolution.
+ * <p>
+ * Templates are copied on the way in and out (with cloned options), as callers customize
+ * the options of the template they are given.
+ */
+@Beta
+public class JcloudsTemplateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JcloudsTemplateCache.class);
+
+    public static final ConfigKey<Integer> MAX_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.jclouds.templateCache.maxSize",
+            "Maximum number of templates and image/hardware listings to cache, across all jclouds locations",
+            1000);
+
+    private static final LoadingCache<ManagementContext, JcloudsTemplateCache> INSTANCES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<ManagementContext, JcloudsTemplateCache>() {
+                @Override
+                public JcloudsTemplateCache load(ManagementContext mgmt) {
+                    return new JcloudsTemplateCache(mgmt.getConfig().getConfig(MAX_SIZE));
+                }
+            });
+
+    /** The cache for the given management context, created on first use. */
+    public static JcloudsTemplateCache forManagementContext(ManagementContext mgmt) {
+        return INSTANCES.getUnchecked(checkNotNull(mgmt, "mgmt"));
+    }
+
+    private static class Entry {
+        final Object value;
+        final long timestamp = System.currentTimeMillis();
+
+        Entry(Object value) {
+            this.value = value;
+        }
+
+        boolean isOlderThan(Duration ttl) {
+            return System.currentTimeMillis() - timestamp >= ttl.toMilliseconds();
+        }
+    }
+
+    private final Cache<List<Object>, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public JcloudsTemplateCache(int maxSize) {
+        entries = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Returns a copy of the template cached for the given key, if younger than the given ttl;
+     * otherwise resolves, caches and returns a copy of a new one.
+     */
+    public Template getTemplate(List<?> key, Duration ttl, final Callable<? extends Template> resolver) {
+        Template result = get(kindOf("template", key), ttl, new Callable<Template>() {
+            @Override
+            public Template call() throws Exception {
+                return copyOf(resolver.call());
+            }
+        });
+        return copyOf(result);
+    }
+
+    public Set<? extends Image> listImages(List<?> key, Duration ttl, final ComputeService computeService) {
+        return get(kindOf("images", key), ttl, new Callable<Set<? extends Image>>() {
+            @Override
+            public Set<? extends Image> call() {
+                return ImmutableSet.copyOf(computeService.listImages());
+            }
+        });
+    }
+
+    public Set<? extends Hardware> listHardwareProfiles(List<?> key, Duration ttl, final ComputeService computeService) {
+        return get(kindOf("hardware", key), ttl, new Callable<Set<? extends Hardware>>() {
+            @Override
+            public Set<? extends Hardware> call() {
+                return ImmutableSet.copyOf(computeService.listHardwareProfiles());
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        LOG.debug("Invalidating all {} entries in {}", entries.size(), this);
+        entries.invalidateAll();
+    }
+
+    /** Invalidates all entries whose key contains the given value, e.g. a provider name or compute service registry. */
+    public void invalidate(Object keyElement) {
+        for (List<Object> key : entries.asMap().keySet()) {
+            if (key.contains(keyElement)) {
+                entries.invalidate(key);
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> T get(List<Object> key, Duration ttl, final Callable<? extends T> loader) {
+        final AtomicBoolean loaded = new AtomicBoolean();
+        Callable<Entry> entryLoader = new Callable<Entry>() {
+            @Override
+            public Entry call() throws Exception {
+                loaded.set(true);
+                return new Entry(loader.call());
+            }
+        };
+        try {
+            Entry entry = entries.get(key, entryLoader);
+            if (!loaded.get() && entry.isOlderThan(ttl)) {
+                entries.asMap().remove(key, entry);
+                entry = entries.get(key, entryLoader);
+            }
+            if (loaded.get()) {
+                misses.incrementAndGet();
+                LOG.debug("Template cache miss in {}, for {}", this, key.get(0));
+            } else {
+                hits.incrementAndGet();
+            }
+            return (T) entry.value;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
+    private static List<Object> kindOf(String kind, List<?> key) {
+        // not an ImmutableList, as keys can contain nulls (e.g. an unset endpoint)
+        List<Object> result = Lists.newArrayList();
+        result.add(kind);
+        result.addAll(key);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static Template copyOf(Template template) {
+        return new TemplateImpl(template.getImage(), template.getHardware(), template.getLocation(), template.getOptions().clone());
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("size", size()).add("hits", getHitCount()).add("misses", getMissCount()).toString();
+    }
+}
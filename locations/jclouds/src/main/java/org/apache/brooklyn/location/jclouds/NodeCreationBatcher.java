@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Coalesces concurrent requests to create a node from identical templates into a single
+ * {@link ComputeService#createNodesInGroup(String, int, Template)} call, so that growing a cluster
+ * by n members makes one provisioning request to the cloud rather than n.
+ * <p>
+ * The first request for a given template waits for the batch window, collecting any other requests
+ * for the same template (up to the maximum batch size), then creates the nodes for all of them
+ * and hands one to each. If the cloud creates fewer nodes than requested, the requests without
+ * a node fail with the error that jclouds reported. A request that is interrupted while waiting
+ * gives up its slot: its node is not created if the batch has not yet started, and is destroyed otherwise.
+ * <p>
+ * All nodes in a batch are created with the group id and template of the first request; callers
+ * must therefore only batch requests whose templates are equal (as checked here), i.e. without
+ * per-machine user metadata. Anything generated for a machine's template, such as the script to create
+ * its user, must be shared by the requests in a batch (see {@link #getSharedValue(List, Duration, Callable)}),
+ * so must not include per-machine secrets such as generated passwords.
+ * <p>
+ * Callers holding a permit from the location's machine-creation semaphore while they wait for a batch
+ * limit its size: at most {@code maxConcurrentMachineCreations} requests can be in a batch.
+ */
+@Beta
+public class NodeCreationBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeCreationBatcher.class);
+
+    private final Map<List<Object>, Batch> pending = Maps.newHashMap();
+    private final Map<List<Object>, SharedValue> sharedValues = Maps.newHashMap();
+
+    private static class SharedValue {
+        final Object value;
+        final long timestamp = System.currentTimeMillis();
+        SharedValue(Object value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Returns the value for the given key computed (by this or another caller) within the given time,
+     * or computes a new one; for values which must be the same for all requests in a batch, but which
+     * would otherwise be generated afresh for each request.
+     *
+     * @param ttl how long the value can be shared, e.g. the batch window
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getSharedValue(List<Object> key, Duration ttl, Callable<T> valueSupplier) {
+        synchronized (sharedValues) {
+            long now = System.currentTimeMillis();
+            for (Iterator<SharedValue> iter = sharedValues.values().iterator(); iter.hasNext();) {
+                if (now - iter.next().timestamp > ttl.toMilliseconds()) iter.remove();
+            }
+            SharedValue result = sharedValues.get(key);
+            if (result == null) {
+                try {
+                    result = new SharedValue(valueSupplier.call());
+                } catch (Exception e) {
+                    throw Exceptions.propagate(e);
+                }
+                sharedValues.put(key, result);
+            }
+            return (T) result.value;
+        }
+    }
+
+    /**
+     * Creates a node, possibly as part of a batch with other concurrent calls.
+     *
+     * @param context identifies which requests may share a group id (e.g. the parent entity of the
+     *        caller), as well as a template; may be null
+     * @param window how long the first request waits for others to join its batch
+     * @param maxBatchSize the most nodes to create in a single call
+     */
+    public NodeMetadata createNode(ComputeService computeService, String groupId, Template template, Object context,
+            Duration window, int maxBatchSize) throws RunNodesException, InterruptedException {
+        checkNotNull(window, "window");
+        checkArgument(maxBatchSize >= 1, "maxBatchSize must be at least 1, but was %s", maxBatchSize);
+        List<Object> key = keyOf(computeService, template, context);
+        Batch batch;
+        int index;
+        boolean leader = false;
+        synchronized (pending) {
+            batch = pending.get(key);
+            if (batch == null) {
+                batch = new Batch(computeService, groupId, template);
+                pending.put(key, batch);
+                leader = true;
+            }
+            index = batch.size++;
+            if (batch.size >= maxBatchSize) {
+                pending.remove(key);
+                batch.full.countDown();
+            }
+        }
+
+        if (leader) {
+            // others in the batch are relying on us, so create the nodes even if interrupted
+            boolean interrupted = false;
+            try {
+                batch.full.await(window.toMilliseconds(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            int count;
+            synchronized (pending) {
+                if (pending.get(key) == batch) pending.remove(key);
+                count = batch.size;
+            }
+            batch.run(count);
+            if (interrupted) Thread.currentThread().interrupt();
+        } else {
+            try {
+                batch.done.await();
+            } catch (InterruptedException e) {
+                // no-one else will claim our node, so don't leave it running
+                batch.abandon(index);
+                throw e;
+            }
+        }
+        return batch.get(index);
+    }
+
+    protected List<Object> keyOf(ComputeService computeService, Template template, Object context) {
+        return Arrays.<Object>asList(
+                computeService,
+                context,
+                template.getImage() == null ? null : template.getImage().getId(),
+                template.getHardware() == null ? null : template.getHardware().getId(),
+                template.getLocation() == null ? null : template.getLocation().getId(),
+                template.getOptions());
+    }
+
+    private static class Batch {
+        private final ComputeService computeService;
+        private final String groupId;
+        private final Template template;
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        // guarded by the batcher's pending map
+        private int size;
+        // guarded by this
+        private final Set<Integer> abandoned = Sets.newLinkedHashSet();
+        private final Map<Integer, NodeMetadata> nodes = Maps.newLinkedHashMap();
+        private boolean finished;
+        private Exception error;
+
+        Batch(ComputeService computeService, String groupId, Template template) {
+            this.computeService = computeService;
+            this.groupId = groupId;
+            this.template = template;
+        }
+
+        void run(int count) {
+            // requests abandoned before we start are not created at all
+            List<Integer> claims = Lists.newArrayList();
+            synchronized (this) {
+                for (int i = 0; i < count; i++) {
+                    if (!abandoned.contains(i)) claims.add(i);
+                }
+            }
+            List<NodeMetadata> created = ImmutableList.of();
+            Exception failure = null;
+            try {
+                if (!claims.isEmpty()) {
+                    LOG.debug("Creating batch of {} node(s) in group {}", claims.size(), groupId);
+                    long start = System.currentTimeMillis();
+                    Set<? extends NodeMetadata> result = computeService.createNodesInGroup(groupId, claims.size(), template);
+                    created = ImmutableList.copyOf(result);
+                    if (created.size() < claims.size()) {
+                        failure = new IllegalStateException("Only "+created.size()+" of "+claims.size()+" nodes returned by jclouds create-nodes in group "+groupId);
+                    }
+                    LOG.debug("Created batch of {} node(s) in group {}, in {}", new Object[] {created.size(), groupId, Time.makeTimeStringRoundedSince(start)});
+                }
+            } catch (RunNodesException e) {
+                created = ImmutableList.copyOf(e.getSuccessfulNodes());
+                failure = e;
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                List<NodeMetadata> unclaimed = Lists.newArrayList();
+                synchronized (this) {
+                    for (int i = 0; i < created.size(); i++) {
+                        int index = claims.get(i);
+                        if (abandoned.contains(index)) {
+                            unclaimed.add(created.get(i));
+                        } else {
+                            nodes.put(index, created.get(i));
+                        }
+                    }
+                    error = failure;
+                    finished = true;
+                }
+                done.countDown();
+                for (NodeMetadata node : unclaimed) {
+                    destroy(node);
+                }
+            }
+        }
+
+        /**
+         * Records that the request for the given slot has gone away; its node is not created
+         * if the batch has not yet started, and is otherwise destroyed.
+         */
+        void abandon(int index) {
+            NodeMetadata node;
+            synchronized (this) {
+                abandoned.add(index);
+                if (!finished) return;
+                node = nodes.remove(index);
+            }
+            if (node != null) destroy(node);
+        }
+
+        synchronized NodeMetadata get(int index) throws RunNodesException {
+            NodeMetadata result = nodes.get(index);
+            if (result != null) return result;
+            if (error instanceof RunNodesException) throw (RunNodesException) error;
+            if (error != null) throw Exceptions.propagate(error);
+            throw new IllegalStateException("No node returned by jclouds create-nodes in group "+groupId);
+        }
+
+        private void destroy(NodeMetadata node) {
+            LOG.info("Destroying node {} in group {}, as its batched request was abandoned", node.getId(), groupId);
+            try {
+                computeService.destroyNode(node.getId());
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Failed to destroy node "+node.getId()+" in group "+groupId+", whose batched request was abandoned (continuing)", e);
+            }
+        }
+    }
+}
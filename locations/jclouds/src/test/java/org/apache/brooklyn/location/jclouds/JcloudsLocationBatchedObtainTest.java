@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.ComputeMetadata;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Tests batching of concurrent obtain calls, using the jclouds "stub" compute service
+ * (which creates nodes in memory).
+ */
+public class JcloudsLocationBatchedObtainTest extends BrooklynAppUnitTestSupport {
+
+    private ComputeServiceContext context;
+    private RecordingComputeService computeService;
+    private ExecutorService executor;
+
+    public static class RecordingComputeService extends DelegatingComputeService {
+        public final List<Integer> createCounts = Lists.newCopyOnWriteArrayList();
+        public final List<Template> templates = Lists.newCopyOnWriteArrayList();
+        public final List<String> destroyed = Lists.newCopyOnWriteArrayList();
+        public volatile boolean failCreation = false;
+        public volatile CountDownLatch creating;
+        public volatile CountDownLatch allowCreation;
+
+        public RecordingComputeService(ComputeService delegate) {
+            super(delegate);
+        }
+        @Override
+        public Set<? extends NodeMetadata> createNodesInGroup(String group, int count, Template template) throws RunNodesException {
+            createCounts.add(count);
+            templates.add(template);
+            if (failCreation) throw new IllegalStateException("Simulated failure to create nodes");
+            if (creating != null) creating.countDown();
+            if (allowCreation != null) Uninterruptibles.awaitUninterruptibly(allowCreation);
+            return super.createNodesInGroup(group, count, template);
+        }
+        @Override
+        public void destroyNode(String id) {
+            destroyed.add(id);
+            super.destroyNode(id);
+        }
+    }
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        context = ContextBuilder.newBuilder("stub").buildView(ComputeServiceContext.class);
+        computeService = new RecordingComputeService(context.getComputeService());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        super.tearDown();
+        if (context != null) context.close();
+    }
+
+    @Test
+    public void testConcurrentObtainsCreateNodesInOneCall() throws Exception {
+        JcloudsLocation loc = newLocation(Duration.TEN_SECONDS, 3);
+
+        List<JcloudsSshMachineLocation> machines = obtainConcurrently(loc, 3);
+
+        assertEquals(computeService.createCounts, Lists.newArrayList(3));
+        Set<String> nodeIds = Sets.newHashSet();
+        for (JcloudsSshMachineLocation machine : machines) {
+            nodeIds.add(machine.getNode().getId());
+        }
+        assertEquals(nodeIds.size(), 3);
+    }
+
+    /**
+     * With the default waitForSshable, each template has a script to create the user, which must be shared for
+     * the requests to be batched; here it sets only the configured password. The stub machines are not
+     * reachable by ssh, so node creation is made to fail once the templates have been recorded.
+     */
+    @Test
+    public void testConcurrentObtainsWithUserCreationAreBatched() throws Exception {
+        JcloudsLocation loc = newLocationCreatingUser(ImmutableMap.<ConfigKey<?>, Object>of(
+                JcloudsLocation.PASSWORD, "mypassword",
+                JcloudsLocation.DISABLE_ROOT_AND_PASSWORD_SSH, false));
+
+        obtainConcurrentlyExpectingFailure(loc, 3);
+
+        assertEquals(computeService.createCounts, Lists.newArrayList(3));
+        assertNotNull(Iterables.getOnlyElement(computeService.templates).getOptions().getRunScript());
+    }
+
+    /** Machines must not share a generated password, so creating a user without one configured is not batched. */
+    @Test
+    public void testConcurrentObtainsWithGeneratedPasswordAreNotBatched() throws Exception {
+        JcloudsLocation loc = newLocationCreatingUser(ImmutableMap.<ConfigKey<?>, Object>of(
+                JcloudsLocation.DISABLE_ROOT_AND_PASSWORD_SSH, false));
+
+        obtainConcurrentlyExpectingFailure(loc, 3);
+
+        assertEquals(computeService.createCounts, Lists.newArrayList(1, 1, 1));
+        Set<Object> scripts = Sets.newIdentityHashSet();
+        for (Template template : computeService.templates) {
+            scripts.add(template.getOptions().getRunScript());
+        }
+        assertEquals(scripts.size(), 3);
+    }
+
+    @Test
+    public void testObtainsAreNotBatchedByDefault() throws Exception {
+        JcloudsLocation loc = newLocation(Duration.ZERO, 3);
+
+        obtainConcurrently(loc, 3);
+
+        assertEquals(computeService.createCounts, Lists.newArrayList(1, 1, 1));
+    }
+
+    @Test
+    public void testBatchIsCreatedWhenWindowExpires() throws Exception {
+        JcloudsLocation loc = newLocation(Duration.millis(10), 3);
+
+        loc.obtain(ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, app.createAndManageChild(EntitySpec.create(TestEntity.class))));
+
+        assertEquals(computeService.createCounts, Lists.newArrayList(1));
+    }
+
+    /**
+     * Interrupts both requests in a batch while its nodes are being created: the leader carries on and
+     * gets its node, but the waiter's node is not wanted by anyone so must be destroyed.
+     */
+    @Test
+    public void testNodeOfInterruptedWaiterIsDestroyed() throws Exception {
+        final NodeCreationBatcher batcher = new NodeCreationBatcher();
+        final Template template = computeService.templateBuilder().build();
+        computeService.creating = new CountDownLatch(1);
+        computeService.allowCreation = new CountDownLatch(1);
+
+        List<Future<NodeMetadata>> futures = Lists.newArrayList();
+        for (int i = 0; i < 2; i++) {
+            futures.add(executor.submit(new Callable<NodeMetadata>() {
+                @Override
+                public NodeMetadata call() throws Exception {
+                    return batcher.createNode(computeService, "mygroup", template, null, Duration.TEN_SECONDS, 2);
+                }
+            }));
+        }
+        assertTrue(computeService.creating.await(10, TimeUnit.SECONDS));
+        for (Future<NodeMetadata> future : futures) {
+            future.cancel(true);
+        }
+        computeService.allowCreation.countDown();
+
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(computeService.destroyed.size(), 1);
+            }
+        });
+        assertEquals(computeService.createCounts, Lists.newArrayList(2));
+        Set<String> remaining = Sets.newHashSet();
+        for (ComputeMetadata node : computeService.listNodes()) {
+            if (((NodeMetadata) node).getStatus() != NodeMetadata.Status.TERMINATED) remaining.add(node.getId());
+        }
+        assertEquals(remaining.size(), 1, "remaining="+remaining);
+        assertFalse(remaining.contains(computeService.destroyed.get(0)));
+    }
+
+    private JcloudsLocation newLocationCreatingUser(Map<ConfigKey<?>, ?> config) {
+        computeService.failCreation = true;
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(JcloudsLocation.class)
+                .configure(JcloudsLocation.CLOUD_PROVIDER, "stub")
+                .configure(JcloudsLocation.COMPUTE_SERVICE_REGISTRY, new ComputeServiceRegistry() {
+                    @Override
+                    public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
+                        return computeService;
+                    }
+                })
+                .configure(JcloudsLocation.MACHINE_CREATION_BATCH_WINDOW, Duration.TEN_SECONDS)
+                .configure(JcloudsLocation.MAX_MACHINE_CREATION_BATCH_SIZE, 3)
+                .configure(config));
+    }
+
+    private JcloudsLocation newLocation(Duration batchWindow, int maxBatchSize) {
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(JcloudsLocation.class)
+                .configure(JcloudsLocation.CLOUD_PROVIDER, "stub")
+                .configure(JcloudsLocation.COMPUTE_SERVICE_REGISTRY, new ComputeServiceRegistry() {
+                    @Override
+                    public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
+                        return computeService;
+                    }
+                })
+                .configure(JcloudsLocation.WAIT_FOR_SSHABLE, "false")
+                .configure(JcloudsLocation.USE_JCLOUDS_SSH_INIT, false)
+                .configure(JcloudsLocation.MACHINE_CREATION_BATCH_WINDOW, batchWindow)
+                .configure(JcloudsLocation.MAX_MACHINE_CREATION_BATCH_SIZE, maxBatchSize));
+    }
+
+    private void obtainConcurrentlyExpectingFailure(final JcloudsLocation loc, int count) throws Exception {
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    loc.obtain(ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, entity));
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+                Asserts.shouldHaveFailedPreviously();
+            } catch (ExecutionException e) {
+                Asserts.expectedFailureContains(e, "Simulated failure to create nodes");
+            }
+        }
+    }
+
+    private List<JcloudsSshMachineLocation> obtainConcurrently(final JcloudsLocation loc, int count) throws Exception {
+        List<Future<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override
+                public JcloudsSshMachineLocation call() throws Exception {
+                    return (JcloudsSshMachineLocation) loc.obtain(ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, entity));
+                }
+            }));
+        }
+        List<JcloudsSshMachineLocation> result = Lists.newArrayList();
+        for (Future<JcloudsSshMachineLocation> future : futures) {
+            result.add(future.get());
+        }
+        return result;
+    }
+}
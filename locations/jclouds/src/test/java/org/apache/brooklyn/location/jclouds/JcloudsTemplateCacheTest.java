@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests caching of resolved templates, using the jclouds "stub" compute service.
+ */
+public class JcloudsTemplateCacheTest extends BrooklynAppUnitTestSupport {
+
+    private ComputeServiceContext context;
+    private ComputeService computeService;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        context = ContextBuilder.newBuilder("stub").buildView(ComputeServiceContext.class);
+        computeService = context.getComputeService();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        if (context != null) context.close();
+    }
+
+    @Test
+    public void testReusesResolvedTemplateWithSeparateOptions() throws Exception {
+        JcloudsLocation loc = newLocation(Duration.ONE_MINUTE);
+        JcloudsTemplateCache cache = loc.getTemplateCache();
+
+        Template template1 = loc.buildTemplate(computeService, newSetup(loc));
+        Template template2 = loc.buildTemplate(computeService, newSetup(loc));
+
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(template2.getImage(), template1.getImage());
+        assertEquals(template2.getHardware(), template1.getHardware());
+        assertNotSame(template2.getOptions(), template1.getOptions());
+
+        template1.getOptions().getUserMetadata().put("mykey", "myval");
+        assertFalse(loc.buildTemplate(computeService, newSetup(loc)).getOptions().getUserMetadata().containsKey("mykey"));
+    }
+
+    @Test
+    public void testDifferentTemplateConfigIsNotShared() throws Exception {
+        JcloudsLocation loc = newLocation(Duration.ONE_MINUTE);
+        JcloudsTemplateCache cache = loc.getTemplateCache();
+
+        loc.buildTemplate(computeService, newSetup(loc));
+        loc.buildTemplate(computeService, newSetup(loc).configure(JcloudsLocation.MIN_RAM, 4096));
+
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.getHitCount(), 0);
+    }
+
+    @Test
+    public void testInvalidateAndExpiry() throws Exception {
+        JcloudsLocation loc = newLocation(Duration.ONE_MINUTE);
+        JcloudsTemplateCache cache = loc.getTemplateCache();
+
+        loc.buildTemplate(computeService, newSetup(loc));
+        cache.invalidateAll();
+        loc.buildTemplate(computeService, newSetup(loc));
+        assertEquals(cache.getMissCount(), 2);
+
+        cache.invalidate("stub");
+        assertEquals(cache.size(), 0);
+
+        JcloudsLocation shortLivedLoc = newLocation(Duration.millis(1));
+        shortLivedLoc.buildTemplate(computeService, newSetup(shortLivedLoc));
+        Time.sleep(Duration.millis(10));
+        shortLivedLoc.buildTemplate(computeService, newSetup(shortLivedLoc));
+        assertEquals(cache.getMissCount(), 4);
+        assertEquals(cache.getHitCount(), 0);
+    }
+
+    @Test
+    public void testNotCachedByDefault() throws Exception {
+        JcloudsLocation loc = newLocation(Duration.ZERO);
+
+        loc.buildTemplate(computeService, newSetup(loc));
+        loc.buildTemplate(computeService, newSetup(loc));
+
+        assertEquals(loc.getTemplateCache().size(), 0);
+        assertEquals(loc.getTemplateCache().getMissCount(), 0);
+    }
+
+    private ConfigBag newSetup(JcloudsLocation loc) {
+        return ConfigBag.newInstanceExtending(loc.config().getBag());
+    }
+
+    private JcloudsLocation newLocation(Duration ttl) {
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(JcloudsLocation.class)
+                .configure(JcloudsLocation.CLOUD_PROVIDER, "stub")
+                .configure(JcloudsLocation.TEMPLATE_CACHE_TTL, ttl));
+    }
+}
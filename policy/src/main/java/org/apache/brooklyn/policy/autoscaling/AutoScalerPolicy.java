@@ -24,10 +24,6 @@ import groovy.lang.Closure;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
@@ -43,6 +39,7 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.BasicConfigKey;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.trait.Resizable;
 import org.apache.brooklyn.core.entity.trait.Startable;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
@@ -53,6 +50,7 @@ import org.apache.brooklyn.policy.loadbalancing.LoadBalancingPolicy;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.core.task.SerialScheduler;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.time.Duration;
 
@@ -60,7 +58,6 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.reflect.TypeToken;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 
 /**
@@ -407,7 +404,8 @@ public class AutoScalerPolicy extends AbstractPolicy {
     
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
-    private volatile ScheduledExecutorService executor;
+    /** runs resizes one at a time, on the management context's shared threads; created when first needed */
+    private transient SerialScheduler scheduler;
 
     private SizeHistory recentUnboundedResizes;
 
@@ -463,9 +461,6 @@ public class AutoScalerPolicy extends AbstractPolicy {
         
         long maxResizeStabilizationDelay = Math.max(getResizeUpStabilizationDelay().toMilliseconds(), getResizeDownStabilizationDelay().toMilliseconds());
         recentDesiredResizes = new SizeHistory(maxResizeStabilizationDelay);
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
 
     public void setMetricLowerBound(Number val) {
@@ -629,14 +624,9 @@ public class AutoScalerPolicy extends AbstractPolicy {
     public void suspend() {
         super.suspend();
         // TODO unsubscribe from everything? And resubscribe on resume?
-        if (executor != null) executor.shutdownNow();
-    }
-    
-    @Override
-    public void resume() {
-        super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
+        closeScheduler();
     }
+
     
     @Override
     public void setEntity(EntityLocal entity) {
@@ -655,10 +645,17 @@ public class AutoScalerPolicy extends AbstractPolicy {
         subscriptions().subscribe(poolEntity, getPoolOkSensor(), utilizationEventHandler);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-autoscalerpolicy-%d")
-                .build();
+    private synchronized SerialScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = new SerialScheduler(getManagementContext().getExecutionManager(), ((EntityInternal)entity).getExecutionContext(), "autoscaler-"+getId());
+        }
+        return scheduler;
+    }
+    
+    private synchronized void closeScheduler() {
+        if (scheduler != null) scheduler.close();
+        scheduler = null;
+        executorQueued.set(false);
     }
 
     /**
@@ -670,7 +667,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
         if (LOG.isTraceEnabled()) LOG.trace("{} checking pool size on limits changed for {} (between {} and {})", new Object[] {this, poolEntity, min, max});
         
         if (isRunning() && isEntityUp()) {
-            executor.submit(new Runnable() {
+            getScheduler().submit("Resize to pool size limits", new Runnable() {
                 @Override public void run() {
                     try {
                         int currentSize = getCurrentSizeOperator().apply(entity);
@@ -913,7 +910,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
             long delay = Math.max(0, (executorTime + getMinPeriodBetweenExecs().toMilliseconds()) - now);
             if (LOG.isTraceEnabled()) LOG.trace("{} scheduling resize in {}ms", this, delay);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule("Resize", new Runnable() {
                 @Override public void run() {
                     try {
                         executorTime = System.currentTimeMillis();
@@ -933,8 +930,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
                         throw Throwables.propagate(t);
                     }
                 }},
-                delay,
-                TimeUnit.MILLISECONDS);
+                Duration.millis(delay));
         }
     }
 
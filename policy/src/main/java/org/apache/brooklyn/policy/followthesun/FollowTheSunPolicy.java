@@ -24,10 +24,6 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 
 import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -39,6 +35,7 @@ import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.entity.Attributes;
+import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.policy.AbstractPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,10 +43,11 @@ import org.apache.brooklyn.policy.followthesun.FollowTheSunPool.ContainerItemPai
 import org.apache.brooklyn.policy.loadbalancing.Movable;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
+import org.apache.brooklyn.util.core.task.SerialScheduler;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
     // removed from catalog because it cannot currently be configured via catalog mechanisms - 
     // PolicySpec.create fails due to no no-arg constructor
@@ -75,7 +73,8 @@ public class FollowTheSunPolicy extends AbstractPolicy {
     
     private FollowTheSunPool poolEntity;
     
-    private volatile ScheduledExecutorService executor;
+    /** runs the latency-reduction jig one at a time, on the management context's shared threads; created when first needed */
+    private transient SerialScheduler scheduler;
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
     private boolean loggedConstraintsIgnored = false;
@@ -133,9 +132,6 @@ public class FollowTheSunPolicy extends AbstractPolicy {
         this.parameters = parameters;
         this.strategy = new FollowTheSunStrategy<Entity, Movable>(model, parameters); // TODO: extract interface, inject impl
         this.locationFinder = elvis(locationFinder, defaultLocationFinder);
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
     
     @Override
@@ -166,22 +162,27 @@ public class FollowTheSunPolicy extends AbstractPolicy {
     public void suspend() {
         // TODO unsubscribe from everything? And resubscribe on resume?
         super.suspend();
-        if (executor != null) executor.shutdownNow();
-        executorQueued.set(false);
+        closeScheduler();
     }
     
     @Override
     public void resume() {
         super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
         executorTime = 0;
         executorQueued.set(false);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-followthesunpolicy-%d")
-                .build();
+    private synchronized SerialScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = new SerialScheduler(getManagementContext().getExecutionManager(), ((EntityInternal)entity).getExecutionContext(), "followthesun-"+getId());
+        }
+        return scheduler;
+    }
+    
+    private synchronized void closeScheduler() {
+        if (scheduler != null) scheduler.close();
+        scheduler = null;
+        executorQueued.set(false);
     }
 
     private void scheduleLatencyReductionJig() {
@@ -189,7 +190,7 @@ public class FollowTheSunPolicy extends AbstractPolicy {
             long now = System.currentTimeMillis();
             long delay = Math.max(0, (executorTime + minPeriodBetweenExecs) - now);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule("Latency reduction jig", new Runnable() {
                 public void run() {
                     try {
                         executorTime = System.currentTimeMillis();
@@ -206,8 +207,7 @@ public class FollowTheSunPolicy extends AbstractPolicy {
                         }
                     }
                 }},
-                delay,
-                TimeUnit.MILLISECONDS);
+                Duration.millis(delay));
         }
     }
     
@@ -23,10 +23,6 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -43,10 +39,11 @@ import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.policy.autoscaling.AutoScalerPolicy;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
+import org.apache.brooklyn.util.core.task.SerialScheduler;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 
 /**
@@ -85,7 +82,8 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
     private final BalancingStrategy<NodeType, ItemType> strategy;
     private BalanceableWorkerPool poolEntity;
     
-    private volatile ScheduledExecutorService executor;
+    /** runs rebalancing one at a time, on the management context's shared threads; created when first needed */
+    private transient SerialScheduler scheduler;
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
 
@@ -138,9 +136,6 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
         this.highThresholdConfigKeyName = metric.getName()+".threshold.high";
         this.model = model;
         this.strategy = new BalancingStrategy(getDisplayName(), model); // TODO: extract interface, inject impl
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
     
     @SuppressWarnings("unchecked")
@@ -172,22 +167,27 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
     public void suspend() {
         // TODO unsubscribe from everything? And resubscribe on resume?
         super.suspend();
-        if (executor != null) executor.shutdownNow();;
-        executorQueued.set(false);
+        closeScheduler();
     }
     
     @Override
     public void resume() {
         super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
         executorTime = 0;
         executorQueued.set(false);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-followthesunpolicy-%d")
-                .build();
+    private synchronized SerialScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = new SerialScheduler(getManagementContext().getExecutionManager(), ((EntityInternal)entity).getExecutionContext(), "loadbalancer-"+getId());
+        }
+        return scheduler;
+    }
+    
+    private synchronized void closeScheduler() {
+        if (scheduler != null) scheduler.close();
+        scheduler = null;
+        executorQueued.set(false);
     }
 
     private void scheduleRebalance() {
@@ -195,7 +195,7 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
             long now = System.currentTimeMillis();
             long delay = Math.max(0, (executorTime + minPeriodBetweenExecs) - now);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule("Rebalance", new Runnable() {
                 @SuppressWarnings("rawtypes")
                 public void run() {
                     try {
@@ -252,8 +252,7 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
                         }
                     }
                 }},
-                delay,
-                TimeUnit.MILLISECONDS);
+                Duration.millis(delay));
         }
     }
     
@@ -153,4 +153,22 @@ public class RollingTimeWindowMeanEnricherTest {
         assertEquals(average.value, 50d);
         assertEquals(average.confidence, 0d);
     }
+
+    @Test
+    public void testNonFiniteValuesAreSkipped() {
+        AttributeSensor<Double> doubleSensor = new BasicAttributeSensor<Double>(Double.class, "double sensor");
+        RollingTimeWindowMeanEnricher<Double> doubleAverager = new RollingTimeWindowMeanEnricher<Double>(producer, doubleSensor, avgSensor, timePeriod);
+        producer.enrichers().add(doubleAverager);
+
+        doubleAverager.onEvent(doubleSensor.newEvent(producer, 10d), 1000);
+        doubleAverager.onEvent(doubleSensor.newEvent(producer, Double.NaN), 1500);
+        doubleAverager.onEvent(doubleSensor.newEvent(producer, Double.POSITIVE_INFINITY), 1600);
+        doubleAverager.onEvent(doubleSensor.newEvent(producer, Double.NEGATIVE_INFINITY), 1700);
+        doubleAverager.onEvent(doubleSensor.newEvent(producer, 20d), 2000);
+
+        // the 20 is taken to hold since the last usable value
+        average = doubleAverager.getAverage(2000);
+        assertEquals(average.value, 20d);
+        assertEquals(average.confidence, 1d);
+    }
 }
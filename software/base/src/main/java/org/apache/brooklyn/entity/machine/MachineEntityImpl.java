@@ -68,6 +68,7 @@ public class MachineEntityImpl extends EmptySoftwareProcessImpl implements Machi
         sensorFeed = SshFeed.builder()
                 .entity(this)
                 .period(Duration.THIRTY_SECONDS)
+                .multiplex(true)
                 .poll(new SshPollConfig<Duration>(UPTIME)
                         .command("cat /proc/uptime")
                         .onFailureOrException(Functions.<Duration>constant(null))
@@ -26,6 +26,7 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.AttributeNotFoundException;
 import javax.management.Notification;
 import javax.management.NotificationFilter;
 import javax.management.NotificationListener;
@@ -36,6 +37,7 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.feed.AbstractFeed;
 import org.apache.brooklyn.core.feed.AttributePollHandler;
+import org.apache.brooklyn.core.feed.ChangeTrackingPollHandler;
 import org.apache.brooklyn.core.feed.DelegatingPollHandler;
 import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.core.feed.Poller;
@@ -45,8 +47,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
@@ -286,9 +292,28 @@ public class JmxFeed extends AbstractFeed {
             });
         }
         
-        // Setup polling of sensors
-        for (final String jmxAttributeName : attributePolls.keys()) {
-            registerAttributePoller(attributePolls.get(jmxAttributeName));
+        // Setup polling of sensors; attributes of the same MBean polled with the same period are read with a single request
+        Map<List<?>, Map<String, Set<JmxAttributePollConfig<?>>>> attributePollsByMBean = Maps.newLinkedHashMap();
+        for (final String jmxAttributeName : attributePolls.keySet()) {
+            Set<JmxAttributePollConfig<?>> configs = attributePolls.get(jmxAttributeName);
+            JmxAttributePollConfig<?> first = Iterables.get(configs, 0);
+            long minPeriod = Integer.MAX_VALUE;
+            for (JmxAttributePollConfig<?> config : configs) {
+                if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
+            }
+            List<?> mbeanAndPeriod = ImmutableList.<Object>of(first.getObjectName(), minPeriod);
+            if (!attributePollsByMBean.containsKey(mbeanAndPeriod)) {
+                attributePollsByMBean.put(mbeanAndPeriod, Maps.<String, Set<JmxAttributePollConfig<?>>>newLinkedHashMap());
+            }
+            attributePollsByMBean.get(mbeanAndPeriod).put(first.getAttributeName(), configs);
+        }
+        for (Map.Entry<List<?>, Map<String, Set<JmxAttributePollConfig<?>>>> entry : attributePollsByMBean.entrySet()) {
+            Map<String, Set<JmxAttributePollConfig<?>>> configsByAttribute = entry.getValue();
+            if (configsByAttribute.size() == 1) {
+                registerAttributePoller(Iterables.getOnlyElement(configsByAttribute.values()));
+            } else {
+                registerAttributesPoller((ObjectName) entry.getKey().get(0), configsByAttribute, (Long) entry.getKey().get(1));
+            }
         }
         
         // Setup polling of operations
@@ -372,6 +397,113 @@ public class JmxFeed extends AbstractFeed {
                 new DelegatingPollHandler<Object>(handlers), minPeriod);
     }
 
+    /**
+     * Registers to poll several jmx-attributes of an ObjectName with a single request each time,
+     * where the given configs are for that ObjectName and are keyed by attribute.
+     */
+    private void registerAttributesPoller(final ObjectName objectName, Map<String, Set<JmxAttributePollConfig<?>>> configsByAttribute, long period) {
+        Map<String, PollHandler<Object>> handlers = Maps.newLinkedHashMap();
+        
+        for (Map.Entry<String, Set<JmxAttributePollConfig<?>>> entry : configsByAttribute.entrySet()) {
+            Set<AttributePollHandler<? super Object>> attributeHandlers = Sets.newLinkedHashSet();
+            for (JmxAttributePollConfig<?> config : entry.getValue()) {
+                attributeHandlers.add(new AttributePollHandler<Object>(config, getEntity(), this));
+            }
+            handlers.put(entry.getKey(), new DelegatingPollHandler<Object>(attributeHandlers));
+        }
+        final Set<String> jmxAttributeNames = ImmutableSet.copyOf(handlers.keySet());
+        
+        getPoller().scheduleAtFixedRate(
+                new Callable<Object>() {
+                    public Object call() throws Exception {
+                        if (log.isTraceEnabled()) log.trace("jmx attributes polling for {} sensors at {} -> {}", new Object[] {getEntity(), getJmxUri(), jmxAttributeNames});
+                        return getHelper().getAttributes(objectName, jmxAttributeNames);
+                    }
+                }, 
+                new AttributesPollHandler(objectName, handlers), period);
+    }
+
+    /**
+     * Passes the value of each attribute from a poll of several attributes to the handler for that attribute.
+     */
+    private static class AttributesPollHandler implements ChangeTrackingPollHandler<Object> {
+        private final ObjectName objectName;
+        private final Map<String, PollHandler<Object>> delegates;
+        
+        AttributesPollHandler(ObjectName objectName, Map<String, PollHandler<Object>> delegates) {
+            this.objectName = objectName;
+            this.delegates = ImmutableMap.copyOf(delegates);
+        }
+        
+        @Override
+        public boolean checkSuccess(Object val) {
+            // success is checked for each attribute in turn
+            return true;
+        }
+
+        @Override
+        public void onSuccess(Object val) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> values = (Map<String, Object>) val;
+            for (Map.Entry<String, PollHandler<Object>> entry : delegates.entrySet()) {
+                PollHandler<Object> delegate = entry.getValue();
+                try {
+                    if (values != null && !values.containsKey(entry.getKey())) {
+                        delegate.onException(new AttributeNotFoundException("No value for jmx attribute "+objectName.getCanonicalName()+"."+entry.getKey()));
+                    } else {
+                        // as for a single attribute, a value of null if the MBean was not found
+                        Object value = (values != null) ? values.get(entry.getKey()) : null;
+                        if (delegate.checkSuccess(value)) {
+                            delegate.onSuccess(value);
+                        } else {
+                            delegate.onFailure(value);
+                        }
+                    }
+                } catch (Exception e) {
+                    delegate.onException(e);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Object val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public boolean isLastResultChanged() {
+            for (PollHandler<Object> delegate : delegates.values()) {
+                if (!(delegate instanceof ChangeTrackingPollHandler) || ((ChangeTrackingPollHandler<?>)delegate).isLastResultChanged())
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<Object> delegate : delegates.values()) {
+                delegate.onException(exception);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            StringBuilder sb = new StringBuilder(objectName.getCanonicalName()).append("[");
+            int count = 0;
+            for (PollHandler<Object> delegate : delegates.values()) {
+                if (count>0) sb.append("; ");
+                sb.append(delegate.getDescription());
+                count++;
+            }
+            return sb.append("]").toString();
+        }
+        
+        @Override
+        public String toString() {
+            return super.toString()+"["+getDescription()+"]";
+        }
+    }
+
     /**
      * Registers to subscribe to notifications for an ObjectName, where all the given configs are for that same ObjectName + filter.
      */
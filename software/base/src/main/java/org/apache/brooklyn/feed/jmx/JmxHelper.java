@@ -27,8 +27,10 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
@@ -37,6 +39,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -46,12 +49,14 @@ import javax.management.ListenerNotFoundException;
 import javax.management.MBeanServerConnection;
 import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
+import javax.management.Notification;
 import javax.management.NotificationFilter;
 import javax.management.NotificationListener;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.TabularData;
+import javax.management.remote.JMXConnectionNotification;
 import javax.management.remote.JMXConnector;
 import javax.management.remote.JMXConnectorFactory;
 import javax.management.remote.JMXServiceURL;
@@ -74,11 +79,13 @@ import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 
 public class JmxHelper {
 
@@ -93,6 +100,9 @@ public class JmxHelper {
     // Tracks the MBeans we have failed to find, with a set keyed off the url
     private static final Map<String, Set<ObjectName>> notFoundMBeansByUrl = Collections.synchronizedMap(new WeakHashMap<String, Set<ObjectName>>());
 
+    // Connections shared by the JmxHelpers with the same url, credentials and entity (e.g. for several feeds of an entity)
+    private static final Map<List<?>, SharedConnection> sharedConnections = Maps.newHashMap();
+
     public static final Map<String, String> CLASSES = ImmutableMap.<String,String>builder()
             .put("Integer", Integer.TYPE.getName())
             .put("Long", Long.TYPE.getName())
@@ -152,8 +162,8 @@ public class JmxHelper {
     final String user;
     final String password;
 
-    private volatile transient JMXConnector connector;
     private volatile transient MBeanServerConnection connection;
+    private volatile transient SharedConnection sharedConnection;
     private transient boolean triedConnecting;
     private transient boolean failedReconnecting;
     private transient long failedReconnectingTime;
@@ -261,18 +271,50 @@ public class JmxHelper {
         }
     }
 
-    /** attempts to connect immediately */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
+    /**
+     * Attempts to connect immediately.
+     * <p>
+     * The connection is shared with other JmxHelpers for the same url, credentials and entity, if they are connected
+     * (and the connection is still usable); it is closed when the last of them disconnects.
+     */
     public synchronized void connect() throws IOException {
         if (terminated.get()) throw new IllegalStateException("JMX Helper "+this+" already terminated");
         if (connection != null) return;
 
         triedConnecting = true;
-        if (connector != null) connector.close();
+        // in case of a previous failed attempt
+        releaseSharedConnection();
+        
+        SharedConnection shared = acquireSharedConnection();
+        boolean success = false;
+        try {
+            synchronized (shared) {
+                if (!shared.isUsable()) {
+                    shared.close();
+                    shared.open(newConnector());
+                } else {
+                    if (LOG.isTraceEnabled()) LOG.trace("Re-using existing connection to JMX URL {}", url);
+                }
+                sharedConnection = shared;
+                connection = shared.connection;
+            }
+            success = true;
+        } finally {
+            if (!success) releaseSharedConnection(shared);
+        }
+        
+        if (terminated.get()) {
+            disconnectNow();
+            throw new IllegalStateException("JMX Helper "+this+" already terminated");
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private JMXConnector newConnector() throws IOException {
         JMXServiceURL serviceUrl = new JMXServiceURL(url);
         Map env = getConnectionEnvVars();
         try {
-            connector = JMXConnectorFactory.connect(serviceUrl, env);
+            return JMXConnectorFactory.connect(serviceUrl, env);
         } catch (NullPointerException npe) {
             //some software -- eg WSO2 -- will throw an NPE exception if the JMX connection can't be created, instead of an IOException.
             //this is a break of contract with the JMXConnectorFactory.connect method, so this code verifies if the NPE is
@@ -292,12 +334,36 @@ public class JmxHelper {
                 throw e;
             }
         }
-        connection = connector.getMBeanServerConnection();
-        
-        if (terminated.get()) {
-            disconnectNow();
-            throw new IllegalStateException("JMX Helper "+this+" already terminated");
+    }
+
+    private SharedConnection acquireSharedConnection() {
+        List<?> key = Arrays.asList(url, user, password, (entity != null ? entity.getId() : null));
+        synchronized (sharedConnections) {
+            SharedConnection result = sharedConnections.get(key);
+            if (result == null) {
+                result = new SharedConnection(key);
+                sharedConnections.put(key, result);
+            }
+            result.references++;
+            return result;
+        }
+    }
+
+    private void releaseSharedConnection() {
+        SharedConnection shared = sharedConnection;
+        sharedConnection = null;
+        connection = null;
+        if (shared != null) releaseSharedConnection(shared);
+    }
+
+    private void releaseSharedConnection(SharedConnection shared) {
+        synchronized (sharedConnections) {
+            shared.references--;
+            if (shared.references > 0) return;
+            if (sharedConnections.get(shared.key) == shared) sharedConnections.remove(shared.key);
         }
+        // no other helper can now acquire it, so close outside of the lock (closing can be slow if the other side has gone)
+        shared.close();
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -429,20 +495,9 @@ public class JmxHelper {
     
     protected void disconnectNow() {
         triedConnecting = false;
-        if (connector != null) {
+        if (sharedConnection != null) {
             if (LOG.isDebugEnabled()) LOG.debug("Disconnecting from JMX URL {}", url);
-            try {
-                connector.close();
-            } catch (Exception e) {
-                // close attempts to connect to close cleanly; and if it can't, it throws;
-                // often we disconnect as part of shutdown, even if the other side has already stopped --
-                // so swallow exceptions (no situations known where we need a clean closure on the remote side)
-                if (LOG.isDebugEnabled()) LOG.debug("Caught exception disconnecting from JMX at {} ({})", url, e.getMessage());
-                if (LOG.isTraceEnabled()) LOG.trace("Details for exception disconnecting JMX", e);
-            } finally {
-                connector = null;
-                connection = null;
-            }
+            releaseSharedConnection();
         }
     }
 
@@ -616,6 +671,34 @@ public class JmxHelper {
         }
     }
 
+    /**
+     * Returns the given attributes of a JMX {@link ObjectName}, with a single request.
+     * 
+     * @return the values of the attributes, keyed by name; attributes which could not be retrieved are omitted;
+     *         or null if the MBean is not found
+     */
+    @Beta
+    public Map<String, Object> getAttributes(ObjectName objectName, Collection<String> attributes) {
+        final ObjectName realObjectName = toLiteralObjectName(objectName);
+        final String[] attributeNames = attributes.toArray(new String[attributes.size()]);
+        
+        if (realObjectName != null) {
+            AttributeList values = invokeWithReconnect(new Callable<AttributeList>() {
+                    public AttributeList call() throws Exception {
+                        return getConnectionOrFail().getAttributes(realObjectName, attributeNames);
+                    }});
+            
+            Map<String, Object> result = Maps.newLinkedHashMap();
+            for (javax.management.Attribute value : values.asList()) {
+                result.put(value.getName(), value.getValue());
+            }
+            if (LOG.isTraceEnabled()) LOG.trace("From {}, for jmx attributes {}.{}, got values {}", new Object[] {url, objectName.getCanonicalName(), attributes, result});
+            return result;
+        } else {
+            return null;
+        }
+    }
+
     public void setAttribute(String objectName, String attribute, Object val) {
         setAttribute(createObjectName(objectName), attribute, val);
     }
@@ -721,4 +804,63 @@ public class JmxHelper {
             throw new RuntimeInterruptedException(e);
         }
     }
+
+    /**
+     * A connection which may be used by several JmxHelpers, reference-counted by those helpers.
+     * Notifications from the connector mark it as unusable if the connection fails or is closed, and otherwise
+     * it is checked with a (cheap) call before being re-used by another helper.
+     */
+    private static class SharedConnection {
+        final List<?> key;
+        int references; // guarded by sharedConnections
+        volatile JMXConnector connector;
+        volatile MBeanServerConnection connection;
+        volatile boolean failed;
+        
+        SharedConnection(List<?> key) {
+            this.key = key;
+        }
+        
+        synchronized void open(final JMXConnector newConnector) throws IOException {
+            failed = false;
+            connector = newConnector;
+            newConnector.addConnectionNotificationListener(new NotificationListener() {
+                @Override public void handleNotification(Notification notification, Object handback) {
+                    String type = notification.getType();
+                    if (JMXConnectionNotification.FAILED.equals(type) || JMXConnectionNotification.CLOSED.equals(type)) {
+                        if (connector == newConnector) failed = true;
+                    }
+                }}, null, null);
+            connection = newConnector.getMBeanServerConnection();
+        }
+        
+        synchronized boolean isUsable() {
+            if (connection == null || failed) return false;
+            try {
+                connector.getConnectionId();
+                return true;
+            } catch (IOException e) {
+                if (LOG.isDebugEnabled()) LOG.debug("Existing JMX connection {} no longer usable ({}); will reconnect", key.get(0), e.getMessage());
+                failed = true;
+                return false;
+            }
+        }
+        
+        synchronized void close() {
+            JMXConnector oldConnector = connector;
+            connector = null;
+            connection = null;
+            if (oldConnector != null) {
+                try {
+                    oldConnector.close();
+                } catch (Exception e) {
+                    // close attempts to connect to close cleanly; and if it can't, it throws;
+                    // often we disconnect as part of shutdown, even if the other side has already stopped --
+                    // so swallow exceptions (no situations known where we need a clean closure on the remote side)
+                    if (LOG.isDebugEnabled()) LOG.debug("Caught exception disconnecting from JMX at {} ({})", key.get(0), e.getMessage());
+                    if (LOG.isTraceEnabled()) LOG.trace("Details for exception disconnecting JMX", e);
+                }
+            }
+        }
+    }
 }
@@ -20,12 +20,16 @@ package org.apache.brooklyn.feed.jmx;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.util.List;
 
 import javax.management.DynamicMBean;
+import javax.management.MBeanServerConnection;
 import javax.management.MBeanOperationInfo;
 import javax.management.MBeanParameterInfo;
 import javax.management.Notification;
@@ -101,6 +105,47 @@ public class JmxHelperTest {
         assertEquals(jmxHelper.getAttribute(jmxObjectNameWithWildcard, "myattr"), "myval");
     }
 
+    @Test
+    public void testGetAttributes() throws Exception {
+        jmxService.registerMBean(MutableMap.of("myattr", "myval", "myattr2", 2), objectName);
+        assertEquals(jmxHelper.getAttributes(jmxObjectNameWithWildcard, ImmutableList.of("myattr", "myattr2", "doesNotExist")), 
+                ImmutableMap.of("myattr", "myval", "myattr2", 2));
+        assertNull(jmxHelper.getAttributes(new ObjectName("Brooklyn:type=DoesNotExist,name=doesNotExist"), ImmutableList.of("myattr")));
+    }
+
+    @Test
+    public void testSharesConnectionUntilLastHelperDisconnects() throws Exception {
+        jmxService.registerMBean(MutableMap.of("myattr", "myval"), objectName);
+        JmxHelper jmxHelper2 = new JmxHelper(jmxService.getUrl());
+        try {
+            jmxHelper2.connect();
+            assertSame(jmxHelper2.getConnection(), jmxHelper.getConnection());
+            
+            jmxHelper.disconnect();
+            assertEquals(jmxHelper2.getAttribute(jmxObjectName, "myattr"), "myval");
+        } finally {
+            jmxHelper2.terminate();
+        }
+    }
+
+    @Test
+    public void testDoesNotShareFailedConnection() throws Exception {
+        int port = jmxService.getJmxPort();
+        MBeanServerConnection oldConnection = jmxHelper.getConnection();
+        jmxService.shutdown();
+        jmxService = new JmxService(LOCALHOST_NAME, port);
+        jmxService.registerMBean(MutableMap.of("myattr", "myval"), objectName);
+        
+        JmxHelper jmxHelper2 = new JmxHelper(jmxService.getUrl());
+        try {
+            jmxHelper2.connect();
+            assertNotSame(jmxHelper2.getConnection(), oldConnection);
+            assertEquals(jmxHelper2.getAttribute(jmxObjectName, "myattr"), "myval");
+        } finally {
+            jmxHelper2.terminate();
+        }
+    }
+
     @Test
     public void testSetAttribute() throws Exception {
         DynamicMBean mbean = jmxService.registerMBean(MutableMap.of("myattr", "myval"), objectName);
@@ -69,6 +69,7 @@ public class RedisStoreImpl extends SoftwareProcessImpl implements RedisStore {
                 .entity(this)
                 .machine(machine)
                 .period(5, TimeUnit.SECONDS)
+                .multiplex(true)
                 .poll(new SshPollConfig<Integer>(UPTIME)
                         .command(getDriver().getRunDir() + "/bin/redis-cli -p " + getRedisPort() + " info server")
                         .onFailureOrException(Functions.constant(-1))
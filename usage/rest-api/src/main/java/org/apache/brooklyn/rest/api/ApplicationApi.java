@@ -64,13 +64,28 @@ public interface ApplicationApi {
     @GET
     @Path("/fetch")
     @ApiOperation(
-            value = "Fetch display details for all applications and optionally selected additional entities"
+            value = "Fetch display details for all applications and optionally selected additional entities",
+            notes = "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)"
     )
     public JsonNode fetch(
             @ApiParam(value="Selected additional entity ID's to include, comma-separated", required=false)
             @DefaultValue("")
             @QueryParam("items") String items);
 
+    @GET
+    @Path("/fetch/selected")
+    @ApiOperation(
+            value = "Fetch selected display details for all applications and optionally selected additional entities",
+            notes = "As /fetch, with only the given fields of each entity. "
+                    + "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)"
+    )
+    public JsonNode fetch(
+            @ApiParam(value="Selected additional entity ID's to include, comma-separated", required=false)
+            @DefaultValue("")
+            @QueryParam("items") String items,
+            @ApiParam(value = "Comma-separated names of the fields to include for each entity (default all); the id is always included", required = false)
+            @QueryParam("fields") String fields);
+
     @GET
     @ApiOperation(
             value = "Fetch list of applications, as ApplicationSummary objects",
@@ -193,7 +208,8 @@ public interface ApplicationApi {
     @GET
     @Path("/{application}/descendants")
     @ApiOperation(value = "Fetch entity info for all (or filtered) descendants",
-            response = org.apache.brooklyn.rest.domain.EntitySummary.class)
+            response = org.apache.brooklyn.rest.domain.EntitySummary.class,
+            notes = "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)")
     @ApiResponses(value = {
             @ApiResponse(code = 404, message = "Application or entity missing")
     })
@@ -204,6 +220,32 @@ public interface ApplicationApi {
             @DefaultValue(".*")
             @QueryParam("typeRegex") String typeRegex);
 
+    @GET
+    @Path("/{application}/descendants/paged")
+    @ApiOperation(value = "Fetch selected entity info for a page of all (or filtered) descendants",
+            response = org.apache.brooklyn.rest.domain.EntitySummary.class,
+            notes = "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)")
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Invalid limit or offset"),
+            @ApiResponse(code = 404, message = "Application or entity missing")
+    })
+    public List<EntitySummary> getDescendants(
+            @ApiParam(value = "Application ID or name", required = true)
+            @PathParam("application") String application,
+            @ApiParam(value="Regular expression for an entity type which must be matched", required=false)
+            @DefaultValue(".*")
+            @QueryParam("typeRegex") String typeRegex,
+            @ApiParam(value = "Comma-separated names of the fields to include for each entity (default all); "
+                    + "the id is always included and links are omitted unless 'links' is listed", required = false)
+            @QueryParam("fields") String fields,
+            @ApiParam(value = "Maximum number of entities to return (default all)", required = false)
+            @QueryParam("limit") Integer limit,
+            @ApiParam(value = "Number of entities to skip", required = false)
+            @QueryParam("offset") @DefaultValue("0") Integer offset,
+            @ApiParam(value = "If supplied, entities are returned in order of id, starting after this id; "
+                    + "pass an empty value for the first page, then the id of the last entity returned", required = false)
+            @QueryParam("cursor") String cursor);
+
     @GET
     @Path("/{application}/descendants/sensor/{sensor}")
             @ApiOperation(value = "Fetch values of a given sensor for all (or filtered) descendants")
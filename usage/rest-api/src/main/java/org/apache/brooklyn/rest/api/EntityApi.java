@@ -44,13 +44,38 @@ public interface EntityApi {
     @GET
     @ApiOperation(value = "Fetch the list of entities for a given application",
             response = org.apache.brooklyn.rest.domain.EntitySummary.class,
-            responseContainer = "List")
+            responseContainer = "List",
+            notes = "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)")
     @ApiResponses(value = {
             @ApiResponse(code = 404, message = "Application not found")
     })
     public List<EntitySummary> list(
             @ApiParam(value = "Application ID or name", required = true)
-            @PathParam("application") final String application) ;
+            @PathParam("application") final String application);
+
+    @GET
+    @Path("/paged")
+    @ApiOperation(value = "Fetch selected fields of a page of the entities for a given application",
+            response = org.apache.brooklyn.rest.domain.EntitySummary.class,
+            responseContainer = "List",
+            notes = "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)")
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Invalid limit or offset"),
+            @ApiResponse(code = 404, message = "Application not found")
+    })
+    public List<EntitySummary> list(
+            @ApiParam(value = "Application ID or name", required = true)
+            @PathParam("application") final String application,
+            @ApiParam(value = "Comma-separated names of the fields to include for each entity (default all); "
+                    + "the id is always included and links are omitted unless 'links' is listed", required = false)
+            @QueryParam("fields") final String fields,
+            @ApiParam(value = "Maximum number of entities to return (default all)", required = false)
+            @QueryParam("limit") final Integer limit,
+            @ApiParam(value = "Number of entities to skip", required = false)
+            @QueryParam("offset") @DefaultValue("0") final Integer offset,
+            @ApiParam(value = "If supplied, entities are returned in order of id, starting after this id; "
+                    + "pass an empty value for the first page, then the id of the last entity returned", required = false)
+            @QueryParam("cursor") final String cursor);
 
     @GET
     @Path("/{entity}")
@@ -61,7 +61,8 @@ public interface SensorApi {
 
     @GET
     @Path("/current-state")
-    @ApiOperation(value = "Fetch sensor values in batch", notes="Returns a map of sensor name to value")
+    @ApiOperation(value = "Fetch sensor values in batch", notes="Returns a map of sensor name to value. "
+            + "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)")
     public Map<String, Object> batchSensorRead(
             @ApiParam(value = "Application ID or name", required = true)
             @PathParam("application") final String application,
@@ -70,6 +71,20 @@ public interface SensorApi {
             @ApiParam(value = "Return raw sensor data instead of display values", required = false)
             @QueryParam("raw") @DefaultValue("false") final Boolean raw);
 
+    @GET
+    @Path("/current-state/selected")
+    @ApiOperation(value = "Fetch selected sensor values in batch", notes="Returns a map of sensor name to value, for the given sensors. "
+            + "Supports conditional requests: the response has an ETag, and a request with a matching If-None-Match header returns 304 (Not Modified)")
+    public Map<String, Object> batchSensorRead(
+            @ApiParam(value = "Application ID or name", required = true)
+            @PathParam("application") final String application,
+            @ApiParam(value = "Entity ID or name", required = true)
+            @PathParam("entity") final String entityToken,
+            @ApiParam(value = "Return raw sensor data instead of display values", required = false)
+            @QueryParam("raw") @DefaultValue("false") final Boolean raw,
+            @ApiParam(value = "Comma-separated names of the sensors to include (default all)", required = false)
+            @QueryParam("fields") final String fields);
+
     @GET
     @Path("/{sensor}")
     @ApiOperation(value = "Fetch sensor value (json)", response = Object.class)
@@ -33,10 +33,14 @@ public class EntitySummary implements HasId, HasName, Serializable {
     private static final long serialVersionUID = 100490507982229165L;
     
     private final String id;
+    // name, type and links are omitted when not requested (i.e. when a REST call lists the fields to include)
+    @JsonSerialize(include = Inclusion.NON_NULL)
     private final String name;
+    @JsonSerialize(include = Inclusion.NON_NULL)
     private final String type;
     @JsonSerialize(include = Inclusion.NON_NULL)
     private final String catalogItemId;
+    @JsonSerialize(include = Inclusion.NON_EMPTY)
     private final Map<String, URI> links;
 
     public EntitySummary(
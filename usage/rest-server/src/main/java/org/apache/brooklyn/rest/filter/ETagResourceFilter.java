@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.rest.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+import com.sun.jersey.api.model.AbstractMethod;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ResourceFilter;
+import com.sun.jersey.spi.container.ResourceFilterFactory;
+
+/**
+ * Adds an ETag to successful responses from methods (or resource classes) with an {@link ETagSupported}
+ * annotation, and responds 304 (Not Modified) if the request's If-None-Match header matches it.
+ * <p>
+ * The tag is a hash of the serialized body, so the body is serialized here (once) and sent as bytes;
+ * clients polling for changes save the transfer and parsing of unchanged responses, rather than their generation.
+ */
+public class ETagResourceFilter implements ResourceFilterFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(ETagResourceFilter.class);
+
+    private static class ETagFilter implements ResourceFilter, ContainerResponseFilter {
+
+        @Override
+        public ContainerRequestFilter getRequestFilter() {
+            return null;
+        }
+
+        @Override
+        public ContainerResponseFilter getResponseFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+            if (!"GET".equals(request.getMethod()) || response.getStatus() != Response.Status.OK.getStatusCode() || response.getEntity() == null) {
+                return response;
+            }
+            try {
+                MediaType mediaType = getMediaType(response);
+                byte[] body = serialize(request, response, mediaType);
+                EntityTag tag = new EntityTag(Hashing.sha1().hashBytes(body).toString(), true);
+
+                ResponseBuilder notModified = request.evaluatePreconditions(tag);
+                if (notModified != null) {
+                    response.setResponse(notModified.tag(tag).build());
+                } else {
+                    response.setEntity(body);
+                    response.getHttpHeaders().putSingle(HttpHeaders.CONTENT_TYPE, mediaType);
+                    response.getHttpHeaders().putSingle(HttpHeaders.ETAG, tag);
+                }
+            } catch (Exception e) {
+                // fall back to the usual response, without an ETag
+                Exceptions.propagateIfFatal(e);
+                log.debug("Unable to compute ETag for "+request.getRequestUri()+" (continuing): "+e, e);
+            }
+            return response;
+        }
+
+        private MediaType getMediaType(ContainerResponse response) {
+            Object contentType = response.getHttpHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+            if (contentType instanceof MediaType) return (MediaType) contentType;
+            if (contentType != null) return MediaType.valueOf(contentType.toString());
+            return MediaType.APPLICATION_JSON_TYPE;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private byte[] serialize(ContainerRequest request, ContainerResponse response, MediaType mediaType) throws IOException {
+            Object entity = response.getEntity();
+            Annotation[] annotations = response.getAnnotations();
+            MessageBodyWriter writer = request.getMessageBodyWorkers().getMessageBodyWriter(
+                    entity.getClass(), response.getEntityType(), annotations, mediaType);
+            if (writer == null) {
+                throw new IllegalStateException("No writer for "+entity.getClass().getName()+" as "+mediaType);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.writeTo(entity, entity.getClass(), response.getEntityType(), annotations, mediaType, response.getHttpHeaders(), out);
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public List<ResourceFilter> create(AbstractMethod am) {
+        if (am.getAnnotation(ETagSupported.class) != null || am.getResource().getAnnotation(ETagSupported.class) != null) {
+            return Collections.<ResourceFilter>singletonList(new ETagFilter());
+        }
+        return null;
+    }
+
+}
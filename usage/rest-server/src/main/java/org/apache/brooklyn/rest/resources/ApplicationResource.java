@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static javax.ws.rs.core.Response.created;
 import static javax.ws.rs.core.Response.status;
 import static javax.ws.rs.core.Response.Status.ACCEPTED;
+import static org.apache.brooklyn.rest.util.WebResourceUtils.isFieldIncluded;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -30,6 +31,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
@@ -47,6 +49,7 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.core.config.ConstraintViolationException;
 import org.apache.brooklyn.core.entity.Attributes;
+import org.apache.brooklyn.core.entity.EntityFunctions;
 import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.entity.trait.Startable;
@@ -65,6 +68,7 @@ import org.apache.brooklyn.rest.domain.ApplicationSpec;
 import org.apache.brooklyn.rest.domain.ApplicationSummary;
 import org.apache.brooklyn.rest.domain.EntitySummary;
 import org.apache.brooklyn.rest.domain.TaskSummary;
+import org.apache.brooklyn.rest.filter.ETagSupported;
 import org.apache.brooklyn.rest.filter.HaHotStateRequired;
 import org.apache.brooklyn.rest.transform.ApplicationTransformer;
 import org.apache.brooklyn.rest.transform.EntityTransformer;
@@ -106,18 +110,23 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
     }
 
     private ObjectNode entityBase(Entity entity) {
+        return entityBase(entity, null);
+    }
+
+    /** @param fields as returned by {@link WebResourceUtils#parseFields(String)}, where null means all fields */
+    private ObjectNode entityBase(Entity entity, Set<String> fields) {
         ObjectNode aRoot = mapper().createObjectNode();
-        aRoot.put("name", entity.getDisplayName());
+        if (isFieldIncluded(fields, "name")) aRoot.put("name", entity.getDisplayName());
         aRoot.put("id", entity.getId());
-        aRoot.put("type", entity.getEntityType().getName());
+        if (isFieldIncluded(fields, "type")) aRoot.put("type", entity.getEntityType().getName());
 
-        Boolean serviceUp = entity.getAttribute(Attributes.SERVICE_UP);
+        Boolean serviceUp = isFieldIncluded(fields, "serviceUp") ? entity.getAttribute(Attributes.SERVICE_UP) : null;
         if (serviceUp!=null) aRoot.put("serviceUp", serviceUp);
 
-        Lifecycle serviceState = entity.getAttribute(Attributes.SERVICE_STATE_ACTUAL);
+        Lifecycle serviceState = isFieldIncluded(fields, "serviceState") ? entity.getAttribute(Attributes.SERVICE_STATE_ACTUAL) : null;
         if (serviceState!=null) aRoot.put("serviceState", serviceState.toString());
 
-        String iconUrl = entity.getIconUrl();
+        String iconUrl = isFieldIncluded(fields, "iconUrl") ? entity.getIconUrl() : null;
         if (iconUrl!=null) {
             if (brooklyn().isUrlServerSideAndSafe(iconUrl))
                 // route to server if it is a server-side url
@@ -138,22 +147,23 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
     }
 
     // TODO when applicationTree can be removed, replace this with an extension to EntitySummary (without links)
-    private JsonNode fromEntity(Entity entity) {
-        ObjectNode aRoot = entityBase(entity);
+    private JsonNode fromEntity(Entity entity, Set<String> fields) {
+        ObjectNode aRoot = entityBase(entity, fields);
 
-        aRoot.put("applicationId", entity.getApplicationId());
+        if (isFieldIncluded(fields, "applicationId"))
+            aRoot.put("applicationId", entity.getApplicationId());
 
-        if (entity.getParent()!=null) {
+        if (entity.getParent()!=null && isFieldIncluded(fields, "parentId")) {
             aRoot.put("parentId", entity.getParent().getId());
         }
 
-        if (!entity.groups().isEmpty())
+        if (isFieldIncluded(fields, "groupIds") && !entity.groups().isEmpty())
             aRoot.put("groupIds", entitiesIdAsArray(entity.groups()));
 
-        if (!entity.getChildren().isEmpty())
+        if (isFieldIncluded(fields, "children") && !entity.getChildren().isEmpty())
             aRoot.put("children", entitiesIdAndNameAsArray(entity.getChildren()));
 
-        if (entity instanceof Group) {
+        if (entity instanceof Group && isFieldIncluded(fields, "members")) {
             // use attribute instead of method in case it is read-only
             Collection<Entity> members = entity.getAttribute(AbstractGroup.GROUP_MEMBERS);
             if (members!=null && !members.isEmpty())
@@ -197,16 +207,24 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
     }
 
     @Override
+    @ETagSupported
     public JsonNode fetch(String entityIds) {
+        return fetch(entityIds, null);
+    }
+
+    @Override
+    @ETagSupported
+    public JsonNode fetch(String entityIds, String fieldsParam) {
+        Set<String> fields = WebResourceUtils.parseFields(fieldsParam);
         Map<String, JsonNode> jsonEntitiesById = MutableMap.of();
         for (Application application : mgmt().getApplications())
-            jsonEntitiesById.put(application.getId(), fromEntity(application));
+            jsonEntitiesById.put(application.getId(), fromEntity(application, fields));
         if (entityIds != null) {
             for (String entityId: entityIds.split(",")) {
                 Entity entity = mgmt().getEntityManager().getEntity(entityId.trim());
                 while (entity != null && entity.getParent() != null) {
                     if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
-                        jsonEntitiesById.put(entity.getId(), fromEntity(entity));
+                        jsonEntitiesById.put(entity.getId(), fromEntity(entity, fields));
                     }
                     entity = entity.getParent();
                 }
@@ -428,8 +446,17 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
     }
 
     @Override
+    @ETagSupported
     public List<EntitySummary> getDescendants(String application, String typeRegex) {
-        return EntityTransformer.entitySummaries(brooklyn().descendantsOfType(application, application, typeRegex));
+        return getDescendants(application, typeRegex, null, null, 0, null);
+    }
+
+    @Override
+    @ETagSupported
+    public List<EntitySummary> getDescendants(String application, String typeRegex, String fields, Integer limit, Integer offset, String cursor) {
+        return EntityTransformer.entitySummaries(
+                WebResourceUtils.page(brooklyn().descendantsOfType(application, application, typeRegex), EntityFunctions.id(), limit, offset, cursor),
+                WebResourceUtils.parseFields(fields));
     }
 
     @Override
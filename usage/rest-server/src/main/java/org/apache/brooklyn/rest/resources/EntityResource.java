@@ -38,6 +38,7 @@ import javax.ws.rs.core.UriInfo;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.entity.EntityFunctions;
 import org.apache.brooklyn.core.mgmt.BrooklynTags;
 import org.apache.brooklyn.core.mgmt.BrooklynTags.NamedStringTag;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
@@ -49,6 +50,7 @@ import org.apache.brooklyn.rest.api.EntityApi;
 import org.apache.brooklyn.rest.domain.EntitySummary;
 import org.apache.brooklyn.rest.domain.LocationSummary;
 import org.apache.brooklyn.rest.domain.TaskSummary;
+import org.apache.brooklyn.rest.filter.ETagSupported;
 import org.apache.brooklyn.rest.filter.HaHotStateRequired;
 import org.apache.brooklyn.rest.transform.EntityTransformer;
 import org.apache.brooklyn.rest.transform.LocationTransformer;
@@ -76,12 +78,20 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
     private UriInfo uriInfo;
     
     @Override
+    @ETagSupported
     public List<EntitySummary> list(final String application) {
-        return FluentIterable
+        return list(application, null, null, 0, null);
+    }
+
+    @Override
+    @ETagSupported
+    public List<EntitySummary> list(final String application, String fields, Integer limit, Integer offset, String cursor) {
+        Iterable<Entity> entities = FluentIterable
                 .from(brooklyn().getApplication(application).getChildren())
-                .filter(EntitlementPredicates.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY))
-                .transform(EntityTransformer.FROM_ENTITY)
-                .toList();
+                .filter(EntitlementPredicates.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY));
+        return EntityTransformer.entitySummaries(
+                WebResourceUtils.page(entities, EntityFunctions.id(), limit, offset, cursor), 
+                WebResourceUtils.parseFields(fields));
     }
 
     @Override
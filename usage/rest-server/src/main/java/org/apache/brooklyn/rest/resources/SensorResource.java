@@ -23,6 +23,7 @@ import static com.google.common.collect.Iterables.transform;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -32,6 +33,7 @@ import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.sensor.BasicAttributeSensor;
 import org.apache.brooklyn.rest.api.SensorApi;
 import org.apache.brooklyn.rest.domain.SensorSummary;
+import org.apache.brooklyn.rest.filter.ETagSupported;
 import org.apache.brooklyn.rest.filter.HaHotStateRequired;
 import org.apache.brooklyn.rest.transform.SensorTransformer;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
@@ -65,13 +67,22 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
     }
 
     @Override
+    @ETagSupported
     public Map<String, Object> batchSensorRead(final String application, final String entityToken, final Boolean raw) {
+        return batchSensorRead(application, entityToken, raw, null);
+    }
+
+    @Override
+    @ETagSupported
+    public Map<String, Object> batchSensorRead(final String application, final String entityToken, final Boolean raw, final String fields) {
         final Entity entity = brooklyn().getEntity(application, entityToken);
+        Set<String> sensorNames = WebResourceUtils.parseFields(fields);
         Map<String, Object> sensorMap = Maps.newHashMap();
         @SuppressWarnings("rawtypes")
         Iterable<AttributeSensor> sensors = filter(entity.getEntityType().getSensors(), AttributeSensor.class);
 
         for (AttributeSensor<?> sensor : sensors) {
+            if (!WebResourceUtils.isFieldIncluded(sensorNames, sensor.getName())) continue;
             Object value = entity.getAttribute(findSensor(entity, sensor.getName()));
             sensorMap.put(sensor.getName(), 
                 resolving(value).preferJson(true).asJerseyOutermostReturnValue(false).raw(raw).context(entity).timeout(Duration.ZERO).renderAs(sensor).resolve());
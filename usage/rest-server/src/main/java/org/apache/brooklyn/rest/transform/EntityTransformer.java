@@ -24,6 +24,9 @@ import java.lang.reflect.Field;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.catalog.CatalogConfig;
 import org.apache.brooklyn.api.entity.Application;
@@ -55,6 +58,23 @@ public class EntityTransformer {
     };
 
     public static EntitySummary entitySummary(Entity entity) {
+        return entitySummary(entity, null);
+    }
+
+    /**
+     * As {@link #entitySummary(Entity)}, but with only the given fields (and the id);
+     * the links (the most expensive part) are only included if listed.
+     * 
+     * @param fields as returned by {@link WebResourceUtils#parseFields(String)}, where null means all fields
+     */
+    public static EntitySummary entitySummary(Entity entity, @Nullable Set<String> fields) {
+        if (fields != null) {
+            return new EntitySummary(entity.getId(),
+                    fields.contains("name") ? entity.getDisplayName() : null,
+                    fields.contains("type") ? entity.getEntityType().getName() : null,
+                    fields.contains("catalogItemId") ? entity.getCatalogItemId() : null,
+                    fields.contains("links") ? entitySummary(entity).getLinks() : null);
+        }
         String applicationUri = "/v1/applications/" + entity.getApplicationId();
         String entityUri = applicationUri + "/entities/" + entity.getId();
         ImmutableMap.Builder<String, URI> lb = ImmutableMap.<String, URI>builder()
@@ -86,6 +106,14 @@ public class EntityTransformer {
         return new EntitySummary(entity.getId(), entity.getDisplayName(), type, entity.getCatalogItemId(), lb.build());
     }
 
+    public static List<EntitySummary> entitySummaries(Iterable<? extends Entity> entities, @Nullable Set<String> fields) {
+        List<EntitySummary> result = Lists.newArrayList();
+        for (Entity entity : entities) {
+            result.add(entitySummary(entity, fields));
+        }
+        return result;
+    }
+
     public static List<EntitySummary> entitySummaries(Iterable<? extends Entity> entities) {
         return Lists.newArrayList(transform(
             entities,
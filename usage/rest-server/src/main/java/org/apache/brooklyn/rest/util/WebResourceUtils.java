@@ -19,8 +19,11 @@
 package org.apache.brooklyn.rest.util;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.WebApplicationException;
@@ -33,11 +36,19 @@ import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
 import org.apache.brooklyn.rest.domain.ApiError;
 import org.apache.brooklyn.rest.util.json.BrooklynJacksonJsonProvider;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.net.Urls;
+import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.text.StringEscapes.JavaStringEscapes;
 
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Ordering;
 import com.sun.jersey.spi.container.ContainerResponse;
 
 public class WebResourceUtils {
@@ -149,6 +160,55 @@ public class WebResourceUtils {
         }
     }
 
+    /** Parses a comma-separated list of field names, as passed in a <code>fields</code> parameter;
+     * returns null (meaning all fields) if blank. */
+    @Nullable
+    public static Set<String> parseFields(@Nullable String fields) {
+        if (Strings.isBlank(fields)) return null;
+        Set<String> result = MutableSet.of();
+        for (String field : fields.split(",")) {
+            if (Strings.isNonBlank(field)) result.add(field.trim());
+        }
+        return result;
+    }
+
+    /** Whether the given field should be included, where the fields are as returned by {@link #parseFields(String)} */
+    public static boolean isFieldIncluded(@Nullable Set<String> fields, String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    /**
+     * Returns the requested page of the given items, as selected by the <code>limit</code>,
+     * <code>offset</code> and <code>cursor</code> parameters of a list request (each of which may be null).
+     * If a cursor is given, the items are ordered by id, starting after the cursor (or at the first item if it is blank),
+     * which gives consistent pages even as items are added and removed;
+     * otherwise they are in their original order.
+     */
+    public static <T> List<T> page(Iterable<T> items, Function<? super T, String> toId, 
+            @Nullable Integer limit, @Nullable Integer offset, @Nullable final String cursor) {
+        if (limit != null && limit < 0) throw badRequest("Invalid limit %s; must not be negative", limit);
+        if (offset != null && offset < 0) throw badRequest("Invalid offset %s; must not be negative", offset);
+        if (limit == null && (offset == null || offset == 0) && cursor == null) {
+            return MutableList.copyOf(items);
+        }
+        
+        Iterable<T> result = items;
+        if (cursor != null) {
+            List<T> sorted = Ordering.natural().onResultOf(toId).sortedCopy(items);
+            result = sorted;
+            if (Strings.isNonBlank(cursor)) {
+                result = Iterables.filter(sorted, Predicates.compose(new Predicate<String>() {
+                    @Override public boolean apply(String id) {
+                        return id.compareTo(cursor) > 0;
+                    }
+                }, toId));
+            }
+        }
+        if (offset != null && offset > 0) result = Iterables.skip(result, offset);
+        if (limit != null) result = Iterables.limit(result, limit);
+        return MutableList.copyOf(result);
+    }
+
     /** Sets the {@link HttpServletResponse} target (last argument) from the given source {@link Response};
      * useful in filters where we might have a {@link Response} and need to set up an {@link HttpServletResponse}. 
      * Similar to {@link ContainerResponse#setResponse(Response)}; nothing like that seems to be available for {@link HttpServletResponse}. */
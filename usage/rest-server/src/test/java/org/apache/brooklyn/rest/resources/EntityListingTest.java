@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.rest.resources;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.apache.brooklyn.api.entity.Application;
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.core.entity.EntityFunctions;
+import org.apache.brooklyn.rest.domain.ApplicationSpec;
+import org.apache.brooklyn.rest.domain.EntitySpec;
+import org.apache.brooklyn.rest.domain.EntitySummary;
+import org.apache.brooklyn.rest.testing.BrooklynRestResourceTest;
+import org.apache.brooklyn.rest.testing.mocks.RestMockSimpleEntity;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Ordering;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.GenericType;
+
+/** Tests field projection, paging and ETags on the entity listings */
+@Test(singleThreaded = true)
+public class EntityListingTest extends BrooklynRestResourceTest {
+
+    private final ApplicationSpec simpleSpec = ApplicationSpec.builder().name("listing-app").
+        entities(ImmutableSet.of(
+            new EntitySpec("simple-ent-1", RestMockSimpleEntity.class.getName()),
+            new EntitySpec("simple-ent-2", RestMockSimpleEntity.class.getName()),
+            new EntitySpec("simple-ent-3", RestMockSimpleEntity.class.getName()))).
+        locations(ImmutableSet.of("localhost")).
+        build();
+
+    private Application application;
+    private List<String> sortedChildIds;
+
+    @BeforeClass(alwaysRun = true)
+    public void deployApp() throws Exception {
+        ClientResponse response = clientDeploy(simpleSpec);
+        assertTrue(response.getStatus()/100 == 2, "response is "+response);
+        application = Iterables.getOnlyElement(getManagementContext().getApplications());
+        sortedChildIds = Ordering.natural().sortedCopy(Iterables.transform(application.getChildren(), EntityFunctions.id()));
+    }
+
+    private List<EntitySummary> listEntities(String query) {
+        return client().resource("/v1/applications/"+application.getApplicationId()+"/entities/paged"+query)
+            .get(new GenericType<List<EntitySummary>>() {});
+    }
+
+    @Test
+    public void testFieldProjection() throws Exception {
+        List<EntitySummary> summaries = listEntities("?fields=name");
+        assertEquals(summaries.size(), 3);
+        for (EntitySummary summary : summaries) {
+            assertNotNull(summary.getId());
+            assertNotNull(summary.getName());
+            assertNull(summary.getType());
+            assertTrue(summary.getLinks().isEmpty(), "links="+summary.getLinks());
+        }
+
+        // all fields by default
+        EntitySummary summary = listEntities("").get(0);
+        assertEquals(summary.getType(), RestMockSimpleEntity.class.getName());
+        assertTrue(summary.getLinks().containsKey("self"), "links="+summary.getLinks());
+    }
+
+    @Test
+    public void testLimitAndOffset() throws Exception {
+        assertEquals(listEntities("?limit=2").size(), 2);
+        assertEquals(listEntities("?limit=2&offset=2").size(), 1);
+        assertEquals(listEntities("?offset=3").size(), 0);
+
+        ClientResponse response = client().resource("/v1/applications/"+application.getApplicationId()+"/entities/paged?limit=-1")
+            .get(ClientResponse.class);
+        assertEquals(response.getStatus(), 400);
+    }
+
+    @Test
+    public void testCursor() throws Exception {
+        List<EntitySummary> page1 = listEntities("?cursor=&limit=2&fields=id");
+        assertEquals(ids(page1), sortedChildIds.subList(0, 2));
+
+        List<EntitySummary> page2 = listEntities("?cursor="+page1.get(1).getId()+"&limit=2&fields=id");
+        assertEquals(ids(page2), sortedChildIds.subList(2, 3));
+    }
+
+    @Test
+    public void testDescendantsPaged() throws Exception {
+        List<EntitySummary> descs = client().resource("/v1/applications/"+application.getApplicationId()+"/descendants/paged?limit=2&fields=name")
+            .get(new GenericType<List<EntitySummary>>() {});
+        assertEquals(descs.size(), 2);
+        assertNull(descs.get(0).getType());
+    }
+
+    @Test
+    public void testNotModifiedWhenETagMatches() throws Exception {
+        String path = "/v1/applications/"+application.getApplicationId()+"/entities";
+        ClientResponse response = client().resource(path).get(ClientResponse.class);
+        assertEquals(response.getStatus(), 200);
+        String etag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        response = client().resource(path).header(HttpHeaders.IF_NONE_MATCH, etag).get(ClientResponse.class);
+        assertEquals(response.getStatus(), 304);
+
+        // a changed listing gets a new tag
+        Entity child = application.getChildren().iterator().next();
+        child.setDisplayName("renamed");
+        response = client().resource(path).header(HttpHeaders.IF_NONE_MATCH, etag).get(ClientResponse.class);
+        assertEquals(response.getStatus(), 200);
+        assertNotEquals(response.getHeaders().getFirst(HttpHeaders.ETAG), etag);
+    }
+
+    private static List<String> ids(List<EntitySummary> summaries) {
+        List<String> result = MutableList.of();
+        for (EntitySummary summary : summaries) result.add(summary.getId());
+        return result;
+    }
+}
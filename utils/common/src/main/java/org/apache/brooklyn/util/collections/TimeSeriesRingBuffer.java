@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import java.util.NoSuchElementException;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+/**
+ * A series of timestamped numeric values, oldest first, held in primitive circular arrays.
+ * <p>
+ * This is an allocation-free alternative to {@link TimeWindowedList} for high-frequency numeric values:
+ * appending is O(1) (amortized, as the arrays double in size when full), and the sum, mean, time-weighted sum,
+ * min and max of the values from a given index onwards are available without iterating over the values.
+ * Running sums and monotonic queues of candidate minima/maxima are maintained as values are added and removed;
+ * the min/max queries do a binary search of those queues, so are O(log n) in the worst case
+ * and O(1) when (as is usual) the query starts at or just before the oldest value.
+ * <p>
+ * Timestamps are expected to be non-decreasing; a value added with an earlier timestamp than the latest
+ * is treated as having the latest timestamp.
+ * <p>
+ * Values must be finite (not NaN or infinite); callers should skip null and non-finite values rather than adding them.
+ */
+@Beta
+public class TimeSeriesRingBuffer {
+
+    private long[] timestamps;
+    private double[] values;
+    /** sum of all values added up to and including this one (since the last {@link #rebase()}) */
+    private double[] cumulativeSums;
+    /** as {@link #cumulativeSums}, but of each value multiplied by the time since the previous value */
+    private double[] cumulativeWeightedSums;
+
+    /** physical index of the oldest value */
+    private int head = 0;
+    private int size = 0;
+    /** sequence number of the oldest value; values are numbered by the order in which they were added */
+    private long headSeq = 0;
+    /** the cumulative sum immediately before the oldest value */
+    private double removedSum = 0;
+    private int removedSinceRebase = 0;
+
+    /** sequence numbers of candidate maxima, with decreasing values */
+    private final SeqQueue maxima;
+    /** sequence numbers of candidate minima, with increasing values */
+    private final SeqQueue minima;
+
+    public TimeSeriesRingBuffer() {
+        this(16);
+    }
+
+    public TimeSeriesRingBuffer(int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity > 0, "initialCapacity must be positive");
+        int capacity = Integer.highestOneBit(initialCapacity);
+        if (capacity < initialCapacity) capacity <<= 1;
+        timestamps = new long[capacity];
+        values = new double[capacity];
+        cumulativeSums = new double[capacity];
+        cumulativeWeightedSums = new double[capacity];
+        maxima = new SeqQueue(capacity);
+        minima = new SeqQueue(capacity);
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        // an infinite value would make the running sums infinite, and then NaN once it was removed
+        Preconditions.checkArgument(!Double.isNaN(value) && !Double.isInfinite(value), "value must be finite, but was %s", value);
+        if (size == timestamps.length) grow();
+
+        double previousSum;
+        double previousWeightedSum;
+        if (size == 0) {
+            previousSum = removedSum;
+            previousWeightedSum = 0;
+        } else {
+            int last = physical(size-1);
+            timestamp = Math.max(timestamp, timestamps[last]);
+            previousSum = cumulativeSums[last];
+            previousWeightedSum = cumulativeWeightedSums[last] + (timestamp - timestamps[last]) * value;
+        }
+        int index = physical(size);
+        timestamps[index] = timestamp;
+        values[index] = value;
+        cumulativeSums[index] = previousSum + value;
+        cumulativeWeightedSums[index] = previousWeightedSum;
+
+        long seq = headSeq + size;
+        size++;
+        while (!maxima.isEmpty() && valueOfSeq(maxima.peekLast()) <= value) maxima.removeLast();
+        maxima.addLast(seq);
+        while (!minima.isEmpty() && valueOfSeq(minima.peekLast()) >= value) minima.removeLast();
+        minima.addLast(seq);
+    }
+
+    /** Removes the oldest value. */
+    public synchronized void removeFirst() {
+        if (size == 0) throw new NoSuchElementException();
+        removedSum = cumulativeSums[head];
+        if (maxima.peekFirst() == headSeq) maxima.removeFirst();
+        if (minima.peekFirst() == headSeq) minima.removeFirst();
+        head = (head + 1) & (timestamps.length - 1);
+        headSeq++;
+        size--;
+        if (++removedSinceRebase >= timestamps.length) rebase();
+    }
+
+    /**
+     * Discards values older than the given time, but keeps the most recent of those
+     * (so that the value at the start of a window ending now is known).
+     */
+    public synchronized void pruneBefore(long cutoff) {
+        while (size > 1 && timestamps[physical(1)] < cutoff) {
+            removeFirst();
+        }
+    }
+
+    public synchronized void clear() {
+        while (size > 0) removeFirst();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** @param index 0 for the oldest value */
+    public synchronized long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[physical(index)];
+    }
+
+    /** @param index 0 for the oldest value */
+    public synchronized double getValue(int index) {
+        checkIndex(index);
+        return values[physical(index)];
+    }
+
+    public synchronized long getLatestTimestamp() {
+        return getTimestamp(size-1);
+    }
+
+    public synchronized double getLatestValue() {
+        return getValue(size-1);
+    }
+
+    /** @return the index of the first value with a timestamp at or after that given, or {@link #size()} if there is none */
+    public synchronized int firstIndexAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[physical(mid)] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** @return the sum of the values from the given index onwards */
+    public synchronized double getSum(int fromIndex) {
+        checkFromIndex(fromIndex);
+        if (fromIndex == size) return 0;
+        double before = (fromIndex == 0) ? removedSum : cumulativeSums[physical(fromIndex-1)];
+        return cumulativeSums[physical(size-1)] - before;
+    }
+
+    /** @return the mean of the values from the given index onwards, or NaN if there are none */
+    public synchronized double getMean(int fromIndex) {
+        checkFromIndex(fromIndex);
+        if (fromIndex == size) return Double.NaN;
+        return getSum(fromIndex) / (size - fromIndex);
+    }
+
+    /** @return the maximum of the values from the given index onwards */
+    public synchronized double getMax(int fromIndex) {
+        return valueOfSeq(firstCandidateFrom(maxima, fromIndex));
+    }
+
+    /** @return the minimum of the values from the given index onwards */
+    public synchronized double getMin(int fromIndex) {
+        return valueOfSeq(firstCandidateFrom(minima, fromIndex));
+    }
+
+    /**
+     * Returns the sum of each value multiplied by the period for which it held, from the given time to the
+     * latest timestamp, where each value is taken to hold from the previous value's timestamp up to its own
+     * (and the first value in the period to hold from the given time).
+     * Dividing this by the length of the period gives the time-weighted mean.
+     */
+    public synchronized double getTimeWeightedSum(long fromTime) {
+        int from = firstIndexAtOrAfter(fromTime);
+        if (from == size) return 0;
+        int index = physical(from);
+        long periodStart = (from == 0) ? fromTime : Math.max(fromTime, timestamps[physical(from-1)]);
+        return cumulativeWeightedSums[physical(size-1)] - cumulativeWeightedSums[index]
+                + (timestamps[index] - periodStart) * values[index];
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) result.append(", ");
+            result.append(values[physical(i)]).append("@").append(timestamps[physical(i)]);
+        }
+        return result.append("]").toString();
+    }
+
+    private int physical(int index) {
+        return (head + index) & (timestamps.length - 1);
+    }
+
+    private double valueOfSeq(long seq) {
+        return values[physical((int)(seq - headSeq))];
+    }
+
+    private long firstCandidateFrom(SeqQueue candidates, int fromIndex) {
+        checkIndex(fromIndex);
+        long fromSeq = headSeq + fromIndex;
+        // candidates are in order of sequence number, and the last is always the latest value
+        int low = 0;
+        int high = candidates.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (candidates.get(mid) < fromSeq) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return candidates.get(low);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index "+index+", size "+size);
+    }
+
+    private void checkFromIndex(int index) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("index "+index+", size "+size);
+    }
+
+    private void grow() {
+        int newCapacity = timestamps.length << 1;
+        Preconditions.checkState(newCapacity > 0, "Time series too large");
+        timestamps = copyInOrder(timestamps, new long[newCapacity]);
+        values = copyInOrder(values, new double[newCapacity]);
+        cumulativeSums = copyInOrder(cumulativeSums, new double[newCapacity]);
+        cumulativeWeightedSums = copyInOrder(cumulativeWeightedSums, new double[newCapacity]);
+        head = 0;
+        maxima.grow(newCapacity);
+        minima.grow(newCapacity);
+    }
+
+    private long[] copyInOrder(long[] src, long[] dest) {
+        int firstPart = Math.min(size, src.length - head);
+        System.arraycopy(src, head, dest, 0, firstPart);
+        System.arraycopy(src, 0, dest, firstPart, size - firstPart);
+        return dest;
+    }
+
+    private double[] copyInOrder(double[] src, double[] dest) {
+        int firstPart = Math.min(size, src.length - head);
+        System.arraycopy(src, head, dest, 0, firstPart);
+        System.arraycopy(src, 0, dest, firstPart, size - firstPart);
+        return dest;
+    }
+
+    /**
+     * Restarts the running sums from the oldest value, so they do not grow without limit (losing precision).
+     * Called after every capacity's worth of removals, so amortized O(1).
+     */
+    private void rebase() {
+        removedSinceRebase = 0;
+        if (size == 0) {
+            removedSum = 0;
+            return;
+        }
+        double sumBase = removedSum;
+        double weightedBase = cumulativeWeightedSums[head];
+        for (int i = 0; i < size; i++) {
+            int index = physical(i);
+            cumulativeSums[index] -= sumBase;
+            cumulativeWeightedSums[index] -= weightedBase;
+        }
+        removedSum = 0;
+    }
+
+    /** A queue of sequence numbers in a primitive circular array. */
+    private static class SeqQueue {
+        private long[] seqs;
+        private int head = 0;
+        private int size = 0;
+
+        SeqQueue(int capacity) {
+            seqs = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return seqs[(head + index) & (seqs.length - 1)];
+        }
+
+        long peekFirst() {
+            return seqs[head];
+        }
+
+        long peekLast() {
+            return get(size-1);
+        }
+
+        void addLast(long seq) {
+            seqs[(head + size) & (seqs.length - 1)] = seq;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) & (seqs.length - 1);
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void grow(int newCapacity) {
+            long[] result = new long[newCapacity];
+            for (int i = 0; i < size; i++) {
+                result[i] = get(i);
+            }
+            seqs = result;
+            head = 0;
+        }
+    }
+}
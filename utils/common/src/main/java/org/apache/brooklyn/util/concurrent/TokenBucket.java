@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+/**
+ * A token bucket, for limiting the rate of an activity without blocking:
+ * tokens are added at a fixed rate, up to a maximum (allowing bursts of that size),
+ * and each {@link #tryAcquire()} takes one if available.
+ * <p>
+ * Tokens can also be {@link #reserve() reserved} ahead of time, when none is available: the bucket then goes into
+ * debt, which is paid off by the tokens added subsequently, so each caller is told when its own token is due, in
+ * the order they asked. While in debt, {@link #tryAcquire()} fails.
+ */
+@Beta
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final Ticker ticker;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /** A bucket which allows bursts of up to one second's worth of tokens. */
+    public TokenBucket(double tokensPerSecond) {
+        this(tokensPerSecond, Math.max(1, tokensPerSecond));
+    }
+
+    public TokenBucket(double tokensPerSecond, double capacity) {
+        this(tokensPerSecond, capacity, Ticker.systemTicker());
+    }
+
+    public TokenBucket(double tokensPerSecond, double capacity, Ticker ticker) {
+        Preconditions.checkArgument(tokensPerSecond > 0, "tokensPerSecond must be positive");
+        Preconditions.checkArgument(capacity >= 1, "capacity must be at least 1");
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.ticker = Preconditions.checkNotNull(ticker, "ticker");
+        this.tokens = capacity;
+        this.lastRefillNanos = ticker.read();
+    }
+
+    /** Takes a token if one is available, returning whether it did. */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes a token, now or in the future, returning the time until it is available (0 if it is available now).
+     * Later reservations are given later tokens, so the wait is proportional to the number already reserved.
+     */
+    public synchronized long reserve() {
+        refill();
+        long result = (tokens >= 1) ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+        tokens -= 1;
+        return result;
+    }
+
+    /** Time until the next token is available, or 0 if one is available now. */
+    public synchronized long nanosUntilAvailable() {
+        refill();
+        if (tokens >= 1) return 0;
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = ticker.read();
+        if (now > lastRefillNanos) {
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket["+(tokensPerNano*TimeUnit.SECONDS.toNanos(1))+"/s, capacity "+capacity+"]";
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+
+public class TimeSeriesRingBufferTest {
+
+    @Test
+    public void testAddAndGet() {
+        TimeSeriesRingBuffer buffer = new TimeSeriesRingBuffer(2);
+        assertTrue(buffer.isEmpty());
+
+        buffer.add(100L, 1);
+        buffer.add(200L, 2);
+        buffer.add(300L, 3);
+
+        assertEquals(buffer.size(), 3);
+        assertEquals(buffer.getTimestamp(0), 100L);
+        assertEquals(buffer.getValue(0), 1d);
+        assertEquals(buffer.getLatestTimestamp(), 300L);
+        assertEquals(buffer.getLatestValue(), 3d);
+    }
+
+    @Test
+    public void testPruneKeepsMostRecentExpiredValue() {
+        TimeSeriesRingBuffer buffer = new TimeSeriesRingBuffer();
+        buffer.add(100L, 1);
+        buffer.add(200L, 2);
+        buffer.add(300L, 3);
+
+        buffer.pruneBefore(250L);
+        assertEquals(buffer.size(), 2);
+        assertEquals(buffer.getTimestamp(0), 200L);
+
+        buffer.pruneBefore(1000L);
+        assertEquals(buffer.size(), 1);
+        assertEquals(buffer.getLatestValue(), 3d);
+    }
+
+    @Test
+    public void testAggregatesFromIndex() {
+        TimeSeriesRingBuffer buffer = new TimeSeriesRingBuffer();
+        buffer.add(100L, 5);
+        buffer.add(200L, 1);
+        buffer.add(300L, 4);
+        buffer.add(400L, 2);
+
+        assertEquals(buffer.getSum(0), 12d);
+        assertEquals(buffer.getSum(2), 6d);
+        assertEquals(buffer.getMean(2), 3d);
+        assertEquals(buffer.getMax(0), 5d);
+        assertEquals(buffer.getMax(1), 4d);
+        assertEquals(buffer.getMin(0), 1d);
+        assertEquals(buffer.getMin(2), 2d);
+
+        buffer.removeFirst();
+        assertEquals(buffer.getSum(0), 7d);
+        assertEquals(buffer.getMax(0), 4d);
+    }
+
+    @Test
+    public void testTimeWeightedSum() {
+        TimeSeriesRingBuffer buffer = new TimeSeriesRingBuffer();
+        buffer.add(1000L, 10);
+        buffer.add(1100L, 20);
+        buffer.add(1300L, 30);
+        buffer.add(1600L, 40);
+        buffer.add(2000L, 50);
+
+        assertEquals(buffer.getTimeWeightedSum(1000L), 100*20d + 200*30d + 300*40d + 400*50d);
+        // part way between values
+        assertEquals(buffer.getTimeWeightedSum(1200L), 100*30d + 300*40d + 400*50d);
+        assertEquals(buffer.getTimeWeightedSum(2000L), 0d);
+    }
+
+    @Test
+    public void testFirstIndexAtOrAfter() {
+        TimeSeriesRingBuffer buffer = new TimeSeriesRingBuffer();
+        buffer.add(100L, 1);
+        buffer.add(200L, 2);
+        buffer.add(200L, 3);
+        buffer.add(300L, 4);
+
+        assertEquals(buffer.firstIndexAtOrAfter(0L), 0);
+        assertEquals(buffer.firstIndexAtOrAfter(200L), 1);
+        assertEquals(buffer.firstIndexAtOrAfter(201L), 3);
+        assertEquals(buffer.firstIndexAtOrAfter(301L), 4);
+    }
+
+    @Test
+    public void testMatchesSimpleComputationWhenWrappingAndGrowing() {
+        Random random = new Random(0);
+        TimeSeriesRingBuffer buffer = new TimeSeriesRingBuffer(2);
+        List<Long> timestamps = Lists.newArrayList();
+        List<Double> values = Lists.newArrayList();
+        long time = 0;
+
+        for (int i = 0; i < 2000; i++) {
+            if (values.isEmpty() || random.nextBoolean()) {
+                time += random.nextInt(5);
+                double value = random.nextInt(100);
+                buffer.add(time, value);
+                timestamps.add(time);
+                values.add(value);
+            } else {
+                buffer.removeFirst();
+                timestamps.remove(0);
+                values.remove(0);
+            }
+            assertEquals(buffer.size(), values.size());
+            if (values.isEmpty()) continue;
+
+            int fromIndex = random.nextInt(values.size());
+            double sum = 0;
+            double max = Double.NEGATIVE_INFINITY;
+            double min = Double.POSITIVE_INFINITY;
+            for (double value : values.subList(fromIndex, values.size())) {
+                sum += value;
+                max = Math.max(max, value);
+                min = Math.min(min, value);
+            }
+            assertEquals(buffer.getSum(fromIndex), sum, 0.000001d);
+            assertEquals(buffer.getMax(fromIndex), max);
+            assertEquals(buffer.getMin(fromIndex), min);
+
+            long fromTime = timestamps.get(fromIndex) - random.nextInt(3);
+            double weightedSum = 0;
+            long start = fromTime;
+            for (int j = 0; j < values.size(); j++) {
+                if (timestamps.get(j) >= start) {
+                    weightedSum += (timestamps.get(j) - start) * values.get(j);
+                    start = timestamps.get(j);
+                }
+            }
+            assertEquals(buffer.getTimeWeightedSum(fromTime), weightedSum, 0.000001d);
+        }
+    }
+
+    @Test
+    public void testNonFiniteValuesAreRejected() {
+        TimeSeriesRingBuffer buffer = new TimeSeriesRingBuffer();
+        buffer.add(100L, 1);
+        for (double value : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            try {
+                buffer.add(200L, value);
+                fail("value="+value);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        buffer.add(300L, 3);
+
+        assertEquals(buffer.size(), 2);
+        assertEquals(buffer.getSum(0), 4d);
+        assertEquals(buffer.getMax(0), 3d);
+        assertEquals(buffer.getMin(0), 1d);
+    }
+}
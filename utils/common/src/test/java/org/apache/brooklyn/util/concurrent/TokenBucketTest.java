@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+
+public class TokenBucketTest {
+
+    private FakeTicker ticker;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() {
+        ticker = new FakeTicker();
+    }
+
+    @Test
+    public void testAllowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 3, ticker);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 1, ticker);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(bucket.nanosUntilAvailable(), TimeUnit.MILLISECONDS.toNanos(100));
+
+        ticker.advance(TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(bucket.tryAcquire());
+        assertEquals(bucket.nanosUntilAvailable(), TimeUnit.MILLISECONDS.toNanos(50));
+
+        ticker.advance(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(bucket.nanosUntilAvailable(), 0);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testReservesTokensInOrder() {
+        TokenBucket bucket = new TokenBucket(10, 1, ticker);
+        assertEquals(bucket.reserve(), 0);
+        assertEquals(bucket.reserve(), TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(bucket.reserve(), TimeUnit.MILLISECONDS.toNanos(200));
+        assertFalse(bucket.tryAcquire());
+
+        // the reserved tokens are paid for before any more are available
+        ticker.advance(TimeUnit.MILLISECONDS.toNanos(200));
+        assertFalse(bucket.tryAcquire());
+        ticker.advance(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testDoesNotAccumulateBeyondCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 2, ticker);
+        ticker.advance(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(bucket.getAvailableTokens(), 2d);
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+        @Override public long read() {
+            return nanos;
+        }
+        void advance(long val) {
+            nanos += val;
+        }
+    }
+}